@@ -26,7 +26,10 @@ import java.util.Random;
 import moa.core.InstancesHeader;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
+import moa.core.SerializeUtils;
+import moa.core.SizeOf;
 import moa.core.StringUtils;
+import moa.core.WeightedInstance;
 import moa.gui.AWTRenderer;
 import moa.options.AbstractOptionHandler;
 import moa.options.IntOption;
@@ -65,6 +68,12 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     /** Random Generator used in randomizable learners  */
     public Random classifierRandom;
 
+    /** Training weight seen when the model size was last measured, -1 if never */
+    protected double byteSizeMeasuredAtWeight = -1.0;
+
+    /** Model size found by the last measurement */
+    protected int measuredByteSize;
+
     /**
      * Creates an classifier and setups the random seed option
      * if the classifier is randomizable.
@@ -129,6 +138,7 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public void resetLearning() {
         this.trainingWeightSeenByModel = 0.0;
+        this.byteSizeMeasuredAtWeight = -1.0;
         if (isRandomizable()) {
             this.classifierRandom = new Random(this.randomSeed);
         }
@@ -137,9 +147,108 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
 
     @Override
     public void trainOnInstance(Instance inst) {
+        if (countTrainingWeight(inst)) {
+            trainOnInstanceImpl(inst);
+        }
+    }
+
+    /**
+     * Adds the weight of an instance to the training weight seen by the
+     * model, as <code>trainOnInstance</code> does before training.
+     * Subclasses that train in <code>testThenTrainOnInstance</code> without
+     * calling <code>trainOnInstance</code> use this to keep the count.
+     *
+     * @param inst the instance to be used for training
+     * @return true if the instance has a positive weight and has to be
+     * trained on
+     */
+    protected boolean countTrainingWeight(Instance inst) {
         if (inst.weight() > 0.0) {
             this.trainingWeightSeenByModel += inst.weight();
-            trainOnInstanceImpl(inst);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void trainOnInstance(Instance inst, double weight) {
+        if (weight > 0.0) {
+            trainOnInstance(new WeightedInstance(inst, weight));
+        }
+    }
+
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        getVotesForInstancesOneByOne(insts, votes);
+    }
+
+    /**
+     * Predicts a batch of instances by calling
+     * <code>getVotesForInstance</code> for every instance. Subclasses that
+     * change <code>getVotesForInstance</code> of a classifier with an
+     * optimized batch prediction use this to keep their own predictions.
+     *
+     * @param insts the instances to be classified
+     * @param votes the array to store the votes in
+     */
+    protected void getVotesForInstancesOneByOne(Instances insts, double[][] votes) {
+        for (int i = 0; i < insts.numInstances(); i++) {
+            votes[i] = getVotesForInstance(insts.instance(i));
+        }
+    }
+
+    @Override
+    public double[] testThenTrainOnInstance(Instance inst) {
+        double[] votes = getVotesForInstance(inst);
+        trainOnInstance(inst);
+        return votes;
+    }
+
+    /**
+     * Gets an estimate of the memory size of the model. An ensemble is
+     * estimated as the sum of the estimates of its members. Other models
+     * are measured in full, but only again once the training weight seen
+     * has doubled, so the cost of measuring stays small compared to
+     * training, and the last measurement is returned in between. Learners
+     * that can track their size more closely override this method.
+     *
+     * @return the estimated memory size of the model in bytes
+     */
+    @Override
+    public int estimateByteSize() {
+        Classifier[] subModels = getSubClassifiers();
+        if ((subModels != null) && (subModels.length > 0)) {
+            long byteSize = 0;
+            for (Classifier subModel : subModels) {
+                if (subModel != null) {
+                    byteSize += subModel.estimateByteSize();
+                }
+            }
+            return (int) Math.min(byteSize, Integer.MAX_VALUE);
+        }
+        if ((this.byteSizeMeasuredAtWeight < 0.0)
+                || ((this.trainingWeightSeenByModel > this.byteSizeMeasuredAtWeight)
+                && (this.trainingWeightSeenByModel >= 2.0 * this.byteSizeMeasuredAtWeight))) {
+            this.measuredByteSize = measureFullByteSize();
+            this.byteSizeMeasuredAtWeight = this.trainingWeightSeenByModel;
+        }
+        return this.measuredByteSize;
+    }
+
+    /**
+     * Measures the memory size of the whole model with the SizeOf agent,
+     * or its serialized size if the agent is not present.
+     *
+     * @return the memory size of the model in bytes
+     */
+    protected int measureFullByteSize() {
+        if (SizeOf.isPresent()) {
+            return measureByteSize();
+        }
+        try {
+            return SerializeUtils.measureObjectByteSize(this);
+        } catch (Exception e) {
+            return 0;
         }
     }
 
@@ -148,8 +257,8 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         List<Measurement> measurementList = new LinkedList<Measurement>();
         measurementList.add(new Measurement("model training instances",
                 trainingWeightSeenByModel()));
-        measurementList.add(new Measurement("model serialized size (bytes)",
-                measureByteSize()));
+        measurementList.add(new Measurement("model size estimate (bytes)",
+                estimateByteSize()));
         Measurement[] modelMeasurements = getModelMeasurementsImpl();
         if (modelMeasurements != null) {
             measurementList.addAll(Arrays.asList(modelMeasurements));
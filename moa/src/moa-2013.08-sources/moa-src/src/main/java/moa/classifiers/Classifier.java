@@ -25,6 +25,7 @@ import moa.core.Measurement;
 import moa.gui.AWTRenderable;
 import moa.options.OptionHandler;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * Classifier interface for incremental classification models. 
@@ -96,6 +97,18 @@ public interface Classifier extends MOAObject, OptionHandler, AWTRenderable {
      */
     public void trainOnInstance(Instance inst);
 
+    /**
+     * Trains this classifier incrementally using the given instance
+     * with a different weight. The weight of the instance itself is
+     * not changed, and the instance is not copied unless the classifier
+     * modifies it. Ensembles use this to train their members on
+     * resampled instances.
+     *
+     * @param inst the instance to be used for training
+     * @param weight the weight to train with instead of the weight of the instance
+     */
+    public void trainOnInstance(Instance inst, double weight);
+
     /**
      * Predicts the class memberships for a given instance. If
      * an instance is unclassified, the returned array elements
@@ -107,6 +120,32 @@ public interface Classifier extends MOAObject, OptionHandler, AWTRenderable {
      */
     public double[] getVotesForInstance(Instance inst);
 
+    /**
+     * Predicts the class memberships for a batch of instances. The
+     * result must be the same as calling <code>getVotesForInstance</code>
+     * for every instance in turn, but classifiers can share the work
+     * that does not depend on the instance across the whole batch.
+     *
+     * @param insts the instances to be classified
+     * @param votes the array to store the votes in, with one entry
+     * per instance, set to the votes returned for that instance
+     */
+    public void getVotesForInstances(Instances insts, double[][] votes);
+
+    /**
+     * Predicts the class memberships for a given instance and then
+     * trains this classifier on it. The result must be the same as
+     * calling <code>getVotesForInstance</code> followed by
+     * <code>trainOnInstance</code>, but ensembles that query their
+     * members before training can reuse the member votes instead of
+     * computing them twice.
+     *
+     * @param inst the instance to be classified and then used for training
+     * @return an array containing the estimated membership
+     * probabilities of the instance in each class, before training
+     */
+    public double[] testThenTrainOnInstance(Instance inst);
+
     /**
      * Gets whether this classifier correctly classifies an instance.
      * Uses getVotesForInstance to obtain the prediction and
@@ -125,6 +164,21 @@ public interface Classifier extends MOAObject, OptionHandler, AWTRenderable {
      */
     public Measurement[] getModelMeasurements();
 
+    /**
+     * Gets an estimate of the memory size of the model, in bytes, that is
+     * cheaper than <code>measureByteSize</code> when called often. The
+     * default implementation still measures the whole model, with the
+     * SizeOf agent or else by serializing it, but only again once the
+     * training weight seen has doubled, and returns the last measurement
+     * in between, so the estimate can lag behind a growing model. Ensembles
+     * return the sum of the estimates of their members, and
+     * <code>HoeffdingTree</code> scales its last measurement by its number
+     * of nodes.
+     *
+     * @return the estimated memory size of the model in bytes
+     */
+    public int estimateByteSize();
+
     /**
      * Gets the classifiers of this ensemble.
      * Returns null if this classifier is a single classifier.
@@ -28,6 +28,7 @@ import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.StringUtils;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * Naive Bayes incremental learner.
@@ -83,6 +84,41 @@ public class NaiveBayes extends AbstractClassifier {
                 this.attributeObservers);
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        // the class priors and the observer of every attribute are looked
+        // up once for the whole batch
+        double[] classPriors = new double[this.observedClassDistribution.numValues()];
+        double observedClassSum = this.observedClassDistribution.sumOfValues();
+        for (int classIndex = 0; classIndex < classPriors.length; classIndex++) {
+            classPriors[classIndex] = this.observedClassDistribution.getValue(classIndex)
+                    / observedClassSum;
+        }
+        int numModelAttributes = insts.numAttributes() - 1;
+        AttributeClassObserver[] observers = new AttributeClassObserver[numModelAttributes];
+        int[] instAttIndices = new int[numModelAttributes];
+        for (int attIndex = 0; attIndex < numModelAttributes; attIndex++) {
+            observers[attIndex] = this.attributeObservers.get(attIndex);
+            instAttIndices[attIndex] = modelAttIndexToInstanceAttIndex(attIndex, insts);
+        }
+        for (int i = 0; i < insts.numInstances(); i++) {
+            Instance inst = insts.instance(i);
+            double[] instVotes = classPriors.clone();
+            // every class still multiplies its probabilities in attribute order
+            for (int attIndex = 0; attIndex < numModelAttributes; attIndex++) {
+                AttributeClassObserver obs = observers[attIndex];
+                int instAttIndex = instAttIndices[attIndex];
+                if ((obs != null) && !inst.isMissing(instAttIndex)) {
+                    double value = inst.value(instAttIndex);
+                    for (int classIndex = 0; classIndex < instVotes.length; classIndex++) {
+                        instVotes[classIndex] *= obs.probabilityOfAttributeValueGivenClass(value, classIndex);
+                    }
+                }
+            }
+            votes[i] = instVotes;
+        }
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
@@ -148,6 +184,37 @@ public class NaiveBayes extends AbstractClassifier {
         return votes;
     }
 
+    // same as Utils.maxIndex(doNaiveBayesPrediction(...)), but computes the
+    // votes in the given array, which must have an entry for every class
+    public static int doNaiveBayesPredictionIndex(Instance inst,
+            DoubleVector observedClassDistribution,
+            AutoExpandVector<AttributeClassObserver> attributeObservers,
+            double[] votes) {
+        int numClasses = observedClassDistribution.numValues();
+        double observedClassSum = observedClassDistribution.sumOfValues();
+        for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+            votes[classIndex] = observedClassDistribution.getValue(classIndex)
+                    / observedClassSum;
+        }
+        for (int attIndex = 0; attIndex < inst.numAttributes() - 1; attIndex++) {
+            int instAttIndex = modelAttIndexToInstanceAttIndex(attIndex, inst);
+            AttributeClassObserver obs = attributeObservers.get(attIndex);
+            if ((obs != null) && !inst.isMissing(instAttIndex)) {
+                double value = inst.value(instAttIndex);
+                for (int classIndex = 0; classIndex < numClasses; classIndex++) {
+                    votes[classIndex] *= obs.probabilityOfAttributeValueGivenClass(value, classIndex);
+                }
+            }
+        }
+        int maxIndex = 0;
+        for (int classIndex = 1; classIndex < numClasses; classIndex++) {
+            if (votes[classIndex] > votes[maxIndex]) {
+                maxIndex = classIndex;
+            }
+        }
+        return maxIndex;
+    }
+
     // Naive Bayes Prediction using log10 for VFDR rules 
     public static double[] doNaiveBayesPredictionLog(Instance inst,
             DoubleVector observedClassDistribution,
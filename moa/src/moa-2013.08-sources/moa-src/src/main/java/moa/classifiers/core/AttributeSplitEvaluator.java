@@ -0,0 +1,150 @@
+/*
+ *    AttributeSplitEvaluator.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.AutoExpandVector;
+import moa.core.WorkerPool;
+
+/**
+ * Utilities used by Hoeffding trees to evaluate the split suggestions of a
+ * leaf when attempting a split.
+ *
+ * The attribute observers of a leaf can be evaluated in parallel on a
+ * <code>WorkerPool</code>: each evaluation only reads its own observer, the
+ * split criterion and the pre-split distribution, and the suggestions are
+ * returned in attribute order, so the result is the same as evaluating them
+ * one after another. Observers shared by several attributes keep state while
+ * being evaluated, so they are always evaluated in the calling thread.
+ *
+ * The best two suggestions can be selected without sorting, breaking ties
+ * like a stable sort of the suggestions would.
+ *
+ * @version $Revision: 7 $
+ */
+public class AttributeSplitEvaluator {
+
+    /**
+     * Gets the best split suggestion of every attribute observer.
+     *
+     * @param nullSplit the suggestion of not splitting, put first when not null
+     * @param attributeObservers the observers of the leaf, indexed by attribute
+     * @param criterion the split criterion
+     * @param preSplitDist the class distribution before the split
+     * @param binaryOnly whether only binary splits are allowed
+     * @param pool the pool to evaluate the observers on, or null to evaluate
+     * them in the calling thread
+     * @return the suggestions, in attribute order, without the attributes
+     * that have no suggestion
+     */
+    public static AttributeSplitSuggestion[] getBestSplitSuggestions(
+            AttributeSplitSuggestion nullSplit,
+            final AutoExpandVector<AttributeClassObserver> attributeObservers,
+            final SplitCriterion criterion, final double[] preSplitDist,
+            final boolean binaryOnly, WorkerPool pool) {
+        int numObservers = attributeObservers.size();
+        final AttributeSplitSuggestion[] attSuggestions = new AttributeSplitSuggestion[numObservers];
+        if ((pool == null) || hasSharedObservers(attributeObservers)) {
+            for (int i = 0; i < numObservers; i++) {
+                AttributeClassObserver obs = attributeObservers.get(i);
+                if (obs != null) {
+                    attSuggestions[i] = obs.getBestEvaluatedSplitSuggestion(
+                            criterion, preSplitDist, i, binaryOnly);
+                }
+            }
+        } else {
+            pool.forEach(numObservers, new WorkerPool.Job() {
+
+                @Override
+                public void run(int i) {
+                    AttributeClassObserver obs = attributeObservers.get(i);
+                    if (obs != null) {
+                        attSuggestions[i] = obs.getBestEvaluatedSplitSuggestion(
+                                criterion, preSplitDist, i, binaryOnly);
+                    }
+                }
+            });
+        }
+        int numSuggestions = nullSplit != null ? 1 : 0;
+        for (int i = 0; i < numObservers; i++) {
+            if (attSuggestions[i] != null) {
+                numSuggestions++;
+            }
+        }
+        AttributeSplitSuggestion[] suggestions = new AttributeSplitSuggestion[numSuggestions];
+        int k = 0;
+        if (nullSplit != null) {
+            suggestions[k++] = nullSplit;
+        }
+        for (int i = 0; i < numObservers; i++) {
+            if (attSuggestions[i] != null) {
+                suggestions[k++] = attSuggestions[i];
+            }
+        }
+        return suggestions;
+    }
+
+    protected static boolean hasSharedObservers(
+            AutoExpandVector<AttributeClassObserver> attributeObservers) {
+        Map<AttributeClassObserver, Boolean> seen = new IdentityHashMap<AttributeClassObserver, Boolean>();
+        for (int i = 0; i < attributeObservers.size(); i++) {
+            AttributeClassObserver obs = attributeObservers.get(i);
+            if ((obs != null) && (seen.put(obs, Boolean.TRUE) != null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the suggestion with the highest merit. Among suggestions of equal
+     * merit the last one is chosen, which is the one that ends last after
+     * <code>Arrays.sort</code>.
+     *
+     * @param suggestions the suggestions
+     * @return the index of the best suggestion, or -1 if there is none
+     */
+    public static int indexOfBest(AttributeSplitSuggestion[] suggestions) {
+        return indexOfBest(suggestions, -1);
+    }
+
+    /**
+     * Finds the suggestion with the highest merit, ignoring one of them.
+     * Called with the index of the best suggestion, this finds the one that
+     * ends second last after <code>Arrays.sort</code>.
+     *
+     * @param suggestions the suggestions
+     * @param excludedIndex the index of the suggestion to ignore
+     * @return the index of the best other suggestion, or -1 if there is none
+     */
+    public static int indexOfBest(AttributeSplitSuggestion[] suggestions,
+            int excludedIndex) {
+        int best = -1;
+        for (int i = 0; i < suggestions.length; i++) {
+            if ((i != excludedIndex) && ((best < 0)
+                    || (Double.compare(suggestions[i].merit, suggestions[best].merit) >= 0))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
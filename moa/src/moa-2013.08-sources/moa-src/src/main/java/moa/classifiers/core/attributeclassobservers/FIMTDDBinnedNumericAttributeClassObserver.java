@@ -0,0 +1,197 @@
+/*
+ *    FIMTDDBinnedNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.options.IntOption;
+
+/**
+ * Regression observer with bounded memory for FIMTDD, ORTO and AMRules, to
+ * be used instead of the E-BST of <code>FIMTDDNumericAttributeClassObserver</code>,
+ * which keeps one node for every distinct value. The values are kept in at
+ * most the given number of bins, held in sorted arrays with the largest
+ * value, the count, the sum and the sum of squares of the targets of every
+ * bin. Every distinct value has its own bin until there are too many of
+ * them. From then on the bins are the cells of a grid: the first grid
+ * divides the range of the values seen so far by the maximum number of
+ * bins, and the width of the cells is doubled, merging their bins, every
+ * time the bins do not fit. The split points are the largest values of the
+ * bins, so the best split is searched with a single pass over the arrays.
+ * Bad split points are not removed, as the number of bins is already
+ * bounded.
+ *
+ * @version $Revision: 7 $
+ */
+public class FIMTDDBinnedNumericAttributeClassObserver extends FIMTDDNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption maxBinsOption = new IntOption("maxBins", 'b',
+            "Maximum number of bins.", 64, 2, Integer.MAX_VALUE);
+
+    // largest value, number of values and sums of the targets of every bin
+    protected double[] cutPoints;
+
+    protected double[] counts;
+
+    protected double[] sums;
+
+    protected double[] sumSqs;
+
+    protected int numBins;
+
+    // width of the grid cells, zero while every bin holds a single value
+    protected double binWidth;
+
+    @Override
+    public void observeAttributeClass(double attVal, double classVal, double weight) {
+        if (Double.isNaN(attVal)) {
+            return;
+        }
+        if (this.cutPoints == null) {
+            int maxBins = this.maxBinsOption.getValue();
+            this.cutPoints = new double[maxBins + 1];
+            this.counts = new double[maxBins + 1];
+            this.sums = new double[maxBins + 1];
+            this.sumSqs = new double[maxBins + 1];
+        }
+        int bin = findBin(attVal);
+        if (bin < 0) {
+            bin = -bin - 1;
+            int numMoved = this.numBins - bin;
+            System.arraycopy(this.cutPoints, bin, this.cutPoints, bin + 1, numMoved);
+            System.arraycopy(this.counts, bin, this.counts, bin + 1, numMoved);
+            System.arraycopy(this.sums, bin, this.sums, bin + 1, numMoved);
+            System.arraycopy(this.sumSqs, bin, this.sumSqs, bin + 1, numMoved);
+            this.cutPoints[bin] = attVal;
+            this.counts[bin] = 0.0;
+            this.sums[bin] = 0.0;
+            this.sumSqs[bin] = 0.0;
+            this.numBins++;
+        } else if (attVal > this.cutPoints[bin]) {
+            this.cutPoints[bin] = attVal;
+        }
+        // as in the E-BST, every value counts once whatever its weight
+        this.counts[bin] += 1.0;
+        this.sums[bin] += classVal;
+        this.sumSqs[bin] += classVal * classVal;
+        if (this.numBins > this.maxBinsOption.getValue()) {
+            coarsen();
+        }
+    }
+
+    protected double cell(double attVal) {
+        return this.binWidth == 0.0 ? attVal : Math.floor(attVal / this.binWidth);
+    }
+
+    /**
+     * Binary search of the bin of a value.
+     *
+     * @return the index of the bin, or -(insertion point) - 1 if there is none
+     */
+    protected int findBin(double attVal) {
+        double cell = cell(attVal);
+        int low = 0;
+        int high = this.numBins - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            double midCell = cell(this.cutPoints[mid]);
+            if (midCell < cell) {
+                low = mid + 1;
+            } else if (midCell > cell) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Widens the grid until the bins fit. Doubling the width keeps every old
+     * cell inside a single new one, so only neighbouring bins are merged.
+     */
+    protected void coarsen() {
+        int maxBins = this.maxBinsOption.getValue();
+        double width = this.binWidth == 0.0
+                ? (this.cutPoints[this.numBins - 1] - this.cutPoints[0]) / maxBins
+                : 2.0 * this.binWidth;
+        while (true) {
+            this.binWidth = width;
+            int last = 0;
+            for (int i = 1; i < this.numBins; i++) {
+                if (cell(this.cutPoints[i]) == cell(this.cutPoints[last])) {
+                    this.cutPoints[last] = this.cutPoints[i];
+                    this.counts[last] += this.counts[i];
+                    this.sums[last] += this.sums[i];
+                    this.sumSqs[last] += this.sumSqs[i];
+                } else {
+                    last++;
+                    this.cutPoints[last] = this.cutPoints[i];
+                    this.counts[last] = this.counts[i];
+                    this.sums[last] = this.sums[i];
+                    this.sumSqs[last] = this.sumSqs[i];
+                }
+            }
+            this.numBins = last + 1;
+            if (this.numBins <= maxBins) {
+                return;
+            }
+            width *= 2.0;
+        }
+    }
+
+    public int getNumBins() {
+        return this.numBins;
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(SplitCriterion criterion, double[] preSplitDist, int attIndex, boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        double[][] postSplitDists = new double[2][3];
+        double countLeft = 0.0;
+        double sumLeft = 0.0;
+        double sumSqLeft = 0.0;
+        // splitting after the last bin would leave no value on the right
+        for (int i = 0; i < this.numBins - 1; i++) {
+            countLeft += this.counts[i];
+            sumLeft += this.sums[i];
+            sumSqLeft += this.sumSqs[i];
+            postSplitDists[0][0] = countLeft;
+            postSplitDists[0][1] = sumLeft;
+            postSplitDists[0][2] = sumSqLeft;
+            postSplitDists[1][0] = preSplitDist[0] - countLeft;
+            postSplitDists[1][1] = preSplitDist[1] - sumLeft;
+            postSplitDists[1][2] = preSplitDist[2] - sumSqLeft;
+            double merit = criterion.getMeritOfSplit(preSplitDist, postSplitDists);
+            if (bestSuggestion == null || merit > bestSuggestion.merit) {
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex, this.cutPoints[i], true),
+                        new double[][]{postSplitDists[0].clone(), postSplitDists[1].clone()},
+                        merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    @Override
+    public void removeBadSplits(SplitCriterion criterion, double lastCheckRatio, double lastCheckSDR, double lastCheckE) {
+    }
+}
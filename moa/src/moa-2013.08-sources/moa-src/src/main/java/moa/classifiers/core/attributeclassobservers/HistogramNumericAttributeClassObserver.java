@@ -0,0 +1,264 @@
+/*
+ *    HistogramNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.IntOption;
+import moa.tasks.TaskMonitor;
+import weka.core.Utils;
+
+/**
+ * Class for observing the class data distribution for a numeric attribute
+ * using a fixed number of equal width bins.
+ * This observer monitors the class distribution of a given attribute.
+ * Used in naive Bayes and decision trees to monitor data statistics on leaves.
+ *
+ * The weight of every class in every bin is kept in a single array, so the
+ * memory used does not grow with the number of distinct values observed.
+ * The first two distinct values fix the initial range of the bins. When a
+ * value falls outside the range, the range is doubled towards it and
+ * neighbouring bins are merged, so the boundaries of the bins never move
+ * inside the range already observed. The best binary split is found with one
+ * sweep over the bins, evaluating the split at every bin boundary.
+ *
+ * The memory is bounded, but not small: every attribute of every leaf keeps
+ * numBins * numClasses weights, while the default
+ * <code>GaussianNumericAttributeClassObserver</code> keeps a normal
+ * estimator and the range of every class. Compared to the binary tree
+ * observer it saves memory, but compared to the Gaussian one it trades a
+ * larger model for cheaper observation and split checks. Fewer bins make
+ * the model smaller.
+ *
+ * @version $Revision: 7 $
+ */
+public class HistogramNumericAttributeClassObserver extends AbstractOptionHandler
+        implements NumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numBinsOption = new IntOption("numBins", 'n',
+            "The number of bins.", 32, 2, Integer.MAX_VALUE);
+
+    protected int numBins;
+
+    protected int numClasses;
+
+    // weight of class c in bin b is at b * numClasses + c
+    protected double[] binWeights;
+
+    protected double[] classWeights;
+
+    // lower bound of the first bin
+    protected double origin;
+
+    // zero while all values observed are equal
+    protected double binWidth;
+
+    protected double minValue;
+
+    protected double maxValue;
+
+    @Override
+    public void observeAttributeClass(double attVal, int classVal, double weight) {
+        if (Utils.isMissingValue(attVal) || Double.isInfinite(attVal)) {
+        } else {
+            if (this.binWeights == null) {
+                this.numBins = this.numBinsOption.getValue();
+                this.numClasses = classVal + 1;
+                this.binWeights = new double[this.numBins * this.numClasses];
+                this.classWeights = new double[this.numClasses];
+                this.origin = attVal;
+                this.minValue = attVal;
+                this.maxValue = attVal;
+            } else if (classVal >= this.numClasses) {
+                setNumClasses(classVal + 1);
+            }
+            if (attVal < this.minValue) {
+                this.minValue = attVal;
+            }
+            if (attVal > this.maxValue) {
+                this.maxValue = attVal;
+            }
+            if ((this.binWidth == 0.0) && (attVal != this.origin)) {
+                // second distinct value, the two values span all the bins
+                this.binWidth = Math.abs(attVal - this.origin) / (this.numBins - 1);
+                if (attVal < this.origin) {
+                    moveBin(0, this.numBins - 1);
+                    this.origin = attVal;
+                }
+            }
+            this.binWeights[binIndex(attVal) * this.numClasses + classVal] += weight;
+            this.classWeights[classVal] += weight;
+        }
+    }
+
+    /*
+     * index of the bin of a value, widening the range of the bins when the
+     * value is outside it
+     */
+    protected int binIndex(double attVal) {
+        if (this.binWidth == 0.0) {
+            return 0;
+        }
+        while (attVal < this.origin) {
+            widenDownwards();
+        }
+        while (attVal >= this.origin + this.numBins * this.binWidth) {
+            widenUpwards();
+        }
+        int index = (int) ((attVal - this.origin) / this.binWidth);
+        return index < this.numBins ? index : this.numBins - 1;
+    }
+
+    protected void widenUpwards() {
+        // old bins 2j and 2j + 1 become bin j
+        for (int j = 0; j < this.numBins; j++) {
+            for (int c = 0; c < this.numClasses; c++) {
+                double w = 0.0;
+                if (2 * j < this.numBins) {
+                    w += this.binWeights[2 * j * this.numClasses + c];
+                }
+                if (2 * j + 1 < this.numBins) {
+                    w += this.binWeights[(2 * j + 1) * this.numClasses + c];
+                }
+                this.binWeights[j * this.numClasses + c] = w;
+            }
+        }
+        this.binWidth *= 2.0;
+    }
+
+    protected void widenDownwards() {
+        // old bin i becomes bin (numBins + i) / 2, filled from the top so no
+        // old bin is overwritten before it is read
+        for (int j = this.numBins - 1; j >= 0; j--) {
+            int first = 2 * j - this.numBins;
+            for (int c = 0; c < this.numClasses; c++) {
+                double w = 0.0;
+                if (first >= 0) {
+                    w += this.binWeights[first * this.numClasses + c];
+                }
+                if ((first + 1 >= 0) && (first + 1 < this.numBins)) {
+                    w += this.binWeights[(first + 1) * this.numClasses + c];
+                }
+                this.binWeights[j * this.numClasses + c] = w;
+            }
+        }
+        this.origin -= this.numBins * this.binWidth;
+        this.binWidth *= 2.0;
+    }
+
+    protected void moveBin(int from, int to) {
+        for (int c = 0; c < this.numClasses; c++) {
+            this.binWeights[to * this.numClasses + c] = this.binWeights[from * this.numClasses + c];
+            this.binWeights[from * this.numClasses + c] = 0.0;
+        }
+    }
+
+    protected void setNumClasses(int newNumClasses) {
+        double[] newBinWeights = new double[this.numBins * newNumClasses];
+        for (int b = 0; b < this.numBins; b++) {
+            System.arraycopy(this.binWeights, b * this.numClasses, newBinWeights,
+                    b * newNumClasses, this.numClasses);
+        }
+        double[] newClassWeights = new double[newNumClasses];
+        System.arraycopy(this.classWeights, 0, newClassWeights, 0, this.numClasses);
+        this.binWeights = newBinWeights;
+        this.classWeights = newClassWeights;
+        this.numClasses = newNumClasses;
+    }
+
+    @Override
+    public double probabilityOfAttributeValueGivenClass(double attVal,
+            int classVal) {
+        if ((this.binWeights == null) || (classVal >= this.numClasses)
+                || (this.classWeights[classVal] == 0.0)) {
+            return 0.0;
+        }
+        // weight of the bin of the value, with one instance added to every bin
+        double binWeight = 0.0;
+        if ((attVal >= this.origin) && ((this.binWidth == 0.0)
+                ? attVal == this.origin
+                : attVal < this.origin + this.numBins * this.binWidth)) {
+            int index = this.binWidth == 0.0 ? 0
+                    : Math.min((int) ((attVal - this.origin) / this.binWidth),
+                    this.numBins - 1);
+            binWeight = this.binWeights[index * this.numClasses + classVal];
+        }
+        return (binWeight + 1.0) / (this.classWeights[classVal] + this.numBins);
+    }
+
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(
+            SplitCriterion criterion, double[] preSplitDist, int attIndex,
+            boolean binaryOnly) {
+        AttributeSplitSuggestion bestSuggestion = null;
+        if ((this.binWeights == null) || (this.binWidth == 0.0)) {
+            return null;
+        }
+        double[] lhsDist = new double[this.numClasses];
+        double[] rhsDist = this.classWeights.clone();
+        double[][] postSplitDists = new double[][]{lhsDist, rhsDist};
+        for (int b = 0; b < this.numBins - 1; b++) {
+            boolean binEmpty = true;
+            for (int c = 0; c < this.numClasses; c++) {
+                double w = this.binWeights[b * this.numClasses + c];
+                if (w != 0.0) {
+                    lhsDist[c] += w;
+                    rhsDist[c] -= w;
+                    binEmpty = false;
+                }
+            }
+            double splitValue = this.origin + (b + 1) * this.binWidth;
+            if (binEmpty || (splitValue <= this.minValue)) {
+                continue;
+            }
+            if (splitValue > this.maxValue) {
+                break;
+            }
+            double merit = criterion.getMeritOfSplit(preSplitDist,
+                    postSplitDists);
+            if ((bestSuggestion == null) || (merit > bestSuggestion.merit)) {
+                // values equal to a bin boundary were counted in the upper bin
+                bestSuggestion = new AttributeSplitSuggestion(
+                        new NumericAttributeBinaryTest(attIndex, splitValue,
+                        false), new double[][]{lhsDist.clone(),
+                            rhsDist.clone()}, merit);
+            }
+        }
+        return bestSuggestion;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        // TODO Auto-generated method stub
+    }
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor, ObjectRepository repository) {
+        // TODO Auto-generated method stub
+    }
+
+    @Override
+    public void observeAttributeTarget(double attVal, double target) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
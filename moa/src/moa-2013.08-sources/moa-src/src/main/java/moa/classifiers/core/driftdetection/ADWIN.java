@@ -595,6 +595,21 @@ public class ADWIN extends AbstractMOAObject {
         mintClock = cl;
     }
 
+    /**
+     * Constructor for subclasses that keep the window themselves and
+     * override every public method. The list of buckets is not created,
+     * so the methods of this class must not be called on them.
+     *
+     * @param d the confidence value delta
+     * @param withBuckets false to leave out the list of buckets
+     */
+    protected ADWIN(double d, boolean withBuckets) {
+        mdbldelta = d;
+        if (withBuckets) {
+            initBuckets();
+        }
+    }
+
     public String getEstimatorInfo() {
         return "ADWIN;;";
     }
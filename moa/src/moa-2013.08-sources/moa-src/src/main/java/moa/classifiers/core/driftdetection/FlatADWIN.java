@@ -0,0 +1,337 @@
+/*
+ *    FlatADWIN.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.driftdetection;
+
+/**
+ * ADWIN with its exponential histogram stored in flat primitive arrays.
+ * Row i of the histogram holds up to <code>MAXBUCKETS + 1</code> buckets of
+ * 2^i items each, stored at <code>i * ROW_LENGTH</code> in the total and
+ * variance arrays, instead of in a linked list of row objects. Bucket sizes
+ * are computed with shifts, and the logarithm and variance terms of the cut
+ * test are computed once per scan of the window instead of once per bucket.
+ *
+ * All arithmetic is done in the same order as in <code>ADWIN</code>, so the
+ * estimations and the detected changes are exactly the same. The class
+ * extends <code>ADWIN</code> so it can be used wherever an ADWIN is, but
+ * keeps none of its state: the list of buckets of ADWIN is not created, and
+ * every public method is overridden to use the arrays.
+ *
+ * @version $Revision: 7 $
+ */
+public class FlatADWIN extends ADWIN {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int ROW_LENGTH = MAXBUCKETS + 1;
+
+    protected static final int MIN_WINDOW_LENGTH = 10;
+
+    protected static final int MIN_SUBWINDOW_LENGTH = 5;
+
+    protected double delta;
+
+    protected int time = 0;
+
+    protected int clock = 32;
+
+    protected double widthSum = 0;
+
+    protected int lastBucketRow = 0;
+
+    protected double total = 0;
+
+    protected double variance = 0;
+
+    protected int width = 0;
+
+    protected int bucketNumber = 0;
+
+    protected int bucketNumberMax = 0;
+
+    protected int detect = 0;
+
+    protected int detectTwice = 0;
+
+    protected int numberDetections = 0;
+
+    protected boolean bucketDeleted = false;
+
+    protected double[] bucketTotal = new double[4 * ROW_LENGTH];
+
+    protected double[] bucketVariance = new double[4 * ROW_LENGTH];
+
+    protected int[] rowSize = new int[4];
+
+    public FlatADWIN() {
+        this(DELTA);
+    }
+
+    public FlatADWIN(double d) {
+        super(d, false);
+        this.delta = d;
+    }
+
+    public FlatADWIN(int cl) {
+        this(DELTA);
+        this.clock = cl;
+    }
+
+    @Override
+    public boolean getChange() {
+        return this.bucketDeleted;
+    }
+
+    @Override
+    public void resetChange() {
+        this.bucketDeleted = false;
+    }
+
+    @Override
+    public int getBucketsUsed() {
+        return this.bucketNumberMax;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public void setClock(int intClock) {
+        this.clock = intClock;
+    }
+
+    @Override
+    public int getClock() {
+        return this.clock;
+    }
+
+    @Override
+    public boolean getWarning() {
+        return false;
+    }
+
+    @Override
+    public boolean getDetect() {
+        return (this.detect == this.time);
+    }
+
+    @Override
+    public int getNumberDetections() {
+        return this.numberDetections;
+    }
+
+    @Override
+    public double getTotal() {
+        return this.total;
+    }
+
+    @Override
+    public double getEstimation() {
+        return this.total / this.width;
+    }
+
+    @Override
+    public double getVariance() {
+        return this.variance / this.width;
+    }
+
+    @Override
+    public double getWidthT() {
+        return this.widthSum;
+    }
+
+    @Override
+    public boolean setInput(double intEntrada) {
+        return setInput(intEntrada, this.delta);
+    }
+
+    @Override
+    public boolean setInput(double value, double delta) {
+        boolean change = false;
+        this.time++;
+        insertElement(value);
+        this.bucketDeleted = false;
+        if ((this.time % this.clock == 0) && (this.width > MIN_WINDOW_LENGTH)) {
+            boolean reduceWidth = true;
+            while (reduceWidth) {
+                reduceWidth = false;
+                // constant over one scan, as the window only changes after a cut
+                double dd = Math.log(2 * Math.log(this.width) / delta);
+                double v = this.variance / this.width;
+                int n0 = 0;
+                int n1 = this.width;
+                double u0 = 0;
+                double u1 = this.total;
+                boolean exit = false;
+                for (int i = this.lastBucketRow; (i >= 0) && !exit; i--) {
+                    int base = i * ROW_LENGTH;
+                    int size = 1 << i;
+                    int numBuckets = this.rowSize[i];
+                    for (int k = 0; k < numBuckets; k++) {
+                        double u2 = this.bucketTotal[base + k];
+                        n0 += size;
+                        n1 -= size;
+                        u0 += u2;
+                        u1 -= u2;
+                        if ((i == 0) && (k == numBuckets - 1)) {
+                            exit = true;
+                            break;
+                        }
+                        double absvalue = (u0 / n0) - (u1 / n1);
+                        if ((n1 > MIN_SUBWINDOW_LENGTH + 1) && (n0 > MIN_SUBWINDOW_LENGTH + 1)
+                                && cutExpression(n0, n1, absvalue, dd, v)) {
+                            this.bucketDeleted = true;
+                            this.detect = this.time;
+                            if (this.detectTwice == 0) {
+                                this.detectTwice = this.time;
+                            }
+                            reduceWidth = true;
+                            change = true;
+                            if (this.width > 0) {
+                                n0 -= deleteElement();
+                                exit = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        this.widthSum += this.width;
+        if (change) {
+            this.numberDetections++;
+        }
+        return change;
+    }
+
+    protected static boolean cutExpression(int n0, int n1, double absvalue,
+            double dd, double v) {
+        double m = ((double) 1 / ((n0 - MIN_SUBWINDOW_LENGTH + 1))) + ((double) 1 / ((n1 - MIN_SUBWINDOW_LENGTH + 1)));
+        double epsilon = Math.sqrt(2 * m * v * dd) + (double) 2 / 3 * dd * m;
+        return (Math.abs(absvalue) > epsilon);
+    }
+
+    protected void insertElement(double value) {
+        this.width++;
+        insertBucket(0, value, 0);
+        this.bucketNumber++;
+        if (this.bucketNumber > this.bucketNumberMax) {
+            this.bucketNumberMax = this.bucketNumber;
+        }
+        double incVariance = 0;
+        if (this.width > 1) {
+            incVariance = (this.width - 1) * (value - this.total / (this.width - 1))
+                    * (value - this.total / (this.width - 1)) / this.width;
+        }
+        this.variance += incVariance;
+        this.total += value;
+        compressBuckets();
+    }
+
+    protected void insertBucket(int row, double value, double variance) {
+        int k = row * ROW_LENGTH + this.rowSize[row]++;
+        this.bucketTotal[k] = value;
+        this.bucketVariance[k] = variance;
+    }
+
+    /*
+     * removes the oldest buckets of a row, shifting the others down
+     */
+    protected void removeBuckets(int row, int numBuckets) {
+        int base = row * ROW_LENGTH;
+        int remaining = this.rowSize[row] - numBuckets;
+        System.arraycopy(this.bucketTotal, base + numBuckets, this.bucketTotal, base, remaining);
+        System.arraycopy(this.bucketVariance, base + numBuckets, this.bucketVariance, base, remaining);
+        this.rowSize[row] = remaining;
+    }
+
+    @Override
+    public int deleteElement() {
+        int row = this.lastBucketRow;
+        int base = row * ROW_LENGTH;
+        int n1 = 1 << row;
+        this.width -= n1;
+        this.total -= this.bucketTotal[base];
+        double u1 = this.bucketTotal[base] / n1;
+        double incVariance = this.bucketVariance[base] + n1 * this.width
+                * (u1 - this.total / this.width) * (u1 - this.total / this.width) / (n1 + this.width);
+        this.variance -= incVariance;
+        removeBuckets(row, 1);
+        this.bucketNumber--;
+        if (this.rowSize[row] == 0) {
+            this.lastBucketRow--;
+        }
+        return n1;
+    }
+
+    @Override
+    public void compressBuckets() {
+        for (int i = 0; i <= this.lastBucketRow; i++) {
+            if (this.rowSize[i] != ROW_LENGTH) {
+                break;
+            }
+            if (i == this.lastBucketRow) {
+                addRow();
+            }
+            int base = i * ROW_LENGTH;
+            int n1 = 1 << i;
+            int n2 = n1;
+            double u1 = this.bucketTotal[base] / n1;
+            double u2 = this.bucketTotal[base + 1] / n2;
+            double incVariance = n1 * n2 * (u1 - u2) * (u1 - u2) / (n1 + n2);
+            insertBucket(i + 1, this.bucketTotal[base] + this.bucketTotal[base + 1],
+                    this.bucketVariance[base] + this.bucketVariance[base + 1] + incVariance);
+            // counted like in ADWIN, where merging adds a bucket without removing two
+            this.bucketNumber++;
+            removeBuckets(i, 2);
+            if (this.rowSize[i + 1] <= MAXBUCKETS) {
+                break;
+            }
+        }
+    }
+
+    protected void addRow() {
+        this.lastBucketRow++;
+        if (this.lastBucketRow == this.rowSize.length) {
+            int[] newRowSize = new int[this.rowSize.length * 2];
+            System.arraycopy(this.rowSize, 0, newRowSize, 0, this.rowSize.length);
+            this.rowSize = newRowSize;
+            double[] newTotal = new double[newRowSize.length * ROW_LENGTH];
+            System.arraycopy(this.bucketTotal, 0, newTotal, 0, this.bucketTotal.length);
+            this.bucketTotal = newTotal;
+            double[] newVariance = new double[newRowSize.length * ROW_LENGTH];
+            System.arraycopy(this.bucketVariance, 0, newVariance, 0, this.bucketVariance.length);
+            this.bucketVariance = newVariance;
+        }
+        this.rowSize[this.lastBucketRow] = 0;
+    }
+
+    @Override
+    public String getEstimatorInfo() {
+        return "FlatADWIN;;";
+    }
+
+    @Override
+    public void setW(int W0) {
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
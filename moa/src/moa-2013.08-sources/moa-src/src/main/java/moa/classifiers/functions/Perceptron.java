@@ -23,6 +23,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.core.Measurement;
 import moa.options.FloatOption;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * Single perceptron classifier.
@@ -138,6 +139,38 @@ public class Perceptron extends AbstractClassifier {
         return votes;
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        int numClasses = insts.numClasses();
+        int numAttributes = insts.numAttributes();
+        // attribute values are read once per instance, not once per class
+        double[] values = new double[numAttributes - 1];
+        for (int n = 0; n < insts.numInstances(); n++) {
+            Instance inst = insts.instance(n);
+            double[] instVotes = new double[numClasses];
+            if (this.reset == false) {
+                for (int i = 0; i < numAttributes - 1; i++) {
+                    values[i] = inst.value(i);
+                }
+                for (int classVal = 0; classVal < numClasses; classVal++) {
+                    double[] weights = this.weightAttribute[classVal];
+                    double sum = 0.0;
+                    for (int i = 0; i < numAttributes - 1; i++) {
+                        sum += weights[i] * values[i];
+                    }
+                    sum += weights[numAttributes - 1];
+                    instVotes[classVal] = 1.0 / (1.0 + Math.exp(-sum));
+                }
+                try {
+                    weka.core.Utils.normalize(instVotes);
+                } catch (Exception e) {
+                    // ignore all zero votes error
+                }
+            }
+            votes[n] = instVotes;
+        }
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
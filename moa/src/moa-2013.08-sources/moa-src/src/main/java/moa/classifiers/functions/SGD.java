@@ -31,9 +31,11 @@ import moa.classifiers.AbstractClassifier;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.StringUtils;
+import moa.options.FlagOption;
 import moa.options.FloatOption;
 import moa.options.MultiChoiceOption;
 import weka.core.Instance;
+import weka.core.Instances;
 import weka.core.Utils;
 
 /**
@@ -67,8 +69,20 @@ public class SGD extends AbstractClassifier {
             'r', "Learning rate parameter.",
             0.0001, 0.00, Integer.MAX_VALUE);
 
-    /** Stores the weights (+ bias in the last element) */
+    /** Stores the weights, divided by m_wScale in sparse mode */
     protected DoubleVector m_weights;
+
+    /** Factor that multiplies every stored weight */
+    protected double m_wScale = 1.0;
+
+    /** Below this the scale factor is folded into the stored weights */
+    protected static final double MIN_SCALE = 1e-9;
+
+    /** Whether weight decay is applied through the scale factor */
+    protected boolean m_sparse = false;
+
+    public FlagOption sparseOption = new FlagOption("sparse", 's',
+            "Apply the weight decay lazily, so training costs time proportional to the non-zero values of the instance.");
     
     protected double m_bias;
 
@@ -154,6 +168,7 @@ public class SGD extends AbstractClassifier {
     public void reset() {
         m_t = 1;
         m_weights = null;
+        m_wScale = 1.0;
         m_bias = 0.0;
     }
 
@@ -200,12 +215,52 @@ public class SGD extends AbstractClassifier {
         return (result);
     }
 
+    // as above, reading the weights from their array directly
+    protected static double dotProd(Instance inst1, double[] weights, int classIndex) {
+        double result = 0;
+
+        int n1 = inst1.numValues();
+        int n2 = weights.length;
+
+        for (int p1 = 0, p2 = 0; p1 < n1 && p2 < n2;) {
+            int ind1 = inst1.index(p1);
+            int ind2 = p2;
+            if (ind1 == ind2) {
+                if (ind1 != classIndex && !inst1.isMissingSparse(p1)) {
+                    result += inst1.valueSparse(p1) * weights[p2];
+                }
+                p1++;
+                p2++;
+            } else if (ind1 > ind2) {
+                p2++;
+            } else {
+                p1++;
+            }
+        }
+        return (result);
+    }
+
+    // visits only the non-zero values of the instance
+    protected static double sparseDotProd(Instance inst1, double[] weights, int classIndex) {
+        double result = 0;
+
+        int n1 = inst1.numValues();
+        for (int p1 = 0; p1 < n1; p1++) {
+            int ind1 = inst1.index(p1);
+            if (ind1 < weights.length && ind1 != classIndex && !inst1.isMissingSparse(p1)) {
+                result += inst1.valueSparse(p1) * weights[ind1];
+            }
+        }
+        return (result);
+    }
+
     @Override
     public void resetLearningImpl() {
         reset();
         setLambda(this.lambdaRegularizationOption.getValue());
         setLearningRate(this.learningRateOption.getValue());
         setLossFunction(this.lossFunctionOption.getChosenIndex());
+        m_sparse = this.sparseOption.isSet();
     }
 
     /**
@@ -217,10 +272,16 @@ public class SGD extends AbstractClassifier {
     public void trainOnInstanceImpl(Instance instance) {
 
         if (m_weights == null) {
-            m_weights = new DoubleVector(); 
+            m_weights = m_sparse ? new DoubleVector(new double[instance.numAttributes()])
+                    : new DoubleVector(); 
             m_bias = 0.0;
         }
 
+        if (m_sparse) {
+            trainSparse(instance);
+            return;
+        }
+
         if (!instance.classIsMissing()) {
 
             double wx = dotProd(instance, m_weights, instance.classIndex());
@@ -269,6 +330,66 @@ public class SGD extends AbstractClassifier {
         }
     }
 
+    /**
+     * Trains as trainOnInstanceImpl does, but the weight decay multiplies
+     * m_wScale instead of every weight, and the updates are divided by it.
+     *
+     * @param instance 	the new training instance to include in the model
+     */
+    protected void trainSparse(Instance instance) {
+        if (!instance.classIsMissing()) {
+
+            double wx = sparseDotProd(instance, m_weights.getArrayRef(),
+                    instance.classIndex()) * m_wScale;
+
+            double y;
+            double z;
+            if (instance.classAttribute().isNominal()) {
+                y = (instance.classValue() == 0) ? -1 : 1;
+                z = y * (wx + m_bias);
+            } else {
+                y = instance.classValue();
+                z = y - (wx + m_bias);
+                y = 1;
+            }
+
+            double multiplier = 1.0;
+            if (m_numInstances == 0) {
+                multiplier = 1.0 - (m_learningRate * m_lambda) / m_t;
+            } else {
+                multiplier = 1.0 - (m_learningRate * m_lambda) / m_numInstances;
+            }
+            // a negative multiplier flips the signs, as in the dense update
+            if (multiplier == 0.0) {
+                m_weights.scaleValues(0.0);
+                m_wScale = 1.0;
+            } else {
+                m_wScale *= multiplier;
+                if (Math.abs(m_wScale) < MIN_SCALE) {
+                    m_weights.scaleValues(m_wScale);
+                    m_wScale = 1.0;
+                }
+            }
+
+            if (m_loss != HINGE || (z < 1)) {
+
+                double factor = m_learningRate * y * dloss(z);
+                double scaledFactor = factor / m_wScale;
+
+                int n1 = instance.numValues();
+                for (int p1 = 0; p1 < n1; p1++) {
+                    int indS = instance.index(p1);
+                    if (indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
+                        m_weights.addToValue(indS, scaledFactor * instance.valueSparse(p1));
+                    }
+                }
+
+                m_bias += factor;
+            }
+            m_t++;
+        }
+    }
+
     /**
      * Calculates the class membership probabilities for the given test
      * instance.
@@ -282,18 +403,46 @@ public class SGD extends AbstractClassifier {
         if (m_weights == null) {
             return new double[inst.numClasses()];
         }
-        double[] result = (inst.classAttribute().isNominal())
-                ? new double[2]
-                : new double[1];
-
-
-        double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
+        double wx = m_sparse
+                ? sparseDotProd(inst, m_weights.getArrayRef(), inst.classIndex()) * m_wScale
+                : dotProd(inst, m_weights, inst.classIndex());
         double z = (wx + m_bias);
+        return votesForMargin(z, inst.classAttribute().isNominal());
+    }
+
+    /**
+     * Calculates the class membership probabilities for a batch of test
+     * instances, looking up the weights and the class type once.
+     *
+     * @param insts 	the instances to be classified
+     * @param votes 	the array to store the predicted distributions in
+     */
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        if (m_weights == null) {
+            for (int i = 0; i < insts.numInstances(); i++) {
+                votes[i] = new double[insts.numClasses()];
+            }
+            return;
+        }
+        boolean nominal = insts.classAttribute().isNominal();
+        int classIndex = insts.classIndex();
+        double[] weights = m_weights.getArrayRef();
+        for (int i = 0; i < insts.numInstances(); i++) {
+            double wx = m_sparse
+                    ? sparseDotProd(insts.instance(i), weights, classIndex) * m_wScale
+                    : dotProd(insts.instance(i), weights, classIndex);
+            votes[i] = votesForMargin(wx + m_bias, nominal);
+        }
+    }
 
-        if (inst.classAttribute().isNumeric()) {
+    protected double[] votesForMargin(double z, boolean nominal) {
+        if (!nominal) {
+            double[] result = new double[1];
             result[0] = z;
             return result;
         }
+        double[] result = new double[2];
 
         if (z <= 0) {
             //  z = 0;
@@ -350,7 +499,7 @@ public class SGD extends AbstractClassifier {
                 buff.append("   ");
             }
 
-            buff.append(Utils.doubleToString(m_weights.getValue(i), 12, 4) + " "
+            buff.append(Utils.doubleToString(m_weights.getValue(i) * m_wScale, 12, 4) + " "
                     // + m_data.attribute(i).name()
                     + "\n");
 
@@ -28,6 +28,7 @@ package moa.classifiers.functions;
 import moa.classifiers.AbstractClassifier;
 import moa.core.Measurement;
 import moa.core.StringUtils;
+import moa.options.FlagOption;
 import moa.options.FloatOption;
 import moa.options.MultiChoiceOption;
 import weka.core.Instance;
@@ -93,10 +94,34 @@ public class SPegasos extends AbstractClassifier {
                 "Log loss (logistic regression)"}, 0);
 
     /**
-     * Stores the weights (+ bias in the last element)
+     * Stores the weights (+ bias in the last element). In sparse mode the
+     * weights, but not the bias, are divided by m_wScale
      */
     protected double[] m_weights;
 
+    /**
+     * Factor that multiplies every stored weight but the bias
+     */
+    protected double m_wScale = 1.0;
+
+    /**
+     * Squared norm of the stored weights, without the bias
+     */
+    protected double m_sqNorm;
+
+    /**
+     * Below this the scale factor is folded into the stored weights
+     */
+    protected static final double MIN_SCALE = 1e-9;
+
+    /**
+     * Whether scaling and projection are applied through the scale factor
+     */
+    protected boolean m_sparse = false;
+
+    public FlagOption sparseOption = new FlagOption("sparse", 's',
+            "Scale and project the weights lazily, so training costs time proportional to the non-zero values of the instance.");
+
     /**
      * Holds the current iteration number
      */
@@ -144,6 +169,8 @@ public class SPegasos extends AbstractClassifier {
     public void reset() {
         m_t = 2;
         m_weights = null;
+        m_wScale = 1.0;
+        m_sqNorm = 0.0;
     }
 
     protected static double dotProd(Instance inst1, double[] weights, int classIndex) {
@@ -170,6 +197,21 @@ public class SPegasos extends AbstractClassifier {
         return (result);
     }
 
+    // visits only the non-zero values of the instance
+    protected static double sparseDotProd(Instance inst1, double[] weights, int classIndex) {
+        double result = 0;
+
+        int n1 = inst1.numValues();
+        int n2 = weights.length - 1;
+        for (int p1 = 0; p1 < n1; p1++) {
+            int ind1 = inst1.index(p1);
+            if (ind1 < n2 && ind1 != classIndex && !inst1.isMissingSparse(p1)) {
+                result += inst1.valueSparse(p1) * weights[ind1];
+            }
+        }
+        return (result);
+    }
+
     protected double dloss(double z) {
         if (m_loss == HINGE) {
             return (z < 1) ? 1 : 0;
@@ -189,6 +231,7 @@ public class SPegasos extends AbstractClassifier {
         reset();
         setLambda(this.lambdaRegularizationOption.getValue());
         setLossFunction(this.lossFunctionOption.getChosenIndex());
+        m_sparse = this.sparseOption.isSet();
     }
 
     /**
@@ -202,6 +245,10 @@ public class SPegasos extends AbstractClassifier {
         if (m_weights == null) {
             m_weights = new double[instance.numAttributes() + 1];
         }
+        if (m_sparse) {
+            trainSparse(instance);
+            return;
+        }
         if (!instance.classIsMissing()) {
 
             double learningRate = 1.0 / (m_lambda * m_t);
@@ -252,6 +299,69 @@ public class SPegasos extends AbstractClassifier {
         }
     }
 
+    /**
+     * Trains as trainOnInstanceImpl does, but the scaling and the projection
+     * multiply m_wScale instead of every weight, and the norm of the weights
+     * is updated with the values the instance changes.
+     *
+     * @param instance the new training instance to include in the model
+     */
+    protected void trainSparse(Instance instance) {
+        if (!instance.classIsMissing()) {
+
+            int bias = m_weights.length - 1;
+            double learningRate = 1.0 / (m_lambda * m_t);
+            double scale = 1.0 - 1.0 / m_t;
+            double y = (instance.classValue() == 0) ? -1 : 1;
+            double wx = sparseDotProd(instance, m_weights, instance.classIndex()) * m_wScale;
+            double z = y * (wx + m_weights[bias]);
+
+            m_wScale *= scale;
+            if (m_wScale < MIN_SCALE) {
+                foldScale();
+            }
+
+            if (m_loss == LOGLOSS || (z < 1)) {
+                double loss = dloss(z);
+                double scaledRate = learningRate * loss * y / m_wScale;
+                int n1 = instance.numValues();
+                for (int p1 = 0; p1 < n1; p1++) {
+                    int indS = instance.index(p1);
+                    if (indS < bias && indS != instance.classIndex() && !instance.isMissingSparse(p1)) {
+                        double m = scaledRate * instance.valueSparse(p1);
+                        m_sqNorm += m * (2.0 * m_weights[indS] + m);
+                        m_weights[indS] += m;
+                    }
+                }
+
+                // update the bias
+                m_weights[bias] += learningRate * loss * y;
+            }
+
+            double norm = m_wScale * m_wScale * Math.max(0.0, m_sqNorm);
+            double scale2 = Math.min(1.0, (1.0 / (m_lambda * norm)));
+            if (scale2 < 1.0) {
+                m_wScale *= Math.sqrt(scale2);
+                if (m_wScale < MIN_SCALE) {
+                    foldScale();
+                }
+            }
+            m_t++;
+        }
+    }
+
+    // multiplies the stored weights by the scale factor and recomputes their
+    // norm, which also drops the rounding errors of the updates
+    protected void foldScale() {
+        double sqNorm = 0;
+        for (int j = 0; j < m_weights.length - 1; j++) {
+            m_weights[j] *= m_wScale;
+            sqNorm += m_weights[j] * m_weights[j];
+        }
+        m_sqNorm = sqNorm;
+        m_wScale = 1.0;
+    }
+
     /**
      * Calculates the class membership probabilities for the given test
      * instance.
@@ -268,7 +378,9 @@ public class SPegasos extends AbstractClassifier {
 
         double[] result = new double[2];
 
-        double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
+        double wx = m_sparse
+                ? sparseDotProd(inst, m_weights, inst.classIndex()) * m_wScale
+                : dotProd(inst, m_weights, inst.classIndex());
         double z = (wx + m_weights[m_weights.length - 1]);
         //System.out.print("" + z + ": ");
         // System.out.println(1.0 / (1.0 + Math.exp(-z)));
@@ -324,7 +436,7 @@ public class SPegasos extends AbstractClassifier {
                 buff.append("   ");
             }
 
-            buff.append(Utils.doubleToString(m_weights[i], 12, 4) + " "
+            buff.append(Utils.doubleToString(m_weights[i] * m_wScale, 12, 4) + " "
                     //+ m_data.attribute(i).name()
                     + "\n");
 
@@ -80,9 +80,7 @@ public class SamplingClassifier extends AbstractClassifier {
 			w = 1.0;
 		}
 		int k = MiscUtils.poisson(w, this.classifierRandom);
-		Instance weightedInst = (Instance) inst.copy();
-		weightedInst.setWeight(inst.weight() * k);
-		this.classifier.trainOnInstance(weightedInst);
+		this.classifier.trainOnInstance(inst, inst.weight() * k);
 	}
 
 	@Override
@@ -20,9 +20,11 @@
 package moa.classifiers.meta;
 
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.FlatADWIN;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import weka.core.Instance;
+import weka.core.Instances;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -61,6 +63,9 @@ public class LeveragingBag extends AbstractClassifier {
     public FloatOption deltaAdwinOption = new FloatOption("deltaAdwin", 'a',
             "Delta of Adwin change detection", 0.002, 0.0, 1.0);
 
+    public FlagOption flatAdwinOption = new FlagOption("flatAdwin", 'f',
+            "Use the array based ADWIN implementation.");
+
     // Leveraging Bagging MC: uses this option to use Output Codes
     public FlagOption outputCodesOption = new FlagOption("outputCodes", 'o',
             "Use Output Codes to use binary classifiers.");
@@ -85,6 +90,11 @@ public class LeveragingBag extends AbstractClassifier {
 
     protected boolean initMatrixCodes = false;
 
+    protected ADWIN newADWIN() {
+        double delta = (double) this.deltaAdwinOption.getValue();
+        return this.flatAdwinOption.isSet() ? new FlatADWIN(delta) : new ADWIN(delta);
+    }
+
     @Override
     public void resetLearningImpl() {
         this.ensemble = new Classifier[this.ensembleSizeOption.getValue()];
@@ -95,7 +105,7 @@ public class LeveragingBag extends AbstractClassifier {
         }
         this.ADError = new ADWIN[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN((double) this.deltaAdwinOption.getValue());
+            this.ADError[i] = newADWIN();
         }
         this.numberOfChangesDetected = 0;
         if (this.outputCodesOption.isSet()) {
@@ -138,7 +148,8 @@ public class LeveragingBag extends AbstractClassifier {
 
 
         boolean Change = false;
-        Instance weightedInst = (Instance) inst.copy();
+        // the class is only replaced with output codes, so only then is a copy needed
+        Instance weightedInst = this.outputCodesOption.isSet() ? (Instance) inst.copy() : inst;
         double w = this.weightShrinkOption.getValue();
 
         //Train ensemble of classifiers
@@ -170,8 +181,7 @@ public class LeveragingBag extends AbstractClassifier {
                 if (this.outputCodesOption.isSet()) {
                     weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
                 }
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(weightedInst, inst.weight() * k);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
             double ErrEstim = this.ADError[i].getEstimation();
@@ -194,9 +204,33 @@ public class LeveragingBag extends AbstractClassifier {
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN((double) this.deltaAdwinOption.getValue());
+                this.ADError[imax] = newADWIN();
+            }
+        }
+    }
+
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        if (this.outputCodesOption.isSet()) {
+            getVotesForInstancesOneByOne(insts, votes);
+            return;
+        }
+        int numInstances = insts.numInstances();
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int j = 0; j < numInstances; j++) {
+            combinedVotes[j] = new DoubleVector();
+        }
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            this.ensemble[i].getVotesForInstances(insts, memberVotes);
+            for (int j = 0; j < numInstances; j++) {
+                combinedVotes[j].addNormalizedValues(memberVotes[j], 1.0);
             }
         }
+        for (int j = 0; j < numInstances; j++) {
+            votes[j] = combinedVotes[j].getArrayRef();
+        }
     }
 
     @Override
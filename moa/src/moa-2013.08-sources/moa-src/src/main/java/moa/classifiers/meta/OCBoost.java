@@ -22,6 +22,7 @@ package moa.classifiers.meta;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import weka.core.Instance;
+import weka.core.Instances;
 import weka.core.Utils;
 
 import moa.core.Measurement;
@@ -137,9 +138,7 @@ public class OCBoost extends AbstractClassifier {
             d = d * Math.exp(-alpha[j] * m[j]);
 
             if (d > 0.0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * d);
-                this.ensemble[j].trainOnInstance(weightedInst);
+                this.ensemble[j].trainOnInstance(inst, inst.weight() * d);
             }
         }
     }
@@ -148,6 +147,30 @@ public class OCBoost extends AbstractClassifier {
         return alpha[i];
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        int numInstances = insts.numInstances();
+        double[] combinedVotes = new double[numInstances];
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            this.ensemble[i].getVotesForInstances(insts, memberVotes);
+            double memberWeight = getEnsembleMemberWeight(i);
+            for (int j = 0; j < numInstances; j++) {
+                int vote = Utils.maxIndex(memberVotes[j]);
+                if (vote == 0) {
+                    vote = -1;
+                }
+                combinedVotes[j] += (double) vote * memberWeight;
+            }
+        }
+        for (int j = 0; j < numInstances; j++) {
+            double[] output = new double[2];
+            output[combinedVotes[j] > 0 ? 1 : 0] = 1;
+            votes[j] = output;
+        }
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         double[] output = new double[2];
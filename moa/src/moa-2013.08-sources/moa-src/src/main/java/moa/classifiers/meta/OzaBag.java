@@ -22,6 +22,7 @@ package moa.classifiers.meta;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import weka.core.Instance;
+import weka.core.Instances;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -109,13 +110,31 @@ public class OzaBag extends AbstractClassifier {
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(w, this.classifierRandom);
             if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(inst, inst.weight() * k);
             }
         }
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        int numInstances = insts.numInstances();
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int j = 0; j < numInstances; j++) {
+            combinedVotes[j] = new DoubleVector();
+        }
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            this.ensemble[i].getVotesForInstances(insts, memberVotes);
+            for (int j = 0; j < numInstances; j++) {
+                combinedVotes[j].addNormalizedValues(memberVotes[j], 1.0);
+            }
+        }
+        for (int j = 0; j < numInstances; j++) {
+            votes[j] = combinedVotes[j].getArrayRef();
+        }
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
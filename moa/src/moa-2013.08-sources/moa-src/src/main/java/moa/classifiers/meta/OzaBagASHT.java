@@ -26,6 +26,7 @@ import moa.core.MiscUtils;
 import moa.options.IntOption;
 import moa.options.FlagOption;
 import weka.core.Instance;
+import weka.core.Instances;
 import weka.core.Utils;
 
 /**
@@ -156,18 +157,41 @@ public class OzaBagASHT extends OzaBag {
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(w, this.classifierRandom);
             if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
                 if (Utils.maxIndex(this.ensemble[i].getVotesForInstance(inst)) == trueClass) {
                     this.error[i] += alpha * (0.0 - this.error[i]); //EWMA
                 } else {
                     this.error[i] += alpha * (1.0 - this.error[i]); //EWMA
                 }
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(inst, inst.weight() * k);
             }
         }
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        int numInstances = insts.numInstances();
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int j = 0; j < numInstances; j++) {
+            combinedVotes[j] = new DoubleVector();
+        }
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            double memberWeight = 1.0;
+            if ((this.useWeightOption != null)
+                    && this.useWeightOption.isSet()) {
+                memberWeight = 1.0 / (this.error[i] * this.error[i]);
+            }
+            this.ensemble[i].getVotesForInstances(insts, memberVotes);
+            for (int j = 0; j < numInstances; j++) {
+                combinedVotes[j].addNormalizedValues(memberVotes[j], memberWeight);
+            }
+        }
+        for (int j = 0; j < numInstances; j++) {
+            votes[j] = combinedVotes[j].getArrayRef();
+        }
+    }
+
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
         for (int i = 0; i < this.ensemble.length; i++) {
@@ -20,9 +20,11 @@
 package moa.classifiers.meta;
 
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.FlatADWIN;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import weka.core.Instance;
+import weka.core.Instances;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -90,6 +92,8 @@ public class OzaBagAdwin extends AbstractClassifier {
             'm', "Undersample class 0.");
 	public FlagOption logTransformOption = new FlagOption("logTransform",
             'z', "Log(1/p)");
+    public FlagOption flatAdwinOption = new FlagOption("flatAdwin",
+            'f', "Use the array based ADWIN implementation.");
 	public double rareCount;
 	public double count;
 	
@@ -108,6 +112,10 @@ public class OzaBagAdwin extends AbstractClassifier {
 
     protected ADWIN[] ADError;
 
+    protected ADWIN newADWIN() {
+        return this.flatAdwinOption.isSet() ? new FlatADWIN() : new ADWIN();
+    }
+
     @Override
     public void resetLearningImpl() {
     	this.rareCount = 0.0;
@@ -120,7 +128,7 @@ public class OzaBagAdwin extends AbstractClassifier {
         }
         this.ADError = new ADWIN[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN();
+            this.ADError[i] = newADWIN();
         }
     }
 
@@ -147,9 +155,7 @@ public class OzaBagAdwin extends AbstractClassifier {
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(w, this.classifierRandom);
             if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(inst, inst.weight() * k);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
             double ErrEstim = this.ADError[i].getEstimation();
@@ -171,9 +177,29 @@ public class OzaBagAdwin extends AbstractClassifier {
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN();
+                this.ADError[imax] = newADWIN();
+            }
+        }
+    }
+
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        int numInstances = insts.numInstances();
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int j = 0; j < numInstances; j++) {
+            combinedVotes[j] = new DoubleVector();
+        }
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            this.ensemble[i].getVotesForInstances(insts, memberVotes);
+            for (int j = 0; j < numInstances; j++) {
+                combinedVotes[j].addNormalizedValues(memberVotes[j], 1.0);
             }
         }
+        for (int j = 0; j < numInstances; j++) {
+            votes[j] = combinedVotes[j].getArrayRef();
+        }
     }
 
     @Override
@@ -22,6 +22,7 @@ package moa.classifiers.meta;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import weka.core.Instance;
+import weka.core.Instances;
 
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -109,9 +110,7 @@ public class OzaBoost extends AbstractClassifier {
         for (int i = 0; i < this.ensemble.length; i++) {
             double k = this.pureBoostOption.isSet() ? lambda_d : MiscUtils.poisson(lambda_d, this.classifierRandom);
             if (k > 0.0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(inst, inst.weight() * k);
             }
             if (this.ensemble[i].correctlyClassifies(inst)) {
                 this.scms[i] += lambda_d;
@@ -123,7 +122,7 @@ public class OzaBoost extends AbstractClassifier {
         }
     }
 
-    protected double getEnsembleMemberWeight(int i) {
+    public double getEnsembleMemberWeight(int i) {
         double em = this.swms[i] / (this.scms[i] + this.swms[i]);
         if ((em == 0.0) || (em > 0.5)) {
             return 0.0;
@@ -132,6 +131,31 @@ public class OzaBoost extends AbstractClassifier {
         return Math.log(1.0 / Bm);
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        int numInstances = insts.numInstances();
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int j = 0; j < numInstances; j++) {
+            combinedVotes[j] = new DoubleVector();
+        }
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            double memberWeight = getEnsembleMemberWeight(i);
+            if (memberWeight > 0.0) {
+                this.ensemble[i].getVotesForInstances(insts, memberVotes);
+                for (int j = 0; j < numInstances; j++) {
+                    combinedVotes[j].addNormalizedValues(memberVotes[j], memberWeight);
+                }
+            } else {
+                break;
+            }
+        }
+        for (int j = 0; j < numInstances; j++) {
+            votes[j] = combinedVotes[j].getArrayRef();
+        }
+    }
+
     public double[] getVotesForInstance(Instance inst) {
         DoubleVector combinedVote = new DoubleVector();
         for (int i = 0; i < this.ensemble.length; i++) {
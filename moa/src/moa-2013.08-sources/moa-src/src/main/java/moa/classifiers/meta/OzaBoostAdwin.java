@@ -30,6 +30,7 @@ import moa.options.FlagOption;
 import moa.options.FloatOption;
 import moa.options.IntOption;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * Boosting for evolving data streams using ADWIN.
@@ -151,15 +152,15 @@ public class OzaBoostAdwin extends AbstractClassifier {
 
         boolean Change = false;
         double lambda_d = 1.0;
-        Instance weightedInst = (Instance) inst.copy();
+        // the class is only replaced with output codes, so only then is a copy needed
+        Instance weightedInst = this.outputCodesOption.isSet() ? (Instance) inst.copy() : inst;
         for (int i = 0; i < this.ensemble.length; i++) {
             double k = this.pureBoostOption.isSet() ? lambda_d : MiscUtils.poisson(lambda_d * this.Km1, this.classifierRandom);
             if (k > 0.0) {
                 if (this.outputCodesOption.isSet()) {
                     weightedInst.setClassValue((double) this.matrixCodes[i][(int) inst.classValue()]);
                 }
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(weightedInst, inst.weight() * k);
             }
             boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(weightedInst);
             if (correctlyClassifies) {
@@ -205,6 +206,35 @@ public class OzaBoostAdwin extends AbstractClassifier {
         return Math.log((1.0 - em) / em) + this.logKm1;
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        if (this.outputCodesOption.isSet()) {
+            getVotesForInstancesOneByOne(insts, votes);
+            return;
+        }
+        int numInstances = insts.numInstances();
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int j = 0; j < numInstances; j++) {
+            combinedVotes[j] = new DoubleVector();
+        }
+        // member by member, so each member predicts the whole batch at once
+        double[][] memberVotes = new double[numInstances][];
+        for (int i = 0; i < this.ensemble.length; i++) {
+            double memberWeight = getEnsembleMemberWeight(i);
+            if (memberWeight > 0.0) {
+                this.ensemble[i].getVotesForInstances(insts, memberVotes);
+                for (int j = 0; j < numInstances; j++) {
+                    combinedVotes[j].addNormalizedValues(memberVotes[j], memberWeight);
+                }
+            } else {
+                break;
+            }
+        }
+        for (int j = 0; j < numInstances; j++) {
+            votes[j] = combinedVotes[j].getArrayRef();
+        }
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.outputCodesOption.isSet()) {
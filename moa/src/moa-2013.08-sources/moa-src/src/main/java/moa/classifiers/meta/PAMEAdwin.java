@@ -19,12 +19,16 @@
  */
 package moa.classifiers.meta;
 
+import java.util.Random;
+
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.FlatADWIN;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.MiscUtils;
+import moa.core.WorkerPool;
 import moa.options.ClassOption;
 import moa.options.FlagOption;
 import moa.options.IntOption;
@@ -67,6 +71,13 @@ public class PAMEAdwin extends AbstractClassifier{
 	/*option for imbalance data over/undersampling*/
 	public FlagOption logTransformOption = new FlagOption("logTransform",
             'z', "Log(1/p)");
+	/*option for querying and training the experts on a pool of threads*/
+	public IntOption numThreadsOption = new IntOption("numThreads", 't',
+            "Threads used to query and train the experts (0 = sequential, -1 = all processors).",
+            0, -1, Integer.MAX_VALUE);
+	/*option to use the array based ADWIN*/
+	public FlagOption flatAdwinOption = new FlagOption("flatAdwin",
+            'f', "Use the array based ADWIN implementation.");
 	
 	/*classifier voting weights for each ensemble member*/
 	public double[] weights;
@@ -88,6 +99,10 @@ public class PAMEAdwin extends AbstractClassifier{
 	public double rareCount;
 	/*number of instances processed*/
 	public double count;
+	/*one Poisson stream per expert so parallel runs do not depend on thread count*/
+	protected Random[] expertRandom;
+	/*scratch space for the simplex projection of PAME-III*/
+	protected double[] projectionBuffer;
 	
 	/*
 	 * set up some constants to make the coding thing a little bit less ambiguous
@@ -120,32 +135,21 @@ public class PAMEAdwin extends AbstractClassifier{
 	 */
 	@Override
 	public double[] getVotesForInstance(Instance inst) {
-	    double[] wh = new double[this.ensemble.length];
+		return this.getVotesForPredictions(this.getPredictions(inst));
+	}
+
+	/*
+	 * Combine the +/- predictions of the experts into the composite hypothesis
+	 */
+	protected double[] getVotesForPredictions(double[] h) {
 		double H = 0.0;
 		double[] Hout = {0.0, 0.0};
 
 		for (int i = 0; i < this.ensemble.length; i++) {
-			// get the weight of the current expert and get the vote as well. recall
-			// that MOA will return a probabilistic interpretation of the the prediction.
-			// we need to convert this to positive / negative to go with our formulation
-			// of the learning problem. 
-            double memberWeight = this.weights[i];            
-            DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-            if (vote.sumOfValues() > 0.0) {
-            	vote.normalize();
-            }
-            
-            // index 0 = +1
-            // index 1 = -1
-            if (vote.getValue(0) >= vote.getValue(1)){
-            	wh[i] = 1*memberWeight;
-            }else{
-            	wh[i] = -1*memberWeight;
-            }
-            
-            // update the ensemble prediction
-            H += wh[i];
-        }
+			// weight the +/- vote of the current expert and update the ensemble 
+			// prediction
+			H += h[i]*this.weights[i];
+		}
 		// the sign of the result determines the final decision
 		if (H >= 0){
 			Hout[0] = 1.0;
@@ -161,6 +165,13 @@ public class PAMEAdwin extends AbstractClassifier{
 	}
 
 
+	/*
+	 * new change detector for an expert, the array based one if selected
+	 */
+	protected ADWIN newADWIN() {
+		return this.flatAdwinOption.isSet() ? new FlatADWIN() : new ADWIN();
+	}
+
 	/*
 	 * Reset the method!
 	 * reset the experts to be null models and the weights weights should
@@ -207,9 +218,17 @@ public class PAMEAdwin extends AbstractClassifier{
         
         
         // reset 
+        this.projectionBuffer = new double[this.ensemble.length];
         this.ADError = new ADWIN[this.ensemble.length];
         for (int i = 0; i < this.ensemble.length; i++) {
-            this.ADError[i] = new ADWIN();
+            this.ADError[i] = newADWIN();
+        }
+        
+        // seeded apart from classifierRandom so the sequential mode is unchanged
+        Random seeds = new Random(this.randomSeed);
+        this.expertRandom = new Random[this.ensemble.length];
+        for (int i = 0; i < this.ensemble.length; i++) {
+        	this.expertRandom[i] = new Random(seeds.nextLong());
         }
 	}
 
@@ -217,160 +236,41 @@ public class PAMEAdwin extends AbstractClassifier{
 	 * weight updates for pame-1 (regularized)
 	 */
 	private void pame1_weights(double[] ht, double yt){
-		double alpha = (1.0 - yt*this.dot(ht, this.weights)) / this.dot(ht, ht);
-		if (alpha < 0)
-			alpha = 0;
-		if (this.C < alpha)
-			alpha = this.C;  // apply regularization
-
-		this.weights = this.addvectors(this.weights, this.scalarvector(alpha*yt, ht));
+		PAMEWeightUpdates.pame1(this.weights, ht, yt, this.C);
 	}
 
 	/*
 	 * weight updates for pame-2
 	 */
 	private void pame2_weights(double[] ht, double yt){
-		pame1_weights(ht, yt);
-		//double zz = 0.0;
-		for (int i = 0; i < this.weights.length; i++){
-			if (this.weights[i] < 0.0)
-				this.weights[i] = 0.0;   // clip the weights
-			//zz += this.weights[i];
-		}
-		//System.out.printf("   sums: %f \n", zz);
+		PAMEWeightUpdates.pame2(this.weights, ht, yt, this.C);
 	}
 
 	/*
 	 * weight updates for pame-3
 	 */
 	private void pame3_weights(double[] ht, double yt){
-		double K = (double) this.weights.length;
-
-		/* create a vector of ones */
-		double[] onesVec = new double[this.weights.length];
-		for (int k = 1; k < onesVec.length; k++){
-			onesVec[k] = 1.0;
-		}
-
-		/* see proof for this value */
-		// h*1
-		double hh = this.dot(ht, onesVec);
-		// -hh/K *1
-		double[] normVec = this.addvectors(ht, this.scalarvector(-1.0*hh/K, onesVec));
-		double denom = this.dot(normVec, normVec);
-		double alpha = (1.0 - yt*this.dot(ht, this.weights)) / denom;
-		if (alpha < 0)
-			alpha = 0;
-		if (this.C < alpha)
-			alpha = this.C;  // apply regularization
-
-		double[] update = this.scalarvector(alpha*yt, this.addvectors(ht, 
-				this.scalarvector(-1.0*hh/K, onesVec)));
-		this.weights = this.addvectors(this.weights, update);
-
 		/*
-		 * project the current weight vector onto a probability simplex
+		 * step towards the hyperplane and project the weight vector onto a 
+		 * probability simplex
 		 */
-		boolean bGet = Boolean.FALSE;
-		double tmpsum = 0.0;
-		double tmax = 0.0;
-		double[] s = this.bubblesort(this.weights);	
-
-		for (int i = 0; i < s.length - 1; i++){
-			tmpsum += s[i];
-			tmax = (tmpsum - 1.0)/ (i+1);
-			if(tmax >= s[i + 1]){
-				bGet = Boolean.TRUE;
-				break;
-			}
-		}
-
-		if (!bGet){
-			tmax = (tmpsum + s[s.length-1] - 1) / K;
-		}
-
-		for (int k = 0; k < this.weights.length; k++){
-			if (this.weights[k] - tmax < 0){
-				this.weights[k] = 0;
-			} else {
-				this.weights[k] -= tmax;
-			}
-		}
+		PAMEWeightUpdates.pame3(this.weights, ht, yt, this.C, this.projectionBuffer);
 		// this.weights is now convex
 	}
 
 
 	private void pame23_weights(double[] ht, double yt){
-		double K = (double) this.weights_pame3.length;
-		double[] ht2 = ht;
-
-		/* create a vector of ones */
-		double[] onesVec = new double[this.weights_pame3.length];
-		for (int k = 1; k < onesVec.length; k++){
-			onesVec[k] = 1.0;
-		}
-
-		/* see proof for this value */
-		double hh = this.dot(ht, onesVec);
-		double[] normVec = this.addvectors(ht, this.scalarvector(-1.0*hh/K, onesVec));
-		double denom = this.dot(normVec, normVec);
-		double alpha = (1.0 - yt*this.dot(ht, this.weights_pame3)) / denom;
-		if (alpha < 0)
-			alpha = 0;
-
-		double[] update = this.scalarvector(alpha*yt, this.addvectors(ht, 
-				this.scalarvector(-1.0*hh/K, onesVec)));
-		this.weights_pame3 = this.addvectors(this.weights_pame3, update);
-
-		/*
-		 * project the current weight vector onto a probability simplex
-		 */
-		boolean bGet = Boolean.FALSE;
-		double tmpsum = 0.0;
-		double tmax = 0.0;
-		double[] s = this.bubblesort(this.weights_pame3);	
-
-		for (int i = 0; i < s.length - 1; i++){
-			tmpsum += s[i];
-			tmax = (tmpsum - 1.0)/ (i+1);
-			if(tmax >= s[i + 1]){
-				bGet = Boolean.TRUE;
-				break;
-			}
-		}
-
-		if (!bGet){
-			tmax = (tmpsum + s[s.length-1] - 1) / K;
-		}
-
-		for (int k = 0; k < this.weights_pame3.length; k++){
-			if (this.weights_pame3[k] - tmax < 0){
-				this.weights_pame3[k] = 0;
-			} else {
-				this.weights_pame3[k] -= tmax;
-			}
-		}
+		// pame3 updates, without regularization
+		PAMEWeightUpdates.pame3(this.weights_pame3, ht, yt, 
+				Double.POSITIVE_INFINITY, this.projectionBuffer);
 		// end pame3 updates
 
-
-		ht = ht2;
-
-		alpha = (1.0 - yt*this.dot(ht, this.weights_pame2)) / this.dot(ht, ht);
-		if (alpha < 0)
-			alpha = 0;
-		if (this.C < alpha)
-			alpha = this.C;  // apply regularization
-
-
+		PAMEWeightUpdates.pame2(this.weights_pame2, ht, yt, this.C);
 		double zz = 0.0;
-		this.weights_pame2 = this.addvectors(this.weights_pame2, this.scalarvector(alpha*yt, ht));
 		for (int i = 0; i < this.weights_pame2.length; i++){
-			if (this.weights_pame2[i] < 0.0)
-				this.weights_pame2[i] = 0.0;   // clip the weights
 			zz += this.weights_pame2[i];
 		}
 
-
 		for (int i = 0; i < this.weights_pame2.length; i++){
 			this.weights_pame2[i] /= zz;   
 		}
@@ -389,9 +289,28 @@ public class PAMEAdwin extends AbstractClassifier{
 	 */
 	@Override
 	public void trainOnInstanceImpl(Instance inst) {
+		this.trainOnInstanceImpl(inst, this.getPredictions(inst));
+	}
 
-		// get the prediction vector back
+	/*
+	 * Predict with the experts once and reuse their predictions for the weight
+	 * update, since the experts are queried before they are trained.
+	 */
+	@Override
+	public double[] testThenTrainOnInstance(Instance inst) {
 		double[] ht = this.getPredictions(inst);
+		double[] votes = this.getVotesForPredictions(ht);
+		if (this.countTrainingWeight(inst)) {
+			this.trainOnInstanceImpl(inst, ht);
+		}
+		return votes;
+	}
+
+	/*
+	 * Train on an instance given the predictions of the experts on it
+	 */
+	protected void trainOnInstanceImpl(Instance inst, double[] ht) {
+
 		double yt = inst.classValue();
 		if (inst.classIndex() == 0){
 			this.rareCount += 1.0;
@@ -426,41 +345,45 @@ public class PAMEAdwin extends AbstractClassifier{
 		 * experts. In the end our objective with the weight formulation is a bit
 		 * more of a decision theoretic approach. 
 		 */
+		final double w;
+		if (this.overSampleOption.isSet() && inst.classIndex() == 0){
+			double ws = 1.0 / (this.rareCount/this.count);
+			if (this.logTransformOption.isSet()){
+				ws = Math.log(ws);
+			}
+			w = ws;
+		} else if (this.underSampleOption.isSet() && inst.classIndex() != 0){
+			w = 1.0 - this.rareCount/this.count;
+		} else {
+			w = 1.0;
+		}
+
 		boolean Change = false;
-		for (int i = 0; i < this.ensemble.length; i++) {
-			// sample from a Poisson probability distribution as implemented in 
-			// online bagging and boosting
-			double w;
-			if (this.overSampleOption.isSet() && inst.classIndex() == 0){
-				w = 1.0 / (this.rareCount/this.count);
-				if (this.logTransformOption.isSet()){
-					w = Math.log(w);
+		WorkerPool pool = this.getWorkerPool();
+		if (pool != null) {
+			// each expert owns its Poisson stream and its ADWIN, so the experts
+			// can be trained at the same time
+			final Instance trainInst = inst;
+			final boolean[] changes = new boolean[this.ensemble.length];
+			pool.forEach(this.ensemble.length, new WorkerPool.Job() {
+				@Override
+				public void run(int i) {
+					changes[i] = trainExpert(i, trainInst, MiscUtils.poisson(w, expertRandom[i]));
 				}
-			} else if (this.underSampleOption.isSet() && inst.classIndex() != 0){
-				w = 1.0 - this.rareCount/this.count;
-			} else {
-				w = 1.0;
+			});
+			for (int i = 0; i < changes.length; i++) {
+				Change |= changes[i];
 			}
-			
-            int k = MiscUtils.poisson(w, this.classifierRandom);
-            
-            // update the expert accordingly 
-            if (k > 0) {
-            	// this works by updating the expert k-times with the same example.
-            	// thus is k = 4. the expert is trained updated on the same example
-            	// 4 times in a row. pretty easy.
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);       // set the # of training times
-                this.ensemble[i].trainOnInstance(weightedInst);  // update expert
-            }
-            boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
-            double ErrEstim = this.ADError[i].getEstimation();
-            if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
-                if (this.ADError[i].getEstimation() > ErrEstim) {
-                    Change = true;
-                }
-            }
-        }
+		} else {
+			for (int i = 0; i < this.ensemble.length; i++) {
+				// sample from a Poisson probability distribution as implemented in 
+				// online bagging and boosting
+				int k = MiscUtils.poisson(w, this.classifierRandom);
+				if (this.trainExpert(i, inst, k)) {
+					Change = true;
+				}
+			}
+		}
 
 		/*
 		 * if change was detected, remove the worst expert from the ensemble of 
@@ -478,7 +401,7 @@ public class PAMEAdwin extends AbstractClassifier{
             if (imax != -1) {
                 this.ensemble[imax].resetLearning();
                 //this.ensemble[imax].trainOnInstance(inst);
-                this.ADError[imax] = new ADWIN();
+                this.ADError[imax] = newADWIN();
             }
         }
 
@@ -494,94 +417,78 @@ public class PAMEAdwin extends AbstractClassifier{
 	/*
 	 * This method returns a vector of predictions by each of the experts. 
 	 */
-	public double[] getPredictions(Instance inst){
-		double[] h = new double[this.ensemble.length]; // initialize vector of predictions
-
-		for (int i = 0; i < this.ensemble.length; i++){
-			// use only the posterior probability on the ``positive'' positive class 
-			// in the binary prediction scenario. 
-			DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
-			if (vote.sumOfValues() > 0.0) {
-                vote.normalize();
-            }
-
-			// index 0 = +1
-			// index 1 = -1
-			if (vote.getValue(0) >= vote.getValue(1)){
-				h[i] = 1;
-			}else{
-				h[i] = -1;
+	public double[] getPredictions(final Instance inst){
+		final double[] h = new double[this.ensemble.length]; // initialize vector of predictions
+
+		WorkerPool pool = this.getWorkerPool();
+		if (pool != null) {
+			pool.forEach(h.length, new WorkerPool.Job() {
+				@Override
+				public void run(int i) {
+					h[i] = getPrediction(i, inst);
+				}
+			});
+		} else {
+			for (int i = 0; i < this.ensemble.length; i++){
+				h[i] = this.getPrediction(i, inst);
 			}
 		}
 		return h;
 	}
 
-
 	/*
-	 * implement the dot product
+	 * This method returns the +1/-1 prediction of a single expert. 
 	 */
-	public double dot(double[] x, double[] y){
-		double dp = 0.0;
+	protected double getPrediction(int i, Instance inst){
+		// use only the posterior probability on the ``positive'' positive class 
+		// in the binary prediction scenario. 
+		DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
+		if (vote.sumOfValues() > 0.0) {
+			vote.normalize();
+		}
 
-		for (int i = 0; i < x.length; i++){
-			dp += x[i]*y[i];
+		// index 0 = +1
+		// index 1 = -1
+		if (vote.getValue(0) >= vote.getValue(1)){
+			return 1;
+		}else{
+			return -1;
 		}
-		return dp;
 	}
 
-
 	/*
-	 * multiply a vector by a scalar
+	 * Train an expert k-times with the same example and feed its error to the
+	 * expert's ADWIN. returns true if ADWIN saw the error of the expert grow.
 	 */
-	public double[] scalarvector(double a, double[] x){
-		double[] y = new double[x.length];
-		for (int j = 0; j < x.length; j++)
-			y[j] = 0.0;
-		
-		for (int i = 0; i < x.length; i++){
-			y[i] = a*x[i];
+	protected boolean trainExpert(int i, Instance inst, int k){
+		// update the expert accordingly 
+		if (k > 0) {
+			// this works by updating the expert k-times with the same example.
+			// thus is k = 4. the expert is trained updated on the same example
+			// 4 times in a row. pretty easy.
+			this.ensemble[i].trainOnInstance(inst, inst.weight() * k);  // update expert
+		}
+		boolean correctlyClassifies = this.ensemble[i].correctlyClassifies(inst);
+		double ErrEstim = this.ADError[i].getEstimation();
+		if (this.ADError[i].setInput(correctlyClassifies ? 0 : 1)) {
+			if (this.ADError[i].getEstimation() > ErrEstim) {
+				return true;
+			}
 		}
-		return y;
+		return false;
 	}
 
-
 	/*
-	 * add two vectors together
+	 * Returns the pool used to query and train the experts, or null when the
+	 * experts are processed sequentially with the shared random stream.
 	 */
-	public double[] addvectors(double[] x, double[] y){
-		double[] z = new double[x.length];
-
-		for (int i = 1; i < z.length; i++){
-			z[i] = x[i] + y[i];
+	protected WorkerPool getWorkerPool(){
+		if (this.numThreadsOption.getValue() == 0){
+			return null;
 		}
-
-		return z;
+		return WorkerPool.getShared(this.numThreadsOption.getValue());
 	}
 
-	private double[] bubblesort(double[] x){
-		boolean flag = true;
-		
-		double t;
-		
-		double[] y = new double[x.length];
-		for (int j = 0; j < x.length; j++)
-			y[j] = x[j];
-		
-		
-		
-		while(flag){
-			flag = false;
-			for (int j = 0; j < y.length - 1; j++){
-				if (y[j] < y[j + 1]){
-					t = y[j];
-					y[j] = y[j + 1];
-					y[j + 1] = t;
-					flag = true;
-				}
-			}
-		}	
-		return y;
-	}
 
 	public double klDivergence(double[] p1, double[] p2) { 
 		double klDiv = 0.0;
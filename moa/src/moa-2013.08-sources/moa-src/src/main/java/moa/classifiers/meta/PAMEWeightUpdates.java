@@ -0,0 +1,189 @@
+/*
+ *    PAMEWeightUpdates.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package moa.classifiers.meta;
+
+/**
+ * In-place weight updates of the PAME family, shared by <code>PAME</code>
+ * and <code>PAMEAdwin</code>. None of the updates allocate memory; the
+ * simplex projection uses a scratch array of the same length as the weights
+ * and runs in O(K + m log K), where m is the number of experts that keep a
+ * positive weight.
+ *
+ * The updates give exactly the same weights as the original vector helpers.
+ * This includes the first weight being reset to zero on every update, as
+ * their <code>addvectors</code> never wrote the first element.
+ *
+ * @version $Revision: 7 $
+ */
+public class PAMEWeightUpdates {
+
+    /**
+     * PAME-I: passive aggressive step on the expert predictions.
+     *
+     * @param weights the expert weights, updated in place
+     * @param ht the +1/-1 predictions of the experts
+     * @param yt the +1/-1 label
+     * @param C the regularization bound on the step size
+     */
+    public static void pame1(double[] weights, double[] ht, double yt, double C) {
+        double alpha = (1.0 - yt * dot(ht, weights)) / dot(ht, ht);
+        if (alpha < 0) {
+            alpha = 0;
+        }
+        if (C < alpha) {
+            alpha = C;  // apply regularization
+        }
+        double step = alpha * yt;
+        weights[0] = 0.0;
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += step * ht[i];
+        }
+    }
+
+    /**
+     * PAME-II: PAME-I followed by clipping the weights at zero.
+     *
+     * @param weights the expert weights, updated in place
+     * @param ht the +1/-1 predictions of the experts
+     * @param yt the +1/-1 label
+     * @param C the regularization bound on the step size
+     */
+    public static void pame2(double[] weights, double[] ht, double yt, double C) {
+        pame1(weights, ht, yt, C);
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0.0) {
+                weights[i] = 0.0;   // clip the weights
+            }
+        }
+    }
+
+    /**
+     * PAME-III: step within the hyperplane of weights that sum to one,
+     * followed by a projection onto the probability simplex.
+     *
+     * @param weights the expert weights, updated in place
+     * @param ht the +1/-1 predictions of the experts
+     * @param yt the +1/-1 label
+     * @param C the regularization bound on the step size
+     * @param scratch an array at least as long as the weights
+     */
+    public static void pame3(double[] weights, double[] ht, double yt, double C,
+            double[] scratch) {
+        double K = (double) weights.length;
+
+        /* see proof for this value; the ones vector has a zero in front */
+        double hh = 0.0;
+        for (int i = 1; i < ht.length; i++) {
+            hh += ht[i];
+        }
+        double shift = -1.0 * hh / K;
+        double denom = 0.0;
+        for (int i = 1; i < ht.length; i++) {
+            double h = ht[i] + shift;
+            denom += h * h;
+        }
+        double alpha = (1.0 - yt * dot(ht, weights)) / denom;
+        if (alpha < 0) {
+            alpha = 0;
+        }
+        if (C < alpha) {
+            alpha = C;  // apply regularization
+        }
+        double step = alpha * yt;
+        weights[0] = 0.0;
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += step * (ht[i] + shift);
+        }
+        projectOntoSimplex(weights, scratch);
+    }
+
+    /**
+     * Projects a vector onto the probability simplex in place. The largest
+     * elements are taken from a max-heap built in the scratch array, so only
+     * the elements that stay positive are ever sorted.
+     *
+     * @param weights the vector to project
+     * @param scratch an array at least as long as the vector
+     */
+    public static void projectOntoSimplex(double[] weights, double[] scratch) {
+        int n = weights.length;
+        System.arraycopy(weights, 0, scratch, 0, n);
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(scratch, i, n);
+        }
+
+        boolean bGet = false;
+        double tmpsum = 0.0;
+        double tmax = 0.0;
+        double current = popMax(scratch, n--);
+        for (int i = 0; i < weights.length - 1; i++) {
+            tmpsum += current;
+            tmax = (tmpsum - 1.0) / (i + 1);
+            if (tmax >= scratch[0]) {
+                bGet = true;
+                break;
+            }
+            current = popMax(scratch, n--);
+        }
+        if (!bGet) {
+            tmax = (tmpsum + current - 1) / weights.length;
+        }
+
+        for (int k = 0; k < weights.length; k++) {
+            if (weights[k] - tmax < 0) {
+                weights[k] = 0;
+            } else {
+                weights[k] -= tmax;
+            }
+        }
+    }
+
+    public static double dot(double[] x, double[] y) {
+        double dp = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            dp += x[i] * y[i];
+        }
+        return dp;
+    }
+
+    /*
+     * removes the largest element of a max-heap of the given size
+     */
+    protected static double popMax(double[] heap, int size) {
+        double max = heap[0];
+        heap[0] = heap[size - 1];
+        siftDown(heap, 0, size - 1);
+        return max;
+    }
+
+    protected static void siftDown(double[] heap, int i, int size) {
+        double value = heap[i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if ((child + 1 < size) && (heap[child + 1] > heap[child])) {
+                child++;
+            }
+            if (heap[child] <= value) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+}
@@ -171,6 +171,11 @@ public class MultilabelHoeffdingTree extends HoeffdingTreeClassifLeaves {
 		this.inactiveLeafNodeCount++;
 	}
 
+	@Override
+	public void getVotesForInstances(Instances insts, double[][] votes) {
+		getVotesForInstancesOneByOne(insts, votes);
+	}
+
 	@Override
 	public double[] getVotesForInstance(Instance inst) {
 
@@ -23,6 +23,7 @@ import moa.classifiers.Classifier;
 import moa.classifiers.meta.OzaBag;
 import moa.core.InstancesHeader;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * OzaBag for Multi-label data.
@@ -72,6 +73,11 @@ public class MLOzaBag extends OzaBag {
         return true;
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        getVotesForInstancesOneByOne(insts, votes);
+    }
+
     @Override
     public double[] getVotesForInstance(Instance x) {
 
@@ -25,6 +25,7 @@ import moa.classifiers.meta.OzaBagAdwin;
 import moa.core.InstancesHeader;
 import moa.core.MiscUtils;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * MLOzaBagAdwin: Changes the way to compute accuracy as an input for Adwin
@@ -59,9 +60,7 @@ public class MLOzaBagAdwin extends OzaBagAdwin {
         for (int i = 0; i < this.ensemble.length; i++) {
             int k = MiscUtils.poisson(1.0, this.classifierRandom);
             if (k > 0) {
-                Instance weightedInst = (Instance) inst.copy();
-                weightedInst.setWeight(inst.weight() * k);
-                this.ensemble[i].trainOnInstance(weightedInst);
+                this.ensemble[i].trainOnInstance(inst, inst.weight() * k);
             }
             double[] prediction = this.ensemble[i].getVotesForInstance(inst);
             //Compute accuracy
@@ -129,6 +128,11 @@ public class MLOzaBagAdwin extends OzaBagAdwin {
         }
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        getVotesForInstancesOneByOne(insts, votes);
+    }
+
     @Override
     public double[] getVotesForInstance(Instance x) {
 
@@ -24,6 +24,7 @@ package moa.classifiers.rules;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.core.attributeclassobservers.*;
 import moa.classifiers.core.attributeclassobservers.BinaryTreeNumericAttributeClassObserverRegression.Node;
+import moa.classifiers.rules.core.RuleIndex;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -82,6 +83,8 @@ public class AMRules extends AbstractClassifier{
 	
 	protected ArrayList<Rule> ruleSet = new ArrayList<Rule>();
 	
+	protected RuleIndex ruleIndex = new RuleIndex(); // Rules covering an instance, cleared when the rule set changes.
+	
 	protected ArrayList<Rule> ruleSetAnomalies = new ArrayList<Rule>();
 	
 	protected ArrayList<Integer> ruleAnomaliesIndex = new ArrayList<Integer>();
@@ -324,41 +327,41 @@ public class AMRules extends AbstractClassifier{
 		int countRuleFiredTrue = 0;
 		boolean ruleFired = false;
 		this.instance = inst;
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countRuleFiredTrue = countRuleFiredTrue + 1;
-				this.saveBestValGlobalSDR = new ArrayList<ArrayList<Double>>();
-				this.saveBestGlobalSDR = new DoubleVector(); 
-				this.saveTheBest = new ArrayList<Double>();
-				double anomaly = computeAnomaly(this.ruleSet.get(j), j, inst); // compute anomaly
-				if((this.ruleSet.get(j).instancesSeen <= this.anomalyNumInstThresholdOption.getValue()) || (anomaly < this.anomalyProbabilityThresholdOption.getValue() && this.anomalyDetectionOption.isSet()) ||!this.anomalyDetectionOption.isSet()){
-				for (int i = 0; i < inst.numAttributes() - 1; i++) {
-					int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
-					AttributeClassObserver obs = this.ruleSet.get(j).observers.get(i);
-					if (obs == null) {
-						obs = inst.attribute(instAttIndex).isNominal() ? newNominalClassObserver()
-								: newNumericClassObserverRegression();
-						this.ruleSet.get(j).observers.set(i, obs);     
-					}
-					obs.observeAttributeTarget(inst.value(instAttIndex), inst.classValue());
-					}
-				
-				double RuleError = computeRuleError(inst, this.ruleSet.get(j), j); // compute rule error
-				boolean ph = PageHinckleyTest(RuleError, this.pageHinckleyThresholdOption.getValue(), this.ruleSet.get(j));
-				if (ph == true) { //Page Hinckley test.
-					//Pruning rule set.
-				//	System.out.print("Pruning rule set \n");
-					this.ruleSet.remove(j);
-					this.targetValue.remove(j);
-					this.numTargetValue.remove(j);
-					this.ruleTargetMean.remove(j);
-				} else {
-					this.expandeRule(this.ruleSet.get(j), j, inst); //Expand the rule.
-					}
-			}
-				if (this.orderedRulesOption.isSet()) { // Ordered rules
-					break;
+		int numRulesCovering = coveringRules(inst);
+		int numRulesRemoved = 0;
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m) - numRulesRemoved;
+			countRuleFiredTrue = countRuleFiredTrue + 1;
+			double anomaly = computeAnomaly(this.ruleSet.get(j), j, inst); // compute anomaly
+			if((this.ruleSet.get(j).instancesSeen <= this.anomalyNumInstThresholdOption.getValue()) || (anomaly < this.anomalyProbabilityThresholdOption.getValue() && this.anomalyDetectionOption.isSet()) ||!this.anomalyDetectionOption.isSet()){
+			for (int i = 0; i < inst.numAttributes() - 1; i++) {
+				int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
+				AttributeClassObserver obs = this.ruleSet.get(j).observers.get(i);
+				if (obs == null) {
+					obs = inst.attribute(instAttIndex).isNominal() ? newNominalClassObserver()
+							: newNumericClassObserverRegression();
+					this.ruleSet.get(j).observers.set(i, obs);     
 				}
+				obs.observeAttributeTarget(inst.value(instAttIndex), inst.classValue());
+				}
+			
+			double RuleError = computeRuleError(inst, this.ruleSet.get(j), j); // compute rule error
+			boolean ph = PageHinckleyTest(RuleError, this.pageHinckleyThresholdOption.getValue(), this.ruleSet.get(j));
+			if (ph == true) { //Page Hinckley test.
+				//Pruning rule set.
+			//	System.out.print("Pruning rule set \n");
+				this.ruleSet.remove(j);
+				this.targetValue.remove(j);
+				this.numTargetValue.remove(j);
+				this.ruleTargetMean.remove(j);
+				this.ruleIndex.clear();
+				numRulesRemoved++;
+			} else {
+				this.expandeRule(this.ruleSet.get(j), j, inst); //Expand the rule.
+				}
+		}
+			if (this.orderedRulesOption.isSet()) { // Ordered rules
+				break;
 			}
 		}
 		if (countRuleFiredTrue > 0) {
@@ -367,9 +370,6 @@ public class AMRules extends AbstractClassifier{
 			ruleFired = false;
 		}
 		if (ruleFired == false) { //Default rule
-			this.saveBestValGlobalSDR = new ArrayList<ArrayList<Double>>();
-			this.saveBestGlobalSDR = new DoubleVector();
-			this.saveTheBest = new ArrayList<Double>();
 			double anomalies = computeAnomalyDefaultRules(inst);
 			if((instancesSeenDefault <= this.anomalyNumInstThresholdOption.getValue()) || (anomalies < this.anomalyProbabilityThresholdOption.getValue() && this.anomalyDetectionOption.isSet()) ||!this.anomalyDetectionOption.isSet()) {
 			for (int i = 0; i < inst.numAttributes() - 1; i++) {
@@ -582,6 +582,9 @@ public class AMRules extends AbstractClassifier{
 	// This function save all the informations about the best attribute.
 	public void theBestAttributes(Instance instance, 
 			AutoExpandVector<AttributeClassObserver> observersParameter) {
+		this.saveBestValGlobalSDR.clear();
+		this.saveBestGlobalSDR = new DoubleVector();
+		this.saveTheBest.clear();
 		for(int z = 0; z < instance.numAttributes() - 1; z++){
 			int instAttIndex = modelAttIndexToInstanceAttIndex(z, instance);
 			if(instance.attribute(instAttIndex).isNumeric()){
@@ -937,6 +940,7 @@ public class AMRules extends AbstractClassifier{
 	//This function adds a predicate to a rule and updates the statistics of this rule
 	public void AddPredUpdateRuleStatistics(Rule rl, int RuleIndex, double targetValorTotal, double contaTargetValorTotal){
 		rl.predicateSet.add(this.pred);
+		this.ruleIndex.clear();
 		this.targetValue.set(RuleIndex, targetValorTotal);  
 		this.numTargetValue.set(RuleIndex, contaTargetValorTotal);
 		setRuleTarget(this.targetValue.get(RuleIndex), this.numTargetValue.get(RuleIndex), RuleIndex);
@@ -1121,6 +1125,7 @@ public class AMRules extends AbstractClassifier{
 				System.arraycopy(this.weightAttributeDefault, 0, Rl.weightAttribute, 0, this.weightAttributeDefault.length); //Initialize the rule array of weights.
 				reanicializeRuleStatistic(Rl); //Initialize the others statistics of the rule.
 				this.ruleSet.add(Rl);
+				this.ruleIndex.clear();
 				this.targetValue.add(targetValorTotal);
 				this.numTargetValue.add(contaTargetValorTotal);
 				getRuleTarget(this.targetValue.get(ruleSet.size()-1), this.numTargetValue.get(ruleSet.size()-1), this.ruleSet.size()-1);
@@ -1150,6 +1155,17 @@ public class AMRules extends AbstractClassifier{
 		return votes;
 	}
 	
+	// Finds the rules covering the instance with the rule index, which is filled again after the rule set changes.
+	protected int coveringRules(Instance inst) {
+		if (this.ruleIndex.numRules() != this.ruleSet.size()) {
+			this.ruleIndex.clear();
+			for (int j = 0; j < this.ruleSet.size(); j++) {
+				this.ruleSet.get(j).addToRuleIndex(this.ruleIndex);
+			}
+		}
+		return this.ruleIndex.match(inst);
+	}
+	
 	// The following functions are used for the prediction 
 	protected double getVotesUnorderedRulesTargetMean(Instance inst) { //Unordered Rules Target Mean prediction
 		double votes = 0.0;
@@ -1157,13 +1173,13 @@ public class AMRules extends AbstractClassifier{
 		boolean fired = false;
 		int countFired = 0;
 		int count = 0;
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				double value = this.ruleSet.get(j).ValorTargetRule;
-				sum = sum + value;
-				count = count + 1;
-			}
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countFired = countFired + 1;
+			double value = this.ruleSet.get(j).ValorTargetRule;
+			sum = sum + value;
+			count = count + 1;
 		}
 		if (countFired > 0) {
 			fired = true;
@@ -1181,13 +1197,13 @@ public class AMRules extends AbstractClassifier{
 		double votes = 0.0;
 		boolean fired = false;
 		int countFired = 0;
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				double value = this.ruleSet.get(j).ValorTargetRule;
-				votes = value;
-				break;
-			}
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countFired = countFired + 1;
+			double value = this.ruleSet.get(j).ValorTargetRule;
+			votes = value;
+			break;
 		}
 		if (countFired > 0) {
 			fired = true;
@@ -1206,14 +1222,14 @@ public class AMRules extends AbstractClassifier{
 		boolean fired = false;
 		int countFired = 0;
 		int count = 0;
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				double value = this.prediction(inst, this.ruleSet.get(j).weightAttribute, this.ruleSet.get(j).squaredActualClassStatistics, 
-						this.ruleSet.get(j).actualClassStatistics, this.ruleSet.get(j).instancesSeen, this.ruleSet.get(j).reset);
-				sum = sum + value;
-				count = count + 1;
-			}
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countFired = countFired + 1;
+			double value = this.prediction(inst, this.ruleSet.get(j).weightAttribute, this.ruleSet.get(j).squaredActualClassStatistics, 
+					this.ruleSet.get(j).actualClassStatistics, this.ruleSet.get(j).instancesSeen, this.ruleSet.get(j).reset);
+			sum = sum + value;
+			count = count + 1;
 		}
 		if (countFired > 0) {
 			fired = true;
@@ -1232,14 +1248,14 @@ public class AMRules extends AbstractClassifier{
 		double votes = 0.0;
 		boolean fired = false;
 		int countFired = 0;
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				double value = this.prediction(inst, this.ruleSet.get(j).weightAttribute, this.ruleSet.get(j).squaredActualClassStatistics, 
-						this.ruleSet.get(j).actualClassStatistics, this.ruleSet.get(j).instancesSeen, this.ruleSet.get(j).reset);
-				votes = value;
-				break;
-			}
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countFired = countFired + 1;
+			double value = this.prediction(inst, this.ruleSet.get(j).weightAttribute, this.ruleSet.get(j).squaredActualClassStatistics, 
+					this.ruleSet.get(j).actualClassStatistics, this.ruleSet.get(j).instancesSeen, this.ruleSet.get(j).reset);
+			votes = value;
+			break;
 		}
 		if (countFired > 0) {
 			fired = true;
@@ -32,15 +32,15 @@ package moa.classifiers.rules;
  **/
 
 import java.util.Arrays;
-import java.util.Iterator;
 
 import weka.core.Instance;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.rules.core.Rule;
 import moa.classifiers.rules.core.RuleActiveLearningNode;
+import moa.classifiers.rules.core.RuleIndex;
 import moa.classifiers.rules.core.RuleSet;
 import moa.classifiers.rules.core.Rule.Builder;
-import moa.classifiers.rules.core.attributeclassobservers.FIMTDDNumericAttributeClassLimitObserver;
+import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
 import moa.classifiers.rules.core.voting.ErrorWeightedVote;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -54,6 +54,7 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 
 	private static final long serialVersionUID = 1L;
 	protected RuleSet ruleSet = new RuleSet();
+	protected RuleIndex ruleIndex = new RuleIndex(); //Rules covering an instance, cleared when the rule set changes
 	protected Rule defaultRule;
 	protected int ruleNumberID;
 	protected double[] statistics;
@@ -109,8 +110,8 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 
 	public ClassOption numericObserverOption = new ClassOption("numericObserver",
 			'z', "Numeric observer.", 
-			FIMTDDNumericAttributeClassLimitObserver.class,
-			"FIMTDDNumericAttributeClassLimitObserver");
+			FIMTDDNumericAttributeClassObserver.class,
+			"moa.classifiers.rules.core.attributeclassobservers.FIMTDDNumericAttributeClassLimitObserver");
 		
 
 	public AbstractAMRules() {
@@ -180,39 +181,41 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 		debug("Train",3);
 		debug("Nº instance "+numInstances + " - " + instance.toString(),3);
 		boolean rulesCoveringInstance = false;
-		Iterator<Rule> ruleIterator= this.ruleSet.iterator();
-		while (ruleIterator.hasNext()) { 
-			Rule rule = ruleIterator.next();
-			if (rule.isCovering(instance) == true) {
-				rulesCoveringInstance = true;
-				if (isAnomaly(instance, rule) == false) {
-					//Update Change Detection Tests
-					double error = rule.computeError(instance); //Use adaptive mode error
-					boolean changeDetected = rule.getLearningNode().updateChangeDetection(error);
-					if (changeDetected == true) {
-						debug("I) Drift Detected. Exa. : " +  this.numInstances + " (" + rule.getInstancesSeen() +") Remove Rule: " +rule.getRuleNumberID(),1);
-
-						ruleIterator.remove();
-						this.numChangesDetected++;  //Just for statistics 
-					} else {
-						rule.updateStatistics(instance);
-						if (rule.getInstancesSeen()  % this.gracePeriodOption.getValue() == 0.0) {
-							if (rule.tryToExpand(this.splitConfidenceOption.getValue(), this.tieThresholdOption.getValue()) ) 
-							{
-								rule.split();
-								debug("Rule Expanded:",2);
-								debug(rule.printRule(),2);
-							}	
-						}
+		int numberOfRulesCovering = coveringRules(instance);
+		int numberOfRulesRemoved = 0;
+		for (int i = 0; i < numberOfRulesCovering; i++) {
+			int ruleIndexInSet = this.ruleIndex.getMatch(i) - numberOfRulesRemoved;
+			Rule rule = this.ruleSet.get(ruleIndexInSet);
+			rulesCoveringInstance = true;
+			if (isAnomaly(instance, rule) == false) {
+				//Update Change Detection Tests
+				double error = rule.computeError(instance); //Use adaptive mode error
+				boolean changeDetected = rule.getLearningNode().updateChangeDetection(error);
+				if (changeDetected == true) {
+					debug("I) Drift Detected. Exa. : " +  this.numInstances + " (" + rule.getInstancesSeen() +") Remove Rule: " +rule.getRuleNumberID(),1);
+
+					this.ruleSet.remove(ruleIndexInSet);
+					this.ruleIndex.clear();
+					numberOfRulesRemoved++;
+					this.numChangesDetected++;  //Just for statistics 
+				} else {
+					rule.updateStatistics(instance);
+					if (rule.getInstancesSeen()  % this.gracePeriodOption.getValue() == 0.0) {
+						if (rule.tryToExpand(this.splitConfidenceOption.getValue(), this.tieThresholdOption.getValue()) ) 
+						{
+							rule.split();
+							this.ruleIndex.clear();
+							debug("Rule Expanded:",2);
+							debug(rule.printRule(),2);
+						}	
 					}
-					if (!this.unorderedRulesOption.isSet()) 
-						break;
-				}
-				else {
-					debug("Anomaly Detected: " + this.numInstances + " Rule: " +rule.getRuleNumberID() ,1);
-					this.numAnomaliesDetected++;//Just for statistics
 				}
-
+				if (!this.unorderedRulesOption.isSet()) 
+					break;
+			}
+			else {
+				debug("Anomaly Detected: " + this.numInstances + " Rule: " +rule.getRuleNumberID() ,1);
+				this.numAnomaliesDetected++;//Just for statistics
 			}
 		}	
 
@@ -226,6 +229,7 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 					defaultRule.split();
 					defaultRule.setRuleNumberID(++ruleNumberID);
 					this.ruleSet.add(this.defaultRule);
+					this.ruleIndex.clear();
 
 					debug("Default rule expanded! New Rule:",2);
 					debug(defaultRule.printRule(),2);
@@ -240,6 +244,23 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 
 
 
+	/**
+	 * Finds the rules that cover the instance with the rule index, which is
+	 * filled again from the rule set after it changes. The rules are then
+	 * given by ruleIndex.getMatch in the order of the rule set.
+	 * @param instance
+	 * @return the number of rules covering the instance
+	 */
+	protected int coveringRules(Instance instance) {
+		if (this.ruleIndex.numRules() != this.ruleSet.size()) {
+			this.ruleIndex.clear();
+			for (Rule rule: this.ruleSet) {
+				this.ruleIndex.addRule(rule, instance.classIndex());
+			}
+		}
+		return this.ruleIndex.match(instance);
+	}
+
 	/**
 	 * Method to verify if the instance is an anomaly.
 	 * @param instance
@@ -274,18 +295,18 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 		int numberOfRulesCovering = 0;
 
 		VerboseToConsole(instance); // Verbose to console Dataset name.
-		for (Rule rule: ruleSet) {
-			if (rule.isCovering(instance) == true){
-				numberOfRulesCovering++;
-				//DoubleVector vote = new DoubleVector(rule.getPrediction(instance));
-				double [] vote=rule.getPrediction(instance);
-				double error= rule.getCurrentError();
-				debug("Rule No"+ rule.getRuleNumberID() + " Vote: " + Arrays.toString(vote) + " Error: " + error + " Y: " + instance.classValue(),3); //predictionValueForThisRule);
-				errorWeightedVote.addVote(vote,error);
-				//combinedVote.addValues(vote);
-				if (!this.unorderedRulesOption.isSet()) { // Ordered Rules Option.
-					break; // Only one rule cover the instance.
-				}
+		int numberOfMatches = coveringRules(instance);
+		for (int i = 0; i < numberOfMatches; i++) {
+			Rule rule = this.ruleSet.get(this.ruleIndex.getMatch(i));
+			numberOfRulesCovering++;
+			//DoubleVector vote = new DoubleVector(rule.getPrediction(instance));
+			double [] vote=rule.getPrediction(instance);
+			double error= rule.getCurrentError();
+			debug("Rule No"+ rule.getRuleNumberID() + " Vote: " + Arrays.toString(vote) + " Error: " + error + " Y: " + instance.classValue(),3); //predictionValueForThisRule);
+			errorWeightedVote.addVote(vote,error);
+			//combinedVote.addValues(vote);
+			if (!this.unorderedRulesOption.isSet()) { // Ordered Rules Option.
+				break; // Only one rule cover the instance.
 			}
 		}
 
@@ -369,6 +390,10 @@ public abstract class AbstractAMRules extends AbstractClassifier {
 		}    	
 	}
 
+	public RuleSet getRuleSet() {
+		return this.ruleSet;
+	}
+
 	public void PrintRuleSet() {    	
 		debug("Rule in RuleSet:",2);
 		for (Rule rule: ruleSet) {
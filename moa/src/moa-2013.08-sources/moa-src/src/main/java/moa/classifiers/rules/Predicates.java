@@ -33,10 +33,11 @@ package moa.classifiers.rules;
  */
 
 import moa.AbstractMOAObject;
+import moa.classifiers.rules.core.Predicate;
 import weka.core.Instance;
 //import samoa.instances.Instance;
 
-public class Predicates extends AbstractMOAObject{
+public class Predicates extends AbstractMOAObject implements Predicate{
 	
 	private static final long serialVersionUID = 1L;
 	
@@ -36,6 +36,7 @@ package moa.classifiers.rules;
 import java.util.ArrayList;
 import moa.AbstractMOAObject;
 import moa.classifiers.core.attributeclassobservers.*;
+import moa.classifiers.rules.core.RuleIndex;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import weka.core.Instance;
@@ -116,6 +117,25 @@ public class Rule extends AbstractMOAObject{
 		return ruleEvalu;
 		}
 	
+    //Adds the rule to the index, with a literal for each predicate.
+    public int addToRuleIndex(RuleIndex index) {
+    	int ruleNumber = index.addRule();
+    	for (int i = 0; i < predicateSet.size(); i++) {
+    		Predicates pred = predicateSet.get(i);
+    		int attIndex = (int) pred.getAttributeValue();
+    		if (pred.getSymbol() == 0.0) {
+    			index.addLiteral(attIndex, RuleIndex.EQUAL, pred.getValue());
+    		} else if (pred.getSymbol() == -1.0) {
+    			index.addLiteral(attIndex, RuleIndex.LESS_EQUAL, pred.getValue());
+    		} else if (pred.getSymbol() == 1.0) {
+    			index.addLiteral(attIndex, RuleIndex.GREATER, pred.getValue());
+    		} else {
+    			index.addPredicate(pred);
+    		}
+    	}
+    	return ruleNumber;
+    }
+	
 	@Override
 	public void getDescription(StringBuilder sb, int indent) {
 		// TODO Auto-generated method stub	
@@ -27,6 +27,7 @@ import java.util.*;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.core.attributeclassobservers.*;
 import moa.classifiers.core.attributeclassobservers.BinaryTreeNumericAttributeClassObserver.Node;
+import moa.classifiers.rules.core.RuleIndex;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
@@ -95,6 +96,8 @@ public class RuleClassifier extends AbstractClassifier{
 	  
 	  protected ArrayList<Rule> ruleSet = new ArrayList<Rule>();
 	  
+	  protected RuleIndex ruleIndex = new RuleIndex();	// Rules covering an instance, cleared when the rule set changes.
+	  
 	 //   protected DoubleVector ruleClassIndexAnomalis = new DoubleVector();
 	  protected  ArrayList<Rule> ruleSetAnomalies = new ArrayList<Rule>();
 		
@@ -227,62 +230,62 @@ public class RuleClassifier extends AbstractClassifier{
 		this.numClass = instance.numClasses();
 		this.numInstance = numInstance + 1;
 		int conta1=0;
-		for (int j = 0; j < ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countRuleFiredTrue = countRuleFiredTrue + 1;
-				
-				double anomaly = 0.0;
-				if(this.Supervised.isSet()){
-					anomaly = computeAnomalySupervised(this.ruleSet.get(j), j, inst); // compute anomaly (Supervised method)
-				}else if(this.Unsupervised.isSet()){
-					anomaly = computeAnomalyUnsupervised(this.ruleSet.get(j), j, inst); // compute anomaly (Unsupervised method)
-				}
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countRuleFiredTrue = countRuleFiredTrue + 1;
+			
+			double anomaly = 0.0;
+			if(this.Supervised.isSet()){
+				anomaly = computeAnomalySupervised(this.ruleSet.get(j), j, inst); // compute anomaly (Supervised method)
+			}else if(this.Unsupervised.isSet()){
+				anomaly = computeAnomalyUnsupervised(this.ruleSet.get(j), j, inst); // compute anomaly (Unsupervised method)
+			}
+			
+			if(anomaly >= this.anomalyProbabilityThresholdOption.getValue()){
+			conta1 =conta1+1;
+			}
+		//	System.out.print(numInstance+";"+anomaly+"\n");
+			 try {
+	       	        
+           		  File dir = new File("SeaAnomaliesUnsupervised.txt");
+           		  FileWriter fileWriter = new FileWriter(dir, true); 
+           		  PrintWriter printWriter = new PrintWriter(fileWriter);
+              	  printWriter.println(numInstance+";"+anomaly);
+           		  printWriter.flush();
+           		  printWriter.close();      
+           	       
+    			} catch (IOException e) {
+    				e.printStackTrace();
+    			}
+			 if((this.ruleSet.get(j).instancesSeen <= this.anomalyNumInstThresholdOption.getValue()) || (anomaly < this.anomalyProbabilityThresholdOption.getValue() && this.anomalyDetectionOption.isSet()) ||!this.anomalyDetectionOption.isSet()){
+			this.ruleSet.get(j).obserClassDistrib.addToValue((int) inst.classValue(), inst.weight());
+			for (int i = 0; i < inst.numAttributes() - 1; i++) {
+				int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
 				
-				if(anomaly >= this.anomalyProbabilityThresholdOption.getValue()){
-				conta1 =conta1+1;
-				}
-			//	System.out.print(numInstance+";"+anomaly+"\n");
-				 try {
-		       	        
-	           		  File dir = new File("SeaAnomaliesUnsupervised.txt");
-	           		  FileWriter fileWriter = new FileWriter(dir, true); 
-	           		  PrintWriter printWriter = new PrintWriter(fileWriter);
-	              	  printWriter.println(numInstance+";"+anomaly);
-	           		  printWriter.flush();
-	           		  printWriter.close();      
-	           	       
-	    			} catch (IOException e) {
-	    				e.printStackTrace();
-	    			}
-				 if((this.ruleSet.get(j).instancesSeen <= this.anomalyNumInstThresholdOption.getValue()) || (anomaly < this.anomalyProbabilityThresholdOption.getValue() && this.anomalyDetectionOption.isSet()) ||!this.anomalyDetectionOption.isSet()){
-				this.ruleSet.get(j).obserClassDistrib.addToValue((int) inst.classValue(), inst.weight());
-				for (int i = 0; i < inst.numAttributes() - 1; i++) {
-					int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
-					
-					if(!inst.isMissing(instAttIndex)){
-		            AttributeClassObserver obs = this.ruleSet.get(j).observers.get(i);		// Nominal and binary tree.
-		            AttributeClassObserver obsGauss = this.ruleSet.get(j).observersGauss.get(i);		// Gaussian.
-		            if (obs == null) {
-		                obs = inst.attribute(instAttIndex).isNominal() ? newNominalClassObserver()
-		                        : newNumericClassObserver();
-		                this.ruleSet.get(j).observers.set(i, obs);     
-		            }
-		            if (obsGauss == null) {
-		                obsGauss = inst.attribute(instAttIndex).isNumeric() ? newNumericClassObserver2():null;
-		                this.ruleSet.get(j).observersGauss.set(i, obsGauss);     
-		            }
-		            obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
-		            if (inst.attribute(instAttIndex).isNumeric()) {
-		            	obsGauss.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
-		            }  
+				if(!inst.isMissing(instAttIndex)){
+	            AttributeClassObserver obs = this.ruleSet.get(j).observers.get(i);		// Nominal and binary tree.
+	            AttributeClassObserver obsGauss = this.ruleSet.get(j).observersGauss.get(i);		// Gaussian.
+	            if (obs == null) {
+	                obs = inst.attribute(instAttIndex).isNominal() ? newNominalClassObserver()
+	                        : newNumericClassObserver();
+	                this.ruleSet.get(j).observers.set(i, obs);     
 	            }
-				}
-				expandeRule(this.ruleSet.get(j), inst, j); // This function expands the rule
-				}
-		        if (this.orderedRulesOption.isSet()) {	// Ordered rules
-		        	break;
-		        	}
-		        }
+	            if (obsGauss == null) {
+	                obsGauss = inst.attribute(instAttIndex).isNumeric() ? newNumericClassObserver2():null;
+	                this.ruleSet.get(j).observersGauss.set(i, obsGauss);     
+	            }
+	            obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+	            if (inst.attribute(instAttIndex).isNumeric()) {
+	            	obsGauss.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+	            }  
+            }
+			}
+			expandeRule(this.ruleSet.get(j), inst, j); // This function expands the rule
+			}
+	        if (this.orderedRulesOption.isSet()) {	// Ordered rules
+	        	break;
+	        	}
 			}
 		if (countRuleFiredTrue > 0) {
 			ruleFired = true;
@@ -554,6 +557,7 @@ public void printAnomaliesSupervised(StringBuilder out, int indent) { // Get Mod
 	//This function initializes the statistics of a rule 
 	public void initializeRuleStatistics(Rule rl, Predicates pred, Instance inst) {
 		rl.predicateSet.add(pred);
+		this.ruleIndex.clear();
 		rl.obserClassDistrib=new DoubleVector();
 		rl.observers=new AutoExpandVector<AttributeClassObserver>();
 		rl.observersGauss=new AutoExpandVector<AttributeClassObserver>();
@@ -789,6 +793,7 @@ public void printAnomaliesSupervised(StringBuilder out, int indent) { // Get Mod
     			Rule Rl = new Rule();		// Create Rule.
     			Rl.predicateSet.add(pred);
     			this.ruleSet.add(Rl);
+    			this.ruleIndex.clear();
     			if (Rl.predicateSet.get(0).getSymbol() == -1.0 ||Rl.predicateSet.get(0).getSymbol() == 1.0) {
     				double posClassDouble = this.saveTheBest.get(4);
     				this.ruleClassIndex.setValue(this.ruleSet.size()-1, posClassDouble);	
@@ -1183,20 +1188,31 @@ public void printAnomaliesSupervised(StringBuilder out, int indent) { // Get Mod
 		return votes;
 		}
 	
+	// Finds the rules covering the instance with the rule index, which is filled again after the rule set changes.
+	protected int coveringRules(Instance inst) {
+		if (this.ruleIndex.numRules() != this.ruleSet.size()) {
+			this.ruleIndex.clear();
+			for (int j = 0; j < this.ruleSet.size(); j++) {
+				this.ruleSet.get(j).addToRuleIndex(this.ruleIndex);
+			}
+		}
+		return this.ruleIndex.match(inst);
+	}
+	
 	// The following three functions are used for the prediction 
 	protected double[] firstHit(Instance inst) {
 		boolean fired = false;
 		int countFired = 0;
 		double[] votes = new double[this.numClass];
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				for (int z = 0; z < this.numClass; z++) {
-					votes[z] = this.ruleSet.get(j).obserClassDistrib.getValue(z) 
-							/ this.ruleSet.get(j).obserClassDistrib.sumOfValues();
-					}
-				return votes;
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countFired = countFired + 1;
+			for (int z = 0; z < this.numClass; z++) {
+				votes[z] = this.ruleSet.get(j).obserClassDistrib.getValue(z) 
+						/ this.ruleSet.get(j).obserClassDistrib.sumOfValues();
 				}
+			return votes;
 			}
 		if (countFired > 0) {
 			fired = true;
@@ -1217,16 +1233,16 @@ public void printAnomaliesSupervised(StringBuilder out, int indent) { // Get Mod
 		double[] votes = new double[this.numClass];
 		ArrayList<Double> ruleSetVotes = new ArrayList<Double>();
 		ArrayList<ArrayList<Double>> majorityProb = new ArrayList<ArrayList<Double>>();
-		for (int j = 0; j < this.ruleSet.size(); j++) {
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
 			ArrayList<Double> ruleProb = new ArrayList<Double>();
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired+1;
-				for (int z = 0; z < this.numClass; z++) {
-					ruleSetVotes.add(this.ruleSet.get(j).obserClassDistrib.getValue(z) / this.ruleSet.get(j).obserClassDistrib.sumOfValues());
-		    	    ruleProb.add(this.ruleSet.get(j).obserClassDistrib.getValue(z) / this.ruleSet.get(j).obserClassDistrib.sumOfValues());
-		    	    }
-				majorityProb.add(ruleProb);
-				}
+			countFired = countFired+1;
+			for (int z = 0; z < this.numClass; z++) {
+				ruleSetVotes.add(this.ruleSet.get(j).obserClassDistrib.getValue(z) / this.ruleSet.get(j).obserClassDistrib.sumOfValues());
+	    	    ruleProb.add(this.ruleSet.get(j).obserClassDistrib.getValue(z) / this.ruleSet.get(j).obserClassDistrib.sumOfValues());
+	    	    }
+			majorityProb.add(ruleProb);
 			}
 		if (countFired > 0) {
 			fired = true;
@@ -1258,15 +1274,15 @@ public void printAnomaliesSupervised(StringBuilder out, int indent) { // Get Mod
 		double[] votes = new double[this.numClass];
 		ArrayList<Double> weightSum = new ArrayList<Double>();
 		ArrayList<ArrayList<Double>> majorityProb = new ArrayList<ArrayList<Double>>();
-		for (int j = 0; j < this.ruleSet.size(); j++) {
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
 			ArrayList<Double> ruleProb = new ArrayList<Double>();
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				for (int z = 0; z < this.numClass; z++) {
-					ruleProb.add(this.ruleSet.get(j).obserClassDistrib.getValue(z) / this.ruleSet.get(j).obserClassDistrib.sumOfValues());
-					}
-				majorityProb.add(ruleProb);
+			countFired = countFired + 1;
+			for (int z = 0; z < this.numClass; z++) {
+				ruleProb.add(this.ruleSet.get(j).obserClassDistrib.getValue(z) / this.ruleSet.get(j).obserClassDistrib.sumOfValues());
 				}
+			majorityProb.add(ruleProb);
 			}
 		if (countFired > 0) {
 			fired = true;
@@ -80,21 +80,21 @@ public class RuleClassifierNBayes extends RuleClassifier {
 		int countFired = 0;
 		boolean fired = false;
 		double[] votes = new double[this.numClass];
-		for (int j = 0; j < this.ruleSet.size(); j++) {
-			if (this.ruleSet.get(j).ruleEvaluate(inst) == true) {
-				countFired = countFired + 1;
-				if (this.ruleSet.get(j).obserClassDistrib.sumOfValues() >= this.nbThresholdOption.getValue()) {
-					votes = NaiveBayes.doNaiveBayesPredictionLog(inst, this.ruleSet.get(j).obserClassDistrib, this.ruleSet.get(j).observers, this.ruleSet.get(j).observersGauss);
-		    	    votes = exponential(votes);
-		    	    votes = normalize(votes);
-		    	    } else {
-		    	    	for (int z = 0; z < this.numClass; z++) {
-		    	    		votes[z] = this.ruleSet.get(j).obserClassDistrib.getValue(z) 
-		    	    				/ this.ruleSet.get(j).obserClassDistrib.sumOfValues();
-		    	    		}
-		    	    	}
-				break;
-				}
+		int numRulesCovering = coveringRules(inst);
+		for (int m = 0; m < numRulesCovering; m++) {
+			int j = this.ruleIndex.getMatch(m);
+			countFired = countFired + 1;
+			if (this.ruleSet.get(j).obserClassDistrib.sumOfValues() >= this.nbThresholdOption.getValue()) {
+				votes = NaiveBayes.doNaiveBayesPredictionLog(inst, this.ruleSet.get(j).obserClassDistrib, this.ruleSet.get(j).observers, this.ruleSet.get(j).observersGauss);
+	    	    votes = exponential(votes);
+	    	    votes = normalize(votes);
+	    	    } else {
+	    	    	for (int z = 0; z < this.numClass; z++) {
+	    	    		votes[z] = this.ruleSet.get(j).obserClassDistrib.getValue(z) 
+	    	    				/ this.ruleSet.get(j).obserClassDistrib.sumOfValues();
+	    	    		}
+	    	    	}
+			break;
 			}
 		if (countFired > 0) {
 			fired = true;
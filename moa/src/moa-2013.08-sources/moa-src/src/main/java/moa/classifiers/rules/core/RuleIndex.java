@@ -0,0 +1,403 @@
+/*
+ *    RuleIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.rules.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import moa.classifiers.rules.core.conditionaltests.NumericAttributeBinaryRulePredicate;
+import moa.classifiers.rules.nodes.RuleSplitNode;
+import weka.core.Instance;
+
+/**
+ * Index that finds the rules of a rule set that cover an instance without
+ * evaluating every rule. Each rule is added as a list of literals, an
+ * attribute compared with a value by =, &lt;= or &gt;. For every attribute
+ * used by a literal, the values of the literals split the line into cells,
+ * the values themselves and the gaps between them, and the index keeps for
+ * every cell a bitset of the rules whose literals on that attribute are all
+ * satisfied in it. Finding the covering rules takes a binary search and an
+ * AND of bitsets for every attribute, 64 rules per operation, instead of
+ * evaluating the literals of every rule. A missing value satisfies no
+ * literal. Predicates that are not literals are evaluated on the rules whose
+ * literals are all satisfied.
+ *
+ * <p>Rules are numbered in the order they are added, and the covering rules
+ * are returned in that order. The bitsets are built again on the first match
+ * after rules are added, in time proportional to the number of cells times
+ * the number of rules divided by 64, so the owner of the rule set should
+ * clear and refill the index whenever it adds, removes or expands a
+ * rule.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class RuleIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Operators of the literals, as in NumericAttributeBinaryRulePredicate. */
+	public static final int EQUAL = 0;
+
+	public static final int LESS_EQUAL = 1;
+
+	public static final int GREATER = 2;
+
+	protected int numRules;
+
+	// predicates of every rule that are not literals, null for none
+	protected Predicate[][] otherPredicates = new Predicate[16][];
+
+	protected int numLiterals;
+
+	protected int[] literalRule = new int[16];
+
+	protected int[] literalAttribute = new int[16];
+
+	protected int[] literalOperator = new int[16];
+
+	protected double[] literalValue = new double[16];
+
+	protected boolean compiled;
+
+	protected int numWords;
+
+	// attributes that have literals, the sorted distinct values of their
+	// literals and the bitsets of their cells, one after the other
+	protected int[] indexedAttributes;
+
+	protected double[][] cellValues;
+
+	protected long[][] cellRules;
+
+	protected long[] covering;
+
+	protected int[] matches = new int[16];
+
+	protected int numMatches;
+
+	/**
+	 * Removes all the rules.
+	 */
+	public void clear() {
+		this.numRules = 0;
+		this.numLiterals = 0;
+		this.compiled = false;
+	}
+
+	public int numRules() {
+		return this.numRules;
+	}
+
+	/**
+	 * Adds a rule with no literals, that covers every instance until
+	 * literals or predicates are added to it.
+	 *
+	 * @return the number of the rule
+	 */
+	public int addRule() {
+		if (this.numRules == this.otherPredicates.length) {
+			this.otherPredicates = Arrays.copyOf(this.otherPredicates,
+					2 * this.numRules);
+		}
+		this.otherPredicates[this.numRules] = null;
+		this.compiled = false;
+		return this.numRules++;
+	}
+
+	/**
+	 * Adds a literal to the last rule added.
+	 *
+	 * @param attIndex the index of the attribute in the instance
+	 * @param operator EQUAL, LESS_EQUAL or GREATER
+	 * @param value the value the attribute is compared with
+	 */
+	public void addLiteral(int attIndex, int operator, double value) {
+		if (this.numLiterals == this.literalRule.length) {
+			int length = 2 * this.numLiterals;
+			this.literalRule = Arrays.copyOf(this.literalRule, length);
+			this.literalAttribute = Arrays.copyOf(this.literalAttribute, length);
+			this.literalOperator = Arrays.copyOf(this.literalOperator, length);
+			this.literalValue = Arrays.copyOf(this.literalValue, length);
+		}
+		this.literalRule[this.numLiterals] = this.numRules - 1;
+		this.literalAttribute[this.numLiterals] = attIndex;
+		this.literalOperator[this.numLiterals] = operator;
+		this.literalValue[this.numLiterals] = value;
+		this.numLiterals++;
+		this.compiled = false;
+	}
+
+	/**
+	 * Adds a predicate that is not a literal to the last rule added. It is
+	 * evaluated only when all the literals of the rule are satisfied.
+	 *
+	 * @param predicate the predicate
+	 */
+	public void addPredicate(Predicate predicate) {
+		int rule = this.numRules - 1;
+		Predicate[] predicates = this.otherPredicates[rule];
+		if (predicates == null) {
+			predicates = new Predicate[]{predicate};
+		} else {
+			predicates = Arrays.copyOf(predicates, predicates.length + 1);
+			predicates[predicates.length - 1] = predicate;
+		}
+		this.otherPredicates[rule] = predicates;
+	}
+
+	/**
+	 * Adds the split nodes of a rule of AMRules. The predicates of the nodes
+	 * use the indices of the attributes without the class, which are turned
+	 * into indices in the instance with the index of the class.
+	 *
+	 * @param rule the rule
+	 * @param classIndex the index of the class in the instances
+	 * @return the number of the rule
+	 */
+	public int addRule(Rule rule, int classIndex) {
+		int ruleNumber = addRule();
+		for (RuleSplitNode node : rule.getNodeList()) {
+			if (node.getSplitTest() instanceof NumericAttributeBinaryRulePredicate) {
+				NumericAttributeBinaryRulePredicate predicate =
+						(NumericAttributeBinaryRulePredicate) node.getSplitTest();
+				int attIndex = predicate.getAttsTestDependsOn()[0];
+				addLiteral(attIndex < classIndex ? attIndex : attIndex + 1,
+						predicate.getOperator(), predicate.getSplitValue());
+			} else {
+				addPredicate((Predicate) node.getSplitTest());
+			}
+		}
+		return ruleNumber;
+	}
+
+	/**
+	 * Finds the rules that cover an instance.
+	 *
+	 * @param inst the instance
+	 * @return the number of rules that cover the instance, which are then
+	 * given by getMatch in the order they were added
+	 */
+	public int match(Instance inst) {
+		if (!this.compiled) {
+			compile();
+		}
+		long[] covering = this.covering;
+		int numWords = this.numWords;
+		Arrays.fill(covering, -1L);
+		int numAttributes = inst.numAttributes();
+		for (int a = 0; a < this.indexedAttributes.length; a++) {
+			int attIndex = this.indexedAttributes[a];
+			double value = attIndex < numAttributes ? inst.value(attIndex)
+					: Double.NaN;
+			int offset = numWords * cellOf(this.cellValues[a], value);
+			long[] rules = this.cellRules[a];
+			for (int w = 0; w < numWords; w++) {
+				covering[w] &= rules[offset + w];
+			}
+		}
+		this.numMatches = 0;
+		for (int w = 0; w < numWords; w++) {
+			long word = covering[w];
+			while (word != 0) {
+				int rule = 64 * w + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				if (rule >= this.numRules) {
+					break;
+				}
+				Predicate[] predicates = this.otherPredicates[rule];
+				if (predicates == null || evaluate(predicates, inst)) {
+					this.matches[this.numMatches++] = rule;
+				}
+			}
+		}
+		return this.numMatches;
+	}
+
+	/**
+	 * Gets a rule found by the last match. The rules found are kept until
+	 * the next match, even if the index is cleared.
+	 *
+	 * @param i the position of the rule among the covering rules
+	 * @return the number of the rule
+	 */
+	public int getMatch(int i) {
+		return this.matches[i];
+	}
+
+	/**
+	 * Finds the first rule that covers an instance.
+	 *
+	 * @param inst the instance
+	 * @return the number of the rule, or -1 if no rule covers the instance
+	 */
+	public int firstMatch(Instance inst) {
+		return match(inst) > 0 ? this.matches[0] : -1;
+	}
+
+	protected static boolean evaluate(Predicate[] predicates, Instance inst) {
+		for (Predicate predicate : predicates) {
+			if (!predicate.evaluate(inst)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// cell 2i is the gap below the value i, cell 2i + 1 the value i itself,
+	// and the cell after the last gap holds the missing values
+	protected static int cellOf(double[] values, double value) {
+		if (Double.isNaN(value)) {
+			return 2 * values.length + 1;
+		}
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low < values.length && values[low] == value ? 2 * low + 1 : 2 * low;
+	}
+
+	// builds the cells of every attribute from the literals added
+	protected void compile() {
+		this.numWords = (this.numRules + 63) / 64;
+		this.covering = new long[this.numWords];
+		if (this.matches.length < this.numRules) {
+			this.matches = new int[this.otherPredicates.length];
+		}
+		int[] attributes = Arrays.copyOf(this.literalAttribute, this.numLiterals);
+		Arrays.sort(attributes);
+		int numAttributes = 0;
+		for (int i = 0; i < attributes.length; i++) {
+			if (i == 0 || attributes[i] != attributes[i - 1]) {
+				attributes[numAttributes++] = attributes[i];
+			}
+		}
+		this.indexedAttributes = Arrays.copyOf(attributes, numAttributes);
+		this.cellValues = new double[numAttributes][];
+		this.cellRules = new long[numAttributes][];
+
+		// first and last cell satisfied by the literals of every rule
+		int[] first = new int[this.numRules];
+		int[] last = new int[this.numRules];
+		boolean[] constrained = new boolean[this.numRules];
+		for (int a = 0; a < numAttributes; a++) {
+			int attIndex = this.indexedAttributes[a];
+			double[] values = new double[this.numLiterals];
+			int numValues = 0;
+			for (int l = 0; l < this.numLiterals; l++) {
+				if (this.literalAttribute[l] == attIndex
+						&& !Double.isNaN(this.literalValue[l])) {
+					values[numValues++] = this.literalValue[l];
+				}
+			}
+			Arrays.sort(values, 0, numValues);
+			int numDistinct = 0;
+			for (int i = 0; i < numValues; i++) {
+				if (numDistinct == 0 || values[i] != values[numDistinct - 1]) {
+					values[numDistinct++] = values[i];
+				}
+			}
+			values = Arrays.copyOf(values, numDistinct);
+			int numCells = 2 * numDistinct + 2;
+
+			Arrays.fill(constrained, false);
+			for (int l = 0; l < this.numLiterals; l++) {
+				if (this.literalAttribute[l] != attIndex) {
+					continue;
+				}
+				int rule = this.literalRule[l];
+				if (!constrained[rule]) {
+					constrained[rule] = true;
+					first[rule] = 0;
+					last[rule] = numCells - 2;
+				}
+				double value = this.literalValue[l];
+				if (Double.isNaN(value)) {
+					last[rule] = -1; // never satisfied
+					continue;
+				}
+				int cell = cellOf(values, value);
+				switch (this.literalOperator[l]) {
+					case EQUAL:
+						first[rule] = Math.max(first[rule], cell);
+						last[rule] = Math.min(last[rule], cell);
+						break;
+					case LESS_EQUAL:
+						last[rule] = Math.min(last[rule], cell);
+						break;
+					case GREATER:
+						first[rule] = Math.max(first[rule], cell + 1);
+						break;
+					default:
+						last[rule] = -1;
+				}
+			}
+
+			// sweeps the cells, adding every rule at its first cell and
+			// removing it after its last
+			long[] cells = new long[numCells * this.numWords];
+			long[] current = new long[this.numWords];
+			for (int r = 0; r < this.numRules; r++) {
+				if (!constrained[r]) {
+					current[r >>> 6] |= 1L << r;
+				}
+			}
+			System.arraycopy(current, 0, cells, (numCells - 1) * this.numWords,
+					this.numWords);
+			int[] starts = new int[numCells];
+			int[] ends = new int[numCells];
+			for (int r = 0; r < this.numRules; r++) {
+				if (constrained[r] && first[r] <= last[r]) {
+					starts[first[r]]++;
+					ends[last[r]]++;
+				}
+			}
+			int[][] starting = new int[numCells][];
+			int[][] ending = new int[numCells][];
+			for (int c = 0; c < numCells; c++) {
+				starting[c] = new int[starts[c]];
+				ending[c] = new int[ends[c]];
+				starts[c] = 0;
+				ends[c] = 0;
+			}
+			for (int r = 0; r < this.numRules; r++) {
+				if (constrained[r] && first[r] <= last[r]) {
+					starting[first[r]][starts[first[r]]++] = r;
+					ending[last[r]][ends[last[r]]++] = r;
+				}
+			}
+			for (int c = 0; c < numCells - 1; c++) {
+				for (int r : starting[c]) {
+					current[r >>> 6] |= 1L << r;
+				}
+				System.arraycopy(current, 0, cells, c * this.numWords, this.numWords);
+				for (int r : ending[c]) {
+					current[r >>> 6] &= ~(1L << r);
+				}
+			}
+			this.cellValues[a] = values;
+			this.cellRules[a] = cells;
+		}
+		this.compiled = true;
+	}
+}
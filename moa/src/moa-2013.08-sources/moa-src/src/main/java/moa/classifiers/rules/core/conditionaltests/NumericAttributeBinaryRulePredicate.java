@@ -103,6 +103,10 @@ public class NumericAttributeBinaryRulePredicate extends InstanceConditionalBina
         return this.attValue;
     }
 
+    public int getOperator() {
+        return this.operator;
+    }
+
     @Override
     public boolean evaluate(Instance inst) {
         return (branchForInstance(inst) == 0);
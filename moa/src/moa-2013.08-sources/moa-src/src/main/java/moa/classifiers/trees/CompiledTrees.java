@@ -0,0 +1,578 @@
+/*
+ *    CompiledTrees.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.trees;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.Classifier;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.meta.OzaBag;
+import moa.classifiers.meta.OzaBagAdwin;
+import moa.classifiers.meta.OzaBoost;
+import moa.classifiers.trees.HoeffdingAdaptiveTree.AdaLearningNode;
+import moa.classifiers.trees.HoeffdingAdaptiveTree.AdaSplitNode;
+import moa.classifiers.trees.HoeffdingTree.LearningNodeNB;
+import moa.classifiers.trees.HoeffdingTree.LearningNodeNBAdaptive;
+import moa.classifiers.trees.HoeffdingTree.Node;
+import moa.classifiers.trees.HoeffdingTree.SplitNode;
+import moa.core.AutoExpandVector;
+import moa.core.DoubleVector;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.StringUtils;
+import moa.options.ClassOption;
+import moa.tasks.TaskMonitor;
+import weka.core.Instance;
+import weka.core.Utils;
+
+/**
+ * Scoring-only form of trained Hoeffding trees.
+ *
+ * A trained <code>HoeffdingTree</code> or <code>HoeffdingAdaptiveTree</code>,
+ * or an <code>OzaBag</code>, <code>OzaBagAdwin</code> or <code>OzaBoost</code>
+ * ensemble of them, is compiled into flat arrays: the nodes of all trees are
+ * numbered in depth first order, and for each node the arrays hold the kind
+ * of test, the attribute and value tested, where its children are listed and
+ * where its class votes are stored. Predicting walks these arrays instead of
+ * the node objects of the trees.
+ *
+ * The compiled model gives exactly the same votes as the model it was
+ * compiled from. Leaves that predict with Naive Bayes keep a copy of their
+ * attribute observers, as their votes depend on the instance; the votes of
+ * all other nodes are computed when compiling. The model is frozen: training
+ * instances are ignored.
+ *
+ * <p>Parameters:</p> <ul> <li>-m : Trained tree or ensemble of trees to
+ * compile</li> </ul>
+ *
+ * @version $Revision: 7 $
+ */
+public class CompiledTrees extends AbstractClassifier {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String getPurposeString() {
+        return "Scoring-only compiled form of trained Hoeffding trees and ensembles of them.";
+    }
+
+    public ClassOption modelOption = new ClassOption("model", 'm',
+            "Trained tree or ensemble of trees to compile.", Classifier.class,
+            "LearnModel");
+
+    protected static final byte LEAF = 0;
+
+    /** Numeric test where equal values go to the first branch. */
+    protected static final byte NUMERIC_LESS_OR_EQUAL = 1;
+
+    /** Numeric test where equal values go to the second branch. */
+    protected static final byte NUMERIC_LESS = 2;
+
+    protected static final byte NOMINAL_BINARY = 3;
+
+    protected static final byte NOMINAL_MULTIWAY = 4;
+
+    /**
+     * Naive Bayes prediction of a leaf, with copies of the statistics it
+     * needs.
+     */
+    protected static class NaiveBayesLeaf implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected DoubleVector observedClassDistribution;
+
+        protected AutoExpandVector<AttributeClassObserver> attributeObservers;
+
+        protected boolean weightedByError;
+
+        protected double errorEstimation;
+
+        @SuppressWarnings("unchecked")
+        public NaiveBayesLeaf(DoubleVector observedClassDistribution,
+                AutoExpandVector<AttributeClassObserver> attributeObservers) {
+            this.observedClassDistribution = (DoubleVector) observedClassDistribution.copy();
+            this.attributeObservers = (AutoExpandVector<AttributeClassObserver>) attributeObservers.copy();
+        }
+
+        public double[] getVotes(Instance inst) {
+            double[] dist = NaiveBayes.doNaiveBayesPrediction(inst,
+                    this.observedClassDistribution, this.attributeObservers);
+            if (this.weightedByError) {
+                weightByError(dist, this.errorEstimation);
+            }
+            return dist;
+        }
+    }
+
+    protected boolean combineNormalizedVotes;
+
+    protected int[] treeRoots = new int[0];
+
+    protected double[] treeWeights = new double[0];
+
+    protected boolean[] treeAdaptive = new boolean[0];
+
+    protected byte[] nodeTest;
+
+    protected int[] nodeAttribute;
+
+    protected double[] nodeValue;
+
+    protected int[] nodeChildrenStart;
+
+    protected int[] nodeNumChildren;
+
+    protected int[] nodeAlternate;
+
+    protected int[] nodeVotesStart;
+
+    protected int[] nodeVotesLength;
+
+    protected int[] nodeNaiveBayesLeaf;
+
+    protected int[] children;
+
+    protected double[] votes;
+
+    protected NaiveBayesLeaf[] naiveBayesLeaves;
+
+    public CompiledTrees() {
+        compile(new HoeffdingTree[0], new double[0], false);
+    }
+
+    /**
+     * Creates the compiled form of a trained model. The compiled form does not
+     * keep a reference to the model.
+     *
+     * @param model the tree or ensemble of trees to compile
+     */
+    public CompiledTrees(Classifier model) {
+        compileModel(model);
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        compileModel((Classifier) getPreparedClassOption(this.modelOption));
+        super.prepareForUseImpl(monitor, repository);
+    }
+
+    /**
+     * Replaces the compiled model by the compiled form of the given model.
+     *
+     * @param model the tree or ensemble of trees to compile
+     * @throws IllegalArgumentException if the model cannot be compiled
+     */
+    public void compileModel(Classifier model) {
+        Class<?> modelClass = model.getClass();
+        if ((modelClass == OzaBag.class) || (modelClass == OzaBagAdwin.class)) {
+            Classifier[] members = model.getSubClassifiers();
+            HoeffdingTree[] trees = new HoeffdingTree[members.length];
+            double[] weights = new double[members.length];
+            for (int i = 0; i < members.length; i++) {
+                trees[i] = checkTree(members[i]);
+                weights[i] = 1.0;
+            }
+            compile(trees, weights, true);
+        } else if (modelClass == OzaBoost.class) {
+            OzaBoost boost = (OzaBoost) model;
+            Classifier[] members = boost.getSubClassifiers();
+            List<HoeffdingTree> trees = new ArrayList<HoeffdingTree>();
+            List<Double> weights = new ArrayList<Double>();
+            // members after the first one without weight never vote
+            for (int i = 0; i < members.length; i++) {
+                double memberWeight = boost.getEnsembleMemberWeight(i);
+                if (memberWeight <= 0.0) {
+                    break;
+                }
+                trees.add(checkTree(members[i]));
+                weights.add(memberWeight);
+            }
+            double[] weightArray = new double[weights.size()];
+            for (int i = 0; i < weightArray.length; i++) {
+                weightArray[i] = weights.get(i);
+            }
+            compile(trees.toArray(new HoeffdingTree[trees.size()]), weightArray, true);
+        } else {
+            compile(new HoeffdingTree[]{checkTree(model)}, new double[]{1.0}, false);
+        }
+        setModelContext(model.getModelContext());
+    }
+
+    protected static HoeffdingTree checkTree(Classifier model) {
+        if (model instanceof HoeffdingTree) {
+            Class<?> predictor = declaringClassOf(model.getClass(),
+                    "getVotesForInstance", Instance.class);
+            if ((predictor == HoeffdingTree.class)
+                    || (predictor == HoeffdingAdaptiveTree.class)) {
+                return (HoeffdingTree) model;
+            }
+        }
+        throw new IllegalArgumentException("Cannot compile "
+                + model.getClass().getName()
+                + ", only Hoeffding trees, Hoeffding adaptive trees and OzaBag,"
+                + " OzaBagAdwin and OzaBoost ensembles of them can be compiled.");
+    }
+
+    protected static Class<?> declaringClassOf(Class<?> c, String methodName,
+            Class<?>... parameterTypes) {
+        try {
+            return c.getMethod(methodName, parameterTypes).getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    protected void compile(HoeffdingTree[] trees, double[] weights,
+            boolean combineNormalized) {
+        // number the nodes in depth first order, alternate trees after children
+        List<Node> nodes = new ArrayList<Node>();
+        List<HoeffdingTree> nodeTrees = new ArrayList<HoeffdingTree>();
+        for (HoeffdingTree tree : trees) {
+            if (tree.treeRoot != null) {
+                addNodes(tree.treeRoot, tree, nodes, nodeTrees);
+            }
+        }
+        Map<Node, Integer> nodeIndices = new IdentityHashMap<Node, Integer>();
+        int numChildren = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeIndices.put(nodes.get(i), i);
+            if (nodes.get(i) instanceof SplitNode) {
+                numChildren += ((SplitNode) nodes.get(i)).numChildren();
+            }
+        }
+        int numNodes = nodes.size();
+        this.combineNormalizedVotes = combineNormalized;
+        this.treeRoots = new int[trees.length];
+        this.treeWeights = weights.clone();
+        this.treeAdaptive = new boolean[trees.length];
+        for (int i = 0; i < trees.length; i++) {
+            this.treeRoots[i] = trees[i].treeRoot != null
+                    ? nodeIndices.get(trees[i].treeRoot) : -1;
+            this.treeAdaptive[i] = trees[i] instanceof HoeffdingAdaptiveTree;
+        }
+        this.nodeTest = new byte[numNodes];
+        this.nodeAttribute = new int[numNodes];
+        this.nodeValue = new double[numNodes];
+        this.nodeChildrenStart = new int[numNodes];
+        this.nodeNumChildren = new int[numNodes];
+        this.nodeAlternate = new int[numNodes];
+        this.nodeVotesStart = new int[numNodes];
+        this.nodeVotesLength = new int[numNodes];
+        this.nodeNaiveBayesLeaf = new int[numNodes];
+        this.children = new int[numChildren];
+        DoubleVector allVotes = new DoubleVector();
+        List<NaiveBayesLeaf> leaves = new ArrayList<NaiveBayesLeaf>();
+        int childrenStart = 0;
+        for (int n = 0; n < numNodes; n++) {
+            Node node = nodes.get(n);
+            this.nodeAlternate[n] = -1;
+            if (node instanceof SplitNode) {
+                SplitNode splitNode = (SplitNode) node;
+                compileTest(n, splitNode.splitTest);
+                this.nodeChildrenStart[n] = childrenStart;
+                this.nodeNumChildren[n] = splitNode.numChildren();
+                for (int i = 0; i < splitNode.numChildren(); i++) {
+                    Node child = splitNode.getChild(i);
+                    this.children[childrenStart++] = child != null
+                            ? nodeIndices.get(child) : -1;
+                }
+                if ((node instanceof AdaSplitNode)
+                        && (((AdaSplitNode) node).alternateTree != null)) {
+                    this.nodeAlternate[n] = nodeIndices.get(((AdaSplitNode) node).alternateTree);
+                }
+            } else {
+                this.nodeTest[n] = LEAF;
+            }
+            NaiveBayesLeaf naiveBayesLeaf = compileNaiveBayesLeaf(node, nodeTrees.get(n));
+            if (naiveBayesLeaf != null) {
+                this.nodeNaiveBayesLeaf[n] = leaves.size();
+                leaves.add(naiveBayesLeaf);
+            } else {
+                double[] nodeVotes = compileVotes(node, nodeTrees.get(n));
+                this.nodeNaiveBayesLeaf[n] = -1;
+                this.nodeVotesStart[n] = allVotes.numValues();
+                this.nodeVotesLength[n] = nodeVotes.length;
+                for (int i = 0; i < nodeVotes.length; i++) {
+                    allVotes.setValue(this.nodeVotesStart[n] + i, nodeVotes[i]);
+                }
+            }
+        }
+        this.votes = allVotes.getArrayCopy();
+        this.naiveBayesLeaves = leaves.toArray(new NaiveBayesLeaf[leaves.size()]);
+    }
+
+    protected static void addNodes(Node node, HoeffdingTree tree,
+            List<Node> nodes, List<HoeffdingTree> nodeTrees) {
+        nodes.add(node);
+        nodeTrees.add(tree);
+        if (node instanceof SplitNode) {
+            SplitNode splitNode = (SplitNode) node;
+            for (int i = 0; i < splitNode.numChildren(); i++) {
+                Node child = splitNode.getChild(i);
+                if (child != null) {
+                    addNodes(child, tree, nodes, nodeTrees);
+                }
+            }
+            if ((node instanceof AdaSplitNode)
+                    && (((AdaSplitNode) node).alternateTree != null)) {
+                addNodes(((AdaSplitNode) node).alternateTree, tree, nodes, nodeTrees);
+            }
+        }
+    }
+
+    protected void compileTest(int n, InstanceConditionalTest test) {
+        Class<?> testClass = test.getClass();
+        if (testClass == NumericAttributeBinaryTest.class) {
+            NumericAttributeBinaryTest numericTest = (NumericAttributeBinaryTest) test;
+            this.nodeTest[n] = numericTest.isEqualsPassesTest()
+                    ? NUMERIC_LESS_OR_EQUAL : NUMERIC_LESS;
+            this.nodeValue[n] = numericTest.getSplitValue();
+        } else if (testClass == NominalAttributeBinaryTest.class) {
+            this.nodeTest[n] = NOMINAL_BINARY;
+            this.nodeValue[n] = ((NominalAttributeBinaryTest) test).getSplitValue();
+        } else if (testClass == NominalAttributeMultiwayTest.class) {
+            this.nodeTest[n] = NOMINAL_MULTIWAY;
+        } else {
+            throw new IllegalArgumentException("Cannot compile split test "
+                    + testClass.getName());
+        }
+        this.nodeAttribute[n] = test.getAttsTestDependsOn()[0];
+    }
+
+    /*
+     * returns the Naive Bayes prediction of a leaf whose votes depend on the
+     * instance, or null if the votes of the node are fixed
+     */
+    protected static NaiveBayesLeaf compileNaiveBayesLeaf(Node node,
+            HoeffdingTree tree) {
+        Class<?> predictor = declaringClassOf(node.getClass(),
+                "getClassVotes", Instance.class, HoeffdingTree.class);
+        if (predictor == Node.class) {
+            return null;
+        }
+        if (predictor == LearningNodeNB.class) {
+            LearningNodeNB leaf = (LearningNodeNB) node;
+            if (leaf.getWeightSeen() >= tree.nbThresholdOption.getValue()) {
+                return new NaiveBayesLeaf(leaf.observedClassDistribution,
+                        leaf.attributeObservers);
+            }
+            return null;
+        }
+        if (predictor == LearningNodeNBAdaptive.class) {
+            LearningNodeNBAdaptive leaf = (LearningNodeNBAdaptive) node;
+            if (leaf.mcCorrectWeight > leaf.nbCorrectWeight) {
+                return null;
+            }
+            return new NaiveBayesLeaf(leaf.observedClassDistribution,
+                    leaf.attributeObservers);
+        }
+        if (predictor == AdaLearningNode.class) {
+            AdaLearningNode leaf = (AdaLearningNode) node;
+            int predictionOption = tree.leafpredictionOption.getChosenIndex();
+            if ((predictionOption == 0) || ((predictionOption == 2)
+                    && (leaf.mcCorrectWeight > leaf.nbCorrectWeight))) {
+                return null;
+            }
+            NaiveBayesLeaf naiveBayesLeaf = new NaiveBayesLeaf(
+                    leaf.observedClassDistribution, leaf.attributeObservers);
+            naiveBayesLeaf.weightedByError = true;
+            naiveBayesLeaf.errorEstimation = leaf.getErrorEstimation();
+            return naiveBayesLeaf;
+        }
+        throw new IllegalArgumentException("Cannot compile node "
+                + node.getClass().getName());
+    }
+
+    /*
+     * returns the votes of a node that does not predict with Naive Bayes
+     */
+    protected static double[] compileVotes(Node node, HoeffdingTree tree) {
+        double[] dist = node.getObservedClassDistribution();
+        if (node instanceof AdaLearningNode) {
+            weightByError(dist, ((AdaLearningNode) node).getErrorEstimation());
+        }
+        return dist;
+    }
+
+    /*
+     * weights the votes of a leaf of a Hoeffding adaptive tree like
+     * AdaLearningNode.getClassVotes
+     */
+    protected static void weightByError(double[] dist, double errorEstimation) {
+        double distSum = Utils.sum(dist);
+        if (distSum * errorEstimation * errorEstimation > 0.0) {
+            Utils.normalize(dist, distSum * errorEstimation * errorEstimation);
+        }
+    }
+
+    @Override
+    public double[] getVotesForInstance(Instance inst) {
+        if (!this.combineNormalizedVotes) {
+            return getTreeVotes(0, inst);
+        }
+        DoubleVector combinedVote = new DoubleVector();
+        for (int i = 0; i < this.treeRoots.length; i++) {
+            combinedVote.addNormalizedValues(getTreeVotes(i, inst),
+                    this.treeWeights[i]);
+        }
+        return combinedVote.getArrayRef();
+    }
+
+    protected double[] getTreeVotes(int tree, Instance inst) {
+        int node = this.treeRoots[tree];
+        if (node < 0) {
+            return new double[0];
+        }
+        if (this.treeAdaptive[tree]) {
+            DoubleVector result = new DoubleVector();
+            addAdaptiveVotes(node, false, inst, result);
+            return result.getArrayRef();
+        }
+        // a missing value or a missing child stops at the split node
+        while (this.nodeTest[node] != LEAF) {
+            int child = childForInstance(node, inst);
+            if (child < 0) {
+                break;
+            }
+            node = child;
+        }
+        return getNodeVotes(node, inst);
+    }
+
+    /*
+     * adds the votes of all the leaves reached in a Hoeffding adaptive tree,
+     * the same way as HoeffdingAdaptiveTree.getVotesForInstance
+     */
+    protected void addAdaptiveVotes(int node, boolean alternateRoot,
+            Instance inst, DoubleVector result) {
+        if (this.nodeTest[node] == LEAF) {
+            if (!alternateRoot) {
+                result.addValues(getNodeVotes(node, inst));
+            }
+            return;
+        }
+        int branch = branchForInstance(node, inst);
+        if (branch >= 0) {
+            int child = branch < this.nodeNumChildren[node]
+                    ? this.children[this.nodeChildrenStart[node] + branch] : -1;
+            if (child >= 0) {
+                addAdaptiveVotes(child, false, inst, result);
+            } else {
+                result.addValues(getNodeVotes(node, inst));
+            }
+        }
+        if (this.nodeAlternate[node] >= 0) {
+            addAdaptiveVotes(this.nodeAlternate[node], true, inst, result);
+        }
+    }
+
+    /*
+     * returns the child an instance goes to, or -1 if the value tested is
+     * missing or the child does not exist
+     */
+    protected int childForInstance(int node, Instance inst) {
+        int branch = branchForInstance(node, inst);
+        if ((branch < 0) || (branch >= this.nodeNumChildren[node])) {
+            return -1;
+        }
+        return this.children[this.nodeChildrenStart[node] + branch];
+    }
+
+    protected int branchForInstance(int node, Instance inst) {
+        int attIndex = this.nodeAttribute[node];
+        int instAttIndex = attIndex < inst.classIndex() ? attIndex : attIndex + 1;
+        if (inst.isMissing(instAttIndex)) {
+            return -1;
+        }
+        double v = inst.value(instAttIndex);
+        switch (this.nodeTest[node]) {
+            case NUMERIC_LESS_OR_EQUAL:
+                return v <= this.nodeValue[node] ? 0 : 1;
+            case NUMERIC_LESS:
+                return v < this.nodeValue[node] ? 0 : 1;
+            case NOMINAL_BINARY:
+                return (int) v == (int) this.nodeValue[node] ? 0 : 1;
+            default:
+                return (int) v;
+        }
+    }
+
+    protected double[] getNodeVotes(int node, Instance inst) {
+        int leaf = this.nodeNaiveBayesLeaf[node];
+        if (leaf >= 0) {
+            return this.naiveBayesLeaves[leaf].getVotes(inst);
+        }
+        double[] nodeVotes = new double[this.nodeVotesLength[node]];
+        System.arraycopy(this.votes, this.nodeVotesStart[node], nodeVotes, 0,
+                nodeVotes.length);
+        return nodeVotes;
+    }
+
+    public int getNumTrees() {
+        return this.treeRoots.length;
+    }
+
+    public int getNumNodes() {
+        return this.nodeTest.length;
+    }
+
+    @Override
+    public void resetLearningImpl() {
+        // the compiled model cannot learn, so it is kept
+    }
+
+    @Override
+    public void trainOnInstanceImpl(Instance inst) {
+        // the compiled model is frozen
+    }
+
+    @Override
+    protected Measurement[] getModelMeasurementsImpl() {
+        return new Measurement[]{
+                    new Measurement("compiled trees", getNumTrees()),
+                    new Measurement("compiled nodes", getNumNodes()),
+                    new Measurement("naive Bayes leaves",
+                    this.naiveBayesLeaves.length)};
+    }
+
+    @Override
+    public void getModelDescription(StringBuilder out, int indent) {
+        StringUtils.appendIndented(out, indent, "Compiled form of "
+                + getNumTrees() + " tree(s) with " + getNumNodes()
+                + " nodes, " + this.naiveBayesLeaves.length
+                + " of them naive Bayes leaves.");
+        StringUtils.appendNewline(out);
+    }
+
+    @Override
+    public boolean isRandomizable() {
+        return false;
+    }
+}
@@ -25,10 +25,13 @@ import java.util.Random;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.FlatADWIN;
 import moa.core.DoubleVector;
 import moa.core.MiscUtils;
+import moa.options.FlagOption;
 import moa.options.MultiChoiceOption;
 import weka.core.Instance;
+import weka.core.Instances;
 import weka.core.Utils;
 
 /**
@@ -58,6 +61,9 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
     public String getPurposeString() {
         return "Hoeffding Adaptive Tree for evolving data streams that uses ADWIN to replace branches for new ones.";
     }
+
+    public FlagOption flatAdwinOption = new FlagOption("flatAdwin", 'f',
+            "Use the array based ADWIN implementation.");
     
  /*   public MultiChoiceOption leafpredictionOption = new MultiChoiceOption(
             "leafprediction", 'l', "Leaf prediction to use.", new String[]{
@@ -179,7 +185,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             boolean blCorrect = (trueClass == ClassPrediction);
 
             if (this.estimationErrorWeight == null) {
-                this.estimationErrorWeight = new ADWIN();
+                this.estimationErrorWeight = ht.newErrorEstimator();
             }
             double oldError = this.getErrorEstimation();
             this.ErrorChange = this.estimationErrorWeight.setInput(blCorrect == true ? 0.0 : 1.0);
@@ -362,7 +368,7 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
             boolean blCorrect = (trueClass == ClassPrediction);
 
             if (this.estimationErrorWeight == null) {
-                this.estimationErrorWeight = new ADWIN();
+                this.estimationErrorWeight = ht.newErrorEstimator();
             }
             double oldError = this.getErrorEstimation();
             this.ErrorChange = this.estimationErrorWeight.setInput(blCorrect == true ? 0.0 : 1.0);
@@ -438,6 +444,10 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
 
     protected int switchedAlternateTrees;
 
+    protected ADWIN newErrorEstimator() {
+        return this.flatAdwinOption.isSet() ? new FlatADWIN() : new ADWIN();
+    }
+
     @Override
     protected LearningNode newLearningNode(double[] initialClassObservations) {
         // IDEA: to choose different learning nodes depending on predictionOption
@@ -469,6 +479,11 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         return nodes.toArray(new FoundNode[nodes.size()]);
     }
 
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        getVotesForInstancesOneByOne(insts, votes);
+    }
+
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
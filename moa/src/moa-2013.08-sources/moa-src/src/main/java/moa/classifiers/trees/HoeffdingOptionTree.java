@@ -36,6 +36,7 @@ import moa.AbstractMOAObject;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.AttributeSplitEvaluator;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
@@ -48,6 +49,7 @@ import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
+import moa.core.WorkerPool;
 import moa.options.*;
 
 /**
@@ -85,6 +87,8 @@ import moa.options.*;
  * adaptive (NBAdaptive).</li>
  *  <li> -q : The number of instances a leaf should observe before
  * permitting Naive Bayes</li>
+ *  <li> -k : Threads used to evaluate the attributes when attempting a
+ * split</li>
  * </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
@@ -172,6 +176,10 @@ public class HoeffdingOptionTree extends AbstractClassifier {
     public IntOption memoryStrategyOption = new IntOption("memStrategy", 'z',
             "Memory strategy to use.", 2);
 
+    public IntOption splitThreadsOption = new IntOption("splitThreads", 'k',
+            "Threads used to evaluate the attributes when attempting a split (0 = sequential, -1 = all processors).",
+            0, -1, Integer.MAX_VALUE);
+
     public static class FoundNode {
 
         public Node node;
@@ -565,26 +573,18 @@ public class HoeffdingOptionTree extends AbstractClassifier {
 
         public AttributeSplitSuggestion[] getBestSplitSuggestions(
                 SplitCriterion criterion, HoeffdingOptionTree ht) {
-            List<AttributeSplitSuggestion> bestSuggestions = new LinkedList<AttributeSplitSuggestion>();
             double[] preSplitDist = this.observedClassDistribution.getArrayCopy();
+            AttributeSplitSuggestion nullSplit = null;
             if (!ht.noPrePruneOption.isSet()) {
                 // add null split as an option
-                bestSuggestions.add(new AttributeSplitSuggestion(null,
+                nullSplit = new AttributeSplitSuggestion(null,
                         new double[0][], criterion.getMeritOfSplit(
                         preSplitDist,
-                        new double[][]{preSplitDist})));
-            }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
-                }
+                        new double[][]{preSplitDist}));
             }
-            return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
+            return AttributeSplitEvaluator.getBestSplitSuggestions(nullSplit,
+                    this.attributeObservers, criterion, preSplitDist,
+                    ht.binarySplitsOption.isSet(), ht.getSplitWorkerPool());
         }
 
         public void disableAttribute(int attIndex) {
@@ -609,6 +609,8 @@ public class HoeffdingOptionTree extends AbstractClassifier {
 
     protected int maxPredictionPaths;
 
+    protected transient SplitCriterion splitCriterion;
+
     public int calcByteSize() {
         int size = (int) SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -632,6 +634,7 @@ public class HoeffdingOptionTree extends AbstractClassifier {
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.maxPredictionPaths = 0;
+        this.splitCriterion = null;
         if (this.leafpredictionOption.getChosenIndex() > 0) {
             this.removePoorAttsOption = null;
         }
@@ -759,12 +762,36 @@ public class HoeffdingOptionTree extends AbstractClassifier {
         return (AttributeClassObserver) numericClassObserver.copy();
     }
 
+    /**
+     * Gets the split criterion, resolving the option only once.
+     *
+     * @return the split criterion
+     */
+    protected SplitCriterion getSplitCriterion() {
+        if (this.splitCriterion == null) {
+            this.splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
+        }
+        return this.splitCriterion;
+    }
+
+    /*
+     * Returns the pool used to evaluate the attributes when attempting a
+     * split, or null when they are evaluated sequentially.
+     */
+    protected WorkerPool getSplitWorkerPool() {
+        if (this.splitThreadsOption.getValue() == 0) {
+            return null;
+        }
+        return WorkerPool.getShared(this.splitThreadsOption.getValue());
+    }
+
     protected void attemptToSplit(ActiveLearningNode node, SplitNode parent,
             int parentIndex) {
         if (!node.observedClassDistributionIsPure()) {
-            SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
+            SplitCriterion splitCriterion = getSplitCriterion();
             AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, this);
-            Arrays.sort(bestSplitSuggestions);
+            // the best two suggestions are the last two after sorting
+            int bestIndex = AttributeSplitEvaluator.indexOfBest(bestSplitSuggestions);
             boolean shouldSplit = false;
             if (parentIndex != -999) {
                 if (bestSplitSuggestions.length < 2) {
@@ -773,8 +800,8 @@ public class HoeffdingOptionTree extends AbstractClassifier {
                     double hoeffdingBound = computeHoeffdingBound(
                             splitCriterion.getRangeOfMerit(node.getObservedClassDistribution()),
                             this.splitConfidenceOption.getValue(), node.getWeightSeen());
-                    AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 1];
-                    AttributeSplitSuggestion secondBestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 2];
+                    AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestIndex];
+                    AttributeSplitSuggestion secondBestSuggestion = bestSplitSuggestions[AttributeSplitEvaluator.indexOfBest(bestSplitSuggestions, bestIndex)];
                     if ((bestSuggestion.merit - secondBestSuggestion.merit > hoeffdingBound)
                             || (hoeffdingBound < this.tieThresholdOption.getValue())) {
                         shouldSplit = true;
@@ -815,7 +842,7 @@ public class HoeffdingOptionTree extends AbstractClassifier {
             } else if (bestSplitSuggestions.length > 0) {
                 double hoeffdingBound = computeHoeffdingBound(splitCriterion.getRangeOfMerit(node.getObservedClassDistribution()),
                         this.secondarySplitConfidenceOption.getValue(), node.getWeightSeen());
-                AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 1];
+                AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestIndex];
                 // in option case, scan back through existing options to
                 // find best
                 SplitNode current = parent;
@@ -838,7 +865,7 @@ public class HoeffdingOptionTree extends AbstractClassifier {
                 }
             }
             if (shouldSplit) {
-                AttributeSplitSuggestion splitDecision = bestSplitSuggestions[bestSplitSuggestions.length - 1];
+                AttributeSplitSuggestion splitDecision = bestSplitSuggestions[bestIndex];
                 if (splitDecision.splitTest == null) {
                     // preprune - null wins
                     if (parentIndex != -999) {
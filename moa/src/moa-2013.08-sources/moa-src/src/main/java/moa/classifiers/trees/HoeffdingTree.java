@@ -30,6 +30,7 @@ import moa.AbstractMOAObject;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.AttributeSplitEvaluator;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
@@ -40,6 +41,7 @@ import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.StringUtils;
+import moa.core.WorkerPool;
 import moa.options.ClassOption;
 import moa.options.FlagOption;
 import moa.options.FloatOption;
@@ -47,6 +49,7 @@ import moa.options.IntOption;
 import moa.core.SizeOf;
 import moa.options.*;
 import weka.core.Instance;
+import weka.core.Instances;
 import weka.core.Utils;
 
 /**
@@ -75,9 +78,10 @@ import weka.core.Utils;
  * <li>Greenwald-Khanna quantile summary with 100 tuples</li>
  * <li>Greenwald-Khanna quantile summary with 1000 tuples</li> <li>VFML method
  * with 10 bins</li> <li>VFML method with 100 bins</li> <li>VFML method with
- * 1000 bins</li> <li>Exhaustive binary tree</li> </ul> </li> <li> -e : How many
- * instances between memory consumption checks</li> <li> -g : The number of
- * instances a leaf should observe between split attempts</li> <li> -s : Split
+ * 1000 bins</li> <li>Exhaustive binary tree</li> <li>Fixed number of equal
+ * width bins, HistogramNumericAttributeClassObserver</li> </ul> </li> <li> -e :
+ * How many instances between memory consumption checks</li> <li> -g : The
+ * number of instances a leaf should observe between split attempts</li> <li> -s : Split
  * criterion to use. Example : InfoGainSplitCriterion</li> <li> -c : The
  * allowable error in split decision, values closer to 0 will take longer to
  * decide</li> <li> -t : Threshold below which a split will be forced to break
@@ -88,6 +92,8 @@ import weka.core.Utils;
  * adaptive (NBAdaptive).</li>
  *  <li> -q : The number of instances a leaf should observe before
  * permitting Naive Bayes</li>
+ *  <li> -k : Threads used to evaluate the attributes when attempting a
+ * split</li>
  * </ul>
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
@@ -163,6 +169,10 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public IntOption splitThreadsOption = new IntOption("splitThreads", 'k',
+            "Threads used to evaluate the attributes when attempting a split (0 = sequential, -1 = all processors).",
+            0, -1, Integer.MAX_VALUE);
+
     public static class FoundNode {
 
         public Node node;
@@ -380,6 +390,9 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         protected AutoExpandVector<AttributeClassObserver> attributeObservers = new AutoExpandVector<AttributeClassObserver>();
 
+        // the same observers in an array, so learning needs no range checks
+        protected transient AttributeClassObserver[] attributeObserverArray;
+
         public ActiveLearningNode(double[] initialClassObservations) {
             super(initialClassObservations);
             this.weightSeenAtLastSplitEvaluation = getWeightSeen();
@@ -393,17 +406,38 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         @Override
         public void learnFromInstance(Instance inst, HoeffdingTree ht) {
-            this.observedClassDistribution.addToValue((int) inst.classValue(),
-                    inst.weight());
-            for (int i = 0; i < inst.numAttributes() - 1; i++) {
+            int classValue = (int) inst.classValue();
+            double weight = inst.weight();
+            this.observedClassDistribution.addToValue(classValue, weight);
+            AttributeClassObserver[] observers = this.attributeObserverArray;
+            if ((observers == null) || (observers.length != inst.numAttributes() - 1)) {
+                observers = initAttributeObserverArray(inst, ht);
+            }
+            int classIndex = inst.classIndex();
+            for (int i = 0; i < observers.length; i++) {
+                observers[i].observeAttributeClass(inst.value(i < classIndex ? i : i + 1),
+                        classValue, weight);
+            }
+        }
+
+        /*
+         * creates the observers not created yet and copies them all to the
+         * observer array, which is not serialized
+         */
+        protected AttributeClassObserver[] initAttributeObserverArray(Instance inst,
+                HoeffdingTree ht) {
+            AttributeClassObserver[] observers = new AttributeClassObserver[inst.numAttributes() - 1];
+            for (int i = 0; i < observers.length; i++) {
                 int instAttIndex = modelAttIndexToInstanceAttIndex(i, inst);
                 AttributeClassObserver obs = this.attributeObservers.get(i);
                 if (obs == null) {
                     obs = inst.attribute(instAttIndex).isNominal() ? ht.newNominalClassObserver() : ht.newNumericClassObserver();
                     this.attributeObservers.set(i, obs);
                 }
-                obs.observeAttributeClass(inst.value(instAttIndex), (int) inst.classValue(), inst.weight());
+                observers[i] = obs;
             }
+            this.attributeObserverArray = observers;
+            return observers;
         }
 
         public double getWeightSeen() {
@@ -420,31 +454,24 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
         public AttributeSplitSuggestion[] getBestSplitSuggestions(
                 SplitCriterion criterion, HoeffdingTree ht) {
-            List<AttributeSplitSuggestion> bestSuggestions = new LinkedList<AttributeSplitSuggestion>();
             double[] preSplitDist = this.observedClassDistribution.getArrayCopy();
+            AttributeSplitSuggestion nullSplit = null;
             if (!ht.noPrePruneOption.isSet()) {
                 // add null split as an option
-                bestSuggestions.add(new AttributeSplitSuggestion(null,
+                nullSplit = new AttributeSplitSuggestion(null,
                         new double[0][], criterion.getMeritOfSplit(
                         preSplitDist,
-                        new double[][]{preSplitDist})));
-            }
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    AttributeSplitSuggestion bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion,
-                            preSplitDist, i, ht.binarySplitsOption.isSet());
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
-                }
+                        new double[][]{preSplitDist}));
             }
-            return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
+            return AttributeSplitEvaluator.getBestSplitSuggestions(nullSplit,
+                    this.attributeObservers, criterion, preSplitDist,
+                    ht.binarySplitsOption.isSet(), ht.getSplitWorkerPool());
         }
 
         public void disableAttribute(int attIndex) {
             this.attributeObservers.set(attIndex,
                     new NullAttributeClassObserver());
+            this.attributeObserverArray = null;
         }
     }
 
@@ -464,6 +491,14 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected boolean growthAllowed;
 
+    protected int byteSizeMeasuredNodeCount;
+
+    protected transient FoundNode reusableFoundNode;
+
+    protected transient double[] classVotesBuffer;
+
+    protected transient SplitCriterion splitCriterion;
+
     public int calcByteSize() {
         int size = (int) SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -477,6 +512,30 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return calcByteSize();
     }
 
+    /**
+     * Estimates the size of the tree from its number of nodes. The average
+     * node size is measured in full again each time the number of nodes
+     * has doubled.
+     *
+     * @return the estimated memory size of the tree in bytes
+     */
+    @Override
+    public int estimateByteSize() {
+        int numNodes = this.decisionNodeCount + this.activeLeafNodeCount
+                + this.inactiveLeafNodeCount;
+        if (numNodes == 0) {
+            return super.estimateByteSize();
+        }
+        if ((this.byteSizeMeasuredAtWeight < 0.0)
+                || (numNodes >= 2 * this.byteSizeMeasuredNodeCount)) {
+            this.measuredByteSize = measureFullByteSize();
+            this.byteSizeMeasuredAtWeight = this.trainingWeightSeenByModel;
+            this.byteSizeMeasuredNodeCount = numNodes;
+        }
+        return (int) ((double) this.measuredByteSize * numNodes
+                / this.byteSizeMeasuredNodeCount);
+    }
+
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
@@ -487,6 +546,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.growthAllowed = true;
+        this.splitCriterion = null;
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
         }
@@ -498,7 +558,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             this.treeRoot = newLearningNode();
             this.activeLeafNodeCount = 1;
         }
-        FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst, null, -1);
+        FoundNode foundNode = filterInstanceToLeaf(inst);
         Node leafNode = foundNode.node;
         if (leafNode == null) {
             leafNode = newLearningNode();
@@ -529,8 +589,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
-            FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
-                    null, -1);
+            FoundNode foundNode = filterInstanceToLeaf(inst);
             Node leafNode = foundNode.node;
             if (leafNode == null) {
                 leafNode = foundNode.parent;
@@ -540,6 +599,69 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return new double[0];
     }
 
+    /**
+     * Finds the leaf of the tree that an instance falls into, the same as
+     * <code>treeRoot.filterInstanceToLeaf(inst, null, -1)</code> but without
+     * recursion, filling the same <code>FoundNode</code> on every call. The
+     * result is only valid until the next call.
+     *
+     * @param inst the instance to filter
+     * @return the node found, with its parent and the branch of the parent
+     */
+    protected FoundNode filterInstanceToLeaf(Instance inst) {
+        Node node = this.treeRoot;
+        SplitNode parent = null;
+        int parentBranch = -1;
+        while (node instanceof SplitNode) {
+            SplitNode splitNode = (SplitNode) node;
+            int childIndex = splitNode.instanceChildIndex(inst);
+            if (childIndex < 0) {
+                break;
+            }
+            parent = splitNode;
+            parentBranch = childIndex;
+            node = splitNode.getChild(childIndex);
+        }
+        FoundNode foundNode = this.reusableFoundNode;
+        if (foundNode == null) {
+            foundNode = new FoundNode(node, parent, parentBranch);
+            this.reusableFoundNode = foundNode;
+        } else {
+            foundNode.node = node;
+            foundNode.parent = parent;
+            foundNode.parentBranch = parentBranch;
+        }
+        return foundNode;
+    }
+
+    // scratch array for class votes computed while learning
+    protected double[] getClassVotesBuffer(int numClasses) {
+        if ((this.classVotesBuffer == null)
+                || (this.classVotesBuffer.length < numClasses)) {
+            this.classVotesBuffer = new double[numClasses];
+        }
+        return this.classVotesBuffer;
+    }
+
+    @Override
+    public void getVotesForInstances(Instances insts, double[][] votes) {
+        if (this.treeRoot == null) {
+            for (int i = 0; i < insts.numInstances(); i++) {
+                votes[i] = new double[0];
+            }
+            return;
+        }
+        for (int i = 0; i < insts.numInstances(); i++) {
+            Instance inst = insts.instance(i);
+            FoundNode foundNode = filterInstanceToLeaf(inst);
+            Node leafNode = foundNode.node;
+            if (leafNode == null) {
+                leafNode = foundNode.parent;
+            }
+            votes[i] = leafNode.getClassVotes(inst, this);
+        }
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return new Measurement[]{
@@ -597,20 +719,44 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return (AttributeClassObserver) numericClassObserver.copy();
     }
 
+    /**
+     * Gets the split criterion, resolving the option only once.
+     *
+     * @return the split criterion
+     */
+    protected SplitCriterion getSplitCriterion() {
+        if (this.splitCriterion == null) {
+            this.splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
+        }
+        return this.splitCriterion;
+    }
+
+    /*
+     * Returns the pool used to evaluate the attributes when attempting a
+     * split, or null when they are evaluated sequentially.
+     */
+    protected WorkerPool getSplitWorkerPool() {
+        if (this.splitThreadsOption.getValue() == 0) {
+            return null;
+        }
+        return WorkerPool.getShared(this.splitThreadsOption.getValue());
+    }
+
     protected void attemptToSplit(ActiveLearningNode node, SplitNode parent,
             int parentIndex) {
         if (!node.observedClassDistributionIsPure()) {
-            SplitCriterion splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
+            SplitCriterion splitCriterion = getSplitCriterion();
             AttributeSplitSuggestion[] bestSplitSuggestions = node.getBestSplitSuggestions(splitCriterion, this);
-            Arrays.sort(bestSplitSuggestions);
+            // the best two suggestions are the last two after sorting
+            int bestIndex = AttributeSplitEvaluator.indexOfBest(bestSplitSuggestions);
             boolean shouldSplit = false;
             if (bestSplitSuggestions.length < 2) {
                 shouldSplit = bestSplitSuggestions.length > 0;
             } else {
                 double hoeffdingBound = computeHoeffdingBound(splitCriterion.getRangeOfMerit(node.getObservedClassDistribution()),
                         this.splitConfidenceOption.getValue(), node.getWeightSeen());
-                AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 1];
-                AttributeSplitSuggestion secondBestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 2];
+                AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestIndex];
+                AttributeSplitSuggestion secondBestSuggestion = bestSplitSuggestions[AttributeSplitEvaluator.indexOfBest(bestSplitSuggestions, bestIndex)];
                 if ((bestSuggestion.merit - secondBestSuggestion.merit > hoeffdingBound)
                         || (hoeffdingBound < this.tieThresholdOption.getValue())) {
                     shouldSplit = true;
@@ -649,7 +795,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                 }
             }
             if (shouldSplit) {
-                AttributeSplitSuggestion splitDecision = bestSplitSuggestions[bestSplitSuggestions.length - 1];
+                AttributeSplitSuggestion splitDecision = bestSplitSuggestions[bestIndex];
                 if (splitDecision.splitTest == null) {
                     // preprune - null wins
                     deactivateLearningNode(node, parent, parentIndex);
@@ -864,8 +1010,10 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             if (this.observedClassDistribution.maxIndex() == trueClass) {
                 this.mcCorrectWeight += inst.weight();
             }
-            if (Utils.maxIndex(NaiveBayes.doNaiveBayesPrediction(inst,
-                    this.observedClassDistribution, this.attributeObservers)) == trueClass) {
+            double[] votes = ht.getClassVotesBuffer(this.observedClassDistribution.numValues());
+            if (NaiveBayes.doNaiveBayesPredictionIndex(inst,
+                    this.observedClassDistribution, this.attributeObservers,
+                    votes) == trueClass) {
                 this.nbCorrectWeight += inst.weight();
             }
             super.learnFromInstance(inst, ht);
@@ -35,6 +35,7 @@ import java.util.Set;
 import moa.AbstractMOAObject;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Regressor;
+import moa.classifiers.core.AttributeSplitEvaluator;
 import moa.classifiers.core.AttributeSplitSuggestion;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
@@ -48,6 +49,7 @@ import moa.core.AutoExpandVector;
 import moa.core.Measurement;
 import moa.core.SizeOf;
 import moa.core.StringUtils;
+import moa.core.WorkerPool;
 import moa.options.*;
 import weka.core.Instance;
 // import weka.core.Utils;
@@ -92,6 +94,8 @@ public class ORTO extends AbstractClassifier implements Regressor{
     private double learnTime = 0.0;
     
     private double predictTime = 0.0;
+
+    protected transient SplitCriterion splitCriterion;
     
     //============================ END INTERNALS =============================//
     
@@ -204,6 +208,12 @@ public class ORTO extends AbstractClassifier implements Regressor{
             'q',
             "The fading factor used for comparing subtrees of an option node.",
             0.9995, 0.0, 1.0);
+
+    public IntOption splitThreadsOption = new IntOption(
+            "splitThreads",
+            'k',
+            "Threads used to evaluate the attributes when attempting a split (0 = sequential, -1 = all processors).",
+            0, -1, Integer.MAX_VALUE);
     
     //============================= END OPTIONS ==============================//
     
@@ -772,25 +782,13 @@ public class ORTO extends AbstractClassifier implements Regressor{
          * Return the best split suggestions for this node using the given split criteria
          */
         public AttributeSplitSuggestion[] getBestSplitSuggestions(SplitCriterion criterion, ORTO tree) {
-            List<AttributeSplitSuggestion> bestSuggestions = new LinkedList<AttributeSplitSuggestion>();
-            
             // Set the nodeStatistics up as the preSplitDistribution, rather than the observedClassDistribution
             double[] nodeSplitDist = this.nodeStatistics.getArrayCopy();
             
-            for (int i = 0; i < this.attributeObservers.size(); i++) {
-                AttributeClassObserver obs = this.attributeObservers.get(i);
-                if (obs != null) {
-                    // AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED
-                    AttributeSplitSuggestion bestSuggestion = null;
-                    if (obs instanceof FIMTDDNumericAttributeClassObserver) {
-                        bestSuggestion = obs.getBestEvaluatedSplitSuggestion(criterion, nodeSplitDist, i, true /*ht.binarySplitsOption.isSet()*/);
-                    }
-                    if (bestSuggestion != null) {
-                        bestSuggestions.add(bestSuggestion);
-                    }
-                }
-            }
-            return bestSuggestions.toArray(new AttributeSplitSuggestion[bestSuggestions.size()]);
+            // AT THIS STAGE NON-NUMERIC ATTRIBUTES ARE IGNORED: only numeric attributes get an observer,
+            // and disabled attributes have a NullAttributeClassObserver, which suggests no split
+            return AttributeSplitEvaluator.getBestSplitSuggestions(null, this.attributeObservers,
+                    criterion, nodeSplitDist, true /*ht.binarySplitsOption.isSet()*/, tree.getSplitWorkerPool());
         }
             
 
@@ -863,12 +861,11 @@ public class ORTO extends AbstractClassifier implements Regressor{
             // If it has seen Nmin examples since it was last tested for splitting, attempt a split of this node
             if (examplesSeen - examplesSeenAtLastSplitEvaluation >= tree.gracePeriodOption.getValue()) {
                 // Set the split criterion to use to the SDR split criterion as described by Ikonomovska et al. 
-                SplitCriterion splitCriterion = (SplitCriterion) tree.getPreparedClassOption(tree.splitCriterionOption);
+                SplitCriterion splitCriterion = tree.getSplitCriterion();
 
-                // Using this criterion, find the best split per attribute and rank the results
+                // Using this criterion, find the best split per attribute, the results are only ranked when needed
                 AttributeSplitSuggestion[] bestSplitSuggestions = getBestSplitSuggestions(splitCriterion, tree);
                 List<AttributeSplitSuggestion> acceptedSplits = new LinkedList<AttributeSplitSuggestion>();
-                Arrays.sort(bestSplitSuggestions);
 
                 // Declare a variable to determine the number of splits to be performed
                 int numSplits = 0;
@@ -884,8 +881,9 @@ public class ORTO extends AbstractClassifier implements Regressor{
                     double hoeffdingBound = computeHoeffdingBound(1, tree.splitConfidenceOption.getValue(), examplesSeen);
                     
                     // Determine the top two ranked splitting suggestions
-                    AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 1];
-                    AttributeSplitSuggestion secondBestSuggestion = bestSplitSuggestions[bestSplitSuggestions.length - 2];
+                    int bestIndex = AttributeSplitEvaluator.indexOfBest(bestSplitSuggestions);
+                    AttributeSplitSuggestion bestSuggestion = bestSplitSuggestions[bestIndex];
+                    AttributeSplitSuggestion secondBestSuggestion = bestSplitSuggestions[AttributeSplitEvaluator.indexOfBest(bestSplitSuggestions, bestIndex)];
 
                     // assert false : bestSuggestion.merit;
                     
@@ -900,6 +898,7 @@ public class ORTO extends AbstractClassifier implements Regressor{
                         numSplits = 1;
                         acceptedSplits.add(bestSuggestion);
                     } else if (tree.numTrees < tree.MaxTreesOption.getValue() && getLevel() <= tree.MaxOptionLevelOption.getValue()) {
+                        Arrays.sort(bestSplitSuggestions);
                         for (AttributeSplitSuggestion suggestion : bestSplitSuggestions) {
                             if (suggestion.merit / bestSuggestion.merit >= 1 - hoeffdingBound) {
                                 numSplits++;
@@ -907,6 +906,7 @@ public class ORTO extends AbstractClassifier implements Regressor{
                             }
                         }
                     } else if (hoeffdingBound < tree.tieThresholdOption.getValue()) {
+                        Arrays.sort(bestSplitSuggestions);
                         numSplits = 1;
                         acceptedSplits.add(bestSplitSuggestions[0]);
                     } else { // If the splitting criterion was not met, initiate pruning of the E-BST structures in each attribute observer
@@ -1188,6 +1188,7 @@ public class ORTO extends AbstractClassifier implements Regressor{
         
         this.learnTime = 0.0;
         this.predictTime = 0.0;
+        this.splitCriterion = null;
     }
     
     public boolean isRandomizable() {
@@ -1290,10 +1291,30 @@ public class ORTO extends AbstractClassifier implements Regressor{
         learnTime += System.nanoTime() - start;
     }
     
+    /**
+     * Gets the split criterion, resolving the option only once.
+     */
+    protected SplitCriterion getSplitCriterion() {
+        if (this.splitCriterion == null) {
+            this.splitCriterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
+        }
+        return this.splitCriterion;
+    }
+
+    /*
+     * Returns the pool used to evaluate the attributes when attempting a
+     * split, or null when they are evaluated sequentially.
+     */
+    protected WorkerPool getSplitWorkerPool() {
+        if (this.splitThreadsOption.getValue() == 0) {
+            return null;
+        }
+        return WorkerPool.getShared(this.splitThreadsOption.getValue());
+    }
+
     protected AttributeClassObserver newNumericClassObserver() {
-        AttributeClassObserver numericClassObserver = (AttributeClassObserver) getPreparedClassOption(numericEstimatorOption); // FIXME fix this
-        // AttributeClassObserver observer = new FIMTDDNumericAttributeClassObserver();
-        return (AttributeClassObserver) numericClassObserver;
+        AttributeClassObserver numericClassObserver = (AttributeClassObserver) getPreparedClassOption(numericEstimatorOption);
+        return (AttributeClassObserver) numericClassObserver.copy();
     }
 
     public static double computeHoeffdingBound(double range, double confidence, double n) {
@@ -29,12 +29,18 @@ import moa.cluster.Clustering;
 import moa.cluster.SphereCluster;
 import moa.clusterers.AbstractClusterer;
 import moa.core.Measurement;
+import moa.options.FlagOption;
 import moa.options.IntOption;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 
 /** Citation: CluStream: Charu C. Aggarwal, Jiawei Han, Jianyong Wang, Philip S. Yu:
  * A Framework for Clustering Evolving Data Streams. VLDB 2003: 81-92
+ *
+ * With the accelerated option the kernel centers and the closest kernel of
+ * every kernel are cached in a <code>ClustreamKernelIndex</code>, which finds
+ * the same kernels as the scans over all kernels without computing centers
+ * or comparing all pairs of kernels.
  */
 public class Clustream extends AbstractClusterer{
 
@@ -51,6 +57,9 @@ public class Clustream extends AbstractClusterer{
 			"kernelRadiFactor", 't',
 			"Multiplier for the kernel radius", 2);
 
+	public FlagOption acceleratedOption = new FlagOption("accelerated", 'a',
+			"Cache kernel centers and closest kernels.");
+
 	private int timeWindow;
 	private long timestamp = -1;
 	private ClustreamKernel[] kernels;
@@ -59,6 +68,7 @@ public class Clustream extends AbstractClusterer{
 	private int bufferSize;
 	private double t;
 	private int m;
+	private ClustreamKernelIndex kernelIndex; // null unless accelerated
 
 	public Clustream() {
 	}
@@ -73,6 +83,7 @@ public class Clustream extends AbstractClusterer{
 		this.bufferSize = maxNumKernelsOption.getValue();
 		t = kernelRadiFactorOption.getValue();
 		m = maxNumKernelsOption.getValue();
+		this.kernelIndex = null;
 	}
 
 	@Override
@@ -103,25 +114,38 @@ public class Clustream extends AbstractClusterer{
 
 			buffer.clear();
 			initialized = true;
+			if ( acceleratedOption.isSet() ) {
+				kernelIndex = new ClustreamKernelIndex( kernels );
+			}
 			return;
 		}
 
 
 		// 1. Determine closest kernel
 		ClustreamKernel closestKernel = null;
+		int closestIndex = -1;
 		double minDistance = Double.MAX_VALUE;
-		for ( int i = 0; i < kernels.length; i++ ) {
-			//System.out.println(i+" "+kernels[i].getWeight()+" "+kernels[i].getDeviation());
-			double distance = distance(instance.toDoubleArray(), kernels[i].getCenter() );
-			if ( distance < minDistance ) {
-				closestKernel = kernels[i];
-				minDistance = distance;
+		if ( kernelIndex != null ) {
+			double[] point = instance.toDoubleArray();
+			closestIndex = kernelIndex.closestKernel( point );
+			closestKernel = kernels[closestIndex];
+			minDistance = kernelIndex.distanceToKernel( point, closestIndex );
+		} else {
+			for ( int i = 0; i < kernels.length; i++ ) {
+				//System.out.println(i+" "+kernels[i].getWeight()+" "+kernels[i].getDeviation());
+				double distance = distance(instance.toDoubleArray(), kernels[i].getCenter() );
+				if ( distance < minDistance ) {
+					closestKernel = kernels[i];
+					minDistance = distance;
+				}
 			}
 		}
 
 		// 2. Check whether instance fits into closestKernel
 		double radius = 0.0;
-		if ( closestKernel.getWeight() == 1 ) {
+		if ( closestKernel.getWeight() == 1 && kernelIndex != null ) {
+			radius = kernelIndex.distanceToNearestKernel( closestIndex );
+		} else if ( closestKernel.getWeight() == 1 ) {
 			// Special case: estimate radius by determining the distance to the
 			// next closest cluster
 			radius = Double.MAX_VALUE;
@@ -141,6 +165,9 @@ public class Clustream extends AbstractClusterer{
 		if ( minDistance < radius ) {
 			// Date fits, put into kernel and be happy
 			closestKernel.insert( instance, timestamp );
+			if ( kernelIndex != null ) {
+				kernelIndex.kernelChanged( closestIndex );
+			}
 			return;
 		}
 
@@ -152,6 +179,9 @@ public class Clustream extends AbstractClusterer{
 		for ( int i = 0; i < kernels.length; i++ ) {
 			if ( kernels[i].getRelevanceStamp() < threshold ) {
 				kernels[i] = new ClustreamKernel( instance, dim, timestamp, t, m );
+				if ( kernelIndex != null ) {
+					kernelIndex.kernelChanged( i );
+				}
 				return;
 			}
 		}
@@ -160,14 +190,20 @@ public class Clustream extends AbstractClusterer{
 		int closestA = 0;
 		int closestB = 0;
 		minDistance = Double.MAX_VALUE;
-		for ( int i = 0; i < kernels.length; i++ ) {
-			double[] centerA = kernels[i].getCenter();
-			for ( int j = i + 1; j < kernels.length; j++ ) {
-				double dist = distance( centerA, kernels[j].getCenter() );
-				if ( dist < minDistance ) {
-					minDistance = dist;
-					closestA = i;
-					closestB = j;
+		if ( kernelIndex != null ) {
+			int[] closestPair = kernelIndex.closestPair();
+			closestA = closestPair[0];
+			closestB = closestPair[1];
+		} else {
+			for ( int i = 0; i < kernels.length; i++ ) {
+				double[] centerA = kernels[i].getCenter();
+				for ( int j = i + 1; j < kernels.length; j++ ) {
+					double dist = distance( centerA, kernels[j].getCenter() );
+					if ( dist < minDistance ) {
+						minDistance = dist;
+						closestA = i;
+						closestB = j;
+					}
 				}
 			}
 		}
@@ -175,6 +211,9 @@ public class Clustream extends AbstractClusterer{
 
 		kernels[closestA].add( kernels[closestB] );
 		kernels[closestB] = new ClustreamKernel( instance, dim, timestamp, t,  m );
+		if ( kernelIndex != null ) {
+			kernelIndex.kernelsChanged( closestA, closestB );
+		}
 	}
 
 	@Override
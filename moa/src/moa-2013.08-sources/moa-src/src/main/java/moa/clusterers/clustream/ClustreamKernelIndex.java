@@ -0,0 +1,221 @@
+/*
+ *    ClustreamKernelIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package moa.clusterers.clustream;
+
+import java.io.Serializable;
+
+/**
+ * Cached centers and nearest neighbours of the kernels of Clustream.
+ *
+ * The center of every kernel is kept in a matrix, so finding the kernel
+ * closest to a point does not compute any center. For every kernel the
+ * closest other kernel is kept as well, and updated when kernels change,
+ * which gives the two closest kernels without comparing all pairs. Ties are
+ * broken the same way as the scans over all kernels of Clustream, so the
+ * kernels found are always the same.
+ *
+ * Every kernel that changes must be reported with <code>kernelChanged</code>
+ * or <code>kernelsChanged</code> before the index is used again.
+ *
+ * @version $Revision: 7 $
+ */
+public class ClustreamKernelIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private ClustreamKernel[] kernels;
+
+	private double[][] centers;
+
+	// closest other kernel of every kernel, -1 if none
+	private int[] nearestKernel;
+
+	private double[] nearestDistance;
+
+	/**
+	 * Creates the index of the given kernels. The array is not copied, the
+	 * index follows the kernels stored in it.
+	 *
+	 * @param kernels the kernels
+	 */
+	public ClustreamKernelIndex(ClustreamKernel[] kernels) {
+		this.kernels = kernels;
+		this.centers = new double[kernels.length][];
+		this.nearestKernel = new int[kernels.length];
+		this.nearestDistance = new double[kernels.length];
+		for ( int i = 0; i < kernels.length; i++ ) {
+			updateCenter( i );
+		}
+		for ( int i = 0; i < kernels.length; i++ ) {
+			updateNearest( i );
+		}
+	}
+
+	/**
+	 * Finds the kernel whose center is closest to a point. Of kernels at the
+	 * same distance the first one is returned.
+	 *
+	 * @param point the point
+	 * @return the index of the closest kernel
+	 */
+	public int closestKernel(double[] point) {
+		int closest = -1;
+		double minDistance = Double.MAX_VALUE;
+		for ( int i = 0; i < this.centers.length; i++ ) {
+			double distance = distance( point, this.centers[i] );
+			if ( distance < minDistance ) {
+				closest = i;
+				minDistance = distance;
+			}
+		}
+		return closest;
+	}
+
+	public double distanceToKernel(double[] point, int kernel) {
+		return distance( point, this.centers[kernel] );
+	}
+
+	/**
+	 * @return the distance from the center of a kernel to the center of the
+	 * closest other kernel, or <code>Double.MAX_VALUE</code> if there is none
+	 */
+	public double distanceToNearestKernel(int kernel) {
+		return this.nearestDistance[kernel];
+	}
+
+	/**
+	 * Finds the two kernels whose centers are closest, as the first pair
+	 * <code>(i, j)</code> with <code>i &lt; j</code> at the smallest distance.
+	 *
+	 * @return the indices of the two kernels, both 0 if there is no pair
+	 */
+	public int[] closestPair() {
+		int closestA = -1;
+		double minDistance = Double.MAX_VALUE;
+		for ( int i = 0; i < this.nearestDistance.length; i++ ) {
+			if ( this.nearestDistance[i] < minDistance ) {
+				minDistance = this.nearestDistance[i];
+				closestA = i;
+			}
+		}
+		if ( closestA < 0 ) {
+			return new int[]{ 0, 0 };
+		}
+		// all kernels at this distance from closestA come after it, otherwise
+		// they would have been found first
+		return new int[]{ closestA, this.nearestKernel[closestA] };
+	}
+
+	/**
+	 * Updates the index after a kernel was changed or replaced.
+	 *
+	 * @param kernel the index of the kernel
+	 */
+	public void kernelChanged(int kernel) {
+		kernelsChanged( kernel, -1 );
+	}
+
+	/**
+	 * Updates the index after two kernels were changed or replaced.
+	 *
+	 * @param kernelA the index of the first kernel
+	 * @param kernelB the index of the second kernel, or -1
+	 */
+	public void kernelsChanged(int kernelA, int kernelB) {
+		updateCenter( kernelA );
+		if ( kernelB >= 0 ) {
+			updateCenter( kernelB );
+		}
+		for ( int i = 0; i < this.centers.length; i++ ) {
+			if ( i == kernelA || i == kernelB ) {
+				continue;
+			}
+			int nearest = this.nearestKernel[i];
+			if ( nearest >= 0 && ( nearest == kernelA || nearest == kernelB ) ) {
+				double distance = distance( this.centers[i], this.centers[nearest] );
+				if ( distance > this.nearestDistance[i] ) {
+					// the nearest kernel moved away, another one may be closer
+					updateNearest( i );
+					continue;
+				}
+				this.nearestDistance[i] = distance;
+			}
+			offerNearest( i, kernelA );
+			if ( kernelB >= 0 ) {
+				offerNearest( i, kernelB );
+			}
+		}
+		updateNearest( kernelA );
+		if ( kernelB >= 0 ) {
+			updateNearest( kernelB );
+		}
+	}
+
+	private void offerNearest(int kernel, int other) {
+		if ( this.nearestKernel[kernel] == other ) {
+			return;
+		}
+		double distance = distance( this.centers[kernel], this.centers[other] );
+		if ( distance < this.nearestDistance[kernel]
+				|| ( distance == this.nearestDistance[kernel]
+				&& other < this.nearestKernel[kernel] ) ) {
+			this.nearestKernel[kernel] = other;
+			this.nearestDistance[kernel] = distance;
+		}
+	}
+
+	private void updateNearest(int kernel) {
+		int nearest = -1;
+		double minDistance = Double.MAX_VALUE;
+		double[] center = this.centers[kernel];
+		for ( int i = 0; i < this.centers.length; i++ ) {
+			if ( i == kernel ) {
+				continue;
+			}
+			double distance = distance( center, this.centers[i] );
+			if ( distance < minDistance ) {
+				nearest = i;
+				minDistance = distance;
+			}
+		}
+		this.nearestKernel[kernel] = nearest;
+		this.nearestDistance[kernel] = minDistance;
+	}
+
+	// same values as ClustreamKernel.getCenter
+	private void updateCenter(int kernel) {
+		ClustreamKernel k = this.kernels[kernel];
+		if ( this.centers[kernel] == null || this.centers[kernel].length != k.LS.length ) {
+			this.centers[kernel] = new double[k.LS.length];
+		}
+		double n = k.getN();
+		for ( int i = 0; i < k.LS.length; i++ ) {
+			this.centers[kernel][i] = k.LS[i] / n;
+		}
+	}
+
+	private static double distance(double[] pointA, double [] pointB){
+		double distance = 0.0;
+		for (int i = 0; i < pointA.length; i++) {
+			double d = pointA[i] - pointB[i];
+			distance += d * d;
+		}
+		return Math.sqrt(distance);
+	}
+}
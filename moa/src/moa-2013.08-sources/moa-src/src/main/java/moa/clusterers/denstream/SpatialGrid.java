@@ -0,0 +1,256 @@
+/*
+ *    SpatialGrid.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package moa.clusterers.denstream;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over the first dimensions of the space, for finding the items
+ * whose bounding box may overlap a query box.
+ *
+ * Every item is stored in all the cells its box overlaps, looked up in a hash
+ * map by the coordinates of the cell. Queries return a superset of the items
+ * whose box overlaps the query box, which the caller filters with the exact
+ * distance. Boxes are widened slightly, so rounding errors never lose an item.
+ * Items with boxes covering too many cells are kept apart and returned by
+ * every query. The items returned are in the order they were added.
+ *
+ * @version $Revision: 7 $
+ */
+public class SpatialGrid<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Most cells an item or a query box can cover before it is scanned. */
+	public static final int MAX_CELLS = 64;
+
+	private static final double SLACK = 1e-9;
+
+	private static class Entry<T> implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		T item;
+
+		long order;
+
+		// null if the item is not in any cell
+		long[] keys;
+
+		boolean oversized;
+	}
+
+	private static final Comparator<Entry<?>> ORDER = new OrderComparator();
+
+	private static class OrderComparator implements Comparator<Entry<?>>, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		public int compare(Entry<?> a, Entry<?> b) {
+			return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+		}
+	}
+
+	private double cellSize;
+
+	private int numDimensions;
+
+	private Map<Long, List<Entry<T>>> cells = new HashMap<Long, List<Entry<T>>>();
+
+	private List<Entry<T>> oversized = new ArrayList<Entry<T>>();
+
+	private Map<T, Entry<T>> entries = new IdentityHashMap<T, Entry<T>>();
+
+	private long nextOrder;
+
+	/**
+	 * Creates an empty grid.
+	 *
+	 * @param cellSize the width of the cells
+	 * @param numDimensions the number of leading dimensions the cells
+	 * divide
+	 */
+	public SpatialGrid(double cellSize, int numDimensions) {
+		this.cellSize = cellSize;
+		this.numDimensions = numDimensions;
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Adds an item after all the items in the grid.
+	 *
+	 * @param item the item
+	 * @param lower the lower corner of its box, or null if no query can
+	 * find it
+	 * @param upper the upper corner of its box
+	 */
+	public void add(T item, double[] lower, double[] upper) {
+		Entry<T> entry = new Entry<T>();
+		entry.item = item;
+		entry.order = this.nextOrder++;
+		this.entries.put(item, entry);
+		insert(entry, lower, upper);
+	}
+
+	/**
+	 * Moves an item to a new box, keeping its order.
+	 */
+	public void update(T item, double[] lower, double[] upper) {
+		Entry<T> entry = this.entries.get(item);
+		delete(entry);
+		insert(entry, lower, upper);
+	}
+
+	public void remove(T item) {
+		Entry<T> entry = this.entries.remove(item);
+		if (entry != null) {
+			delete(entry);
+		}
+	}
+
+	/**
+	 * Finds the items whose box may overlap a box.
+	 *
+	 * @param lower the lower corner of the box
+	 * @param upper the upper corner of the box
+	 * @return the items, in the order they were added
+	 */
+	public List<T> query(double[] lower, double[] upper) {
+		List<Entry<T>> found = new ArrayList<Entry<T>>(this.oversized);
+		long[] keys = cellKeys(lower, upper);
+		if (keys == null) {
+			if (isFinite(lower, upper)) {
+				found.addAll(this.entries.values());
+			}
+		} else {
+			for (long key : keys) {
+				List<Entry<T>> cell = this.cells.get(key);
+				if (cell != null) {
+					found.addAll(cell);
+				}
+			}
+		}
+		Collections.sort(found, ORDER);
+		List<T> items = new ArrayList<T>(found.size());
+		Entry<T> previous = null;
+		for (Entry<T> entry : found) {
+			if (entry != previous) {
+				items.add(entry.item);
+			}
+			previous = entry;
+		}
+		return items;
+	}
+
+	private void insert(Entry<T> entry, double[] lower, double[] upper) {
+		entry.keys = null;
+		entry.oversized = false;
+		if (lower == null || !isFinite(lower, upper)) {
+			return;
+		}
+		long[] keys = cellKeys(lower, upper);
+		if (keys == null) {
+			entry.oversized = true;
+			this.oversized.add(entry);
+			return;
+		}
+		entry.keys = keys;
+		for (long key : keys) {
+			List<Entry<T>> cell = this.cells.get(key);
+			if (cell == null) {
+				cell = new ArrayList<Entry<T>>(2);
+				this.cells.put(key, cell);
+			}
+			cell.add(entry);
+		}
+	}
+
+	private void delete(Entry<T> entry) {
+		if (entry.oversized) {
+			this.oversized.remove(entry);
+		} else if (entry.keys != null) {
+			for (long key : entry.keys) {
+				List<Entry<T>> cell = this.cells.get(key);
+				cell.remove(entry);
+				if (cell.isEmpty()) {
+					this.cells.remove(key);
+				}
+			}
+		}
+	}
+
+	private boolean isFinite(double[] lower, double[] upper) {
+		int n = Math.min(this.numDimensions, lower.length);
+		for (int i = 0; i < n; i++) {
+			if (Double.isNaN(lower[i]) || Double.isInfinite(lower[i])
+					|| Double.isNaN(upper[i]) || Double.isInfinite(upper[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * keys of the cells a box overlaps, or null if there are more than
+	 * MAX_CELLS of them; different cells may share a key
+	 */
+	private long[] cellKeys(double[] lower, double[] upper) {
+		int n = Math.min(this.numDimensions, lower.length);
+		long[] first = new long[n];
+		long[] last = new long[n];
+		double numCells = 1.0;
+		for (int i = 0; i < n; i++) {
+			double slack = SLACK * (this.cellSize + Math.abs(lower[i]) + Math.abs(upper[i]));
+			first[i] = (long) Math.floor((lower[i] - slack) / this.cellSize);
+			last[i] = (long) Math.floor((upper[i] + slack) / this.cellSize);
+			numCells *= (double) (last[i] - first[i] + 1);
+			if (numCells > MAX_CELLS) {
+				return null;
+			}
+		}
+		long[] keys = new long[(int) numCells];
+		long[] cell = first.clone();
+		for (int k = 0; k < keys.length; k++) {
+			long key = 17;
+			for (int i = 0; i < n; i++) {
+				key = key * 1000003 + cell[i];
+			}
+			keys[k] = key;
+			// next cell, like counting with digits from first to last
+			for (int i = 0; i < n; i++) {
+				if (cell[i] < last[i]) {
+					cell[i]++;
+					break;
+				}
+				cell[i] = first[i];
+			}
+		}
+		return keys;
+	}
+}
@@ -17,6 +17,7 @@ import moa.cluster.Clustering;
 import moa.clusterers.AbstractClusterer;
 import moa.clusterers.macro.dbscan.DBScan;
 import moa.core.Measurement;
+import moa.options.FlagOption;
 import moa.options.FloatOption;
 import moa.options.IntOption;
 import weka.core.DenseInstance;
@@ -50,6 +51,12 @@ public class WithDBSCAN extends AbstractClusterer {
 	 public IntOption speedOption = new IntOption("processingSpeed", 's',
 				"Number of incoming points per time unit.", 100, 1, 1000);
 
+	public FlagOption gridIndexOption = new FlagOption("gridIndex", 'g',
+			"Find neighbours and micro-clusters with a grid of epsilon wide cells.");
+
+	/** Number of leading dimensions divided by the cells of the grids. */
+	protected static final int GRID_DIMENSIONS = 3;
+
 	private double weightThreshold = 0.01;
 	double lambda;
 	double epsilon;
@@ -61,6 +68,13 @@ public class WithDBSCAN extends AbstractClusterer {
 	Clustering o_micro_cluster;
 	ArrayList<DenPoint> initBuffer;
 
+	// grids of the micro-clusters, null unless gridIndexOption is set
+	SpatialGrid<MicroCluster> p_grid;
+	SpatialGrid<MicroCluster> o_grid;
+	// grid of initBuffer and the values of its points, during initialDBScan
+	SpatialGrid<Integer> initGrid;
+	double[][] initValues;
+
 	boolean initialized;
 	private long timestamp = 0;
 	Timestamp currentTimestamp;
@@ -101,6 +115,13 @@ public class WithDBSCAN extends AbstractClusterer {
 		p_micro_cluster = new Clustering();
 		o_micro_cluster = new Clustering();
 		initBuffer = new ArrayList<DenPoint>();
+		if (gridIndexOption.isSet()) {
+			p_grid = new SpatialGrid<MicroCluster>(epsilon, GRID_DIMENSIONS);
+			o_grid = new SpatialGrid<MicroCluster>(epsilon, GRID_DIMENSIONS);
+		} else {
+			p_grid = null;
+			o_grid = null;
+		}
 		
 		tp = Math.round(1 / lambda * Math.log((beta * mu) / (beta * mu - 1))) + 1;
 		
@@ -109,6 +130,14 @@ public class WithDBSCAN extends AbstractClusterer {
 	}
 
 	public void initialDBScan() {
+		if (p_grid != null) {
+			initGrid = new SpatialGrid<Integer>(epsilon, GRID_DIMENSIONS);
+			initValues = new double[initBuffer.size()][];
+			for (int p = 0; p < initBuffer.size(); p++) {
+				initValues[p] = initBuffer.get(p).toDoubleArray();
+				initGrid.add(p, initValues[p], initValues[p]);
+			}
+		}
 		for (int p = 0; p < initBuffer.size(); p++) {
 			DenPoint point = initBuffer.get(p);
 			if (!point.covered) {
@@ -121,11 +150,14 @@ public class WithDBSCAN extends AbstractClusterer {
 							currentTimestamp);
 					expandCluster(mc, initBuffer, neighbourhood);
 					p_micro_cluster.add(mc);
+					addToGrid(p_grid, mc);
 				} else {
 					point.covered = false;
 				}
 			}
 		}
+		initGrid = null;
+		initValues = null;
 	}
 
 	@Override
@@ -154,33 +186,40 @@ public class WithDBSCAN extends AbstractClusterer {
 			// ////////////
 			boolean merged = false;
 			if (p_micro_cluster.getClustering().size() != 0) {
-				MicroCluster x = nearestCluster(point, p_micro_cluster);
+				MicroCluster x = nearestCluster(point, p_micro_cluster, p_grid);
 				MicroCluster xCopy = x.copy();
 				xCopy.insert(point, timestamp);
 				if (xCopy.getRadius(timestamp) <= epsilon) {
 					x.insert(point, timestamp);
+					updateInGrid(p_grid, x);
 					merged = true;
 				}
 			}
 			if (!merged && (o_micro_cluster.getClustering().size() != 0)) {
-				MicroCluster x = nearestCluster(point, o_micro_cluster);
+				MicroCluster x = nearestCluster(point, o_micro_cluster, o_grid);
 				MicroCluster xCopy = x.copy();
 				xCopy.insert(point, timestamp);
 
 				if (xCopy.getRadius(timestamp) <= epsilon) {
 					x.insert(point, timestamp);
+					updateInGrid(o_grid, x);
 					merged = true;
 					if (x.getWeight() > beta * mu) {
 						o_micro_cluster.getClustering().remove(x);
 						p_micro_cluster.getClustering().add(x);
+						if (p_grid != null) {
+							o_grid.remove(x);
+							addToGrid(p_grid, x);
+						}
 					}
 				}
 			}
 			if (!merged) {
-				o_micro_cluster.getClustering().add(
-						new MicroCluster(point.toDoubleArray(), point
-								.toDoubleArray().length, timestamp, lambda,
-								currentTimestamp));
+				MicroCluster x = new MicroCluster(point.toDoubleArray(), point
+						.toDoubleArray().length, timestamp, lambda,
+						currentTimestamp);
+				o_micro_cluster.getClustering().add(x);
+				addToGrid(o_grid, x);
 			}
 
 			// //////////////////////////
@@ -195,6 +234,9 @@ public class WithDBSCAN extends AbstractClusterer {
 				}
 				for (Cluster c : removalList) {
 					p_micro_cluster.getClustering().remove(c);
+					if (p_grid != null) {
+						p_grid.remove((MicroCluster) c);
+					}
 				}
 
 				for (Cluster c : o_micro_cluster.getClustering()) {
@@ -209,6 +251,9 @@ public class WithDBSCAN extends AbstractClusterer {
 				}
 				for (Cluster c : removalList) {
 					o_micro_cluster.getClustering().remove(c);
+					if (o_grid != null) {
+						o_grid.remove((MicroCluster) c);
+					}
 				}
 			}
 
@@ -234,6 +279,26 @@ public class WithDBSCAN extends AbstractClusterer {
 	private ArrayList<Integer> getNeighbourhoodIDs(DenPoint point,
 			ArrayList<DenPoint> points, double eps) {
 		ArrayList<Integer> neighbourIDs = new ArrayList<Integer>();
+		if (initGrid != null) {
+			// only the points in the cells around the point can be closer
+			// than eps, same order and distances as the scan below
+			double[] values = point.toDoubleArray();
+			double[] lower = new double[values.length];
+			double[] upper = new double[values.length];
+			for (int i = 0; i < values.length; i++) {
+				lower[i] = values[i] - eps;
+				upper[i] = values[i] + eps;
+			}
+			for (int p : initGrid.query(lower, upper)) {
+				if (!points.get(p).covered) {
+					double dist = distance(values, initValues[p]);
+					if (dist < eps) {
+						neighbourIDs.add(p);
+					}
+				}
+			}
+			return neighbourIDs;
+		}
 		for (int p = 0; p < points.size(); p++) {
 			DenPoint npoint = points.get(p);
 			if (!npoint.covered) {
@@ -247,7 +312,24 @@ public class WithDBSCAN extends AbstractClusterer {
 		return neighbourIDs;
 	}
 
-	private MicroCluster nearestCluster(DenPoint p, Clustering cl) {
+	private MicroCluster nearestCluster(DenPoint p, Clustering cl,
+			SpatialGrid<MicroCluster> grid) {
+		if (grid != null) {
+			// only micro-clusters containing the point can be chosen instead
+			// of the first one, and only their boxes contain it
+			double[] values = p.toDoubleArray();
+			MicroCluster min = (MicroCluster) cl.get(0);
+			double minDist = 0;
+			for (MicroCluster x : grid.query(values, values)) {
+				double dist = distance(values, x.getCenter());
+				dist -= x.getRadius(timestamp);
+				if (dist < minDist) {
+					minDist = dist;
+					min = x;
+				}
+			}
+			return min;
+		}
 		MicroCluster min = null;
 		double minDist = 0;
 		for (int c = 0; c < cl.size(); c++) {
@@ -266,6 +348,35 @@ public class WithDBSCAN extends AbstractClusterer {
 
 	}
 
+	private void addToGrid(SpatialGrid<MicroCluster> grid, MicroCluster x) {
+		if (grid != null) {
+			grid.add(x, null, null);
+			updateInGrid(grid, x);
+		}
+	}
+
+	/*
+	 * puts a micro-cluster in the cells of the box around its radius; a
+	 * micro-cluster without radius cannot contain any point
+	 */
+	private void updateInGrid(SpatialGrid<MicroCluster> grid, MicroCluster x) {
+		if (grid != null) {
+			double radius = x.getRadius(timestamp);
+			if (!(radius > 0)) {
+				grid.update(x, null, null);
+				return;
+			}
+			double[] center = x.getCenter();
+			double[] lower = new double[center.length];
+			double[] upper = new double[center.length];
+			for (int i = 0; i < center.length; i++) {
+				lower[i] = center[i] - radius;
+				upper[i] = center[i] + radius;
+			}
+			grid.update(x, lower, upper);
+		}
+	}
+
 	private double distance(double[] pointA, double[] pointB) {
 		double distance = 0.0;
 		for (int i = 0; i < pointA.length; i++) {
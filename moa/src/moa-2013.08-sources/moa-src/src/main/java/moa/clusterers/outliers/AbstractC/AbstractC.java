@@ -18,7 +18,7 @@ package moa.clusterers.outliers.AbstractC;
 
 import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
-import moa.clusterers.outliers.AbstractC.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 import moa.options.FlagOption;
 import moa.options.FloatOption;
 import moa.options.IntOption;
@@ -142,11 +142,11 @@ public class AbstractC extends AbstractCBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> neighbors = ISB.RangeSearch(nodeNew, m_radius);
+        RangeSearchResult<ISBNode> neighbors = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
-        for (ISBSearchResult res : neighbors) {
-            ISBNode node = res.node;
+        for (int i = 0; i < neighbors.size(); i++) {
+            ISBNode node = neighbors.getItem(i);
             UpdateNeighbors(nodeNew, node);
         }
         
@@ -17,6 +17,8 @@
 package moa.clusterers.outliers.AbstractC;
 
 import java.util.*;
+import moa.clusterers.outliers.utils.MetricRangeIndex;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 import weka.core.Instance;
 
 public class ISBIndex {    
@@ -24,6 +26,7 @@ public class ISBIndex {
         public Instance inst;
         public StreamObj obj;
         public Long id;
+        int slot = -1; // slot in the index, -1 if not indexed
         public ArrayList<Integer> lt_cnt;
         
         // statistics
@@ -42,118 +45,48 @@ public class ISBIndex {
         }
     }
     
-    MyMTree mtree;
-    Map<Integer, Set<ISBNode>> mapNodes;
+    MetricRangeIndex<ISBNode> index;
+    RangeSearchResult<ISBNode> results;
+    double[] point;
     double m_radius;
     double m_Fraction;
     
     public ISBIndex(double radius, double fra) {
-        mtree = new MyMTree();
-        mapNodes = new HashMap<Integer, Set<ISBNode>>();
+        index = new MetricRangeIndex<ISBNode>(radius);
+        results = new RangeSearchResult<ISBNode>();
         m_radius = radius;
         m_Fraction = fra;
     }
     
-    public static class ISBSearchResult {
-        public ISBNode node;
-        public double distance;
-        
-        public ISBSearchResult(ISBNode n, double distance) {
-            this.node = n;
-            this.distance = distance;
-        }
-    }
-    
-    public Vector<ISBSearchResult> RangeSearch(ISBNode node, double radius) {
-        Vector<ISBSearchResult> results = new Vector<ISBSearchResult>();
-        // execute range search at mtree
-        StreamObj obj;
-        double d;
-        MyMTree.Query query = mtree.getNearestByRange(node.obj, radius);
-        for (MyMTree.ResultItem q : query) {
-            // get next obj found within range
-            obj = q.data;
-            // get distance of obj from query
-            d = q.distance;
-            // get all nodes referencing obj
-            Vector<ISBNode> nodes = MapGetNodes(obj);
-            for (int i = 0; i < nodes.size(); i++)
-                results.add(new ISBSearchResult(nodes.get(i), d));
-        }        
+    // results are sorted ascending by distance and reused by the next search
+    public RangeSearchResult<ISBNode> RangeSearch(ISBNode node, double radius) {
+        results.clear();
+        index.rangeSearch(GetPoint(node), radius, results);
+        results.sort();
         return results;
     }
     
     public void Insert(ISBNode node) {
-        // insert object of node at mtree
-        mtree.add(node.obj);
-        // insert node at map
-        MapInsert(node);    
-    }
-    
-    public void Remove(ISBNode node) {
-        // remove from map
-        MapDelete(node);
-        // check if stream object at mtree is still being referenced
-        if (MapCountObjRefs(node.obj) <= 0) {
-            // delete stream object from mtree
-            mtree.remove(node.obj);
+        if (node.slot < 0) {
+            node.slot = index.add(GetPoint(node), node.id, node);
         }
     }
     
-    Vector<ISBNode> MapGetNodes(StreamObj obj) {
-        int h = obj.hashCode();
-        Vector<ISBNode> v = new Vector<ISBNode>();
-        if (mapNodes.containsKey(h)) {
-            Set<ISBNode> s = mapNodes.get(h);
-            ISBNode node;
-            Iterator<ISBNode> i = s.iterator();
-            while (i.hasNext()) {
-                node = i.next();
-                if (node.obj.equals(obj))
-                    v.add(node);
-            }
-        }
-        return v;
-    }
-    
-    int MapCountObjRefs(StreamObj obj) {
-        int h = obj.hashCode();
-        int iCount = 0;
-        if (mapNodes.containsKey(h)) {
-            Set<ISBNode> s = mapNodes.get(h);
-            ISBNode n;
-            Iterator<ISBNode> i = s.iterator();
-            while (i.hasNext()) {
-                n = i.next();
-                if (n.obj.equals(obj))
-                    iCount++;
-            }
+    public void Remove(ISBNode node) {
+        if (node.slot >= 0) {
+            index.remove(node.slot);
+            node.slot = -1;
         }
-        return iCount;
     }
     
-    void MapInsert(ISBNode node) {
-        int h = node.obj.hashCode();
-        Set<ISBNode> s;
-        if (mapNodes.containsKey(h)) {
-            s = mapNodes.get(h);
-            s.add(node);
+    double[] GetPoint(ISBNode node) {
+        int d = node.obj.dimensions();
+        if ((point == null) || (point.length != d)) {
+            point = new double[d];
         }
-        else {
-            s = new HashSet<ISBNode>();
-            s.add(node);
-            mapNodes.put(h, s);
+        for (int i = 0; i < d; i++) {
+            point[i] = node.obj.get(i);
         }
+        return point;
     }
-    
-    void MapDelete(ISBNode node) {
-        int h = node.obj.hashCode();
-        if (mapNodes.containsKey(h)) {
-            Set<ISBNode> s = mapNodes.get(h);
-            s.remove(node);
-            if (s.isEmpty()) { // ### added
-                mapNodes.remove(h);
-            }
-        }
-    }    
 }
@@ -23,7 +23,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
-import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 import moa.options.FloatOption;
 import moa.options.IntOption;
 import weka.core.Instance;
@@ -223,16 +223,16 @@ public class ApproxSTORM extends STORMBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        RangeSearchResult<ISBNode> nodes = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
         int nSafeInliers;
         Long count_si_before = 0L;
-        for (ISBSearchResult res : nodes) {
-            ISBNodeAppr n = (ISBNodeAppr) res.node;
+        for (int i = 0; i < nodes.size(); i++) {
+            ISBNodeAppr n = (ISBNodeAppr) nodes.getItem(i);
             if (bTrace) {
-                Printf("   Found at d=%.2f: ", res.distance);
-                PrintNode(res.node);
+                Printf("   Found at d=%.2f: ", nodes.getDistance(i));
+                PrintNode(n);
             }
 
             n.count_after++;
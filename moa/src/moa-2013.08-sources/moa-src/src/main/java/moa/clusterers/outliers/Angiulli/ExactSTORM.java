@@ -21,7 +21,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.Vector;
 import moa.clusterers.outliers.Angiulli.ISBIndex.ISBNode;
-import moa.clusterers.outliers.Angiulli.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 import moa.options.FloatOption;
 import moa.options.IntOption;
 import weka.core.Instance;
@@ -214,18 +214,18 @@ public class ExactSTORM extends STORMBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        RangeSearchResult<ISBNode> nodes = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
-        for (ISBSearchResult res : nodes) {
-            ISBNodeExact n = (ISBNodeExact) res.node;
+        for (int i = 0; i < nodes.size(); i++) {
+            ISBNodeExact n = (ISBNodeExact) nodes.getItem(i);
             if (bTrace)  {
-                Printf("   Found at d=%.2f: ", res.distance);
-                PrintNode(res.node);
+                Printf("   Found at d=%.2f: ", nodes.getDistance(i));
+                PrintNode(n);
             }
             
             n.count_after++;            
-            nodeNew.AddPrecNeigh(res.node.id);
+            nodeNew.AddPrecNeigh(n.id);
         }
 
         if (bTrace) Println("Insert new node to ISB.");
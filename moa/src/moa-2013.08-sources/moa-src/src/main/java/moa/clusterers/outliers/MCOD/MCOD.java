@@ -21,7 +21,8 @@ import java.util.TreeSet;
 import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
-import moa.clusterers.outliers.MCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.MetricRangeIndex;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 import moa.options.FloatOption;
 import moa.options.IntOption;
 import weka.core.Instance;
@@ -65,7 +66,8 @@ public class MCOD extends MCODBase {
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
-        mtreeMC = new MTreeMicroClusters();
+        mcIndex = new MetricRangeIndex<MicroCluster>(1.5 * m_radius);
+        mcResults = new RangeSearchResult<MicroCluster>();
         // create event queue
         eventQueue = new EventQueue();
         
@@ -119,20 +121,20 @@ public class MCOD extends MCODBase {
         if (bTrace) { Print("ProcessNewNode: "); PrintNode(nodeNew); }
         
         if (bTrace) Println("Perform 3R/2 range query to cluster centers w.r.t new node"); 
-        Vector<SearchResultMC> resultsMC;
+        RangeSearchResult<MicroCluster> resultsMC;
         // results are sorted ascenting by distance
         resultsMC = RangeSearchMC(nodeNew, 1.5 * m_radius); 
         if (bTrace) {
             Println("MC query found: "); 
-            for (SearchResultMC sr : resultsMC) {
-                Printf("  (%.1f) mcc: ", sr.distance); PrintNode(sr.mc.mcc);
+            for (int i = 0; i < resultsMC.size(); i++) {
+                Printf("  (%.1f) mcc: ", resultsMC.getDistance(i)); PrintNode(resultsMC.getItem(i).mcc);
             }
         }
         
         if (bTrace) Println("Get closest micro-cluster"); 
         MicroCluster mcClosest = null;
         if (resultsMC.size() > 0) { 
-            mcClosest = resultsMC.get(0).mc;
+            mcClosest = resultsMC.getItem(0);
             if (bTrace) Println("Closest mcc: " + mcClosest.mcc.id);
         }
         
@@ -182,11 +184,12 @@ public class MCOD extends MCODBase {
             // create helper sets for micro-cluster management
             ArrayList<ISBNode> setNC = new ArrayList<ISBNode>();
             ArrayList<ISBNode> setNNC = new ArrayList<ISBNode>();
-            Vector<ISBSearchResult> resultNodes;
+            RangeSearchResult<ISBNode> resultNodes;
             resultNodes = ISB_PD.RangeSearch(nodeNew, 1.5 * m_radius); // 1.5 ###
-            for (ISBSearchResult sr : resultNodes) {
-                ISBNode q = sr.node;
-                if (sr.distance <= m_radius) {                    
+            for (int i = 0; i < resultNodes.size(); i++) {
+                ISBNode q = resultNodes.getItem(i);
+                double distance = resultNodes.getDistance(i);
+                if (distance <= m_radius) {                    
                     // add q to neighs of nodeNew
                     AddNeighbor(nodeNew, q, false);                
                     if (bNewNode) {
@@ -200,7 +203,7 @@ public class MCOD extends MCODBase {
                     }
                 }
                 
-                if (sr.distance <= m_radius / 2.0) {
+                if (distance <= m_radius / 2.0) {
                     setNC.add(q);
                 } else {
                     setNNC.add(q);
@@ -243,8 +246,8 @@ public class MCOD extends MCODBase {
                 }
             } else {
                 if (bTrace) Println("Add to nodeNew neighs nodes of near micro-clusters"); 
-                for (SearchResultMC sr : resultsMC) {
-                    for (ISBNode q : sr.mc.nodes) {
+                for (int i = 0; i < resultsMC.size(); i++) {
+                    for (ISBNode q : resultsMC.getItem(i).nodes) {
                         if (GetEuclideanDist(q, nodeNew) <= m_radius) {
                             // add q to neighs of nodeNew
                             AddNeighbor(nodeNew, q, false);
@@ -276,8 +279,8 @@ public class MCOD extends MCODBase {
                 }
                 
                 if (bTrace) Println("Update nodeNew.Rmc"); 
-                for (SearchResultMC sr : resultsMC) {
-                    nodeNew.Rmc.add(sr.mc);
+                for (int i = 0; i < resultsMC.size(); i++) {
+                    nodeNew.Rmc.add(resultsMC.getItem(i));
                 }                
                 if (bTrace) { Print("nodeNew.Rmc: "); PrintMCSet(nodeNew.Rmc); } 
             }
@@ -20,6 +20,8 @@ import java.util.*;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.MetricRangeIndex;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 
 public abstract class MCODBase extends MyBaseOutlierDetector {    
     protected static class EventItem implements Comparable<EventItem> {
@@ -83,8 +85,9 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     // list used to find expired nodes
     protected Vector<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
-    // MTree index of micro-clusters
-    protected MTreeMicroClusters mtreeMC;
+    // index of micro-cluster centers
+    protected MetricRangeIndex<MicroCluster> mcIndex;
+    protected RangeSearchResult<MicroCluster> mcResults;
     // set of micro-clusters (for trace)
     protected TreeSet<MicroCluster> setMC;
     // nodes treated as new nodes when a mc removed
@@ -254,36 +257,26 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     }
     
     void AddMicroCluster(MicroCluster mc) {
-        mtreeMC.add(mc);
+        mc.slot = mcIndex.add(ISB_PD.GetPoint(mc.mcc), mc.mcc.id, mc);
         setMC.add(mc);
     }
     
     void RemoveMicroCluster(MicroCluster mc) {
-        mtreeMC.remove(mc);
-        setMC.remove(mc);
-    }
-    
-    class SearchResultMC {
-        MicroCluster mc;
-        double distance;
-
-        public SearchResultMC(MicroCluster mc, double distance) {
-            this.mc = mc;
-            this.distance = distance;
+        if (mc.slot >= 0) {
+            mcIndex.remove(mc.slot);
+            mc.slot = -1;
         }
+        setMC.remove(mc);
     }
     
-    Vector<SearchResultMC> RangeSearchMC(ISBNode nodeNew, double radius) {
-        Vector<SearchResultMC> results = new Vector<SearchResultMC>();
-        // create a dummy mc in order to search w.r.t. nodeNew
-        MicroCluster dummy = new MicroCluster(nodeNew);
-        // query results are returned ascenting by distance
-        MTreeMicroClusters.Query query = mtreeMC.getNearestByRange(dummy, radius);
-        for (MTreeMicroClusters.ResultItem q : query) {            
-            results.add(new SearchResultMC(q.data, q.distance));
-        }        
-        return results;
+    // results are sorted ascending by distance and reused by the next search
+    RangeSearchResult<MicroCluster> RangeSearchMC(ISBNode nodeNew, double radius) {
+        mcResults.clear();
+        mcIndex.rangeSearch(ISB_PD.GetPoint(nodeNew), radius, mcResults);
+        mcResults.sort();
+        return mcResults;
     }
+
     
     double GetEuclideanDist(ISBNode n1, ISBNode n2)
     {
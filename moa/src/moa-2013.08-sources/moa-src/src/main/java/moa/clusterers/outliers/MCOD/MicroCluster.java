@@ -23,6 +23,7 @@ import moa.clusterers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
 public class MicroCluster implements EuclideanCoordinate, Comparable<MicroCluster> {
     public ISBNode mcc;
     public ArrayList<ISBNode> nodes;
+    int slot = -1; // slot in the index of micro-clusters, -1 if not indexed
 
     public MicroCluster(ISBNode mcc) {
         this.mcc = mcc;
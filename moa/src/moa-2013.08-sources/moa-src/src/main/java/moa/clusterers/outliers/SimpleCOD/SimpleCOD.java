@@ -18,7 +18,7 @@ package moa.clusterers.outliers.SimpleCOD;
 
 import java.util.Vector;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
-import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
 import moa.options.FloatOption;
 import moa.options.IntOption;
 import weka.core.Instance;
@@ -72,11 +72,11 @@ public class SimpleCOD extends SimpleCODBase {
         
         if (bTrace) Println("Perform R range query");    
         nRangeQueriesExecuted++;
-        Vector<ISBSearchResult> resultNodes;
+        RangeSearchResult<ISBNode> resultNodes;
         resultNodes = ISB.RangeSearch(nodeNew, m_radius);
-        for (ISBSearchResult sr : resultNodes) {
-            double distance = sr.distance;
-            ISBNode q = sr.node;
+        for (int i = 0; i < resultNodes.size(); i++) {
+            double distance = resultNodes.getDistance(i);
+            ISBNode q = resultNodes.getItem(i);
             if ( (nodeNew != q) && (distance <= m_radius) ) {  
                 if (bTrace) Println("nodeNew has neighbor q.id " + q.id);  
                 nodeNew.AddPrecNeigh(q);
@@ -16,54 +16,109 @@
 
 package moa.clusterers.outliers;
 
+import java.util.ArrayList;
 import moa.clusterers.outliers.AbstractC.AbstractC;
+import moa.clusterers.outliers.Angiulli.ApproxSTORM;
 import moa.clusterers.outliers.Angiulli.ExactSTORM;
+import moa.clusterers.outliers.Angiulli.StreamObj;
 import moa.clusterers.outliers.MCOD.MCOD;
 import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
+import moa.clusterers.outliers.utils.MetricRangeIndex;
+import moa.clusterers.outliers.utils.MetricRangeIndex.RangeSearchResult;
+import moa.clusterers.utils.mtree.DistanceFunctions;
+import moa.clusterers.utils.mtree.MTree;
 import moa.streams.clustering.RandomRBFGeneratorEvents;
 import weka.core.Instance;
 
+// Measures the throughput of the outlier detectors, and the throughput gain
+// of their shared index over the generic M-tree on the same window of objects.
 public class TestSpeed {    
     public static void main(String[] args) throws Exception 
     {        
         int numInstances = 2000;        
+        int windowSize = 1000;
+        double radius = 0.1;
+        if (args.length > 0) numInstances = Integer.parseInt(args[0]);
+        
         RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
         stream.prepareForUse();
+        ArrayList<Instance> instances = new ArrayList<Instance>();
+        while (stream.hasMoreInstances() && (instances.size() < numInstances)) {               
+            instances.add(stream.nextInstance());
+        }
         
-        SimpleCOD scod = new SimpleCOD();   
-        MCOD mcod = new MCOD();        
-        ExactSTORM angiulli = new ExactSTORM();   
-        //DistanceOutliersAppr angiulli = new DistanceOutliersAppr(); 
-        AbstractC abstractC = new AbstractC();        
-        
-        angiulli.queryFreqOption.setValue(1);
-        
-        scod.setModelContext(stream.getHeader());
-        scod.prepareForUse(); 
-        
-        mcod.setModelContext(stream.getHeader());
-        mcod.prepareForUse(); 
-        
-        angiulli.setModelContext(stream.getHeader());
-        angiulli.prepareForUse(); 
+        MyBaseOutlierDetector[] detectors = new MyBaseOutlierDetector[] {
+            new SimpleCOD(), new MCOD(), new ExactSTORM(), new ApproxSTORM(), new AbstractC()
+        };
+        for (MyBaseOutlierDetector detector : detectors) {
+            detector.setModelContext(stream.getHeader());
+            detector.prepareForUse();
+            detector.SetShowProgress(false);
+            
+            Long tmStart = System.currentTimeMillis();
+            for (Instance inst : instances) {
+                detector.processNewInstanceImpl(inst);
+            }
+            long ms = System.currentTimeMillis() - tmStart;
+            System.out.println(detector.getClass().getSimpleName() + ": total time = " + ms + " ms, " 
+                    + String.format("%.0f", PerSecond(instances.size(), ms)) + " instances/s");
+        }
         
-        abstractC.setModelContext(stream.getHeader());
-        abstractC.prepareForUse();
+        // replay the window of the detectors: expire the oldest object, 
+        // search the neighbors of the new one and insert it
+        ArrayList<StreamObj> objs = new ArrayList<StreamObj>();
+        ArrayList<double[]> points = new ArrayList<double[]>();
+        for (Instance inst : instances) {
+            double[] values = new double[inst.numValues() - 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = inst.value(i);
+            }
+            objs.add(new StreamObj(values));
+            points.add(values);
+        }
         
         Long tmStart = System.currentTimeMillis();
+        long nFoundMTree = 0;
+        MTree<StreamObj> mtree = new MTree<StreamObj>(DistanceFunctions.EUCLIDEAN, null);
+        for (int i = 0; i < objs.size(); i++) {
+            if (i >= windowSize) {
+                mtree.remove(objs.get(i - windowSize));
+            }
+            for (MTree<StreamObj>.ResultItem q : mtree.getNearestByRange(objs.get(i), radius)) {
+                nFoundMTree++;
+            }
+            mtree.add(objs.get(i));
+        }
+        long msMTree = System.currentTimeMillis() - tmStart;
         
-        int numberSamples = 0;     
-        while (stream.hasMoreInstances() && (numberSamples < numInstances)) {               
-            Instance newInst = stream.nextInstance();
-            
-            //scod.processNewInstanceImpl(newInst);  
-            mcod.processNewInstanceImpl(newInst);  
-            //angiulli.processNewInstanceImpl(newInst);  
-            //abstractC.processNewInstanceImpl(newInst); 
-            
-            numberSamples++;
-        }      
+        tmStart = System.currentTimeMillis();
+        long nFoundIndex = 0;
+        MetricRangeIndex<StreamObj> index = new MetricRangeIndex<StreamObj>(radius);
+        RangeSearchResult<StreamObj> results = new RangeSearchResult<StreamObj>();
+        int[] slots = new int[windowSize];
+        for (int i = 0; i < points.size(); i++) {
+            if (i >= windowSize) {
+                index.remove(slots[i % windowSize]);
+            }
+            results.clear();
+            index.rangeSearch(points.get(i), radius, results);
+            results.sort();
+            nFoundIndex += results.size();
+            slots[i % windowSize] = index.add(points.get(i), i, objs.get(i));
+        }
+        long msIndex = System.currentTimeMillis() - tmStart;
         
-        System.out.println("Total time = " + (System.currentTimeMillis() - tmStart) + " ms");
+        System.out.println("MTree: total time = " + msMTree + " ms, " 
+                + String.format("%.0f", PerSecond(objs.size(), msMTree)) + " instances/s, " 
+                + nFoundMTree + " neighbors found");
+        System.out.println("MetricRangeIndex: total time = " + msIndex + " ms, " 
+                + String.format("%.0f", PerSecond(points.size(), msIndex)) + " instances/s, " 
+                + nFoundIndex + " neighbors found");
+        System.out.println("Throughput gain = " 
+                + String.format("%.2f", (double) Math.max(msMTree, 1) / Math.max(msIndex, 1)));
+    }
+    
+    static double PerSecond(int n, long ms) {
+        return 1000.0 * n / Math.max(ms, 1);
     }
 }
@@ -0,0 +1,431 @@
+/*
+ *    MetricRangeIndex.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package moa.clusterers.outliers.utils;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Index of the points of a sliding window for range queries with the
+ * euclidean distance, shared by the distance based outlier detectors.
+ *
+ * The index is an M-tree of one level kept in arrays of primitives. The
+ * points are grouped in balls around routing points: every ball stores the
+ * distance of its points to its routing point and a covering radius, and
+ * queries skip the balls and points that the triangle inequality proves to
+ * be out of range, as the M-tree does. A point joins the closest ball that
+ * has room, if its routing point is closer than the ball radius given to the
+ * index, otherwise it starts a new ball. Points are stored in slots which
+ * are reused when points expire, so once the window is full adding and
+ * removing points allocates nothing.
+ *
+ * Range queries report the points found to a callback, in no particular
+ * order. <code>RangeSearchResult</code> is a callback that collects them
+ * into reusable arrays and sorts them nearest first.
+ *
+ * @version $Revision: 7 $
+ */
+public class MetricRangeIndex<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Number of points a ball holds at most. */
+    public static final int BALL_CAPACITY = 32;
+
+    private static final double SLACK = 1e-9;
+
+    /**
+     * Receives the points found by a range query.
+     */
+    public interface RangeSearchCallback<T> {
+
+        /**
+         * Called for every point in range. The index must not be changed
+         * before the query returns.
+         *
+         * @param item the item of the point
+         * @param id the id of the point
+         * @param distance the distance from the query point
+         */
+        public void found(T item, long id, double distance);
+    }
+
+    /**
+     * Reusable list of the points found by range queries. Every query clears
+     * the list, so the points must be read before the next query.
+     */
+    public static class RangeSearchResult<T> implements RangeSearchCallback<T>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Object[] items = new Object[16];
+
+        private long[] ids = new long[16];
+
+        private double[] distances = new double[16];
+
+        private int size;
+
+        public void clear() {
+            for (int i = 0; i < this.size; i++) {
+                this.items[i] = null;
+            }
+            this.size = 0;
+        }
+
+        public void found(T item, long id, double distance) {
+            if (this.size == this.items.length) {
+                int capacity = 2 * this.size;
+                Object[] newItems = new Object[capacity];
+                long[] newIds = new long[capacity];
+                double[] newDistances = new double[capacity];
+                System.arraycopy(this.items, 0, newItems, 0, this.size);
+                System.arraycopy(this.ids, 0, newIds, 0, this.size);
+                System.arraycopy(this.distances, 0, newDistances, 0, this.size);
+                this.items = newItems;
+                this.ids = newIds;
+                this.distances = newDistances;
+            }
+            this.items[this.size] = item;
+            this.ids[this.size] = id;
+            this.distances[this.size] = distance;
+            this.size++;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T getItem(int i) {
+            return (T) this.items[i];
+        }
+
+        public long getId(int i) {
+            return this.ids[i];
+        }
+
+        public double getDistance(int i) {
+            return this.distances[i];
+        }
+
+        /**
+         * Sorts the points by increasing distance, and points at the same
+         * distance by increasing id.
+         */
+        public void sort() {
+            // heapsort, in place
+            for (int i = this.size / 2 - 1; i >= 0; i--) {
+                siftDown(i, this.size);
+            }
+            for (int end = this.size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (2 * i + 1 < end) {
+                int child = 2 * i + 1;
+                if (child + 1 < end && isBefore(child, child + 1)) {
+                    child++;
+                }
+                if (!isBefore(i, child)) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private boolean isBefore(int a, int b) {
+            return this.distances[a] < this.distances[b]
+                    || (this.distances[a] == this.distances[b]
+                    && this.ids[a] < this.ids[b]);
+        }
+
+        private void swap(int a, int b) {
+            Object item = this.items[a];
+            this.items[a] = this.items[b];
+            this.items[b] = item;
+            long id = this.ids[a];
+            this.ids[a] = this.ids[b];
+            this.ids[b] = id;
+            double distance = this.distances[a];
+            this.distances[a] = this.distances[b];
+            this.distances[b] = distance;
+        }
+    }
+
+    private double ballRadius;
+
+    private int numDimensions = -1;
+
+    // points, by slot
+    private double[] coordinates = new double[0];
+
+    private long[] ids = new long[0];
+
+    private Object[] items = new Object[0];
+
+    private double[] distanceToRouting = new double[0];
+
+    private int[] ballOfSlot = new int[0];
+
+    private int[] positionInBall = new int[0];
+
+    private int[] freeSlots = new int[0];
+
+    private int numFreeSlots;
+
+    private int numSlots;
+
+    // balls, by ball index
+    private double[] routing = new double[0];
+
+    private double[] coveringRadius = new double[0];
+
+    private int[] ballSize = new int[0];
+
+    private int[] ballSlots = new int[0];
+
+    private int[] freeBalls = new int[0];
+
+    private int numFreeBalls;
+
+    private int numBalls;
+
+    // balls in use, and the position of every ball in this list
+    private int[] activeBalls = new int[0];
+
+    private int[] activePosition = new int[0];
+
+    private int numActiveBalls;
+
+    private int size;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param ballRadius the largest distance from a point to the routing
+     * point of the ball it joins, usually the query radius
+     */
+    public MetricRangeIndex(double ballRadius) {
+        this.ballRadius = ballRadius;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds a point to the index.
+     *
+     * @param point the coordinates of the point, which are copied
+     * @param id the id of the point
+     * @param item the item reported by queries for the point
+     * @return the slot of the point, for removing it
+     */
+    public int add(double[] point, long id, T item) {
+        if (this.numDimensions < 0) {
+            this.numDimensions = point.length;
+        }
+        int slot = allocateSlot();
+        System.arraycopy(point, 0, this.coordinates,
+                slot * this.numDimensions, this.numDimensions);
+        this.ids[slot] = id;
+        this.items[slot] = item;
+
+        int ball = -1;
+        double ballDistance = Double.MAX_VALUE;
+        for (int i = 0; i < this.numActiveBalls; i++) {
+            int b = this.activeBalls[i];
+            if (this.ballSize[b] < BALL_CAPACITY) {
+                double distance = distance(this.routing, b, point);
+                if (distance < ballDistance) {
+                    ball = b;
+                    ballDistance = distance;
+                }
+            }
+        }
+        if (ball < 0 || ballDistance > this.ballRadius) {
+            ball = allocateBall(point);
+            ballDistance = 0.0;
+        }
+        int position = this.ballSize[ball]++;
+        this.ballSlots[ball * BALL_CAPACITY + position] = slot;
+        this.ballOfSlot[slot] = ball;
+        this.positionInBall[slot] = position;
+        this.distanceToRouting[slot] = ballDistance;
+        if (ballDistance > this.coveringRadius[ball]) {
+            this.coveringRadius[ball] = ballDistance;
+        }
+        this.size++;
+        return slot;
+    }
+
+    /**
+     * Removes a point from the index. Its slot may be given to the next
+     * point added.
+     *
+     * @param slot the slot returned when the point was added
+     */
+    public void remove(int slot) {
+        int ball = this.ballOfSlot[slot];
+        int last = --this.ballSize[ball];
+        int moved = this.ballSlots[ball * BALL_CAPACITY + last];
+        this.ballSlots[ball * BALL_CAPACITY + this.positionInBall[slot]] = moved;
+        this.positionInBall[moved] = this.positionInBall[slot];
+        if (last == 0) {
+            releaseBall(ball);
+        }
+        this.items[slot] = null;
+        this.freeSlots[this.numFreeSlots++] = slot;
+        this.size--;
+    }
+
+    /**
+     * Finds all the points at distance at most <code>radius</code> from a
+     * point, and reports them to a callback.
+     *
+     * @param point the query point
+     * @param radius the range
+     * @param callback the callback receiving the points in range
+     */
+    @SuppressWarnings("unchecked")
+    public void rangeSearch(double[] point, double radius,
+            RangeSearchCallback<? super T> callback) {
+        for (int i = 0; i < this.numActiveBalls; i++) {
+            int ball = this.activeBalls[i];
+            double toRouting = distance(this.routing, ball, point);
+            // widened a little, so rounding never skips a point in range
+            double range = radius + SLACK * (radius + toRouting);
+            if (toRouting - this.coveringRadius[ball] > range) {
+                continue;
+            }
+            int start = ball * BALL_CAPACITY;
+            int end = start + this.ballSize[ball];
+            for (int j = start; j < end; j++) {
+                int slot = this.ballSlots[j];
+                if (Math.abs(toRouting - this.distanceToRouting[slot]) > range) {
+                    continue;
+                }
+                double distance = distance(this.coordinates, slot, point);
+                if (distance <= radius) {
+                    callback.found((T) this.items[slot], this.ids[slot], distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the items of all the points to a collection, in the order of
+     * their slots.
+     */
+    @SuppressWarnings("unchecked")
+    public void getItems(Collection<? super T> collection) {
+        for (int slot = 0; slot < this.numSlots; slot++) {
+            if (this.items[slot] != null) {
+                collection.add((T) this.items[slot]);
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (this.numFreeSlots > 0) {
+            return this.freeSlots[--this.numFreeSlots];
+        }
+        if (this.numSlots == this.ids.length) {
+            int capacity = Math.max(16, 2 * this.numSlots);
+            this.coordinates = grow(this.coordinates, capacity * this.numDimensions);
+            this.ids = grow(this.ids, capacity);
+            Object[] newItems = new Object[capacity];
+            System.arraycopy(this.items, 0, newItems, 0, this.items.length);
+            this.items = newItems;
+            this.distanceToRouting = grow(this.distanceToRouting, capacity);
+            this.ballOfSlot = grow(this.ballOfSlot, capacity);
+            this.positionInBall = grow(this.positionInBall, capacity);
+            this.freeSlots = grow(this.freeSlots, capacity);
+        }
+        return this.numSlots++;
+    }
+
+    private int allocateBall(double[] point) {
+        int ball;
+        if (this.numFreeBalls > 0) {
+            ball = this.freeBalls[--this.numFreeBalls];
+        } else {
+            if (this.numBalls == this.ballSize.length) {
+                int capacity = Math.max(4, 2 * this.numBalls);
+                this.routing = grow(this.routing, capacity * this.numDimensions);
+                this.coveringRadius = grow(this.coveringRadius, capacity);
+                this.ballSize = grow(this.ballSize, capacity);
+                this.ballSlots = grow(this.ballSlots, capacity * BALL_CAPACITY);
+                this.freeBalls = grow(this.freeBalls, capacity);
+                this.activeBalls = grow(this.activeBalls, capacity);
+                this.activePosition = grow(this.activePosition, capacity);
+            }
+            ball = this.numBalls++;
+        }
+        System.arraycopy(point, 0, this.routing, ball * this.numDimensions,
+                this.numDimensions);
+        this.coveringRadius[ball] = 0.0;
+        this.ballSize[ball] = 0;
+        this.activePosition[ball] = this.numActiveBalls;
+        this.activeBalls[this.numActiveBalls++] = ball;
+        return ball;
+    }
+
+    private void releaseBall(int ball) {
+        int position = this.activePosition[ball];
+        int moved = this.activeBalls[--this.numActiveBalls];
+        this.activeBalls[position] = moved;
+        this.activePosition[moved] = position;
+        this.freeBalls[this.numFreeBalls++] = ball;
+    }
+
+    // same computation as DistanceFunctions.euclidean
+    private double distance(double[] points, int index, double[] point) {
+        int offset = index * this.numDimensions;
+        double distance = 0;
+        for (int i = 0; i < this.numDimensions; i++) {
+            double diff = point[i] - points[offset + i];
+            distance += diff * diff;
+        }
+        return Math.sqrt(distance);
+    }
+
+    private static double[] grow(double[] array, int length) {
+        double[] grown = new double[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static long[] grow(long[] array, int length) {
+        long[] grown = new long[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] grown = new int[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -77,6 +77,24 @@ public class DoubleVector extends AbstractMOAObject {
         }
     }
 
+    // same as normalizing a copy, scaling it by weight and adding it,
+    // ignores values that do not sum to more than zero
+    public void addNormalizedValues(double[] toAdd, double weight) {
+        double sum = 0.0;
+        for (double element : toAdd) {
+            sum += element;
+        }
+        if (sum > 0.0) {
+            if (toAdd.length > this.array.length) {
+                setArrayLength(toAdd.length);
+            }
+            double multiplier = 1.0 / sum;
+            for (int i = 0; i < toAdd.length; i++) {
+                this.array[i] += toAdd[i] * multiplier * weight;
+            }
+        }
+    }
+
     public void subtractValues(DoubleVector toSubtract) {
         subtractValues(toSubtract.getArrayRef());
     }
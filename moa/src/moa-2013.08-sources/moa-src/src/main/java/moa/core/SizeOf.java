@@ -38,7 +38,7 @@ public class SizeOf {
      *
      * @return true if the agent is present, false otherwise
      */
-    protected static synchronized boolean isPresent() {
+    public static synchronized boolean isPresent() {
         if (m_Present == null) {
             try {
                 SizeOfAgent.fullSizeOf(new Integer(1));
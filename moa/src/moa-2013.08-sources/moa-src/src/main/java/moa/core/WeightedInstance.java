@@ -0,0 +1,318 @@
+/*
+ *    WeightedInstance.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Serializable;
+import java.util.Enumeration;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * View of an instance with a different weight. Reads go to the wrapped
+ * instance, so a weighted instance can be passed to a learner without
+ * copying its values. The first call to a method that changes the values
+ * makes a private copy of the wrapped instance, so the original is never
+ * modified, as if the learner had been given a copy.
+ *
+ * @version $Revision: 7 $
+ */
+public class WeightedInstance implements Instance, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected Instance instance;
+
+    protected double weight;
+
+    protected boolean ownsInstance = false;
+
+    /**
+     * Creates a view of an instance with the given weight.
+     *
+     * @param instance the instance to wrap
+     * @param weight the weight of the view
+     */
+    public WeightedInstance(Instance instance, double weight) {
+        if (instance instanceof WeightedInstance) {
+            instance = ((WeightedInstance) instance).instance;
+        }
+        this.instance = instance;
+        this.weight = weight;
+    }
+
+    /**
+     * Gets the instance this view reads its values from.
+     *
+     * @return the wrapped instance
+     */
+    public Instance getInstance() {
+        return this.instance;
+    }
+
+    protected Instance writableInstance() {
+        if (!this.ownsInstance) {
+            this.instance = (Instance) this.instance.copy();
+            this.ownsInstance = true;
+        }
+        return this.instance;
+    }
+
+    @Override
+    public double weight() {
+        return this.weight;
+    }
+
+    @Override
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    @Override
+    public Object copy() {
+        Instance copy = (Instance) this.instance.copy();
+        copy.setWeight(this.weight);
+        return copy;
+    }
+
+    @Override
+    public Attribute attribute(int index) {
+        return this.instance.attribute(index);
+    }
+
+    @Override
+    public Attribute attributeSparse(int indexOfIndex) {
+        return this.instance.attributeSparse(indexOfIndex);
+    }
+
+    @Override
+    public Attribute classAttribute() {
+        return this.instance.classAttribute();
+    }
+
+    @Override
+    public int classIndex() {
+        return this.instance.classIndex();
+    }
+
+    @Override
+    public boolean classIsMissing() {
+        return this.instance.classIsMissing();
+    }
+
+    @Override
+    public double classValue() {
+        return this.instance.classValue();
+    }
+
+    @Override
+    public Instances dataset() {
+        return this.instance.dataset();
+    }
+
+    @Override
+    public void deleteAttributeAt(int position) {
+        writableInstance().deleteAttributeAt(position);
+    }
+
+    @Override
+    public Enumeration enumerateAttributes() {
+        return this.instance.enumerateAttributes();
+    }
+
+    @Override
+    public boolean equalHeaders(Instance inst) {
+        return this.instance.equalHeaders(inst);
+    }
+
+    @Override
+    public String equalHeadersMsg(Instance inst) {
+        return this.instance.equalHeadersMsg(inst);
+    }
+
+    @Override
+    public boolean hasMissingValue() {
+        return this.instance.hasMissingValue();
+    }
+
+    @Override
+    public int index(int position) {
+        return this.instance.index(position);
+    }
+
+    @Override
+    public void insertAttributeAt(int position) {
+        writableInstance().insertAttributeAt(position);
+    }
+
+    @Override
+    public boolean isMissing(int attIndex) {
+        return this.instance.isMissing(attIndex);
+    }
+
+    @Override
+    public boolean isMissingSparse(int indexOfIndex) {
+        return this.instance.isMissingSparse(indexOfIndex);
+    }
+
+    @Override
+    public boolean isMissing(Attribute att) {
+        return this.instance.isMissing(att);
+    }
+
+    @Override
+    public Instance mergeInstance(Instance inst) {
+        return this.instance.mergeInstance(inst);
+    }
+
+    @Override
+    public int numAttributes() {
+        return this.instance.numAttributes();
+    }
+
+    @Override
+    public int numClasses() {
+        return this.instance.numClasses();
+    }
+
+    @Override
+    public int numValues() {
+        return this.instance.numValues();
+    }
+
+    @Override
+    public void replaceMissingValues(double[] array) {
+        writableInstance().replaceMissingValues(array);
+    }
+
+    @Override
+    public void setClassMissing() {
+        writableInstance().setClassMissing();
+    }
+
+    @Override
+    public void setClassValue(double value) {
+        writableInstance().setClassValue(value);
+    }
+
+    @Override
+    public void setClassValue(String value) {
+        writableInstance().setClassValue(value);
+    }
+
+    @Override
+    public void setDataset(Instances instances) {
+        writableInstance().setDataset(instances);
+    }
+
+    @Override
+    public void setMissing(int attIndex) {
+        writableInstance().setMissing(attIndex);
+    }
+
+    @Override
+    public void setMissing(Attribute att) {
+        writableInstance().setMissing(att);
+    }
+
+    @Override
+    public void setValue(int attIndex, double value) {
+        writableInstance().setValue(attIndex, value);
+    }
+
+    @Override
+    public void setValueSparse(int indexOfIndex, double value) {
+        writableInstance().setValueSparse(indexOfIndex, value);
+    }
+
+    @Override
+    public void setValue(int attIndex, String value) {
+        writableInstance().setValue(attIndex, value);
+    }
+
+    @Override
+    public void setValue(Attribute att, double value) {
+        writableInstance().setValue(att, value);
+    }
+
+    @Override
+    public void setValue(Attribute att, String value) {
+        writableInstance().setValue(att, value);
+    }
+
+    @Override
+    public Instances relationalValue(int attIndex) {
+        return this.instance.relationalValue(attIndex);
+    }
+
+    @Override
+    public Instances relationalValue(Attribute att) {
+        return this.instance.relationalValue(att);
+    }
+
+    @Override
+    public String stringValue(int attIndex) {
+        return this.instance.stringValue(attIndex);
+    }
+
+    @Override
+    public String stringValue(Attribute att) {
+        return this.instance.stringValue(att);
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        return this.instance.toDoubleArray();
+    }
+
+    @Override
+    public String toStringNoWeight() {
+        return this.instance.toStringNoWeight();
+    }
+
+    @Override
+    public String toString(int attIndex) {
+        return this.instance.toString(attIndex);
+    }
+
+    @Override
+    public String toString(Attribute att) {
+        return this.instance.toString(att);
+    }
+
+    @Override
+    public String toString() {
+        return ((Instance) copy()).toString();
+    }
+
+    @Override
+    public double value(int attIndex) {
+        return this.instance.value(attIndex);
+    }
+
+    @Override
+    public double valueSparse(int indexOfIndex) {
+        return this.instance.valueSparse(indexOfIndex);
+    }
+
+    @Override
+    public double value(Attribute att) {
+        return this.instance.value(att);
+    }
+}
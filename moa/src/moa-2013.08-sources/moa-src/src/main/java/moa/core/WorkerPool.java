@@ -0,0 +1,176 @@
+/*
+ *    WorkerPool.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fixed pool of daemon worker threads used to fan out independent pieces of
+ * work, such as the members of an ensemble, over several cores.
+ *
+ * The calling thread always takes part in the work and claims chunks from
+ * the same counter as the workers, so a job may safely use the pool again
+ * from inside a job without deadlocking. Pools are shared per size and never
+ * need to be shut down, which keeps learners serializable and cheap to copy.
+ *
+ * @version $Revision: 7 $
+ */
+public class WorkerPool {
+
+    /**
+     * A piece of work indexed by an integer in [0, n).
+     */
+    public interface Job {
+
+        /**
+         * Performs the work for one index.
+         *
+         * @param index the index of the item to process
+         */
+        public void run(int index);
+    }
+
+    /** Number of chunks handed out per thread, to balance uneven items. */
+    protected static final int CHUNKS_PER_THREAD = 4;
+
+    protected static final Map<Integer, WorkerPool> sharedPools = new HashMap<Integer, WorkerPool>();
+
+    protected final int numThreads;
+
+    protected final ExecutorService executor;
+
+    /**
+     * Gets the shared pool with the given number of threads, creating it on
+     * first use. The calling thread counts as one of the threads.
+     *
+     * @param numThreads the number of threads, values below 1 mean all
+     * available processors
+     * @return the shared pool
+     */
+    public static synchronized WorkerPool getShared(int numThreads) {
+        if (numThreads < 1) {
+            numThreads = Runtime.getRuntime().availableProcessors();
+        }
+        WorkerPool pool = sharedPools.get(numThreads);
+        if (pool == null) {
+            pool = new WorkerPool(numThreads);
+            sharedPools.put(numThreads, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Creates a pool with the given number of threads, including the
+     * calling thread.
+     *
+     * @param numThreads the number of threads
+     */
+    public WorkerPool(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        if (this.numThreads > 1) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(this.numThreads - 1,
+                    new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "moa-worker-"
+                                    + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public int getNumThreads() {
+        return this.numThreads;
+    }
+
+    /**
+     * Runs the job for every index in [0, numItems) and returns when all of
+     * them are done. Items are split into contiguous chunks. Any exception
+     * thrown by the job is rethrown in the calling thread.
+     *
+     * @param numItems the number of items
+     * @param job the job to run for each item
+     */
+    public void forEach(final int numItems, final Job job) {
+        if ((this.executor == null) || (numItems <= 1)) {
+            for (int i = 0; i < numItems; i++) {
+                job.run(i);
+            }
+            return;
+        }
+        final int numChunks = Math.min(numItems, this.numThreads * CHUNKS_PER_THREAD);
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch chunksDone = new CountDownLatch(numChunks);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Runnable worker = new Runnable() {
+
+            @Override
+            public void run() {
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < numChunks) {
+                    try {
+                        if (failure.get() == null) {
+                            int end = (int) ((long) numItems * (chunk + 1) / numChunks);
+                            for (int i = (int) ((long) numItems * chunk / numChunks); i < end; i++) {
+                                job.run(i);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        chunksDone.countDown();
+                    }
+                }
+            }
+        };
+        int numHelpers = Math.min(this.numThreads - 1, numChunks - 1);
+        for (int i = 0; i < numHelpers; i++) {
+            this.executor.execute(worker);
+        }
+        worker.run();
+        try {
+            chunksDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for workers", e);
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+}
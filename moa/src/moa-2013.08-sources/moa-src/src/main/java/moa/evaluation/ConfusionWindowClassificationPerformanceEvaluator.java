@@ -0,0 +1,259 @@
+/*
+ *    ConfusionWindowClassificationPerformanceEvaluator.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.evaluation;
+
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.IntOption;
+import moa.tasks.TaskMonitor;
+import weka.core.Instance;
+import weka.core.Utils;
+
+/**
+ * Classification evaluator that keeps the confusion matrix of a sliding
+ * window. The true class, predicted class and weight of the last instances
+ * are kept in ring buffers, and when an instance leaves the window its
+ * weight is subtracted from the matrix, so every result is added in constant
+ * time whatever the number of classes. The agreement by chance needed for
+ * kappa is kept up to date in the same way.
+ *
+ * <p>Besides accuracy and kappa it reports kappa-temporal, which compares
+ * with a classifier that predicts the class of the previous instance, kappa
+ * M, which compares with a classifier that predicts the majority class of
+ * the window, the recall of every class and their geometric mean. Classes
+ * with no instance in the window are left out of the geometric mean.</p>
+ *
+ * @version $Revision: 7 $
+ */
+public class ConfusionWindowClassificationPerformanceEvaluator extends AbstractOptionHandler
+        implements ClassificationPerformanceEvaluator {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption widthOption = new IntOption("width",
+            'w', "Size of Window", 1000, 1, Integer.MAX_VALUE);
+
+    protected double totalWeightObserved;
+
+    protected int numClasses;
+
+    // confusion[trueClass * numClasses + predictedClass]
+    protected double[] confusion;
+
+    // weight of every true class and every predicted class in the window
+    protected double[] trueWeight;
+
+    protected double[] predictedWeight;
+
+    // sum over classes of trueWeight * predictedWeight
+    protected double chanceProduct;
+
+    protected double weightObserved;
+
+    protected double weightCorrect;
+
+    protected double weightNoChangeCorrect;
+
+    protected int[] windowTrueClass;
+
+    protected int[] windowPredictedClass;
+
+    protected double[] windowWeight;
+
+    protected boolean[] windowNoChangeCorrect;
+
+    protected int posWindow;
+
+    protected int lastTrueClass;
+
+    @Override
+    public void reset() {
+        reset(this.numClasses);
+    }
+
+    public void reset(int numClasses) {
+        int width = this.widthOption.getValue();
+        this.numClasses = numClasses;
+        this.confusion = new double[numClasses * numClasses];
+        this.trueWeight = new double[numClasses];
+        this.predictedWeight = new double[numClasses];
+        this.chanceProduct = 0.0;
+        this.weightObserved = 0.0;
+        this.weightCorrect = 0.0;
+        this.weightNoChangeCorrect = 0.0;
+        this.windowTrueClass = new int[width];
+        this.windowPredictedClass = new int[width];
+        this.windowWeight = new double[width];
+        this.windowNoChangeCorrect = new boolean[width];
+        this.posWindow = 0;
+        this.lastTrueClass = -1;
+        this.totalWeightObserved = 0.0;
+    }
+
+    @Override
+    public void addResult(Instance inst, double[] classVotes) {
+        double weight = inst.weight();
+        int trueClass = (int) inst.classValue();
+        if (weight > 0.0) {
+            if (this.totalWeightObserved == 0) {
+                reset(inst.dataset().numClasses());
+            }
+            this.totalWeightObserved += weight;
+            int predictedClass = Utils.maxIndex(classVotes);
+            boolean noChangeCorrect = trueClass == this.lastTrueClass;
+            this.lastTrueClass = trueClass;
+
+            int pos = this.posWindow;
+            double oldWeight = this.windowWeight[pos];
+            if (oldWeight > 0.0) {
+                update(this.windowTrueClass[pos], this.windowPredictedClass[pos],
+                        this.windowNoChangeCorrect[pos], -oldWeight);
+            }
+            update(trueClass, predictedClass, noChangeCorrect, weight);
+            this.windowTrueClass[pos] = trueClass;
+            this.windowPredictedClass[pos] = predictedClass;
+            this.windowWeight[pos] = weight;
+            this.windowNoChangeCorrect[pos] = noChangeCorrect;
+            this.posWindow = pos + 1 == this.windowWeight.length ? 0 : pos + 1;
+        }
+    }
+
+    // adds the weight, negative to take an instance out, to the window sums
+    protected void update(int trueClass, int predictedClass,
+            boolean noChangeCorrect, double weight) {
+        this.confusion[trueClass * this.numClasses + predictedClass] += weight;
+        // the product of one class grows by (t + w)(p + w) - t p when both
+        // its weights change, by w p or w t when only one of them does
+        if (trueClass == predictedClass) {
+            this.chanceProduct += weight * (this.trueWeight[trueClass]
+                    + this.predictedWeight[trueClass] + weight);
+        } else {
+            this.chanceProduct += weight * this.predictedWeight[trueClass];
+            this.chanceProduct += weight * this.trueWeight[predictedClass];
+        }
+        this.trueWeight[trueClass] += weight;
+        this.predictedWeight[predictedClass] += weight;
+        this.weightObserved += weight;
+        if (trueClass == predictedClass) {
+            this.weightCorrect += weight;
+        }
+        if (noChangeCorrect) {
+            this.weightNoChangeCorrect += weight;
+        }
+    }
+
+    @Override
+    public Measurement[] getPerformanceMeasurements() {
+        Measurement[] measurements = new Measurement[6 + this.numClasses];
+        measurements[0] = new Measurement("classified instances",
+                this.totalWeightObserved);
+        measurements[1] = new Measurement("classifications correct (percent)",
+                getFractionCorrectlyClassified() * 100.0);
+        measurements[2] = new Measurement("Kappa Statistic (percent)",
+                getKappaStatistic() * 100.0);
+        measurements[3] = new Measurement("Kappa Temporal Statistic (percent)",
+                getKappaTemporalStatistic() * 100.0);
+        measurements[4] = new Measurement("Kappa M Statistic (percent)",
+                getKappaMStatistic() * 100.0);
+        measurements[5] = new Measurement("G-Mean (percent)",
+                getGMean() * 100.0);
+        for (int i = 0; i < this.numClasses; i++) {
+            measurements[6 + i] = new Measurement("Recall for class " + i
+                    + " (percent)", getRecall(i) * 100.0);
+        }
+        return measurements;
+    }
+
+    public double getTotalWeightObserved() {
+        return this.weightObserved;
+    }
+
+    public double getFractionCorrectlyClassified() {
+        return this.weightObserved > 0.0 ? this.weightCorrect
+                / this.weightObserved : 0.0;
+    }
+
+    public double getFractionIncorrectlyClassified() {
+        return 1.0 - getFractionCorrectlyClassified();
+    }
+
+    public double getKappaStatistic() {
+        if (this.weightObserved > 0.0) {
+            double p0 = getFractionCorrectlyClassified();
+            double pc = this.chanceProduct
+                    / (this.weightObserved * this.weightObserved);
+            return (p0 - pc) / (1.0 - pc);
+        } else {
+            return 0;
+        }
+    }
+
+    public double getKappaTemporalStatistic() {
+        if (this.weightObserved > 0.0) {
+            double p0 = getFractionCorrectlyClassified();
+            double pe = this.weightNoChangeCorrect / this.weightObserved;
+            return (p0 - pe) / (1.0 - pe);
+        } else {
+            return 0;
+        }
+    }
+
+    public double getKappaMStatistic() {
+        if (this.weightObserved > 0.0) {
+            double majority = 0.0;
+            for (int i = 0; i < this.numClasses; i++) {
+                majority = Math.max(majority, this.trueWeight[i]);
+            }
+            double p0 = getFractionCorrectlyClassified();
+            double pm = majority / this.weightObserved;
+            return (p0 - pm) / (1.0 - pm);
+        } else {
+            return 0;
+        }
+    }
+
+    public double getRecall(int classIndex) {
+        double weight = this.trueWeight[classIndex];
+        return weight > 0.0 ? this.confusion[classIndex * this.numClasses
+                + classIndex] / weight : 0.0;
+    }
+
+    public double getGMean() {
+        double product = 1.0;
+        int present = 0;
+        for (int i = 0; i < this.numClasses; i++) {
+            if (this.trueWeight[i] > 0.0) {
+                product *= getRecall(i);
+                present++;
+            }
+        }
+        return present > 0 ? Math.pow(product, 1.0 / present) : 0.0;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        Measurement.getMeasurementsDescription(getPerformanceMeasurements(),
+                sb, indent);
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+    }
+}
@@ -311,7 +311,8 @@ public class TaskTextViewerPanel extends JPanel implements ActionListener {
                     } else if (s.equals("evaluation time (cpu seconds)")
                             || s.equals("total train time")) {
                         timeColumn = i;
-                    } else if (s.equals("model serialized size (bytes)")) {
+                    } else if (s.equals("model serialized size (bytes)")
+                            || s.equals("model size estimate (bytes)")) {
                         memoryColumn = i;
                     }
                     i++;
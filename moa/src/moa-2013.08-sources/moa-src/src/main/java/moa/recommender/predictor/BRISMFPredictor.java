@@ -77,8 +77,13 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
             "How many iterations to use.",
             100, 0, Integer.MAX_VALUE);
 
+    public IntOption threadsOption = new IntOption("threads",
+            't',
+            "How many threads to use in batch training, 1 keeps the ratings in their original order.",
+            1, 1, Integer.MAX_VALUE);
+
     public ClassOption dataOption = new ClassOption("data", 'd',
-            "Data", RecommenderData.class, "moa.recommender.data.DiskRecommenderData");
+            "Data", RecommenderData.class, "moa.recommender.data.MemRecommenderData");
      
     
     @Override
@@ -86,6 +91,7 @@ public class BRISMFPredictor extends AbstractOptionHandler implements RatingPred
         RecommenderData data = (RecommenderData) getPreparedClassOption(this.dataOption);
         rp = new moa.recommender.rc.predictor.impl.BRISMFPredictor(featuresOption.getValue(), data.getData(), lRateOption.getValue(), rFactorOption.getValue(), false);
         rp.setNIterations(iterationsOption.getValue());
+        rp.setNThreads(threadsOption.getValue());
     }
 
     @Override
@@ -39,6 +39,11 @@ public interface RecommenderData extends Serializable {
     public void removeRating(int userID, int itemID);
     public SparseVector getRatingsUser(int userID); //TODO:Iterator version for this?
     public SparseVector getRatingsItem(int itemID); //TODO:Iterator version for this?
+    //Copy the ratings of a user/item into arrays with room for all of them,
+    //that is, for countRatingsUser/countRatingsItem ratings, returning how
+    //many were copied
+    public int getRatingsUser(int userID, int[] itemIDs, double[] ratings);
+    public int getRatingsItem(int itemID, int[] userIDs, double[] ratings);
     public double getRating(int userID, int itemID);
     public int getNumItems();
     public int getNumUsers();
@@ -60,7 +60,7 @@ public class MemRecommenderData extends AbstractRecommenderData {
         private boolean calculated = false;
         private boolean result = true;
         
-        RatingIterator() throws Exception {
+        RatingIterator() {
         }
         
         @Override
@@ -69,33 +69,15 @@ public class MemRecommenderData extends AbstractRecommenderData {
                 return result;
             
             calculated = true;
-            result = false;
-            if (ratsIt == null) {
-                if (!ratingsUser.isEmpty()) {
-                    userIt = ratingsUser.keySet().iterator();
-                    if (userIt.hasNext()) {
-                        Integer first = userIt.next();
-                        currentUser = first;
-                        ratsIt = ratingsUser.get(first).entrySet().iterator();
-                        if (ratsIt.hasNext()) {
-                            result = true;
-                        }
-                    }
-                }
-            }
-            else {
-                if (ratsIt.hasNext()) {
-                    result = true;
-                }
-                else if (userIt.hasNext()) {
-                    Integer first = userIt.next();
-                    currentUser = first;
-                    ratsIt = ratingsUser.get(first).entrySet().iterator();
-                    if (ratsIt.hasNext()) {
-                        result = true;
-                    }
-                }
+            if (userIt == null)
+                userIt = ratingsUser.keySet().iterator();
+            //Users whose ratings were all removed are skipped
+            while ((ratsIt == null || !ratsIt.hasNext()) && userIt.hasNext()) {
+                Integer next = userIt.next();
+                currentUser = next;
+                ratsIt = ratingsUser.get(next).entrySet().iterator();
             }
+            result = (ratsIt != null && ratsIt.hasNext());
             return result;
         }
 
@@ -246,6 +228,28 @@ public class MemRecommenderData extends AbstractRecommenderData {
         return new SparseVector(ratUser);
     }
     
+    @Override
+    public int getRatingsUser(int userID, int[] itemIDs, double[] ratings) {
+        return copyRatings(ratingsUser.get(userID), itemIDs, ratings);
+    }
+
+    @Override
+    public int getRatingsItem(int itemID, int[] userIDs, double[] ratings) {
+        return copyRatings(ratingsItem.get(itemID), userIDs, ratings);
+    }
+
+    private static int copyRatings(Map<Integer, Double> rats, int[] ids, double[] ratings) {
+        int n = 0;
+        if (rats != null) {
+            for (Entry<Integer, Double> entry : rats.entrySet()) {
+                ids[n] = entry.getKey();
+                ratings[n] = entry.getValue();
+                ++n;
+            }
+        }
+        return n;
+    }
+    
     @Override
     public double getRating(int userID, int itemID) {
         Map<Integer, Double> ratUser = ratingsUser.get(userID);
@@ -313,20 +317,22 @@ public class MemRecommenderData extends AbstractRecommenderData {
 
     @Override
     public int countRatingsUser(int userID) {
-        EntityStats stats = usersStats.get(userID);
-        return (stats != null ? (int)stats.num : 0);
+        //The stats can drift from the stored ratings when users or items
+        //are removed (see the FIXMEs above), while this is the number of
+        //ratings getRatingsUser copies
+        Map<Integer, Double> ratUser = ratingsUser.get(userID);
+        return (ratUser != null ? ratUser.size() : 0);
     }
 
     @Override
     public int countRatingsItem(int itemID) {
-        EntityStats stats = itemsStats.get(itemID);
-        return (stats != null ? (int)stats.num : 0);
+        Map<Integer, Double> ratItem = ratingsItem.get(itemID);
+        return (ratItem != null ? ratItem.size() : 0);
     }
 
     @Override
     public Iterator<Rating> ratingIterator() {
-        // TODO Auto-generated method stub
-        return null;
+        return new RatingIterator();
     }
 
     @Override
@@ -0,0 +1,457 @@
+/*
+ *    PrimitiveRecommenderData.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package moa.recommender.rc.data.impl;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import moa.recommender.rc.data.AbstractRecommenderData;
+import moa.recommender.rc.utils.IntIntHashMap;
+import moa.recommender.rc.utils.Rating;
+import moa.recommender.rc.utils.SparseVector;
+
+/**
+ * In memory rating store without boxing. The ratings of every user and of
+ * every item are kept in a pair of growing arrays, ids and ratings, in the
+ * order they were first set, with an open addressing map from id to position
+ * for updates. Users and items are found through open addressing maps from
+ * id to row. The arrays can be copied with <code>getRatingsUser</code> and
+ * <code>getRatingsItem</code> into the caller's buffers.
+ */
+public class PrimitiveRecommenderData extends AbstractRecommenderData {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Ratings of one user or item.
+     */
+    protected static class RatingList implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public int[] ids = new int[4];
+        public double[] ratings = new double[4];
+        public int size = 0;
+        public double sum = 0;
+        protected IntIntHashMap positions = new IntIntHashMap();
+
+        public double get(int id) {
+            int pos = positions.get(id);
+            return (pos != IntIntHashMap.NO_VALUE ? ratings[pos] : Double.NaN);
+        }
+
+        // returns the replaced rating, NaN if there was none
+        public double set(int id, double rating) {
+            int pos = positions.get(id);
+            if (pos != IntIntHashMap.NO_VALUE) {
+                double old = ratings[pos];
+                ratings[pos] = rating;
+                sum += rating - old;
+                return old;
+            }
+            if (size == ids.length) {
+                int[] newIds = new int[2 * size];
+                double[] newRatings = new double[2 * size];
+                System.arraycopy(ids, 0, newIds, 0, size);
+                System.arraycopy(ratings, 0, newRatings, 0, size);
+                ids = newIds;
+                ratings = newRatings;
+            }
+            ids[size] = id;
+            ratings[size] = rating;
+            positions.put(id, size);
+            ++size;
+            sum += rating;
+            return Double.NaN;
+        }
+
+        // returns the removed rating, NaN if there was none
+        public double remove(int id) {
+            int pos = positions.remove(id);
+            if (pos == IntIntHashMap.NO_VALUE) {
+                return Double.NaN;
+            }
+            double old = ratings[pos];
+            sum -= old;
+            --size;
+            if (pos < size) {
+                // keep the array dense, the last rating takes the place
+                ids[pos] = ids[size];
+                ratings[pos] = ratings[size];
+                positions.put(ids[pos], pos);
+            }
+            return old;
+        }
+
+        public int copyTo(int[] destIds, double[] destRatings) {
+            System.arraycopy(ids, 0, destIds, 0, size);
+            System.arraycopy(ratings, 0, destRatings, 0, size);
+            return size;
+        }
+    }
+
+    /**
+     * Users or items, stored by row.
+     */
+    protected static class Entities implements Serializable {
+        private static final long serialVersionUID = 1L;
+        protected IntIntHashMap rows = new IntIntHashMap();
+        protected int[] ids = new int[16];
+        protected RatingList[] lists = new RatingList[16];
+        protected int[] freeRows = new int[16];
+        protected int nFreeRows = 0;
+        protected int nRows = 0;
+
+        public RatingList get(int id) {
+            int row = rows.get(id);
+            return (row != IntIntHashMap.NO_VALUE ? lists[row] : null);
+        }
+
+        public RatingList getOrAdd(int id) {
+            int row = rows.get(id);
+            if (row != IntIntHashMap.NO_VALUE) {
+                return lists[row];
+            }
+            if (nFreeRows > 0) {
+                row = freeRows[--nFreeRows];
+            } else {
+                if (nRows == lists.length) {
+                    int[] newIds = new int[2 * nRows];
+                    RatingList[] newLists = new RatingList[2 * nRows];
+                    int[] newFreeRows = new int[2 * nRows];
+                    System.arraycopy(ids, 0, newIds, 0, nRows);
+                    System.arraycopy(lists, 0, newLists, 0, nRows);
+                    ids = newIds;
+                    lists = newLists;
+                    freeRows = newFreeRows;
+                }
+                row = nRows++;
+            }
+            ids[row] = id;
+            lists[row] = new RatingList();
+            rows.put(id, row);
+            return lists[row];
+        }
+
+        public RatingList remove(int id) {
+            int row = rows.remove(id);
+            if (row == IntIntHashMap.NO_VALUE) {
+                return null;
+            }
+            RatingList list = lists[row];
+            lists[row] = null;
+            freeRows[nFreeRows++] = row;
+            return list;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+
+        public Set<Integer> getIds() {
+            Set<Integer> set = new HashSet<Integer>();
+            for (int row = 0; row < nRows; ++row) {
+                if (lists[row] != null) {
+                    set.add(ids[row]);
+                }
+            }
+            return set;
+        }
+
+        public void clear() {
+            rows.clear();
+            for (int row = 0; row < nRows; ++row) {
+                lists[row] = null;
+            }
+            nRows = 0;
+            nFreeRows = 0;
+        }
+    }
+
+    protected Entities users = new Entities();
+    protected Entities items = new Entities();
+
+    protected double sumRatings = 0;
+    protected int nRatings = 0;
+    protected double minRating = 0;
+    protected double maxRating = 0;
+
+    protected class RatingIterator implements Iterator<Rating> {
+        private int row = -1;
+        private int pos = 0;
+
+        RatingIterator() {
+            advance();
+        }
+
+        // moves to the next rating, or past the last row
+        private void advance() {
+            while (row < users.nRows
+                    && (row < 0 || users.lists[row] == null
+                    || pos >= users.lists[row].size)) {
+                ++row;
+                pos = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < users.nRows;
+        }
+
+        @Override
+        public Rating next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RatingList list = users.lists[row];
+            Rating rating = new Rating(users.ids[row], list.ids[pos], list.ratings[pos]);
+            ++pos;
+            advance();
+            return rating;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public void addUser(int userID, List<Integer> ratedItems, List<Double> ratings) {
+        super.addUser(userID, ratedItems, ratings);
+        users.getOrAdd(userID);
+        int n = ratedItems.size();
+        for (int i = 0; i < n; ++i)
+            auxSetRating(userID, ratedItems.get(i), ratings.get(i));
+    }
+
+    @Override
+    public void removeUser(int userID) {
+        super.removeUser(userID);
+        RatingList list = users.remove(userID);
+        if (list != null) {
+            for (int i = 0; i < list.size; ++i) {
+                RatingList itemList = items.get(list.ids[i]);
+                if (itemList != null) {
+                    itemList.remove(userID);
+                }
+                sumRatings -= list.ratings[i];
+                --nRatings;
+            }
+        }
+    }
+
+    @Override
+    public void addItem(int itemID, List<Integer> ratingUsers, List<Double> ratings) {
+        super.addItem(itemID, ratingUsers, ratings);
+        items.getOrAdd(itemID);
+        int n = ratingUsers.size();
+        for (int i = 0; i < n; ++i)
+            auxSetRating(ratingUsers.get(i), itemID, ratings.get(i));
+    }
+
+    @Override
+    public void removeItem(int itemID) {
+        super.removeItem(itemID);
+        RatingList list = items.remove(itemID);
+        if (list != null) {
+            for (int i = 0; i < list.size; ++i) {
+                RatingList userList = users.get(list.ids[i]);
+                if (userList != null) {
+                    userList.remove(itemID);
+                }
+                sumRatings -= list.ratings[i];
+                --nRatings;
+            }
+        }
+    }
+
+    private void auxSetRating(int userID, int itemID, double rating) {
+        if (nRatings == 0) {
+            minRating = rating;
+            maxRating = rating;
+        }
+        else {
+            minRating = Math.min(minRating, rating);
+            maxRating = Math.max(maxRating, rating);
+        }
+
+        double old = users.getOrAdd(userID).set(itemID, rating);
+        items.getOrAdd(itemID).set(userID, rating);
+        if (!Double.isNaN(old)) {
+            sumRatings -= old;
+            --nRatings;
+        }
+        sumRatings += rating;
+        ++nRatings;
+    }
+
+    @Override
+    public void setRating(int userID, int itemID, double rating) {
+        super.setRating(userID, itemID, rating);
+        auxSetRating(userID, itemID, rating);
+    }
+
+    @Override
+    public void removeRating(int userID, int itemID) {
+        super.removeRating(userID, itemID);
+        RatingList userList = users.get(userID);
+        RatingList itemList = items.get(itemID);
+        if (userList != null && itemList != null) {
+            double old = userList.remove(itemID);
+            itemList.remove(userID);
+            if (!Double.isNaN(old)) {
+                sumRatings -= old;
+                --nRatings;
+            }
+        }
+    }
+
+    private static SparseVector toSparseVector(RatingList list) {
+        HashMap<Integer, Double> map = new HashMap<Integer, Double>();
+        if (list != null) {
+            for (int i = 0; i < list.size; ++i)
+                map.put(list.ids[i], list.ratings[i]);
+        }
+        return new SparseVector(map);
+    }
+
+    @Override
+    public SparseVector getRatingsUser(int userID) {
+        return toSparseVector(users.get(userID));
+    }
+
+    @Override
+    public SparseVector getRatingsItem(int itemID) {
+        return toSparseVector(items.get(itemID));
+    }
+
+    @Override
+    public int getRatingsUser(int userID, int[] itemIDs, double[] ratings) {
+        RatingList list = users.get(userID);
+        return (list != null ? list.copyTo(itemIDs, ratings) : 0);
+    }
+
+    @Override
+    public int getRatingsItem(int itemID, int[] userIDs, double[] ratings) {
+        RatingList list = items.get(itemID);
+        return (list != null ? list.copyTo(userIDs, ratings) : 0);
+    }
+
+    @Override
+    public double getRating(int userID, int itemID) {
+        RatingList list = users.get(userID);
+        double rating = (list != null ? list.get(itemID) : Double.NaN);
+        return (!Double.isNaN(rating) ? rating : 0);
+    }
+
+    @Override
+    public int getNumItems() {
+        return items.size();
+    }
+
+    @Override
+    public int getNumUsers() {
+        return users.size();
+    }
+
+    @Override
+    public int getNumRatings() {
+        return nRatings;
+    }
+
+    @Override
+    public double getAvgRatingUser(int userID) {
+        return smoothedAverage(users.get(userID));
+    }
+
+    @Override
+    public double getAvgRatingItem(int itemID) {
+        return smoothedAverage(items.get(itemID));
+    }
+
+    private double smoothedAverage(RatingList list) {
+        double sum = (list != null ? list.sum : 0);
+        double num = (list != null ? list.size : 0);
+        return (getGlobalMean()*25 + sum)/(25 + num);
+    }
+
+    @Override
+    public double getMinRating() {
+        return minRating;
+    }
+
+    @Override
+    public double getMaxRating() {
+        return maxRating;
+    }
+
+    @Override
+    public Set<Integer> getUsers() {
+        return users.getIds();
+    }
+
+    @Override
+    public Set<Integer> getItems() {
+        return items.getIds();
+    }
+
+    @Override
+    public double getGlobalMean() {
+        return (nRatings > 0 ? sumRatings/(double)nRatings : (minRating + maxRating)/2.0);
+    }
+
+    @Override
+    public int countRatingsUser(int userID) {
+        RatingList list = users.get(userID);
+        return (list != null ? list.size : 0);
+    }
+
+    @Override
+    public int countRatingsItem(int itemID) {
+        RatingList list = items.get(itemID);
+        return (list != null ? list.size : 0);
+    }
+
+    @Override
+    public Iterator<Rating> ratingIterator() {
+        return new RatingIterator();
+    }
+
+    @Override
+    public boolean userExists(int userID) {
+        return users.get(userID) != null;
+    }
+
+    @Override
+    public boolean itemExists(int itemID) {
+        return items.get(itemID) != null;
+    }
+
+    @Override
+    public void clear() {
+        users.clear();
+        items.clear();
+        minRating = maxRating = 0;
+        sumRatings = nRatings = 0;
+    }
+}
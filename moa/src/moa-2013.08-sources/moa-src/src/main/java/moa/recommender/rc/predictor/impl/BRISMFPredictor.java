@@ -25,10 +25,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import moa.core.WorkerPool;
 import moa.recommender.rc.data.RecommenderData;
-import moa.recommender.rc.utils.Pair;
+import moa.recommender.rc.utils.Hash;
 import moa.recommender.rc.utils.Rating;
-import moa.recommender.rc.utils.SparseVector;
 import moa.recommender.rc.utils.Updatable;
 
 /**
@@ -55,6 +55,14 @@ import moa.recommender.rc.utils.Updatable;
  *      regularization</li>
  * <li> iterations - the number of iterations to be used when retraining
  *      user and item features (online training). </li>
+ * <li> threads - the number of threads used in batch training. With more
+ *      than one, users and items are split into as many blocks and the
+ *      ratings into a grid of user block by item block; every epoch is
+ *      run as a sequence of sub-epochs in which each thread trains a
+ *      different diagonal block (DSGD), so no two threads touch the same
+ *      feature vector. The result depends on the number of threads but
+ *      not on their scheduling. With one thread the ratings are visited
+ *      in their original order. </li>
  * </lu>
  * 
  */
@@ -69,6 +77,10 @@ public class BRISMFPredictor implements Updatable {
     protected double lRate = 0.01;
     protected double rFactor = 0.02;
     protected int nIterations = 30;
+    protected int nThreads = 1;
+    private int[] idBuf;
+    private double[] ratBuf;
+    private float[][] featsBuf;
     
     public void setLRate(double lRate) {
         this.lRate = lRate;
@@ -82,6 +94,10 @@ public class BRISMFPredictor implements Updatable {
         this.nIterations = nIterations; 
     }
     
+    public void setNThreads(int nThreads) {
+        this.nThreads = nThreads;
+    }
+    
     public RecommenderData getData() {
     	return data;
     }
@@ -123,28 +139,46 @@ public class BRISMFPredictor implements Updatable {
     }
     
     public double predictRating(float userFeats[], float itemFeats[]) {
-        double ret = data.getGlobalMean();
+        return predictRating(userFeats, itemFeats, data.getGlobalMean(),
+                data.getMinRating(), data.getMaxRating());
+    }
+    
+    //The data does not change while features are trained, so the train
+    //loops read its statistics once
+    private double predictRating(float userFeats[], float itemFeats[],
+            double mean, double minRating, double maxRating) {
+        double ret = mean;
         if (userFeats != null && itemFeats != null)
             for (int i = 0; i < nFeatures; ++i)
                 ret += userFeats[i]*itemFeats[i];
 
-        if (ret < data.getMinRating()) ret = data.getMinRating();
-        else if (ret > data.getMaxRating()) ret = data.getMaxRating();
+        if (ret < minRating) ret = minRating;
+        else if (ret > maxRating) ret = maxRating;
         
         return ret;
     }
     
     public float[] trainUserFeats(List<Integer> itm, List<Double> rat, int nIts) {
+        int n = toSlice(itm, rat);
+        return trainUserFeats(idBuf, ratBuf, n, nIts);
+    }
+    
+    public float[] trainUserFeats(int[] itm, double[] rat, int n, int nIts) {
         float[] userFeats = new float[nFeatures];
         resetFeatures(userFeats, true);
         
-        int n = itm.size();
+        float[][] itemFeatsBuf = featsBuf(n);
+        for (int i = 0; i < n; ++i)
+            itemFeatsBuf[i] = itemFeature.get(itm[i]);
+        double mean = data.getGlobalMean();
+        double minRating = data.getMinRating();
+        double maxRating = data.getMaxRating();
+        
         for (int k = 0; k < nIts; ++k) {
             for (int i = 0; i < n; ++i) {
-                int itemID = itm.get(i);
-                float[] itemFeats = itemFeature.get(itemID);
-                double rating = rat.get(i);
-                double pred = predictRating(userFeats, itemFeats);
+                float[] itemFeats = itemFeatsBuf[i];
+                double rating = rat[i];
+                double pred = predictRating(userFeats, itemFeats, mean, minRating, maxRating);
                 double err = rating - pred;
                 
                 if (itemFeats != null)
@@ -157,16 +191,26 @@ public class BRISMFPredictor implements Updatable {
     }
     
     public float[] trainItemFeats(int itemID, List<Integer> usr, List<Double> rat, int nIts) {
+        int n = toSlice(usr, rat);
+        return trainItemFeats(itemID, idBuf, ratBuf, n, nIts);
+    }
+    
+    public float[] trainItemFeats(int itemID, int[] usr, double[] rat, int n, int nIts) {
         float[] itemFeats = new float[nFeatures];
         resetFeatures(itemFeats, false);
         
-        int n = usr.size();
+        float[][] userFeatsBuf = featsBuf(n);
+        for (int i = 0; i < n; ++i)
+            userFeatsBuf[i] = userFeature.get(usr[i]);
+        double mean = data.getGlobalMean();
+        double minRating = data.getMinRating();
+        double maxRating = data.getMaxRating();
+        
         for (int k = 0; k < nIts; ++k) {
             for (int i = 0; i < n; ++i) {
-                int userID = usr.get(i);
-                float[] userFeats = userFeature.get(userID);
-                double rating = rat.get(i);
-                double pred = predictRating(userFeats, itemFeats);
+                float[] userFeats = userFeatsBuf[i];
+                double rating = rat[i];
+                double pred = predictRating(userFeats, itemFeats, mean, minRating, maxRating);
                 double err = rating - pred;
                 
                 if (userFeats != null) {
@@ -180,22 +224,48 @@ public class BRISMFPredictor implements Updatable {
         return itemFeats;
     }
     
+    //Slices of ratings are copied into these buffers, reused between calls
+    private void ensureSlice(int n) {
+        if (idBuf == null || idBuf.length < n) {
+            int size = Math.max(n, 2*(idBuf != null ? idBuf.length : 8));
+            idBuf = new int[size];
+            ratBuf = new double[size];
+        }
+    }
+    
+    private float[][] featsBuf(int n) {
+        if (featsBuf == null || featsBuf.length < n)
+            featsBuf = new float[Math.max(n, 2*(featsBuf != null ? featsBuf.length : 8))][];
+        return featsBuf;
+    }
+    
+    private int toSlice(List<Integer> ids, List<Double> rat) {
+        int n = ids.size();
+        ensureSlice(n);
+        for (int i = 0; i < n; ++i) {
+            idBuf[i] = ids.get(i);
+            ratBuf[i] = rat.get(i);
+        }
+        return n;
+    }
+    
+    private int userSlice(int userID, int extra) {
+        ensureSlice(data.countRatingsUser(userID) + extra);
+        return data.getRatingsUser(userID, idBuf, ratBuf);
+    }
+    
+    private int itemSlice(int itemID, int extra) {
+        ensureSlice(data.countRatingsItem(itemID) + extra);
+        return data.getRatingsItem(itemID, idBuf, ratBuf);
+    }
+    
     public void trainUser(int userID, List<Integer> itm, List<Double> rat, int nIts) {
         userFeature.put(userID, trainUserFeats(itm, rat, nIts));
     }
     
     public void trainUser(int userID, int nIts) {
-        SparseVector usrRats = data.getRatingsUser(userID);
-        ArrayList<Integer> itm = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            itm.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainUser(userID, itm, rat, nIts);
+        int n = userSlice(userID, 0);
+        userFeature.put(userID, trainUserFeats(idBuf, ratBuf, n, nIts));
     }
     
     public void trainUser(int userID, List<Integer> itm, List<Double> rat) {
@@ -203,45 +273,16 @@ public class BRISMFPredictor implements Updatable {
     }
     
     public void trainItem(int itemID) {
-        SparseVector itmRats = data.getRatingsItem(itemID);
-        ArrayList<Integer> usr = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            usr.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainItem(itemID, usr, rat);
+        trainItem(itemID, nIterations);
     }
     
     public void trainItem(int itemID, int nIts) {
-        SparseVector itmRats = data.getRatingsItem(itemID);
-        ArrayList<Integer> usr = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            usr.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainItem(itemID, usr, rat, nIts);
+        int n = itemSlice(itemID, 0);
+        itemFeature.put(itemID, trainItemFeats(itemID, idBuf, ratBuf, n, nIts));
     }
     
     public void trainUser(int userID) {
-        SparseVector usrRats = data.getRatingsUser(userID);
-        ArrayList<Integer> itm = new ArrayList<Integer>();
-        ArrayList<Double> rat = new ArrayList<Double>();
-        Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-        
-        while (it.hasNext()) {
-            Pair<Integer, Double> p = it.next();
-            itm.add(p.getFirst());
-            rat.add(p.getSecond());
-        }
-        trainUser(userID, itm, rat);
+        trainUser(userID, nIterations);
     }
     
     public void trainItem(int itemID, List<Integer> usr, List<Double> rat) {
@@ -278,6 +319,10 @@ public class BRISMFPredictor implements Updatable {
         int count = 0;
         int trainDiv = Math.max(20, n/1000000);
         ArrayList<Rating> ratTest = new ArrayList<Rating>(n/trainDiv);
+        if (nThreads > 1) {
+            trainBlocks(trainDiv, ratTest);
+            return;
+        }
         do {
             long start = System.currentTimeMillis();
             Iterator<Rating> ratIt = data.ratingIterator();
@@ -330,6 +375,116 @@ public class BRISMFPredictor implements Updatable {
         while (exit < 1);
     }
     
+    /**
+     * Training ratings of one user block and one item block, with the
+     * feature vectors they update.
+     */
+    protected static class RatingBlock {
+        protected float[][] userFeats = new float[16][];
+        protected float[][] itemFeats = new float[16][];
+        protected double[] ratings = new double[16];
+        protected int size = 0;
+        
+        public void add(float[] userFeats, float[] itemFeats, double rating) {
+            if (size == ratings.length) {
+                float[][] newUserFeats = new float[2*size][];
+                float[][] newItemFeats = new float[2*size][];
+                double[] newRatings = new double[2*size];
+                System.arraycopy(this.userFeats, 0, newUserFeats, 0, size);
+                System.arraycopy(this.itemFeats, 0, newItemFeats, 0, size);
+                System.arraycopy(ratings, 0, newRatings, 0, size);
+                this.userFeats = newUserFeats;
+                this.itemFeats = newItemFeats;
+                ratings = newRatings;
+            }
+            this.userFeats[size] = userFeats;
+            this.itemFeats[size] = itemFeats;
+            ratings[size] = rating;
+            ++size;
+        }
+    }
+    
+    private static int blockOf(int id, int nBlocks) {
+        return (Hash.hashCode(id) & Integer.MAX_VALUE) % nBlocks;
+    }
+    
+    //Same epochs and stopping rule as the single thread loop in train(), but
+    //the training ratings are split into nThreads x nThreads blocks. In
+    //sub-epoch s, block (b, (b + s) % nThreads) is trained for every b, so
+    //the blocks trained at the same time share no user and no item
+    private void trainBlocks(int trainDiv, ArrayList<Rating> ratTest) {
+        final int nBlocks = nThreads;
+        final RatingBlock[] blocks = new RatingBlock[nBlocks*nBlocks];
+        for (int b = 0; b < blocks.length; ++b)
+            blocks[b] = new RatingBlock();
+        Iterator<Rating> ratIt = data.ratingIterator();
+        int idx = 0;
+        while (ratIt.hasNext()) {
+            Rating rat = ratIt.next();
+            if (idx%trainDiv == 0) {
+                ratTest.add(rat);
+            }
+            else {
+                int b = blockOf(rat.userID, nBlocks)*nBlocks + blockOf(rat.itemID, nBlocks);
+                blocks[b].add(userFeature.get(rat.userID), itemFeature.get(rat.itemID), rat.rating);
+            }
+            ++idx;
+        }
+        
+        final double mean = data.getGlobalMean();
+        final double minRating = data.getMinRating();
+        final double maxRating = data.getMaxRating();
+        WorkerPool pool = WorkerPool.getShared(nThreads);
+        int exit = 0;
+        double lastRMSE = 1e20;
+        do {
+            for (int s = 0; s < nBlocks; ++s) {
+                final int shift = s;
+                pool.forEach(nBlocks, new WorkerPool.Job() {
+                    @Override
+                    public void run(int b) {
+                        trainBlock(blocks[b*nBlocks + (b + shift)%nBlocks],
+                                mean, minRating, maxRating);
+                    }
+                });
+            }
+            int nTest = ratTest.size();
+            
+            double sum = 0;
+            for (int i = 0; i < nTest; ++i) {
+                Rating rat = ratTest.get(i);
+                double pred = predictRating(userFeature.get(rat.userID),
+                        itemFeature.get(rat.itemID), mean, minRating, maxRating);
+                sum += Math.pow(rat.rating - pred, 2);
+            }
+            
+            double curRMSE = Math.sqrt(sum/(double)nTest);
+            if (curRMSE + 0.0001 >= lastRMSE) {
+                ++exit;
+            }
+            lastRMSE = curRMSE;
+        }
+        while (exit < 1);
+    }
+    
+    private void trainBlock(RatingBlock block, double mean, double minRating,
+            double maxRating) {
+        for (int i = 0; i < block.size; ++i) {
+            float[] userFeats = block.userFeats[i];
+            float[] itemFeats = block.itemFeats[i];
+            double pred = predictRating(userFeats, itemFeats, mean, minRating, maxRating);
+            double err = block.ratings[i] - pred;
+            
+            itemFeats[0] += lRate*(err*userFeats[0] - rFactor*itemFeats[0]);
+            userFeats[1] += lRate*(err*itemFeats[1] - rFactor*userFeats[1]);
+            for (int j = 2; j < nFeatures; ++j) {
+                double uv = userFeats[j];
+                userFeats[j] += lRate*(err*itemFeats[j] - rFactor*userFeats[j]);
+                itemFeats[j] += lRate*(err*uv - rFactor*itemFeats[j]);
+            }
+        }
+    }
+    
     public float[] getUserFeatures(int userID) {
         return userFeature.get(userID);
     }
@@ -378,54 +533,33 @@ public class BRISMFPredictor implements Updatable {
         double prob1 = Math.pow(0.99, nUsr);
         double prob2 = Math.pow(0.99, nItm);
 
+        //The rating is not stored yet, so it is set in the slice
         if (nUsr < 5 || rnd.nextDouble() < prob1) {
-            SparseVector usrRats = data.getRatingsUser(userID);
-            ArrayList<Integer> itm = new ArrayList<Integer>();
-            ArrayList<Double> rat = new ArrayList<Double>();
-            
             //Train user
-            boolean found = false;
-            Iterator<Pair<Integer, Double>> it = usrRats.iterator();
-            while (it.hasNext()) {
-                Pair<Integer, Double> p = it.next();
-                itm.add(p.getFirst());
-                if (p.getFirst() == itemID) {
-                    found = true;
-                    rat.add(rating);
-                }
-                else rat.add(p.getSecond());
-            }
-            if (!found) {
-                itm.add(itemID);
-                rat.add(rating);
-            }
-            trainUser(userID, itm, rat);
+            int n = userSlice(userID, 1);
+            n = setInSlice(n, itemID, rating);
+            userFeature.put(userID, trainUserFeats(idBuf, ratBuf, n, nIterations));
         }
         
         if (nItm < 5 || rnd.nextDouble() < prob2) {
-            SparseVector itmRats = data.getRatingsItem(itemID);
             //Train item
-            Iterator<Pair<Integer, Double>> it = itmRats.iterator();
-            boolean found = false;
-            ArrayList<Integer> usr = new ArrayList<Integer>();
-            ArrayList<Double> rat = new ArrayList<Double>();
-            while (it.hasNext()) {
-                Pair<Integer, Double> p = it.next();
-                usr.add(p.getFirst());
-                if (p.getFirst() == userID) {
-                    found = true;
-                    rat.add(rating);
-                }
-                else rat.add(p.getSecond());
-            }
-            if (!found) {
-                usr.add(itemID);
-                rat.add(rating);
+            int n = itemSlice(itemID, 1);
+            n = setInSlice(n, userID, rating);
+            itemFeature.put(itemID, trainItemFeats(itemID, idBuf, ratBuf, n, nIterations));
+        }
+    }
+    
+    private int setInSlice(int n, int id, double rating) {
+        for (int i = 0; i < n; ++i) {
+            if (idBuf[i] == id) {
+                ratBuf[i] = rating;
+                return n;
             }
-            trainItem(itemID, usr, rat);
         }
+        idBuf[n] = id;
+        ratBuf[n] = rating;
+        return n + 1;
     }
-
     @Override
     public void updateRemoveRating(int userID, int itemID) {
     }
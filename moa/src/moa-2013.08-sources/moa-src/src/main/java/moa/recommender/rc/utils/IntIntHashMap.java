@@ -0,0 +1,151 @@
+/*
+ *    IntIntHashMap.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package moa.recommender.rc.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Map from int keys to non negative int values, with open addressing and
+ * linear probing, so neither keys nor values are boxed. Removed keys are
+ * deleted by moving back the keys after them, so there are no tombstones.
+ */
+public class IntIntHashMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Value returned for keys that are not in the map. */
+    public static final int NO_VALUE = -1;
+
+    private int[] keys;
+    private int[] values; // NO_VALUE in free slots
+    private int size;
+    private int mask;
+
+    public IntIntHashMap() {
+        this(8);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = 4;
+        while (capacity < 2 * expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int key) {
+        int i = Hash.hashCode(key) & mask;
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    public void put(int key, int value) {
+        int i = Hash.hashCode(key) & mask;
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length / 2) {
+            rehash(2 * keys.length);
+        }
+    }
+
+    public int remove(int key) {
+        int i = Hash.hashCode(key) & mask;
+        while (values[i] != NO_VALUE) {
+            if (keys[i] == key) {
+                int value = values[i];
+                deleteSlot(i);
+                --size;
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    // moves back the keys of the probe sequence that follows the slot
+    private void deleteSlot(int free) {
+        int i = free;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == NO_VALUE) {
+                break;
+            }
+            int home = Hash.hashCode(keys[i]) & mask;
+            // the key can move to the free slot if its home is not
+            // cyclically in (free, i]
+            boolean stays = (free <= i) ? (free < home && home <= i)
+                    : (free < home || home <= i);
+            if (!stays) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        values[free] = NO_VALUE;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != NO_VALUE) {
+                int j = Hash.hashCode(oldKeys[i]) & mask;
+                while (values[j] != NO_VALUE) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
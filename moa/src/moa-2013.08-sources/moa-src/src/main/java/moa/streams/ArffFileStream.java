@@ -31,6 +31,7 @@ import moa.core.InstancesHeader;
 import moa.core.ObjectRepository;
 import moa.options.AbstractOptionHandler;
 import moa.options.FileOption;
+import moa.options.FlagOption;
 import moa.options.IntOption;
 import moa.tasks.TaskMonitor;
 
@@ -38,7 +39,8 @@ import weka.core.Instance;
 import weka.core.Instances;
 
 /**
- * Stream reader of ARFF files.
+ * Stream reader of ARFF files. With the fast parser option set, rows are
+ * parsed by <code>FastArffReader</code> instead of the Weka tokenizer.
  *
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
@@ -62,10 +64,15 @@ public class ArffFileStream extends AbstractOptionHandler implements
             "Class index of data. 0 for none or -1 for last attribute in file.",
             -1, -1, Integer.MAX_VALUE);
 
+    public FlagOption fastParserOption = new FlagOption("fastParser", 'p',
+            "Parse the data with the fast byte parser instead of the Weka tokenizer.");
+
     protected Instances instances;
 
     protected Reader fileReader;
 
+    protected FastArffReader fastReader;
+
     protected boolean hitEndOfFile;
 
     protected Instance lastInstanceRead;
@@ -125,13 +132,23 @@ public class ArffFileStream extends AbstractOptionHandler implements
         try {
             if (this.fileReader != null) {
                 this.fileReader.close();
+                this.fileReader = null;
+            }
+            if (this.fastReader != null) {
+                this.fastReader.close();
+                this.fastReader = null;
             }
             InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
             this.fileProgressMonitor = new InputStreamProgressMonitor(
                     fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
-            this.instances = new Instances(this.fileReader, 1);
+            if (this.fastParserOption.isSet()) {
+                this.fastReader = new FastArffReader(this.fileProgressMonitor);
+                this.instances = this.fastReader.getHeader();
+            } else {
+                this.fileReader = new BufferedReader(new InputStreamReader(
+                        this.fileProgressMonitor));
+                this.instances = new Instances(this.fileReader, 1);
+            }
             if (this.classIndexOption.getValue() < 0) {
                 this.instances.setClassIndex(this.instances.numAttributes() - 1);
             } else if (this.classIndexOption.getValue() > 0) {
@@ -147,6 +164,16 @@ public class ArffFileStream extends AbstractOptionHandler implements
 
     protected boolean readNextInstanceFromFile() {
         try {
+            if (this.fastReader != null) {
+                this.lastInstanceRead = this.fastReader.readInstance();
+                if (this.lastInstanceRead != null) {
+                    this.numInstancesRead++;
+                    return true;
+                }
+                this.fastReader.close();
+                this.fastReader = null;
+                return false;
+            }
             if (this.instances.readInstance(this.fileReader)) {
                 this.lastInstanceRead = this.instances.instance(0);
                 this.instances.delete(); // keep instances clean
@@ -0,0 +1,278 @@
+/*
+ *    BinaryFileStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import moa.core.InstancesHeader;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.FileOption;
+import moa.tasks.TaskMonitor;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Stream reader of binary stream cache files, as written by the task
+ * <code>WriteStreamToBinaryFile</code>. The file is memory mapped and every
+ * instance is a record of fixed width, so instances are read without any
+ * parsing, the stream restarts in constant time and the number of remaining
+ * instances is known exactly.
+ *
+ * The file starts with a header block: a magic number and version, the ARFF
+ * header of the stream, the class index, the column type of every attribute,
+ * whether instance weights are stored and the number of instances. Every
+ * record then holds one column per attribute, stored as a double or, for
+ * nominal attributes, as a packed one or two byte index where the largest
+ * value marks a missing value, followed by the weight if weights are stored.
+ *
+ * @version $Revision: 7 $
+ */
+public class BinaryFileStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "A stream read from a binary stream cache file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAGIC = 0x4D4F4142; // "MOAB"
+
+    public static final int VERSION = 1;
+
+    public static final byte COLUMN_DOUBLE = 0;
+
+    public static final byte COLUMN_BYTE = 1;
+
+    public static final byte COLUMN_SHORT = 2;
+
+    /** Largest number of bytes mapped at once. */
+    protected static final int MAX_WINDOW_SIZE = 1 << 30;
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Binary stream cache file to load.", null, "moab", false);
+
+    protected InstancesHeader header;
+
+    protected byte[] columnTypes;
+
+    protected boolean hasWeights;
+
+    protected int recordSize;
+
+    protected long dataStart;
+
+    protected long numInstances;
+
+    protected long numInstancesRead;
+
+    protected transient MappedByteBuffer window;
+
+    protected long windowStart;
+
+    protected long windowEnd;
+
+    public BinaryFileStream() {
+    }
+
+    public BinaryFileStream(String binaryFileName) {
+        this.binaryFileOption.setValue(binaryFileName);
+        restart();
+    }
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        this.header = null;
+        this.window = null;
+        restart();
+    }
+
+    /**
+     * Gets the column type used for an attribute.
+     *
+     * @param att the attribute
+     * @return the column type
+     */
+    public static byte columnType(Attribute att) {
+        if (att.isNominal()) {
+            if (att.numValues() < 0xFF) {
+                return COLUMN_BYTE;
+            }
+            if (att.numValues() < 0xFFFF) {
+                return COLUMN_SHORT;
+            }
+        }
+        return COLUMN_DOUBLE;
+    }
+
+    /**
+     * Gets the number of bytes used for a column type.
+     *
+     * @param columnType the column type
+     * @return the width in bytes
+     */
+    public static int columnWidth(byte columnType) {
+        switch (columnType) {
+            case COLUMN_BYTE:
+                return 1;
+            case COLUMN_SHORT:
+                return 2;
+            default:
+                return 8;
+        }
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.header;
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        return this.numInstances - this.numInstancesRead;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return this.numInstancesRead < this.numInstances;
+    }
+
+    @Override
+    public Instance nextInstance() {
+        if (!hasMoreInstances()) {
+            return null;
+        }
+        if ((this.window == null) || (this.numInstancesRead >= this.windowEnd)) {
+            mapWindow(this.numInstancesRead);
+        }
+        MappedByteBuffer buffer = this.window;
+        int numAttributes = this.columnTypes.length;
+        double[] values = new double[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            switch (this.columnTypes[i]) {
+                case COLUMN_BYTE:
+                    int b = buffer.get() & 0xFF;
+                    values[i] = b == 0xFF ? Utils.missingValue() : b;
+                    break;
+                case COLUMN_SHORT:
+                    int s = buffer.getShort() & 0xFFFF;
+                    values[i] = s == 0xFFFF ? Utils.missingValue() : s;
+                    break;
+                default:
+                    values[i] = buffer.getDouble();
+            }
+        }
+        double weight = this.hasWeights ? buffer.getDouble() : 1.0;
+        this.numInstancesRead++;
+        Instance inst = new DenseInstance(weight, values);
+        inst.setDataset(this.header);
+        return inst;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        if (this.header == null) {
+            readHeader();
+        }
+        this.numInstancesRead = 0;
+        if ((this.window != null) && (this.windowStart == 0)) {
+            this.window.position(0);
+        } else {
+            this.window = null;
+        }
+    }
+
+    protected void readHeader() {
+        File file = this.binaryFileOption.getFile();
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                if ((raf.readInt() != MAGIC) || (raf.readInt() != VERSION)) {
+                    throw new IOException("Not a binary stream cache file: " + file);
+                }
+                byte[] arffHeader = new byte[raf.readInt()];
+                raf.readFully(arffHeader);
+                Instances instances = new Instances(new StringReader(
+                        new String(arffHeader, "UTF-8")), 0);
+                instances.setClassIndex(raf.readInt());
+                this.columnTypes = new byte[raf.readInt()];
+                raf.readFully(this.columnTypes);
+                this.hasWeights = raf.readBoolean();
+                this.numInstances = raf.readLong();
+                this.dataStart = raf.getFilePointer();
+                this.recordSize = this.hasWeights ? 8 : 0;
+                for (int i = 0; i < this.columnTypes.length; i++) {
+                    this.recordSize += columnWidth(this.columnTypes[i]);
+                }
+                this.header = new InstancesHeader(instances);
+                if (raf.length() < this.dataStart + this.numInstances * this.recordSize) {
+                    throw new IOException("Binary stream cache file is truncated: " + file);
+                }
+            } finally {
+                raf.close();
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException("BinaryFileStream restart failed.", ioe);
+        }
+    }
+
+    /*
+     * maps the records from the given one on, at most MAX_WINDOW_SIZE bytes
+     */
+    protected void mapWindow(long firstInstance) {
+        long recordsPerWindow = Math.max(1, MAX_WINDOW_SIZE / this.recordSize);
+        this.windowStart = firstInstance;
+        this.windowEnd = Math.min(this.numInstances, firstInstance + recordsPerWindow);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(
+                    this.binaryFileOption.getFile(), "r");
+            try {
+                // the mapping stays valid after the file is closed
+                this.window = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        this.dataStart + this.windowStart * this.recordSize,
+                        (this.windowEnd - this.windowStart) * this.recordSize);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException(
+                    "BinaryFileStream failed to map file.", ioe);
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+        // TODO Auto-generated method stub
+    }
+}
@@ -0,0 +1,625 @@
+/*
+ *    FastArffReader.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Reader of ARFF files that parses the data section straight from a byte
+ * buffer, one row at a time. The header is still read by Weka, but rows are
+ * not tokenized by a <code>StreamTokenizer</code> and do not pass through an
+ * <code>Instances</code> object, which makes reading several times faster.
+ *
+ * Numbers are parsed without creating strings whenever they can be converted
+ * exactly, and by <code>Double.parseDouble</code> otherwise, so the values
+ * read are the same as the ones read by Weka. Dense and sparse rows and
+ * instance weights in braces are supported. Relational attributes are not.
+ *
+ * As in Weka, the value of a string attribute is the index of a string
+ * stored in the attribute. Weka adds every string to the header, which then
+ * grows with the number of distinct strings, while this reader gives every
+ * instance with strings its own copy of the header, whose string attributes
+ * hold only the strings of that instance. Instances read later never change
+ * the strings of earlier ones, and the header does not grow. The first
+ * string of every string attribute is the empty string, so that the other
+ * strings are not at index zero, which sparse instances do not store.
+ *
+ * @version $Revision: 7 $
+ */
+public class FastArffReader {
+
+    protected static final int BUFFER_SIZE = 1 << 16;
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Powers of ten that are exactly representable as doubles. */
+    protected static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    protected InputStream input;
+
+    protected byte[] buffer = new byte[BUFFER_SIZE];
+
+    protected int bufferPos;
+
+    protected int bufferLimit;
+
+    protected int lineNo = 1;
+
+    protected Instances header;
+
+    protected byte[] token = new byte[64];
+
+    protected int tokenLength;
+
+    protected boolean tokenQuoted;
+
+    protected double[] sparseValues = new double[16];
+
+    protected int[] sparseIndices = new int[16];
+
+    // strings of the current row, by attribute
+    protected String[] rowStrings;
+
+    protected int numRowStrings;
+
+    /**
+     * Creates a reader and reads the header of the file.
+     *
+     * @param input the stream to read the file from
+     * @throws IOException if the header cannot be read
+     */
+    public FastArffReader(InputStream input) throws IOException {
+        this.input = input;
+        readHeader();
+    }
+
+    /**
+     * Gets the header read from the file. Instances returned by this reader
+     * have it as their dataset, or a copy of it if they have strings.
+     *
+     * @return the header
+     */
+    public Instances getHeader() {
+        return this.header;
+    }
+
+    /**
+     * Reads the next row of the file.
+     *
+     * @return the instance read, or null at the end of the file
+     * @throws IOException if the row cannot be read or parsed
+     */
+    public Instance readInstance() throws IOException {
+        int c = skipBlankLines();
+        if (c < 0) {
+            return null;
+        }
+        Instance inst;
+        if (c == '{') {
+            this.bufferPos++;
+            inst = readSparseRow();
+        } else {
+            inst = readDenseRow();
+        }
+        inst.setDataset(this.numRowStrings > 0 ? instanceHeader() : this.header);
+        return inst;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException if closing fails
+     */
+    public void close() throws IOException {
+        this.input.close();
+    }
+
+    protected void readHeader() throws IOException {
+        StringBuilder text = new StringBuilder();
+        ByteLine line = new ByteLine();
+        while (true) {
+            if (!readLine(line)) {
+                throw new IOException("ARFF file has no @data section");
+            }
+            String s = new String(line.bytes, 0, line.length, UTF8);
+            text.append(s).append('\n');
+            if (s.trim().toLowerCase().startsWith("@data")) {
+                break;
+            }
+        }
+        this.header = new Instances(new StringReader(text.toString()), 0);
+        this.rowStrings = new String[this.header.numAttributes()];
+        for (int i = 0; i < this.header.numAttributes(); i++) {
+            if (this.header.attribute(i).isString()) {
+                this.header.attribute(i).addStringValue("");
+            }
+            if (this.header.attribute(i).isRelationValued()) {
+                throw new IOException("Relational attribute "
+                        + this.header.attribute(i).name()
+                        + " is not supported by the fast ARFF parser");
+            }
+        }
+    }
+
+    protected Instance readDenseRow() throws IOException {
+        int numAttributes = this.header.numAttributes();
+        double[] values = new double[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            if (!readToken()) {
+                throw error("premature end of line");
+            }
+            values[i] = parseValue(i);
+        }
+        return new DenseInstance(readWeight(), values);
+    }
+
+    protected Instance readSparseRow() throws IOException {
+        int numAttributes = this.header.numAttributes();
+        int numValues = 0;
+        int maxIndex = -1;
+        while (true) {
+            int c = skipSeparators();
+            if (c == '}') {
+                this.bufferPos++;
+                break;
+            }
+            if (!readToken()) {
+                throw error("premature end of line");
+            }
+            int index = parseIndex();
+            if (index <= maxIndex) {
+                throw error("indices have to be ordered");
+            }
+            if (index >= numAttributes) {
+                throw error("index out of bounds");
+            }
+            maxIndex = index;
+            if (!readToken()) {
+                throw error("premature end of line");
+            }
+            if (numValues == this.sparseValues.length) {
+                this.sparseValues = growArray(this.sparseValues);
+                this.sparseIndices = growArray(this.sparseIndices);
+            }
+            this.sparseIndices[numValues] = index;
+            this.sparseValues[numValues] = parseValue(index);
+            numValues++;
+        }
+        double[] values = new double[numValues];
+        int[] indices = new int[numValues];
+        System.arraycopy(this.sparseValues, 0, values, 0, numValues);
+        System.arraycopy(this.sparseIndices, 0, indices, 0, numValues);
+        return new SparseInstance(readWeight(), values, indices, numAttributes);
+    }
+
+    /*
+     * reads an optional instance weight in braces and the end of the line
+     */
+    protected double readWeight() throws IOException {
+        double weight = 1.0;
+        int c = skipSeparators();
+        if (c == '{') {
+            this.bufferPos++;
+            if (!readToken()) {
+                throw error("instance weight expected");
+            }
+            weight = parseNumber();
+            if (skipSeparators() != '}') {
+                throw error("} expected at end of instance weight");
+            }
+            this.bufferPos++;
+            c = skipSeparators();
+        }
+        if (c == '%') {
+            skipLine();
+        } else if (c >= 0) {
+            if ((c != '\n') && (c != '\r')) {
+                throw error("end of line expected");
+            }
+            skipLine();
+        }
+        return weight;
+    }
+
+    protected double parseValue(int attIndex) throws IOException {
+        if (!this.tokenQuoted && (this.tokenLength == 1) && (this.token[0] == '?')) {
+            return Utils.missingValue();
+        }
+        Attribute att = this.header.attribute(attIndex);
+        switch (att.type()) {
+            case Attribute.NUMERIC:
+                return parseNumber();
+            case Attribute.NOMINAL:
+                int index = att.indexOfValue(tokenString());
+                if (index < 0) {
+                    throw error("nominal value not declared in header: " + tokenString());
+                }
+                return index;
+            case Attribute.STRING:
+                if (this.tokenLength == 0) {
+                    return 0;
+                }
+                if (this.rowStrings[attIndex] == null) {
+                    this.numRowStrings++;
+                }
+                this.rowStrings[attIndex] = tokenString();
+                return 1;
+            case Attribute.DATE:
+                try {
+                    return att.parseDate(tokenString());
+                } catch (ParseException e) {
+                    throw error("unparseable date: " + tokenString());
+                }
+            default:
+                throw error("unknown attribute type in column " + attIndex);
+        }
+    }
+
+    /*
+     * copies the header for the current row, with new string attributes that
+     * hold the strings of the row
+     */
+    protected Instances instanceHeader() {
+        int numAttributes = this.header.numAttributes();
+        ArrayList<Attribute> attributes = new ArrayList<Attribute>(numAttributes);
+        for (int i = 0; i < numAttributes; i++) {
+            Attribute att = this.header.attribute(i);
+            if (this.rowStrings[i] != null) {
+                att = new Attribute(att.name(), (List<String>) null);
+                att.addStringValue("");
+                att.addStringValue(this.rowStrings[i]);
+                this.rowStrings[i] = null;
+            }
+            attributes.add(att);
+        }
+        this.numRowStrings = 0;
+        Instances dataset = new Instances(this.header.relationName(), attributes, 0);
+        dataset.setClassIndex(this.header.classIndex());
+        return dataset;
+    }
+
+    protected String tokenString() {
+        return new String(this.token, 0, this.tokenLength, UTF8);
+    }
+
+    protected int parseIndex() throws IOException {
+        int index = 0;
+        if (this.tokenLength == 0) {
+            throw error("index number expected");
+        }
+        for (int i = 0; i < this.tokenLength; i++) {
+            int digit = this.token[i] - '0';
+            if ((digit < 0) || (digit > 9) || (index > (Integer.MAX_VALUE - digit) / 10)) {
+                throw error("index number expected");
+            }
+            index = index * 10 + digit;
+        }
+        return index;
+    }
+
+    /*
+     * Parses the current token as a double. Plain decimal numbers with at
+     * most 15 significant digits and a small exponent are converted with a
+     * single exact multiplication or division, which rounds exactly like
+     * Double.parseDouble. All other tokens are left to Double.parseDouble.
+     */
+    protected double parseNumber() throws IOException {
+        byte[] t = this.token;
+        int len = this.tokenLength;
+        int i = 0;
+        boolean negative = false;
+        if ((i < len) && ((t[i] == '-') || (t[i] == '+'))) {
+            negative = t[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < len; i++) {
+            int c = t[i];
+            if ((c >= '0') && (c <= '9')) {
+                seenDigit = true;
+                if ((mantissa == 0) && (c == '0')) {
+                    if (seenPoint) {
+                        scale--;
+                    }
+                    continue;
+                }
+                if (++numDigits > 15) {
+                    return parseNumberSlow();
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) {
+                    scale--;
+                }
+            } else if ((c == '.') && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!seenDigit) {
+            return parseNumberSlow();
+        }
+        if (i < len) {
+            if ((t[i] != 'e') && (t[i] != 'E')) {
+                return parseNumberSlow();
+            }
+            i++;
+            boolean negativeExponent = false;
+            if ((i < len) && ((t[i] == '-') || (t[i] == '+'))) {
+                negativeExponent = t[i] == '-';
+                i++;
+            }
+            if ((i == len) || (len - i > 3)) {
+                return parseNumberSlow();
+            }
+            int exponent = 0;
+            for (; i < len; i++) {
+                int digit = t[i] - '0';
+                if ((digit < 0) || (digit > 9)) {
+                    return parseNumberSlow();
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        double value = mantissa;
+        if (mantissa != 0) {
+            if (scale < 0) {
+                if (scale < -22) {
+                    return parseNumberSlow();
+                }
+                value /= POWERS_OF_TEN[-scale];
+            } else if (scale > 0) {
+                if (scale > 22) {
+                    return parseNumberSlow();
+                }
+                value *= POWERS_OF_TEN[scale];
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    protected double parseNumberSlow() throws IOException {
+        try {
+            return Double.parseDouble(tokenString());
+        } catch (NumberFormatException e) {
+            throw error("number expected, read " + tokenString());
+        }
+    }
+
+    /*
+     * Reads the next value of the current row into the token buffer,
+     * removing quotes and escapes. Returns false at the end of the row.
+     */
+    protected boolean readToken() throws IOException {
+        int c = skipSeparators();
+        this.tokenLength = 0;
+        this.tokenQuoted = false;
+        if ((c < 0) || (c == '\n') || (c == '\r') || (c == '%') || (c == '{') || (c == '}')) {
+            return false;
+        }
+        if ((c == '\'') || (c == '"')) {
+            int quote = c;
+            this.tokenQuoted = true;
+            this.bufferPos++;
+            while (true) {
+                c = nextByte();
+                if (c < 0) {
+                    throw error("unterminated quoted value");
+                }
+                if (c == quote) {
+                    break;
+                }
+                if (c == '\\') {
+                    c = nextByte();
+                    if (c == 'n') {
+                        c = '\n';
+                    } else if (c == 'r') {
+                        c = '\r';
+                    } else if (c == 't') {
+                        c = '\t';
+                    } else if (c < 0) {
+                        throw error("unterminated quoted value");
+                    }
+                }
+                appendToToken(c);
+            }
+            return true;
+        }
+        while (true) {
+            if ((this.bufferPos == this.bufferLimit) && !fillBuffer()) {
+                return true;
+            }
+            c = this.buffer[this.bufferPos] & 0xFF;
+            if ((c == ',') || (c == ' ') || (c == '\t') || (c == '\n') || (c == '\r')
+                    || (c == '%') || (c == '{') || (c == '}')) {
+                return true;
+            }
+            appendToToken(c);
+            this.bufferPos++;
+        }
+    }
+
+    protected void appendToToken(int c) {
+        if (this.tokenLength == this.token.length) {
+            byte[] newToken = new byte[this.token.length * 2];
+            System.arraycopy(this.token, 0, newToken, 0, this.tokenLength);
+            this.token = newToken;
+        }
+        this.token[this.tokenLength++] = (byte) c;
+    }
+
+    /*
+     * skips commas, spaces and tabs and returns the next byte without
+     * consuming it, or -1 at the end of the file
+     */
+    protected int skipSeparators() throws IOException {
+        while (true) {
+            if ((this.bufferPos == this.bufferLimit) && !fillBuffer()) {
+                return -1;
+            }
+            int c = this.buffer[this.bufferPos] & 0xFF;
+            if ((c != ',') && (c != ' ') && (c != '\t')) {
+                return c;
+            }
+            this.bufferPos++;
+        }
+    }
+
+    /*
+     * skips empty lines and comment lines and returns the first byte of
+     * the next row without consuming it, or -1 at the end of the file
+     */
+    protected int skipBlankLines() throws IOException {
+        while (true) {
+            if ((this.bufferPos == this.bufferLimit) && !fillBuffer()) {
+                return -1;
+            }
+            int c = this.buffer[this.bufferPos] & 0xFF;
+            if (c == '%') {
+                skipLine();
+            } else if ((c == '\n') || (c == '\r')) {
+                skipLine();
+            } else if ((c == ' ') || (c == '\t')) {
+                this.bufferPos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    /*
+     * consumes the rest of the current line, including the line break
+     */
+    protected void skipLine() throws IOException {
+        while (true) {
+            int c = nextByte();
+            if (c < 0) {
+                return;
+            }
+            if (c == '\n') {
+                this.lineNo++;
+                return;
+            }
+            if (c == '\r') {
+                this.lineNo++;
+                if (((this.bufferPos < this.bufferLimit) || fillBuffer())
+                        && (this.buffer[this.bufferPos] == '\n')) {
+                    this.bufferPos++;
+                }
+                return;
+            }
+        }
+    }
+
+    protected boolean readLine(ByteLine line) throws IOException {
+        line.length = 0;
+        int c = nextByte();
+        if (c < 0) {
+            return false;
+        }
+        while ((c >= 0) && (c != '\n') && (c != '\r')) {
+            line.append(c);
+            c = nextByte();
+        }
+        this.lineNo++;
+        if ((c == '\r') && ((this.bufferPos < this.bufferLimit) || fillBuffer())
+                && (this.buffer[this.bufferPos] == '\n')) {
+            this.bufferPos++;
+        }
+        return true;
+    }
+
+    protected int nextByte() throws IOException {
+        if ((this.bufferPos == this.bufferLimit) && !fillBuffer()) {
+            return -1;
+        }
+        return this.buffer[this.bufferPos++] & 0xFF;
+    }
+
+    protected boolean fillBuffer() throws IOException {
+        int numRead = this.input.read(this.buffer, 0, this.buffer.length);
+        if (numRead <= 0) {
+            this.bufferPos = 0;
+            this.bufferLimit = 0;
+            return false;
+        }
+        this.bufferPos = 0;
+        this.bufferLimit = numRead;
+        return true;
+    }
+
+    protected IOException error(String message) {
+        return new IOException(message + ", line " + this.lineNo);
+    }
+
+    protected static double[] growArray(double[] array) {
+        double[] newArray = new double[array.length * 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    protected static int[] growArray(int[] array) {
+        int[] newArray = new int[array.length * 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    /**
+     * Growable line of bytes, used while reading the header.
+     */
+    protected static class ByteLine {
+
+        protected byte[] bytes = new byte[256];
+
+        protected int length;
+
+        protected void append(int c) {
+            if (this.length == this.bytes.length) {
+                byte[] newBytes = new byte[this.bytes.length * 2];
+                System.arraycopy(this.bytes, 0, newBytes, 0, this.length);
+                this.bytes = newBytes;
+            }
+            this.bytes[this.length++] = (byte) c;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ *    PrefetchingStream.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import moa.core.InstancesHeader;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.tasks.TaskMonitor;
+import weka.core.Instance;
+
+/**
+ * Stream that reads another stream ahead on a background thread, so that
+ * parsing a file or generating instances overlaps with learning when there
+ * is a spare core.
+ *<br/><br/>
+ * Example:
+ *<br/><br/>
+ * <code>EvaluatePrequential -s (PrefetchingStream -s (ArffFileStream -f covtype.arff))</code>
+ *<br/><br/>
+ * The background thread calls <code>hasMoreInstances</code> and
+ * <code>nextInstance</code> of the wrapped stream in the same order as a
+ * reader would, and puts the instances into a ring buffer of the given
+ * capacity shared with the reading thread without locks. Both threads hand
+ * over positions in the buffer in batches, and park when the buffer is
+ * empty or full. The instances come out in the same order, and
+ * <code>hasMoreInstances</code> is true exactly as long as the wrapped
+ * stream had more instances, so it may wait for the background thread.
+ * After that <code>nextInstance</code> returns null, and an exception of
+ * the wrapped stream is thrown to the reader after the instances read
+ * before it. The wrapped stream must not be used by anyone else, and the
+ * background thread only starts on the first read, so options can be set
+ * and the stream copied before that. It stops at the end of the stream, on
+ * <code>restart</code>, or once this stream is no longer referenced. Note
+ * that evaluation tasks measure the cpu time of their own thread, which no
+ * longer includes reading the stream.
+ *<br/><br/>
+ * The wrapped stream must not change state that instances already returned
+ * depend on. In particular, <code>ArffFileStream</code> with the Weka parser
+ * adds the strings of string attributes to the shared header while it
+ * reads, so with string attributes it has to use the fast parser, which
+ * gives every instance its own strings. Clustering streams are not
+ * supported: <code>EvaluateClustering</code> needs a
+ * <code>ClusteringStream</code> and reads the current clusters of
+ * <code>RandomRBFGeneratorEvents</code> as ground truth, which would be
+ * ahead of the instances read.
+ *
+ * @version $Revision: 7 $
+ */
+public class PrefetchingStream extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "Reads a stream ahead on a background thread.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to read ahead.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption capacityOption = new IntOption("capacity", 'c',
+            "Number of instances that can be read ahead, rounded up to a power of two.",
+            4096, 2, 1 << 30);
+
+    public IntOption batchSizeOption = new IntOption("batchSize", 'b',
+            "Number of instances handed over between the threads at once.",
+            64, 1, Integer.MAX_VALUE);
+
+    protected InstanceStream inputStream;
+
+    protected transient Prefetcher prefetcher;
+
+    @Override
+    public void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        stopPrefetcher();
+        this.inputStream = (InstanceStream) getPreparedClassOption(this.streamOption);
+    }
+
+    protected Prefetcher getPrefetcher() {
+        if (this.prefetcher == null) {
+            int capacity = Integer.highestOneBit(this.capacityOption.getValue() - 1) << 1;
+            int batchSize = Math.min(this.batchSizeOption.getValue(), capacity / 2);
+            this.prefetcher = new Prefetcher(this, this.inputStream, capacity, batchSize);
+        }
+        return this.prefetcher;
+    }
+
+    protected void stopPrefetcher() {
+        if (this.prefetcher != null) {
+            this.prefetcher.stop();
+            this.prefetcher = null;
+        }
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        if (this.prefetcher == null) {
+            return this.inputStream.estimatedRemainingInstances();
+        }
+        return this.prefetcher.estimatedRemainingInstances();
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.inputStream.getHeader();
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return getPrefetcher().hasNext();
+    }
+
+    @Override
+    public Instance nextInstance() {
+        return getPrefetcher().next();
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return this.inputStream.isRestartable();
+    }
+
+    @Override
+    public void restart() {
+        stopPrefetcher();
+        this.inputStream.restart();
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+
+    /**
+     * Background thread and ring buffer of a prefetching stream. The head
+     * is the position of the next instance to read and the tail the
+     * position after the last instance written, and each thread keeps the
+     * position of the other one it last saw so that it only reads the
+     * shared one when it runs out of instances or space.
+     */
+    protected static class Prefetcher implements Runnable {
+
+        // how long the background thread parks on a full buffer before it
+        // checks whether the stream is still referenced
+        protected static final long PARK_NANOS = 100000000L;
+
+        protected final WeakReference<PrefetchingStream> owner;
+
+        protected final InstanceStream stream;
+
+        protected final Instance[] buffer;
+
+        protected final int mask;
+
+        protected final int batchSize;
+
+        protected final AtomicLong head = new AtomicLong();
+
+        protected final AtomicLong tail = new AtomicLong();
+
+        protected volatile boolean finished;
+
+        protected volatile boolean stopped;
+
+        protected volatile Throwable failure;
+
+        // estimate of the wrapped stream, taken by the background thread
+        // whenever it hands over instances
+        protected volatile long remaining;
+
+        protected volatile boolean readerWaiting;
+
+        protected volatile Thread reader;
+
+        protected volatile boolean writerWaiting;
+
+        protected final Thread writer;
+
+        // fields of the reading thread
+        protected long readPosition;
+
+        protected long readLimit;
+
+        protected long releasedPosition;
+
+        protected Prefetcher(PrefetchingStream owner, InstanceStream stream,
+                int capacity, int batchSize) {
+            this.owner = new WeakReference<PrefetchingStream>(owner);
+            this.stream = stream;
+            this.buffer = new Instance[capacity];
+            this.mask = capacity - 1;
+            this.batchSize = batchSize;
+            this.remaining = stream.estimatedRemainingInstances();
+            this.writer = new Thread(this, "PrefetchingStream");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        protected long estimatedRemainingInstances() {
+            boolean done = this.finished;
+            long buffered = this.tail.get() - this.readPosition;
+            if (done) {
+                return buffered;
+            }
+            long remaining = this.remaining;
+            return remaining < 0 ? remaining : remaining + buffered;
+        }
+
+        protected boolean hasNext() {
+            return this.readPosition < this.readLimit || awaitInstances();
+        }
+
+        protected Instance next() {
+            if (!hasNext()) {
+                return null;
+            }
+            int index = (int) this.readPosition & this.mask;
+            Instance inst = this.buffer[index];
+            this.buffer[index] = null;
+            this.readPosition++;
+            if (this.readPosition - this.releasedPosition >= this.batchSize) {
+                release();
+            }
+            return inst;
+        }
+
+        protected void release() {
+            this.releasedPosition = this.readPosition;
+            this.head.set(this.readPosition);
+            if (this.writerWaiting) {
+                LockSupport.unpark(this.writer);
+            }
+        }
+
+        protected boolean awaitInstances() {
+            release();
+            this.reader = Thread.currentThread();
+            while (true) {
+                // the last tail is written before the stream is finished
+                boolean done = this.finished;
+                this.readLimit = this.tail.get();
+                if (this.readPosition < this.readLimit) {
+                    return true;
+                }
+                if (done) {
+                    if (this.failure != null) {
+                        throw new RuntimeException("Prefetched stream failed.",
+                                this.failure);
+                    }
+                    return false;
+                }
+                this.readerWaiting = true;
+                if (this.tail.get() == this.readPosition && !this.finished) {
+                    LockSupport.park(this);
+                }
+                this.readerWaiting = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            long writePosition = 0;
+            long publishedPosition = 0;
+            long writeLimit = this.buffer.length;
+            try {
+                while (!this.stopped && this.stream.hasMoreInstances()) {
+                    if (writePosition == writeLimit) {
+                        this.remaining = this.stream.estimatedRemainingInstances();
+                        publish(writePosition);
+                        publishedPosition = writePosition;
+                        writeLimit = awaitSpace(writePosition);
+                        if (this.stopped) {
+                            break;
+                        }
+                    }
+                    this.buffer[(int) writePosition & this.mask] = this.stream.nextInstance();
+                    writePosition++;
+                    if (writePosition - publishedPosition >= this.batchSize) {
+                        this.remaining = this.stream.estimatedRemainingInstances();
+                        publish(writePosition);
+                        publishedPosition = writePosition;
+                    }
+                }
+            } catch (Throwable t) {
+                this.failure = t;
+            }
+            publish(writePosition);
+            this.finished = true;
+            Thread waiting = this.reader;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        }
+
+        protected void publish(long writePosition) {
+            this.tail.set(writePosition);
+            if (this.readerWaiting) {
+                LockSupport.unpark(this.reader);
+            }
+        }
+
+        protected long awaitSpace(long writePosition) {
+            while (true) {
+                long readPosition = this.head.get();
+                if (writePosition - readPosition < this.buffer.length) {
+                    return readPosition + this.buffer.length;
+                }
+                if (this.owner.get() == null) {
+                    this.stopped = true;
+                }
+                if (this.stopped) {
+                    return writePosition;
+                }
+                this.writerWaiting = true;
+                if (writePosition - this.head.get() >= this.buffer.length
+                        && !this.stopped) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                this.writerWaiting = false;
+            }
+        }
+
+        protected void stop() {
+            this.stopped = true;
+            LockSupport.unpark(this.writer);
+            boolean interrupted = false;
+            while (this.writer.isAlive()) {
+                try {
+                    this.writer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ *    FeatureHashingFilter.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams.filters;
+
+import java.util.Arrays;
+import java.util.StringTokenizer;
+
+import moa.core.InstancesHeader;
+import moa.options.FlagOption;
+import moa.options.IntOption;
+import moa.options.StringOption;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Filter that maps the values of every instance into a fixed number of
+ * hashed numeric attributes, so learners see the same header whatever the
+ * vocabulary of the stream. Every non-zero value becomes a token: the name
+ * of a numeric attribute with its value, the name and label of a nominal
+ * attribute with value one, and every word of a string attribute with its
+ * count. A token is added to the attribute given by its hash modulo the
+ * number of attributes, negated when signed hashing is on and the hash says
+ * so, which makes collisions cancel out on average. The class attribute is
+ * kept as the last attribute. The filtered instances are sparse and only
+ * the hash of the attribute names and labels of the input header is kept,
+ * so the filter itself does not grow with the number of distinct words.
+ * The input stream may still do so: with raw text in an ARFF string
+ * attribute, <code>ArffFileStream</code> keeps every distinct string in its
+ * header when it uses the Weka parser, and memory is only bounded with the
+ * fast parser (<code>-p</code>), which gives every instance its own
+ * strings. As in sparse ARFF files, a nominal or string attribute of a
+ * sparse input instance whose value has index zero, and so is not stored,
+ * gives no token. The Weka parser puts the first string of an attribute at
+ * index zero, while the fast parser never puts a non-empty string there.
+ *
+ * @version $Revision: 7 $
+ */
+public class FeatureHashingFilter extends AbstractStreamFilter {
+
+    @Override
+    public String getPurposeString() {
+        return "Maps the values of a stream into a fixed number of hashed attributes.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption numAttributesOption = new IntOption("numAttributes", 'n',
+            "Number of hashed attributes.", 1 << 18, 1, Integer.MAX_VALUE);
+
+    public FlagOption signedOption = new FlagOption("signed", 's',
+            "Use the hash to choose the sign of every token (not for learners that expect counts, like NaiveBayesMultinomial).");
+
+    public IntOption seedOption = new IntOption("seed", 'r',
+            "Seed of the hash function.", 1);
+
+    public StringOption delimitersOption = new StringOption("delimiters", 'd',
+            "Characters that separate the words of string attributes.",
+            " \r\n\t.,;:'\"()?!");
+
+    public FlagOption lowerCaseOption = new FlagOption("lowerCase", 'l',
+            "Convert the words of string attributes to lower case.");
+
+    protected InstancesHeader streamHeader;
+
+    // hash of the name of every input attribute, and of every nominal label
+    protected int[] attributeHashes;
+
+    protected int[][] labelHashes;
+
+    // tokens of the current instance, as bucket << 32 | position
+    protected long[] tokenKeys;
+
+    protected double[] tokenValues;
+
+    protected int numTokens;
+
+    @Override
+    protected void restartImpl() {
+        this.streamHeader = null;
+        this.tokenKeys = new long[16];
+        this.tokenValues = new double[16];
+        if (this.inputStream != null) {
+            generateHeader(this.inputStream.getHeader());
+        }
+    }
+
+    protected void generateHeader(InstancesHeader inputHeader) {
+        int seed = this.seedOption.getValue();
+        this.attributeHashes = new int[inputHeader.numAttributes()];
+        this.labelHashes = new int[inputHeader.numAttributes()][];
+        for (int i = 0; i < inputHeader.numAttributes(); i++) {
+            Attribute att = inputHeader.attribute(i);
+            this.attributeHashes[i] = hash(att.name(), seed);
+            if (att.isNominal()) {
+                this.labelHashes[i] = new int[att.numValues()];
+                for (int v = 0; v < att.numValues(); v++) {
+                    this.labelHashes[i][v] = hash(att.name() + "=" + att.value(v), seed);
+                }
+            }
+        }
+
+        FastVector attributes = new FastVector();
+        for (int i = 0; i < this.numAttributesOption.getValue(); i++) {
+            attributes.addElement(new Attribute("hash" + (i + 1)));
+        }
+        if (inputHeader.classIndex() >= 0) {
+            attributes.addElement(inputHeader.classAttribute().copy());
+        }
+        this.streamHeader = new InstancesHeader(new Instances(
+                inputHeader.relationName() + "-hashed", attributes, 0));
+        if (inputHeader.classIndex() >= 0) {
+            this.streamHeader.setClassIndex(this.streamHeader.numAttributes() - 1);
+        }
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.streamHeader;
+    }
+
+    @Override
+    public Instance nextInstance() {
+        Instance inst = this.inputStream.nextInstance();
+        int classIndex = inst.classIndex();
+        this.numTokens = 0;
+        int n = inst.numValues();
+        for (int p = 0; p < n; p++) {
+            int index = inst.index(p);
+            if (index == classIndex || inst.isMissingSparse(p)) {
+                continue;
+            }
+            Attribute att = inst.attribute(index);
+            if (att.isNumeric()) {
+                double value = inst.valueSparse(p);
+                if (value != 0.0) {
+                    addToken(this.attributeHashes[index], value);
+                }
+            } else if (att.isNominal()) {
+                addToken(this.labelHashes[index][(int) inst.valueSparse(p)], 1.0);
+            } else if (att.isString()) {
+                addWords(att.value((int) inst.valueSparse(p)));
+            }
+        }
+        return toInstance(inst);
+    }
+
+    protected void addWords(String text) {
+        int seed = this.seedOption.getValue();
+        boolean lowerCase = this.lowerCaseOption.isSet();
+        StringTokenizer tokenizer = new StringTokenizer(text,
+                this.delimitersOption.getValue());
+        while (tokenizer.hasMoreTokens()) {
+            String word = tokenizer.nextToken();
+            addToken(hash(lowerCase ? word.toLowerCase() : word, seed), 1.0);
+        }
+    }
+
+    protected void addToken(int hash, double value) {
+        if (this.numTokens == this.tokenKeys.length) {
+            this.tokenKeys = Arrays.copyOf(this.tokenKeys, 2 * this.numTokens);
+            this.tokenValues = Arrays.copyOf(this.tokenValues, 2 * this.numTokens);
+        }
+        // the lowest bit gives the sign, the others the bucket
+        long bucket = (hash >>> 1) % this.numAttributesOption.getValue();
+        if (this.signedOption.isSet() && (hash & 1) != 0) {
+            value = -value;
+        }
+        this.tokenKeys[this.numTokens] = (bucket << 32) | this.numTokens;
+        this.tokenValues[this.numTokens] = value;
+        this.numTokens++;
+    }
+
+    // sums the tokens of every bucket into a sparse instance
+    protected Instance toInstance(Instance inst) {
+        Arrays.sort(this.tokenKeys, 0, this.numTokens);
+        boolean hasClass = this.streamHeader.classIndex() >= 0;
+        int[] indices = new int[this.numTokens + (hasClass ? 1 : 0)];
+        double[] values = new double[indices.length];
+        int numValues = 0;
+        for (int t = 0; t < this.numTokens; t++) {
+            int bucket = (int) (this.tokenKeys[t] >>> 32);
+            double value = this.tokenValues[(int) this.tokenKeys[t]];
+            if (numValues > 0 && indices[numValues - 1] == bucket) {
+                values[numValues - 1] += value;
+            } else {
+                indices[numValues] = bucket;
+                values[numValues] = value;
+                numValues++;
+            }
+        }
+        if (hasClass) {
+            indices[numValues] = this.streamHeader.classIndex();
+            values[numValues] = inst.classIsMissing() ? Utils.missingValue()
+                    : inst.classValue();
+            numValues++;
+        }
+        if (numValues < indices.length) {
+            indices = Arrays.copyOf(indices, numValues);
+            values = Arrays.copyOf(values, numValues);
+        }
+        Instance hashed = new SparseInstance(inst.weight(), values, indices,
+                this.streamHeader.numAttributes());
+        hashed.setDataset(this.streamHeader);
+        return hashed;
+    }
+
+    /**
+     * MurmurHash3 of the characters of a string.
+     *
+     * @param s the string to hash
+     * @param seed the seed of the hash
+     * @return the hash
+     */
+    public static int hash(String s, int seed) {
+        int h = seed;
+        int length = s.length();
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            h = mix(h, s.charAt(i) | (s.charAt(i + 1) << 16));
+        }
+        if (i < length) {
+            int k = s.charAt(i) * 0xcc9e2d51;
+            k = Integer.rotateLeft(k, 15) * 0x1b873593;
+            h ^= k;
+        }
+        h ^= 2 * length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mix(int h, int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        k *= 0x1b873593;
+        h ^= k;
+        h = Integer.rotateLeft(h, 13);
+        return h * 5 + 0xe6546b64;
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *    FriedmanGenerator.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams.generators;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Random;
+
+import moa.core.InstancesHeader;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.FloatOption;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream generator for the Friedman #1 regression problem, used to evaluate
+ * FIMTDD and AMRules. The attributes are uniform in [0, 1] and the target is
+ * 10 sin(pi x1 x2) + 20 (x3 - 0.5)^2 + 10 x4 + 5 x5 plus normal noise, so
+ * the attributes after the fifth are irrelevant.
+ *
+ * @version $Revision: 7 $
+ */
+public class FriedmanGenerator extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "Generates the Friedman #1 regression problem.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption instanceRandomSeedOption = new IntOption(
+            "instanceRandomSeed", 'i',
+            "Seed for random generation of instances.", 1);
+
+    public IntOption numAttsOption = new IntOption("numAtts", 'a',
+            "The number of attributes to generate.", 10, 5, Integer.MAX_VALUE);
+
+    public FloatOption noiseOption = new FloatOption("noise", 'n',
+            "Standard deviation of the noise added to the target.", 1.0, 0.0,
+            Double.MAX_VALUE);
+
+    protected InstancesHeader streamHeader;
+
+    protected Random instanceRandom;
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        monitor.setCurrentActivity("Preparing Friedman...", -1.0);
+        generateHeader();
+        restart();
+    }
+
+    protected void generateHeader() {
+        FastVector attributes = new FastVector();
+        for (int i = 0; i < this.numAttsOption.getValue(); i++) {
+            attributes.addElement(new Attribute("att" + (i + 1)));
+        }
+        attributes.addElement(new Attribute("target"));
+        this.streamHeader = new InstancesHeader(new Instances(
+                getCLICreationString(InstanceStream.class), attributes, 0));
+        this.streamHeader.setClassIndex(this.streamHeader.numAttributes() - 1);
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        return -1;
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.streamHeader;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return true;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public Instance nextInstance() {
+        int numAtts = this.numAttsOption.getValue();
+        double[] attVals = new double[numAtts + 1];
+        for (int i = 0; i < numAtts; i++) {
+            attVals[i] = this.instanceRandom.nextDouble();
+        }
+        attVals[numAtts] = 10.0 * Math.sin(Math.PI * attVals[0] * attVals[1])
+                + 20.0 * (attVals[2] - 0.5) * (attVals[2] - 0.5)
+                + 10.0 * attVals[3] + 5.0 * attVals[4]
+                + this.noiseOption.getValue() * this.instanceRandom.nextGaussian();
+        Instance inst = new DenseInstance(1.0, attVals);
+        inst.setDataset(getHeader());
+        return inst;
+    }
+
+    @Override
+    public void restart() {
+        this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
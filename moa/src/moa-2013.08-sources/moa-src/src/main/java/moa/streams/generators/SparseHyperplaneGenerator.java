@@ -0,0 +1,170 @@
+/*
+ *    SparseHyperplaneGenerator.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.streams.generators;
+
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import moa.core.InstancesHeader;
+import moa.core.ObjectRepository;
+import moa.options.AbstractOptionHandler;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import moa.tasks.TaskMonitor;
+
+/**
+ * Stream generator for a hyperplane in a high dimensional sparse space, like
+ * a bag of words. Every instance has a fixed number of non-zero attributes,
+ * chosen at random, with values in (0, 1]. The class is positive when the
+ * weighted sum of the values is positive, for random normal weights.
+ *
+ * @version $Revision: 7 $
+ */
+public class SparseHyperplaneGenerator extends AbstractOptionHandler implements
+        InstanceStream {
+
+    @Override
+    public String getPurposeString() {
+        return "Generates a problem of predicting class of a hyperplane from sparse instances.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption instanceRandomSeedOption = new IntOption(
+            "instanceRandomSeed", 'i',
+            "Seed for random generation of instances.", 1);
+
+    public IntOption numAttsOption = new IntOption("numAtts", 'a',
+            "The number of attributes to generate.", 100000, 1, Integer.MAX_VALUE);
+
+    public IntOption numNonZeroOption = new IntOption("numNonZero", 'z',
+            "The number of non-zero attributes of every instance.", 20, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption noisePercentageOption = new IntOption("noisePercentage",
+            'n', "Percentage of noise to add to the data.", 5, 0, 100);
+
+    protected InstancesHeader streamHeader;
+
+    protected Random instanceRandom;
+
+    protected double[] weights;
+
+    @Override
+    protected void prepareForUseImpl(TaskMonitor monitor,
+            ObjectRepository repository) {
+        monitor.setCurrentActivity("Preparing hyperplane...", -1.0);
+        generateHeader();
+        restart();
+    }
+
+    protected void generateHeader() {
+        FastVector attributes = new FastVector();
+        for (int i = 0; i < this.numAttsOption.getValue(); i++) {
+            attributes.addElement(new Attribute("att" + (i + 1)));
+        }
+
+        FastVector classLabels = new FastVector();
+        classLabels.addElement("class1");
+        classLabels.addElement("class2");
+        attributes.addElement(new Attribute("class", classLabels));
+        this.streamHeader = new InstancesHeader(new Instances(
+                getCLICreationString(InstanceStream.class), attributes, 0));
+        this.streamHeader.setClassIndex(this.streamHeader.numAttributes() - 1);
+    }
+
+    @Override
+    public long estimatedRemainingInstances() {
+        return -1;
+    }
+
+    @Override
+    public InstancesHeader getHeader() {
+        return this.streamHeader;
+    }
+
+    @Override
+    public boolean hasMoreInstances() {
+        return true;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    @Override
+    public Instance nextInstance() {
+        int numAtts = this.numAttsOption.getValue();
+        int numNonZero = Math.min(this.numNonZeroOption.getValue(), numAtts);
+        // the class is stored as the last value, after the sorted attributes
+        int[] indices = new int[numNonZero + 1];
+        double[] attVals = new double[numNonZero + 1];
+        for (int i = 0; i < numNonZero; i++) {
+            int index;
+            boolean repeated;
+            do {
+                index = this.instanceRandom.nextInt(numAtts);
+                repeated = false;
+                for (int j = 0; j < i; j++) {
+                    if (indices[j] == index) {
+                        repeated = true;
+                        break;
+                    }
+                }
+            } while (repeated);
+            indices[i] = index;
+        }
+        Arrays.sort(indices, 0, numNonZero);
+        double sum = 0.0;
+        for (int i = 0; i < numNonZero; i++) {
+            attVals[i] = 1.0 - this.instanceRandom.nextDouble();
+            sum += this.weights[indices[i]] * attVals[i];
+        }
+        int classLabel = sum >= 0.0 ? 1 : 0;
+        //Add Noise
+        if ((1 + (this.instanceRandom.nextInt(100))) <= this.noisePercentageOption.getValue()) {
+            classLabel = (classLabel == 0 ? 1 : 0);
+        }
+        indices[numNonZero] = numAtts;
+        attVals[numNonZero] = classLabel;
+
+        Instance inst = new SparseInstance(1.0, attVals, indices, numAtts + 1);
+        inst.setDataset(getHeader());
+        return inst;
+    }
+
+    @Override
+    public void restart() {
+        this.instanceRandom = new Random(this.instanceRandomSeedOption.getValue());
+        this.weights = new double[this.numAttsOption.getValue()];
+        for (int i = 0; i < this.weights.length; i++) {
+            this.weights[i] = this.instanceRandom.nextGaussian();
+        }
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
@@ -32,6 +32,7 @@ import moa.evaluation.LearningEvaluation;
 import moa.learners.ChangeDetectorLearner;
 import moa.options.ClassOption;
 import moa.options.FileOption;
+import moa.options.FlagOption;
 import moa.options.IntOption;
 import moa.streams.clustering.ClusterEvent;
 import moa.streams.generators.cd.ConceptDriftGenerator;
@@ -85,6 +86,9 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);*/
 
+    public FlagOption fullModelSizeOption = new FlagOption("fullModelSize", 'z',
+            "Measure the model size by walking the whole model with the SizeOf agent, instead of using the estimate of the learner.");
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
@@ -176,7 +180,8 @@ public class EvaluateConceptDrift extends ConceptDriftMainTask{
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = (this.fullModelSizeOption.isSet() ? learner.measureByteSize()
+                        : learner.estimateByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
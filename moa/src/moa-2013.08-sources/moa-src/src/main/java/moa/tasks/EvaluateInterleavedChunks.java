@@ -31,9 +31,9 @@ import moa.evaluation.LearningCurve;
 import moa.evaluation.LearningEvaluation;
 import moa.options.ClassOption;
 import moa.options.FileOption;
+import moa.options.FlagOption;
 import moa.options.IntOption;
 import moa.streams.InstanceStream;
-import weka.core.Instance;
 import weka.core.Instances;
 
 public class EvaluateInterleavedChunks extends MainTask {
@@ -110,6 +110,9 @@ public class EvaluateInterleavedChunks extends MainTask {
 			"How many instances between memory bound checks.", 100000, 0,
 			Integer.MAX_VALUE);
 
+	public FlagOption fullModelSizeOption = new FlagOption("fullModelSize", 'z',
+			"Measure the model size by walking the whole model with the SizeOf agent, instead of using the estimate of the learner.");
+
 	/**
 	 * Allows to define the output file name and location.
 	 */
@@ -192,11 +195,12 @@ public class EvaluateInterleavedChunks extends MainTask {
 			long testStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
 			if(!firstChunk)
 			{
-				for (int i=0; i< chunkInstances.numInstances(); i++) {
-					Instance testInst = (Instance) chunkInstances.instance(i).copy();
-					//testInst.setClassMissing();
-					double[] prediction = learner.getVotesForInstance(testInst);
-					evaluator.addResult(testInst, prediction);
+				// the whole chunk is predicted at once, on copies of its instances
+				Instances testInstances = new Instances(chunkInstances);
+				double[][] predictions = new double[testInstances.numInstances()][];
+				learner.getVotesForInstances(testInstances, predictions);
+				for (int i=0; i< testInstances.numInstances(); i++) {
+					evaluator.addResult(testInstances.instance(i), predictions[i]);
 			    }
 			}
 			else
@@ -219,7 +223,8 @@ public class EvaluateInterleavedChunks extends MainTask {
 			////Result output
 			if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0) {
 				
-				double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+				double RAMHoursIncrement = (this.fullModelSizeOption.isSet() ? learner.measureByteSize()
+						: learner.estimateByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (TimingUtils.nanoTimeToSeconds(sampleTrainTime + sampleTestTime) / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
 				
@@ -32,6 +32,7 @@ import moa.evaluation.LearningCurve;
 import moa.evaluation.LearningEvaluation;
 import moa.options.ClassOption;
 import moa.options.FileOption;
+import moa.options.FlagOption;
 import moa.options.IntOption;
 import moa.streams.InstanceStream;
 import weka.core.Instance;
@@ -81,6 +82,9 @@ public class EvaluateInterleavedTestThenTrain extends MainTask {
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public FlagOption fullModelSizeOption = new FlagOption("fullModelSize", 'z',
+            "Measure the model size by walking the whole model with the SizeOf agent, instead of using the estimate of the learner.");
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv reslts to.", null, "csv", true);
 
@@ -130,18 +134,19 @@ public class EvaluateInterleavedTestThenTrain extends MainTask {
             Instance testInst = (Instance) trainInst.copy();
             int trueClass = (int) trainInst.classValue();
             //testInst.setClassMissing();
-            double[] prediction = learner.getVotesForInstance(testInst);
+            // test then train in one call, so ensembles can reuse member votes
+            double[] prediction = learner.testThenTrainOnInstance(trainInst);
             //evaluator.addClassificationAttempt(trueClass, prediction, testInst
             //		.weight());
             evaluator.addResult(testInst, prediction);
-            learner.trainOnInstance(trainInst);
             instancesProcessed++;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
                   ||  stream.hasMoreInstances() == false) {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = (this.fullModelSizeOption.isSet() ? learner.measureByteSize()
+                        : learner.estimateByteSize()) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
@@ -92,6 +92,10 @@ public class EvaluatePeriodicHeldOutTest extends MainTask {
     public FlagOption cacheTestOption = new FlagOption("cacheTest", 'c',
             "Cache test instances in memory.");
 
+    public IntOption testBatchSizeOption = new IntOption("testBatchSize", 'b',
+            "Number of test examples predicted at once.", 1000, 1,
+            Integer.MAX_VALUE);
+
     @Override
     protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
         Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
@@ -181,19 +185,20 @@ public class EvaluatePeriodicHeldOutTest extends MainTask {
                     / (double) (this.trainSizeOption.getValue()) * 100.0), 2)
                     + "% training)...");
             long testStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            int testBatchSize = this.testBatchSizeOption.getValue();
+            Instances testBatch = new Instances(stream.getHeader(), testBatchSize);
+            double[][] predictions = new double[testBatchSize][];
             int instCount = 0 ;
             for (instCount = 0; instCount < testSize; instCount++) {
 				if (stream.hasMoreInstances() == false) {
 					break;
 				}
-                Instance testInst = (Instance) testStream.nextInstance().copy();
-                double trueClass = testInst.classValue();
-                testInst.setClassMissing();
-                double[] prediction = learner.getVotesForInstance(testInst);
-                testInst.setClassValue(trueClass);
-                evaluator.addResult(testInst, prediction);
-                testInstancesProcessed++;
-                if (testInstancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                testBatch.add(testStream.nextInstance()); // adds a copy
+                if ((testBatch.numInstances() == testBatchSize)
+                        || (instCount == testSize - 1)) {
+                    testBatch(learner, evaluator, testBatch, predictions);
+                    testInstancesProcessed += testBatch.numInstances();
+                    testBatch.delete();
                     if (monitor.taskShouldAbort()) {
                         return null;
                     }
@@ -284,6 +289,28 @@ public class EvaluatePeriodicHeldOutTest extends MainTask {
         return learningCurve;
     }
 
+    /*
+     * predicts a batch of test instances with their class hidden and adds
+     * the results to the evaluator
+     */
+    protected static void testBatch(Classifier learner,
+            ClassificationPerformanceEvaluator evaluator, Instances testBatch,
+            double[][] predictions) {
+        int numInstances = testBatch.numInstances();
+        double[] trueClasses = new double[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            Instance testInst = testBatch.instance(i);
+            trueClasses[i] = testInst.classValue();
+            testInst.setClassMissing();
+        }
+        learner.getVotesForInstances(testBatch, predictions);
+        for (int i = 0; i < numInstances; i++) {
+            Instance testInst = testBatch.instance(i);
+            testInst.setClassValue(trueClasses[i]);
+            evaluator.addResult(testInst, predictions[i]);
+        }
+    }
+
     @Override
     public Class<?> getTaskResultType() {
         return LearningCurve.class;
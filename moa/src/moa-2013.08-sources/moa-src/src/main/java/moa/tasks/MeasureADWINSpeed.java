@@ -0,0 +1,143 @@
+/*
+ *    MeasureADWINSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Random;
+
+import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.FlatADWIN;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningEvaluation;
+import moa.options.FloatOption;
+import moa.options.IntOption;
+import moa.options.MultiChoiceOption;
+
+/**
+ * Task for comparing the speed of <code>ADWIN</code> and
+ * <code>FlatADWIN</code>. Both detectors are fed the same synthetic stream,
+ * whose mean changes abruptly at evenly spaced drift points, and the changes
+ * detected and the estimations are checked to be the same at every step.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureADWINSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the speed and detections of ADWIN and FlatADWIN.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public IntOption streamLengthOption = new IntOption("streamLength", 'n',
+            "Number of values fed to each detector.", 1000000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption numDriftsOption = new IntOption("numDrifts", 'd',
+            "Number of changes of the mean in the stream.", 10, 0,
+            Integer.MAX_VALUE);
+
+    public MultiChoiceOption distributionOption = new MultiChoiceOption(
+            "distribution", 'v', "Distribution of the values.", new String[]{
+                "Bernoulli", "Gaussian"}, new String[]{
+                "0/1 values, like the errors of a classifier",
+                "Gaussian values with standard deviation 0.1"}, 0);
+
+    public FloatOption deltaOption = new FloatOption("delta", 'a',
+            "Delta of ADWIN change detection.", 0.002, 0.0, 1.0);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for the random stream.", 1);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        double[] values = generateValues();
+        double delta = this.deltaOption.getValue();
+
+        monitor.setCurrentActivity("Comparing detectors...", -1.0);
+        ADWIN adwin = new ADWIN(delta);
+        ADWIN flatAdwin = new FlatADWIN(delta);
+        long numMismatches = 0;
+        for (int i = 0; i < values.length; i++) {
+            boolean change = adwin.setInput(values[i]);
+            boolean flatChange = flatAdwin.setInput(values[i]);
+            if ((change != flatChange) || (adwin.getWidth() != flatAdwin.getWidth())
+                    || (Double.doubleToLongBits(adwin.getEstimation())
+                    != Double.doubleToLongBits(flatAdwin.getEstimation()))) {
+                numMismatches++;
+            }
+        }
+        if ((adwin.getNumberDetections() != flatAdwin.getNumberDetections())
+                || (adwin.getBucketsUsed() != flatAdwin.getBucketsUsed())) {
+            numMismatches++;
+        }
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring ADWIN...", 0.0);
+        double adwinTime = timeDetector(new ADWIN(delta), values);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        monitor.setCurrentActivity("Measuring FlatADWIN...", 0.5);
+        double flatTime = timeDetector(new FlatADWIN(delta), values);
+        return new LearningEvaluation(
+                new Measurement[]{
+                    new Measurement("Stream length", values.length),
+                    new Measurement("Changes detected", adwin.getNumberDetections()),
+                    new Measurement("Steps differing between detectors", numMismatches),
+                    new Measurement("ADWIN time per value (ns)", adwinTime),
+                    new Measurement("FlatADWIN time per value (ns)", flatTime),
+                    new Measurement("Speedup", adwinTime / flatTime)});
+    }
+
+    protected double[] generateValues() {
+        Random random = new Random(this.randomSeedOption.getValue());
+        int length = this.streamLengthOption.getValue();
+        int segmentLength = length / (this.numDriftsOption.getValue() + 1) + 1;
+        boolean bernoulli = this.distributionOption.getChosenIndex() == 0;
+        double[] values = new double[length];
+        double mean = random.nextDouble();
+        for (int i = 0; i < length; i++) {
+            if ((i > 0) && (i % segmentLength == 0)) {
+                mean = random.nextDouble();
+            }
+            if (bernoulli) {
+                values[i] = random.nextDouble() < mean ? 1.0 : 0.0;
+            } else {
+                values[i] = mean + 0.1 * random.nextGaussian();
+            }
+        }
+        return values;
+    }
+
+    protected static double timeDetector(ADWIN detector, double[] values) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < values.length; i++) {
+            detector.setInput(values[i]);
+        }
+        return (System.nanoTime() - startTime) / (double) values.length;
+    }
+}
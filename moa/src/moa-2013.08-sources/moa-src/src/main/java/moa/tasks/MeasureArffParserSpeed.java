@@ -0,0 +1,146 @@
+/*
+ *    MeasureArffParserSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.options.FileOption;
+import moa.options.IntOption;
+import moa.streams.ArffFileStream;
+import weka.core.Instance;
+
+/**
+ * Task for comparing the speed of the two parsers of
+ * <code>ArffFileStream</code>, in the way of <code>MeasureStreamSpeed</code>.
+ * The file is replayed several times by each parser, restarting the stream
+ * after every pass, and the instances read by both parsers are checked to be
+ * the same, comparing the strings of string attributes once both streams have
+ * read the next row.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureArffParserSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the speed of the Weka and fast parsers of ArffFileStream.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public FileOption arffFileOption = new FileOption("arffFile", 'f',
+            "ARFF file to read.", null, "arff", false);
+
+    public IntOption classIndexOption = new IntOption("classIndex", 'c',
+            "Class index of data. 0 for none or -1 for last attribute in file.",
+            -1, -1, Integer.MAX_VALUE);
+
+    public IntOption numPassesOption = new IntOption("numPasses", 'n',
+            "Number of times the file is read by each parser.", 10, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        String fileName = this.arffFileOption.getFile().getPath();
+        int classIndex = this.classIndexOption.getValue();
+        ArffFileStream wekaStream = new ArffFileStream(fileName, classIndex);
+        ArffFileStream fastStream = new ArffFileStream();
+        fastStream.arffFileOption.setValue(fileName);
+        fastStream.classIndexOption.setValue(classIndex);
+        fastStream.fastParserOption.setValue(true);
+        fastStream.restart();
+
+        monitor.setCurrentActivity("Comparing parsers...", -1.0);
+        long numInstances = 0;
+        long numMismatches = 0;
+        while (wekaStream.hasMoreInstances() && fastStream.hasMoreInstances()) {
+            if (!sameInstance(wekaStream.nextInstance(), fastStream.nextInstance())) {
+                numMismatches++;
+            }
+            numInstances++;
+        }
+        if (wekaStream.hasMoreInstances() || fastStream.hasMoreInstances()) {
+            numMismatches++;
+        }
+
+        int numPasses = this.numPassesOption.getValue();
+        monitor.setCurrentActivity("Measuring Weka parser...", 0.0);
+        double wekaTime = timePasses(wekaStream, numPasses, monitor);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        monitor.setCurrentActivity("Measuring fast parser...", 0.5);
+        double fastTime = timePasses(fastStream, numPasses, monitor);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        double numRead = (double) numInstances * numPasses;
+        return new LearningEvaluation(
+                new Measurement[]{
+                    new Measurement("Number of instances per pass", numInstances),
+                    new Measurement("Instances differing between parsers", numMismatches),
+                    new Measurement("Weka parser time elapsed", wekaTime),
+                    new Measurement("Weka parser instances per second", numRead / wekaTime),
+                    new Measurement("Fast parser time elapsed", fastTime),
+                    new Measurement("Fast parser instances per second", numRead / fastTime),
+                    new Measurement("Speedup", wekaTime / fastTime)});
+    }
+
+    protected static double timePasses(ArffFileStream stream, int numPasses,
+            TaskMonitor monitor) {
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int pass = 0; pass < numPasses; pass++) {
+            stream.restart();
+            while (stream.hasMoreInstances()) {
+                stream.nextInstance();
+            }
+            if (monitor.taskShouldAbort()) {
+                break;
+            }
+        }
+        return TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
+                - startTime);
+    }
+
+    protected static boolean sameInstance(Instance a, Instance b) {
+        if ((a.numAttributes() != b.numAttributes()) || (a.weight() != b.weight())
+                || (a.classIndex() != b.classIndex())) {
+            return false;
+        }
+        for (int i = 0; i < a.numAttributes(); i++) {
+            if (a.attribute(i).isString() && !a.isMissing(i)) {
+                // the parsers store strings differently, so only the
+                // strings themselves have to match
+                if (b.isMissing(i) || !a.stringValue(i).equals(b.stringValue(i))) {
+                    return false;
+                }
+            } else if (Double.doubleToLongBits(a.value(i)) != Double.doubleToLongBits(b.value(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *    MeasureClustreamSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import moa.cluster.Clustering;
+import moa.clusterers.clustream.Clustream;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.streams.clustering.ClusteringStream;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+
+/**
+ * Task for comparing Clustream with and without the accelerated option. Both
+ * are first trained side by side, comparing their kernels after every
+ * instance: the number of instances after which the kernels differ is
+ * reported, and should be zero. Then the time to train each of them on the
+ * instances is measured. The instances are read into memory first, without
+ * their class, as clusterers are trained on them.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureClustreamSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the speed and kernels of Clustream with and without acceleration.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption clustererOption = new ClassOption("clusterer", 'l',
+            "Clustream to measure.", Clustream.class, "Clustream");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ClusteringStream.class,
+            "RandomRBFGeneratorEvents");
+
+    public IntOption numInstancesOption = new IntOption("numInstances", 'i',
+            "Maximum number of instances read from the stream.", 100000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Clustream clusterer = (Clustream) getPreparedClassOption(this.clustererOption);
+        ClusteringStream stream = (ClusteringStream) getPreparedClassOption(this.streamOption);
+
+        monitor.setCurrentActivity("Reading instances...", -1.0);
+        List<Instance> instances = new ArrayList<Instance>();
+        while ((instances.size() < this.numInstancesOption.getValue())
+                && stream.hasMoreInstances()) {
+            Instance next = stream.nextInstance();
+            Instance inst = new DenseInstance(next);
+            inst.deleteAttributeAt(next.classIndex());
+            instances.add(inst);
+        }
+        int numInstances = instances.size();
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Comparing kernels...", 0.0);
+        Clustream plain = newClustream(clusterer, false);
+        Clustream accelerated = newClustream(clusterer, true);
+        int numMismatches = 0;
+        for (int i = 0; i < numInstances; i++) {
+            plain.trainOnInstance(instances.get(i));
+            accelerated.trainOnInstance(instances.get(i));
+            if (!sameKernels(plain.getMicroClusteringResult(),
+                    accelerated.getMicroClusteringResult())) {
+                numMismatches++;
+            }
+            if ((i % INSTANCES_BETWEEN_MONITOR_UPDATES == 0)
+                    && monitor.taskShouldAbort()) {
+                return null;
+            }
+        }
+
+        monitor.setCurrentActivity("Measuring Clustream...", 0.4);
+        double plainTime = measureTrainingTime(newClustream(clusterer, false),
+                instances);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        monitor.setCurrentActivity("Measuring accelerated Clustream...", 0.7);
+        double acceleratedTime = measureTrainingTime(
+                newClustream(clusterer, true), instances);
+
+        Measurement[] measurements = new Measurement[]{
+            new Measurement("Number of instances", numInstances),
+            new Measurement("Instances with different kernels", numMismatches),
+            new Measurement("Clustream instances per second", numInstances / plainTime),
+            new Measurement("Accelerated instances per second", numInstances / acceleratedTime),
+            new Measurement("Speedup", plainTime / acceleratedTime)};
+        return new LearningEvaluation(measurements);
+    }
+
+    protected static Clustream newClustream(Clustream clusterer,
+            boolean accelerated) {
+        Clustream copy = (Clustream) clusterer.copy();
+        copy.acceleratedOption.setValue(accelerated);
+        copy.resetLearning();
+        return copy;
+    }
+
+    protected static boolean sameKernels(Clustering a, Clustering b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if ((a.get(i).getWeight() != b.get(i).getWeight())
+                    || !Arrays.equals(a.get(i).getCenter(), b.get(i).getCenter())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static double measureTrainingTime(Clustream clusterer,
+            List<Instance> instances) {
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (Instance inst : instances) {
+            clusterer.trainOnInstance(inst);
+        }
+        return TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+    }
+}
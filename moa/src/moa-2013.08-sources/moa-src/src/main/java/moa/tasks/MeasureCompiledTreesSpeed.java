@@ -0,0 +1,153 @@
+/*
+ *    MeasureCompiledTreesSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Arrays;
+
+import moa.classifiers.Classifier;
+import moa.classifiers.trees.CompiledTrees;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import weka.core.Instances;
+
+/**
+ * Task for comparing the prediction speed and memory size of a trained tree,
+ * or ensemble of trees, with its compiled form. The learner is trained on the
+ * first instances of the stream and both models predict the instances that
+ * follow, which are read into memory first. The number of instances for
+ * which the two models give different votes is reported, and should be zero.
+ * The memory sizes are only measured when the sizeofag agent is loaded.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureCompiledTreesSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the prediction speed and size of a trained tree with its compiled form.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Tree or ensemble of trees to train and compile.", Classifier.class,
+            "trees.HoeffdingTree");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption trainInstancesOption = new IntOption("trainInstances", 'i',
+            "Number of instances to train on.", 100000, 0, Integer.MAX_VALUE);
+
+    public IntOption testInstancesOption = new IntOption("testInstances", 't',
+            "Number of instances to predict.", 100000, 1, Integer.MAX_VALUE);
+
+    public IntOption numPassesOption = new IntOption("numPasses", 'n',
+            "Number of times the instances are predicted.", 5, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+
+        monitor.setCurrentActivity("Training...", -1.0);
+        int numTrained = 0;
+        while ((numTrained < this.trainInstancesOption.getValue())
+                && stream.hasMoreInstances()) {
+            learner.trainOnInstance(stream.nextInstance());
+            numTrained++;
+            if ((numTrained % INSTANCES_BETWEEN_MONITOR_UPDATES == 0)
+                    && monitor.taskShouldAbort()) {
+                return null;
+            }
+        }
+        monitor.setCurrentActivity("Compiling...", -1.0);
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        CompiledTrees compiled = new CompiledTrees(learner);
+        double compileTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+
+        monitor.setCurrentActivity("Reading instances...", -1.0);
+        Instances instances = new Instances(stream.getHeader(),
+                Math.min(this.testInstancesOption.getValue(), 1000000));
+        while ((instances.numInstances() < this.testInstancesOption.getValue())
+                && stream.hasMoreInstances()) {
+            instances.add(stream.nextInstance());
+        }
+        int numInstances = instances.numInstances();
+        int numMismatches = 0;
+        for (int i = 0; i < numInstances; i++) {
+            if (!Arrays.equals(learner.getVotesForInstance(instances.instance(i)),
+                    compiled.getVotesForInstance(instances.instance(i)))) {
+                numMismatches++;
+            }
+        }
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring trained model...", 0.0);
+        double treeTime = measurePredictionTime(learner, instances);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        monitor.setCurrentActivity("Measuring compiled model...", 0.5);
+        double compiledTime = measurePredictionTime(compiled, instances);
+        double numPredicted = (double) numInstances * this.numPassesOption.getValue();
+
+        Measurement[] measurements = new Measurement[]{
+            new Measurement("Training instances", numTrained),
+            new Measurement("Test instances", numInstances),
+            new Measurement("Compiled nodes", compiled.getNumNodes()),
+            new Measurement("Compile time", compileTime),
+            new Measurement("Instances with different votes", numMismatches),
+            new Measurement("Trained model instances per second", numPredicted / treeTime),
+            new Measurement("Compiled model instances per second", numPredicted / compiledTime),
+            new Measurement("Speedup", treeTime / compiledTime),
+            new Measurement("Trained model bytes", SizeOf.fullSizeOf(learner)),
+            new Measurement("Compiled model bytes", SizeOf.fullSizeOf(compiled))};
+        return new LearningEvaluation(measurements);
+    }
+
+    protected double measurePredictionTime(Classifier model, Instances instances) {
+        int numInstances = instances.numInstances();
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int pass = 0; pass < this.numPassesOption.getValue(); pass++) {
+            for (int i = 0; i < numInstances; i++) {
+                model.getVotesForInstance(instances.instance(i));
+            }
+        }
+        return TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+    }
+}
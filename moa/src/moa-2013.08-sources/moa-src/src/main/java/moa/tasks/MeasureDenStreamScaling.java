@@ -0,0 +1,163 @@
+/*
+ *    MeasureDenStreamScaling.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import moa.cluster.Clustering;
+import moa.clusterers.denstream.WithDBSCAN;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.FlagOption;
+import moa.options.IntOption;
+import moa.streams.clustering.ClusteringStream;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+
+/**
+ * Task for measuring how DenStream scales with the number of instances, with
+ * and without the grid index. The instances are read from the stream in
+ * chunks, without their class, and both clusterers are trained on every
+ * chunk. After every chunk a row with the time each of them took for the
+ * chunk, the number of micro-clusters and whether both have the same
+ * potential micro-clusters is added to the curve.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureDenStreamScaling extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures how DenStream scales with and without the grid index.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption clustererOption = new ClassOption("clusterer", 'l',
+            "DenStream to measure.", WithDBSCAN.class, "WithDBSCAN");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ClusteringStream.class,
+            "RandomRBFGeneratorEvents");
+
+    public IntOption numInstancesOption = new IntOption("numInstances", 'i',
+            "Maximum number of instances read from the stream.", 1000000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f', "Number of instances in every chunk.", 10000, 1,
+            Integer.MAX_VALUE);
+
+    public FlagOption gridOnlyOption = new FlagOption("gridOnly", 'g',
+            "Only measure DenStream with the grid index.");
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        WithDBSCAN clusterer = (WithDBSCAN) getPreparedClassOption(this.clustererOption);
+        ClusteringStream stream = (ClusteringStream) getPreparedClassOption(this.streamOption);
+        WithDBSCAN plain = this.gridOnlyOption.isSet() ? null
+                : newDenStream(clusterer, false);
+        WithDBSCAN grid = newDenStream(clusterer, true);
+        LearningCurve learningCurve = new LearningCurve("instances");
+        int maxInstances = this.numInstancesOption.getValue();
+        int numInstances = 0;
+        double plainTime = 0.0;
+        double gridTime = 0.0;
+        List<Instance> chunk = new ArrayList<Instance>();
+        while ((numInstances < maxInstances) && stream.hasMoreInstances()) {
+            chunk.clear();
+            while ((chunk.size() < this.sampleFrequencyOption.getValue())
+                    && (numInstances + chunk.size() < maxInstances)
+                    && stream.hasMoreInstances()) {
+                Instance next = stream.nextInstance();
+                Instance inst = new DenseInstance(next);
+                inst.deleteAttributeAt(next.classIndex());
+                chunk.add(inst);
+            }
+            numInstances += chunk.size();
+            double plainChunkTime = plain != null
+                    ? measureTrainingTime(plain, chunk) : 0.0;
+            double gridChunkTime = measureTrainingTime(grid, chunk);
+            plainTime += plainChunkTime;
+            gridTime += gridChunkTime;
+            learningCurve.insertEntry(new LearningEvaluation(new Measurement[]{
+                        new Measurement("instances", numInstances),
+                        new Measurement("chunk time (cpu seconds)", plainChunkTime),
+                        new Measurement("chunk time with grid (cpu seconds)", gridChunkTime),
+                        new Measurement("total time (cpu seconds)", plainTime),
+                        new Measurement("total time with grid (cpu seconds)", gridTime),
+                        new Measurement("potential micro-clusters",
+                        grid.getMicroClusteringResult().size()),
+                        new Measurement("same micro-clusters", plain != null
+                        ? (sameMicroClusters(plain.getMicroClusteringResult(),
+                        grid.getMicroClusteringResult()) ? 1 : 0) : -1)}));
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            monitor.setCurrentActivityFractionComplete((double) numInstances
+                    / maxInstances);
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+        }
+        return learningCurve;
+    }
+
+    protected static WithDBSCAN newDenStream(WithDBSCAN clusterer,
+            boolean gridIndex) {
+        WithDBSCAN copy = (WithDBSCAN) clusterer.copy();
+        copy.gridIndexOption.setValue(gridIndex);
+        copy.resetLearning();
+        return copy;
+    }
+
+    protected static boolean sameMicroClusters(Clustering a, Clustering b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if ((a.get(i).getWeight() != b.get(i).getWeight())
+                    || !Arrays.equals(a.get(i).getCenter(), b.get(i).getCenter())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static double measureTrainingTime(WithDBSCAN clusterer,
+            List<Instance> instances) {
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (Instance inst : instances) {
+            clusterer.trainOnInstance(inst);
+        }
+        return TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+    }
+}
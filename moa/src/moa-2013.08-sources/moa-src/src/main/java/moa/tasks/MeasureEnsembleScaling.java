@@ -0,0 +1,149 @@
+/*
+ *    MeasureEnsembleScaling.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.options.ListOption;
+import moa.options.Option;
+import moa.streams.InstanceStream;
+import weka.core.Instance;
+
+/**
+ * Task for measuring how the test-then-train throughput of an ensemble
+ * scales with the number of threads, for several ensemble sizes.
+ *
+ * The ensemble size and the number of threads are appended to the learner
+ * as the <code>-s</code> and <code>-t</code> options, as understood by
+ * <code>meta.PAME</code> and <code>meta.PAMEAdwin</code>. Times are wall clock
+ * times, since the work is spread over several threads.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureEnsembleScaling extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures how the throughput of an ensemble scales with the number of threads.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Ensemble to measure.", Classifier.class, "meta.PAME");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ListOption ensembleSizesOption = new ListOption("ensembleSizes", 'e',
+            "Ensemble sizes to measure, separated by commas.",
+            new IntOption("ensembleSize", ' ', "Ensemble size.", 10, 1, Integer.MAX_VALUE),
+            new IntOption[]{
+                new IntOption("", ' ', "", 10),
+                new IntOption("", ' ', "", 100),
+                new IntOption("", ' ', "", 500)}, ',');
+
+    public ListOption threadCountsOption = new ListOption("threadCounts", 't',
+            "Thread counts to measure, separated by commas (0 = sequential).",
+            new IntOption("threadCount", ' ', "Thread count.", 1, -1, Integer.MAX_VALUE),
+            new IntOption[]{
+                new IntOption("", ' ', "", 0),
+                new IntOption("", ' ', "", 1),
+                new IntOption("", ' ', "", 2),
+                new IntOption("", ' ', "", 4),
+                new IntOption("", ' ', "", 8)}, ',');
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to test/train on for each run.", 10000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        // read the stream up front so stream generation is not measured
+        monitor.setCurrentActivity("Reading stream...", -1.0);
+        Instance[] instances = new Instance[this.instanceLimitOption.getValue()];
+        int numInstances = 0;
+        while ((numInstances < instances.length) && stream.hasMoreInstances()) {
+            instances[numInstances++] = stream.nextInstance();
+        }
+        Option[] ensembleSizes = this.ensembleSizesOption.getList();
+        Option[] threadCounts = this.threadCountsOption.getList();
+        String learnerString = this.learnerOption.getValueAsCLIString();
+        LearningCurve learningCurve = new LearningCurve("run");
+        int runs = ensembleSizes.length * threadCounts.length;
+        int run = 0;
+        for (Option ensembleSize : ensembleSizes) {
+            int size = ((IntOption) ensembleSize).getValue();
+            double baseRate = 0.0;
+            for (Option threadCount : threadCounts) {
+                int threads = ((IntOption) threadCount).getValue();
+                monitor.setCurrentActivity("Measuring " + size + " experts on "
+                        + threads + " threads...", (double) run / runs);
+                Classifier learner;
+                try {
+                    learner = (Classifier) ClassOption.cliStringToObject(
+                            learnerString + " -s " + size + " -t " + threads,
+                            Classifier.class, null);
+                } catch (Exception ex) {
+                    throw new RuntimeException("Unable to create learner: "
+                            + learnerString, ex);
+                }
+                learner.prepareForUse();
+                learner.setModelContext(stream.getHeader());
+                long startTime = System.nanoTime();
+                for (int i = 0; i < numInstances; i++) {
+                    learner.getVotesForInstance(instances[i]);
+                    learner.trainOnInstance(instances[i]);
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                }
+                double time = (System.nanoTime() - startTime) / 1.0e9;
+                double rate = numInstances / time;
+                if (baseRate == 0.0) {
+                    baseRate = rate;
+                }
+                learningCurve.insertEntry(new LearningEvaluation(
+                        new Measurement[]{
+                            new Measurement("run", run),
+                            new Measurement("ensemble size", size),
+                            new Measurement("threads", threads),
+                            new Measurement("time (wall seconds)", time),
+                            new Measurement("instances per second", rate),
+                            new Measurement("speedup", rate / baseRate)}));
+                run++;
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(learningCurve.copy());
+                }
+            }
+        }
+        return learningCurve;
+    }
+}
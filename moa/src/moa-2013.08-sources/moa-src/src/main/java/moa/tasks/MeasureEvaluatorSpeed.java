@@ -0,0 +1,163 @@
+/*
+ *    MeasureEvaluatorSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.ClassificationPerformanceEvaluator;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.options.ListOption;
+import moa.options.Option;
+import moa.options.OptionHandler;
+import moa.streams.InstanceStream;
+import weka.core.Instance;
+
+/**
+ * Task for measuring the cost per instance of classification performance
+ * evaluators. The instances are read from the stream and the votes of the
+ * learner on them are computed up front, testing then training, so only the
+ * evaluators are measured. Every evaluator is then given the same results a
+ * number of times. One row is added to the curve for every evaluator, with
+ * its cost per instance, the cost relative to the first evaluator and its
+ * final accuracy and kappa.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureEvaluatorSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the cost per instance of classification performance evaluators.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner whose votes are evaluated.", Classifier.class,
+            "bayes.NaiveBayes");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ListOption evaluatorsOption = new ListOption("evaluators", 'e',
+            "Evaluators to measure, separated by semicolons.",
+            new ClassOption("evaluator", ' ', "Evaluator.",
+            ClassificationPerformanceEvaluator.class,
+            "BasicClassificationPerformanceEvaluator"),
+            new Option[]{
+                new ClassOption("", ' ', "", ClassificationPerformanceEvaluator.class,
+                "BasicClassificationPerformanceEvaluator"),
+                new ClassOption("", ' ', "", ClassificationPerformanceEvaluator.class,
+                "WindowClassificationPerformanceEvaluator"),
+                new ClassOption("", ' ', "", ClassificationPerformanceEvaluator.class,
+                "ConfusionWindowClassificationPerformanceEvaluator")}, ';');
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to evaluate.", 100000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption repetitionsOption = new IntOption("repetitions", 'r',
+            "Number of times every evaluator is given the results.", 10, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+
+        monitor.setCurrentActivity("Computing votes...", -1.0);
+        Instance[] instances = new Instance[this.instanceLimitOption.getValue()];
+        double[][] votes = new double[instances.length][];
+        int numInstances = 0;
+        while ((numInstances < instances.length) && stream.hasMoreInstances()) {
+            Instance inst = stream.nextInstance();
+            votes[numInstances] = learner.getVotesForInstance(inst);
+            learner.trainOnInstance(inst);
+            instances[numInstances++] = inst;
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+        }
+
+        Option[] evaluators = this.evaluatorsOption.getList();
+        int repetitions = this.repetitionsOption.getValue();
+        LearningCurve learningCurve = new LearningCurve("evaluator");
+        double firstCost = 0.0;
+        for (int e = 0; e < evaluators.length; e++) {
+            String evaluatorString = ((ClassOption) evaluators[e]).getValueAsCLIString();
+            monitor.setCurrentActivity("Measuring " + evaluatorString + "...",
+                    (double) e / evaluators.length);
+            ClassificationPerformanceEvaluator evaluator;
+            try {
+                evaluator = (ClassificationPerformanceEvaluator) ClassOption.cliStringToObject(
+                        evaluatorString, ClassificationPerformanceEvaluator.class, null);
+            } catch (Exception ex) {
+                throw new RuntimeException("Unable to create evaluator: "
+                        + evaluatorString, ex);
+            }
+            if (evaluator instanceof OptionHandler) {
+                ((OptionHandler) evaluator).prepareForUse();
+            }
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            for (int r = 0; r < repetitions; r++) {
+                evaluator.reset();
+                for (int i = 0; i < numInstances; i++) {
+                    evaluator.addResult(instances[i], votes[i]);
+                }
+            }
+            double cost = (double) (TimingUtils.getNanoCPUTimeOfCurrentThread()
+                    - startTime) / ((double) repetitions * numInstances);
+            if (e == 0) {
+                firstCost = cost;
+            }
+            Measurement[] measurements = evaluator.getPerformanceMeasurements();
+            Measurement accuracy = Measurement.getMeasurementNamed(
+                    "classifications correct (percent)", measurements);
+            Measurement kappa = Measurement.getMeasurementNamed(
+                    "Kappa Statistic (percent)", measurements);
+            learningCurve.insertEntry(new LearningEvaluation(new Measurement[]{
+                        new Measurement("evaluator", e),
+                        new Measurement("time per instance (nanoseconds)", cost),
+                        new Measurement("relative time", cost / firstCost),
+                        new Measurement("classifications correct (percent)",
+                        accuracy != null ? accuracy.getValue() : Double.NaN),
+                        new Measurement("Kappa Statistic (percent)",
+                        kappa != null ? kappa.getValue() : Double.NaN)}));
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+        }
+        return learningCurve;
+    }
+}
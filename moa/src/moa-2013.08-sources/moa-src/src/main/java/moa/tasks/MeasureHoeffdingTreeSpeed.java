@@ -0,0 +1,147 @@
+/*
+ *    MeasureHoeffdingTreeSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Task for measuring the training and prediction speed of a learner, by
+ * default a Hoeffding tree. The instances are read from the stream into
+ * memory first, so only the learner is measured. When the JVM can report
+ * the bytes allocated by a thread, the bytes allocated per instance are
+ * reported as well.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureHoeffdingTreeSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the training and prediction speed of a Hoeffding tree.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Classifier to measure.", Classifier.class, "trees.HoeffdingTree");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public IntOption numInstancesOption = new IntOption("numInstances", 'i',
+            "Maximum number of instances read from the stream.", 100000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption numPassesOption = new IntOption("numPasses", 'n',
+            "Number of times the instances are predicted.", 5, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Classifier learner = (Classifier) getPreparedClassOption(this.learnerOption);
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+
+        monitor.setCurrentActivity("Reading instances...", -1.0);
+        Instances instances = new Instances(stream.getHeader(),
+                Math.min(this.numInstancesOption.getValue(), 1000000));
+        while ((instances.numInstances() < this.numInstancesOption.getValue())
+                && stream.hasMoreInstances()) {
+            instances.add(stream.nextInstance());
+        }
+        int numInstances = instances.numInstances();
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring training...", 0.0);
+        long startBytes = allocatedBytesOfCurrentThread();
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int i = 0; i < numInstances; i++) {
+            learner.trainOnInstance(instances.instance(i));
+        }
+        double trainTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        long trainBytes = allocatedBytesOfCurrentThread() - startBytes;
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring prediction...", 0.5);
+        int numPasses = this.numPassesOption.getValue();
+        startBytes = allocatedBytesOfCurrentThread();
+        startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int pass = 0; pass < numPasses; pass++) {
+            for (int i = 0; i < numInstances; i++) {
+                learner.getVotesForInstance(instances.instance(i));
+            }
+        }
+        double predictTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        long predictBytes = allocatedBytesOfCurrentThread() - startBytes;
+        double numPredicted = (double) numInstances * numPasses;
+
+        Measurement[] measurements = new Measurement[]{
+            new Measurement("Number of instances", numInstances),
+            new Measurement("Training time", trainTime),
+            new Measurement("Training instances per second", numInstances / trainTime),
+            new Measurement("Training bytes allocated per instance",
+            startBytes < 0 ? -1 : (double) trainBytes / numInstances),
+            new Measurement("Prediction time", predictTime),
+            new Measurement("Prediction instances per second", numPredicted / predictTime),
+            new Measurement("Prediction bytes allocated per instance",
+            startBytes < 0 ? -1 : predictBytes / numPredicted)};
+        return new LearningEvaluation(measurements);
+    }
+
+    /*
+     * bytes allocated by the current thread so far, or -1 if the JVM does not
+     * report them
+     */
+    protected static long allocatedBytesOfCurrentThread() {
+        try {
+            Object threadBean = ManagementFactory.getThreadMXBean();
+            Method method = threadBean.getClass().getMethod(
+                    "getThreadAllocatedBytes", long.class);
+            method.setAccessible(true);
+            return ((Long) method.invoke(threadBean,
+                    Thread.currentThread().getId())).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *    MeasureNumericObserverSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.DoubleVector;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import weka.core.Instance;
+
+/**
+ * Task for measuring a numeric attribute class observer the way a leaf of a
+ * Hoeffding tree uses it. One observer per numeric attribute observes the
+ * instances of the stream, then the best split of every attribute is
+ * searched repeatedly. The time to observe, the time of one split search
+ * over all the attributes, the merit of the best split found and the memory
+ * used by the observers of the leaf are reported. The memory is only
+ * measured when the sizeofag agent is loaded.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureNumericObserverSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the speed and memory of a numeric attribute class observer.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption observerOption = new ClassOption("observer", 'o',
+            "Numeric attribute class observer to measure.",
+            NumericAttributeClassObserver.class,
+            "GaussianNumericAttributeClassObserver");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to read the instances from.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ClassOption splitCriterionOption = new ClassOption("splitCriterion",
+            'c', "Split criterion to use.", SplitCriterion.class,
+            "InfoGainSplitCriterion");
+
+    public IntOption numInstancesOption = new IntOption("numInstances", 'i',
+            "Number of instances observed by the leaf.", 10000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption numSplitChecksOption = new IntOption("numSplitChecks", 'n',
+            "Number of times the best split is searched.", 1000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        AttributeClassObserver prototype = (AttributeClassObserver) getPreparedClassOption(this.observerOption);
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        SplitCriterion criterion = (SplitCriterion) getPreparedClassOption(this.splitCriterionOption);
+        int numAttributes = stream.getHeader().numAttributes() - 1;
+        AttributeClassObserver[] observers = new AttributeClassObserver[numAttributes];
+        DoubleVector classDistribution = new DoubleVector();
+
+        monitor.setCurrentActivity("Observing instances...", -1.0);
+        int numObserved = 0;
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        while ((numObserved < this.numInstancesOption.getValue())
+                && stream.hasMoreInstances()) {
+            Instance inst = stream.nextInstance();
+            int classValue = (int) inst.classValue();
+            classDistribution.addToValue(classValue, inst.weight());
+            for (int i = 0; i < numAttributes; i++) {
+                int instAttIndex = i < inst.classIndex() ? i : i + 1;
+                if (inst.attribute(instAttIndex).isNumeric()) {
+                    if (observers[i] == null) {
+                        observers[i] = (AttributeClassObserver) prototype.copy();
+                    }
+                    observers[i].observeAttributeClass(inst.value(instAttIndex),
+                            classValue, inst.weight());
+                }
+            }
+            numObserved++;
+        }
+        double observeTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Searching splits...", 0.5);
+        double[] preSplitDist = classDistribution.getArrayCopy();
+        int numSplitChecks = this.numSplitChecksOption.getValue();
+        int numObservers = 0;
+        double bestMerit = Double.NEGATIVE_INFINITY;
+        startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int check = 0; check < numSplitChecks; check++) {
+            for (int i = 0; i < numAttributes; i++) {
+                if (observers[i] != null) {
+                    AttributeSplitSuggestion suggestion = observers[i].getBestEvaluatedSplitSuggestion(
+                            criterion, preSplitDist, i, true);
+                    if ((suggestion != null) && (suggestion.merit > bestMerit)) {
+                        bestMerit = suggestion.merit;
+                    }
+                }
+            }
+        }
+        double splitTime = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        for (int i = 0; i < numAttributes; i++) {
+            if (observers[i] != null) {
+                numObservers++;
+            }
+        }
+
+        Measurement[] measurements = new Measurement[]{
+            new Measurement("Instances observed", numObserved),
+            new Measurement("Numeric attributes", numObservers),
+            new Measurement("Observe microseconds per instance",
+            1.0e6 * observeTime / numObserved),
+            new Measurement("Split check microseconds",
+            1.0e6 * splitTime / numSplitChecks),
+            new Measurement("Best split merit", bestMerit),
+            new Measurement("Leaf observers bytes", SizeOf.fullSizeOf(observers))};
+        return new LearningEvaluation(measurements);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ *    MeasurePAMEUpdateSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Random;
+
+import moa.classifiers.meta.PAMEWeightUpdates;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.FloatOption;
+import moa.options.IntOption;
+import moa.options.ListOption;
+import moa.options.MultiChoiceOption;
+import moa.options.Option;
+
+/**
+ * Task for measuring the cost of one PAME weight update for several numbers
+ * of experts. The in-place updates of <code>PAMEWeightUpdates</code> are
+ * compared with the original implementation, which allocated new vectors
+ * on every update and sorted with bubble sort for the simplex projection.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasurePAMEUpdateSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the cost of the PAME weight updates.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ListOption numExpertsOption = new ListOption("numExperts", 'k',
+            "Numbers of experts to measure, separated by commas.",
+            new IntOption("numExperts", ' ', "Number of experts.", 10, 1, Integer.MAX_VALUE),
+            new IntOption[]{
+                new IntOption("", ' ', "", 10),
+                new IntOption("", ' ', "", 30),
+                new IntOption("", ' ', "", 100),
+                new IntOption("", ' ', "", 300),
+                new IntOption("", ' ', "", 1000)}, ',');
+
+    public MultiChoiceOption updateMethodOption = new MultiChoiceOption(
+            "updateMethod", 'u', "The update method measured.", new String[]{
+                "PAME-I", "PAME-II", "PAME-III"}, new String[]{
+                "Update +/- Weight",
+                "Update + Weight clipping",
+                "Formal Optimization"}, 2);
+
+    public FloatOption alphaOption = new FloatOption("alphaOption", 'C',
+            "Regularization bound on the step size.", 1, 0.001, Float.MAX_VALUE);
+
+    public IntOption numUpdatesOption = new IntOption("numUpdates", 'n',
+            "Number of updates per measurement.", 100000, 1, Integer.MAX_VALUE);
+
+    public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
+            "Seed for the random expert predictions.", 1);
+
+    /** Number of distinct prediction vectors cycled through. */
+    protected static final int NUM_PREDICTION_VECTORS = 256;
+
+    /** Number of updates run before timing, to let the JIT compile both versions. */
+    protected static final int NUM_WARMUP_UPDATES = 1000;
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        Option[] numExperts = this.numExpertsOption.getList();
+        int method = this.updateMethodOption.getChosenIndex();
+        double C = this.alphaOption.getValue();
+        int numUpdates = this.numUpdatesOption.getValue();
+        LearningCurve learningCurve = new LearningCurve("experts");
+        for (int run = 0; run < numExperts.length; run++) {
+            int K = ((IntOption) numExperts[run]).getValue();
+            monitor.setCurrentActivity("Measuring " + K + " experts...",
+                    (double) run / numExperts.length);
+            Random random = new Random(this.randomSeedOption.getValue());
+            double[][] ht = new double[NUM_PREDICTION_VECTORS][K];
+            double[] yt = new double[NUM_PREDICTION_VECTORS];
+            for (int j = 0; j < NUM_PREDICTION_VECTORS; j++) {
+                for (int i = 0; i < K; i++) {
+                    ht[j][i] = random.nextBoolean() ? 1.0 : -1.0;
+                }
+                yt[j] = random.nextBoolean() ? 1.0 : -1.0;
+            }
+
+            // warm up both versions before timing them
+            runOriginal(method, K, ht, yt, C, Math.min(numUpdates, NUM_WARMUP_UPDATES));
+            runInPlace(method, K, ht, yt, C, Math.min(numUpdates, NUM_WARMUP_UPDATES));
+
+            long startTime = System.nanoTime();
+            double[] oldWeights = runOriginal(method, K, ht, yt, C, numUpdates);
+            double oldTime = (System.nanoTime() - startTime) / (double) numUpdates;
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            startTime = System.nanoTime();
+            double[] newWeights = runInPlace(method, K, ht, yt, C, numUpdates);
+            double newTime = (System.nanoTime() - startTime) / (double) numUpdates;
+
+            double maxDifference = 0.0;
+            for (int i = 0; i < K; i++) {
+                maxDifference = Math.max(maxDifference,
+                        Math.abs(oldWeights[i] - newWeights[i]));
+            }
+            learningCurve.insertEntry(new LearningEvaluation(
+                    new Measurement[]{
+                        new Measurement("experts", K),
+                        new Measurement("original update (ns)", oldTime),
+                        new Measurement("in-place update (ns)", newTime),
+                        new Measurement("speedup", oldTime / newTime),
+                        new Measurement("max weight difference", maxDifference)}));
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+        }
+        return learningCurve;
+    }
+
+    protected static double[] runOriginal(int method, int K, double[][] ht,
+            double[] yt, double C, int numUpdates) {
+        double[] weights = initialWeights(K, method);
+        for (int n = 0; n < numUpdates; n++) {
+            int j = n % NUM_PREDICTION_VECTORS;
+            weights = originalUpdate(method, weights, ht[j], yt[j], C);
+        }
+        return weights;
+    }
+
+    protected static double[] runInPlace(int method, int K, double[][] ht,
+            double[] yt, double C, int numUpdates) {
+        double[] weights = initialWeights(K, method);
+        double[] scratch = new double[K];
+        for (int n = 0; n < numUpdates; n++) {
+            int j = n % NUM_PREDICTION_VECTORS;
+            if (method == 0) {
+                PAMEWeightUpdates.pame1(weights, ht[j], yt[j], C);
+            } else if (method == 1) {
+                PAMEWeightUpdates.pame2(weights, ht[j], yt[j], C);
+            } else {
+                PAMEWeightUpdates.pame3(weights, ht[j], yt[j], C, scratch);
+            }
+        }
+        return weights;
+    }
+
+    protected static double[] initialWeights(int K, int method) {
+        double[] weights = new double[K];
+        for (int i = 0; i < K; i++) {
+            weights[i] = method == 0 ? 0.001 : 1.0 / K;
+        }
+        return weights;
+    }
+
+    /*
+     * The weight updates as originally written in PAME, kept as a reference.
+     */
+    protected static double[] originalUpdate(int method, double[] weights,
+            double[] ht, double yt, double C) {
+        if (method == 0 || method == 1) {
+            double alpha = (1.0 - yt * dot(ht, weights)) / dot(ht, ht);
+            if (alpha < 0) {
+                alpha = 0;
+            }
+            if (C < alpha) {
+                alpha = C;
+            }
+            weights = addvectors(weights, scalarvector(alpha * yt, ht));
+            if (method == 1) {
+                for (int i = 0; i < weights.length; i++) {
+                    if (weights[i] < 0.0) {
+                        weights[i] = 0.0;
+                    }
+                }
+            }
+            return weights;
+        }
+        double K = (double) weights.length;
+        double[] onesVec = new double[weights.length];
+        for (int k = 1; k < onesVec.length; k++) {
+            onesVec[k] = 1.0;
+        }
+        double hh = dot(ht, onesVec);
+        double[] normVec = addvectors(ht, scalarvector(-1.0 * hh / K, onesVec));
+        double denom = dot(normVec, normVec);
+        double alpha = (1.0 - yt * dot(ht, weights)) / denom;
+        if (alpha < 0) {
+            alpha = 0;
+        }
+        if (C < alpha) {
+            alpha = C;
+        }
+        double[] update = scalarvector(alpha * yt, addvectors(ht, scalarvector(-1.0 * hh / K, onesVec)));
+        weights = addvectors(weights, update);
+
+        boolean bGet = false;
+        double tmpsum = 0.0;
+        double tmax = 0.0;
+        double[] s = bubblesort(weights);
+        for (int i = 0; i < s.length - 1; i++) {
+            tmpsum += s[i];
+            tmax = (tmpsum - 1.0) / (i + 1);
+            if (tmax >= s[i + 1]) {
+                bGet = true;
+                break;
+            }
+        }
+        if (!bGet) {
+            tmax = (tmpsum + s[s.length - 1] - 1) / K;
+        }
+        for (int k = 0; k < weights.length; k++) {
+            if (weights[k] - tmax < 0) {
+                weights[k] = 0;
+            } else {
+                weights[k] -= tmax;
+            }
+        }
+        return weights;
+    }
+
+    protected static double dot(double[] x, double[] y) {
+        double dp = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            dp += x[i] * y[i];
+        }
+        return dp;
+    }
+
+    protected static double[] scalarvector(double a, double[] x) {
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            y[i] = a * x[i];
+        }
+        return y;
+    }
+
+    protected static double[] addvectors(double[] x, double[] y) {
+        double[] z = new double[x.length];
+        for (int i = 1; i < z.length; i++) {
+            z[i] = x[i] + y[i];
+        }
+        return z;
+    }
+
+    protected static double[] bubblesort(double[] x) {
+        boolean flag = true;
+        double t;
+        double[] y = x.clone();
+        while (flag) {
+            flag = false;
+            for (int j = 0; j < y.length - 1; j++) {
+                if (y[j] < y[j + 1]) {
+                    t = y[j];
+                    y[j] = y[j + 1];
+                    y[j + 1] = t;
+                    flag = true;
+                }
+            }
+        }
+        return y;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *    MeasureRecommenderSpeed.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.recommender.dataset.Dataset;
+import moa.recommender.predictor.RatingPredictor;
+import moa.recommender.rc.data.RecommenderData;
+
+/**
+ * Task for comparing the speed of two rating predictors, by default BRISMF
+ * on the map based rating store and on the primitive one. The ratings of the
+ * dataset are read into memory first, then replayed through each predictor
+ * as <code>EvaluateOnlineRecommender</code> does: every rating is predicted
+ * and then added to the data of the predictor. The ratings per second and
+ * the RMSE of each predictor are reported.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureRecommenderSpeed extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the speed of two online rating predictors.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption datasetOption = new ClassOption("dataset", 'd',
+            "Dataset to replay.", Dataset.class,
+            "moa.recommender.dataset.impl.MovielensDataset");
+
+    public ClassOption baselinePredictorOption = new ClassOption(
+            "baselinePredictor", 's', "Rating predictor to compare with.",
+            RatingPredictor.class, "BRISMFPredictor -d MemRecommenderData");
+
+    public ClassOption ratingPredictorOption = new ClassOption(
+            "ratingPredictor", 't', "Rating predictor to measure.",
+            RatingPredictor.class,
+            "BRISMFPredictor -d PrimitiveRecommenderData");
+
+    public IntOption numRatingsOption = new IntOption("numRatings", 'i',
+            "Maximum number of ratings read from the dataset.", 1000000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Dataset dataset = (Dataset) getPreparedClassOption(this.datasetOption);
+
+        monitor.setCurrentActivity("Reading ratings...", -1.0);
+        int maxRatings = this.numRatingsOption.getValue();
+        int[] users = new int[1024];
+        int[] items = new int[1024];
+        double[] ratings = new double[1024];
+        int numRatings = 0;
+        while ((numRatings < maxRatings) && dataset.next()) {
+            if (numRatings == users.length) {
+                int capacity = (int) Math.min(2L * numRatings, maxRatings);
+                users = copyOf(users, capacity);
+                items = copyOf(items, capacity);
+                double[] newRatings = new double[capacity];
+                System.arraycopy(ratings, 0, newRatings, 0, numRatings);
+                ratings = newRatings;
+            }
+            users[numRatings] = dataset.curUserID();
+            items[numRatings] = dataset.curItemID();
+            ratings[numRatings] = dataset.curRating();
+            numRatings++;
+        }
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Measuring baseline predictor...", 0.1);
+        RatingPredictor baseline = (RatingPredictor) getPreparedClassOption(this.baselinePredictorOption);
+        double[] baselineResult = replay(baseline, users, items, ratings,
+                numRatings);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        monitor.setCurrentActivity("Measuring rating predictor...", 0.55);
+        RatingPredictor predictor = (RatingPredictor) getPreparedClassOption(this.ratingPredictorOption);
+        double[] result = replay(predictor, users, items, ratings, numRatings);
+
+        Measurement[] measurements = new Measurement[]{
+            new Measurement("Number of ratings", numRatings),
+            new Measurement("Baseline ratings per second", numRatings / baselineResult[0]),
+            new Measurement("Baseline RMSE", baselineResult[1]),
+            new Measurement("Ratings per second", numRatings / result[0]),
+            new Measurement("RMSE", result[1]),
+            new Measurement("Speedup", baselineResult[0] / result[0])};
+        return new LearningEvaluation(measurements);
+    }
+
+    /**
+     * Predicts and adds every rating.
+     *
+     * @return the time taken in seconds and the RMSE of the predictions
+     */
+    protected static double[] replay(RatingPredictor predictor, int[] users,
+            int[] items, double[] ratings, int numRatings) {
+        RecommenderData data = predictor.getData();
+        data.clear();
+        data.disableUpdates(false);
+        double sum = 0;
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int i = 0; i < numRatings; i++) {
+            double pred = predictor.predictRating(users[i], items[i]);
+            sum += (pred - ratings[i]) * (pred - ratings[i]);
+            data.setRating(users[i], items[i], ratings[i]);
+        }
+        double time = TimingUtils.nanoTimeToSeconds(
+                TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+        return new double[]{time, Math.sqrt(sum / numRatings)};
+    }
+
+    protected static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *    MeasureRecommenderTraining.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Iterator;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.recommender.dataset.Dataset;
+import moa.recommender.predictor.BRISMFPredictor;
+import moa.recommender.rc.data.RecommenderData;
+import moa.recommender.rc.utils.Rating;
+
+/**
+ * Task for measuring batch training of BRISMF on one thread and on several.
+ * The ratings of the dataset are loaded into the data of both predictors
+ * without online updates, then each predictor is trained from scratch. The
+ * wall clock time of the training and the RMSE of the trained model on all
+ * the ratings are reported for both, with the speedup.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureRecommenderTraining extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares BRISMF batch training on one thread and on several.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption datasetOption = new ClassOption("dataset", 'd',
+            "Dataset to train on.", Dataset.class,
+            "moa.recommender.dataset.impl.MovielensDataset");
+
+    public ClassOption ratingPredictorOption = new ClassOption(
+            "ratingPredictor", 's', "Rating predictor to train.",
+            BRISMFPredictor.class, "BRISMFPredictor");
+
+    public IntOption threadsOption = new IntOption("threads", 't',
+            "Number of threads of the parallel training.", 4, 2,
+            Integer.MAX_VALUE);
+
+    public IntOption numRatingsOption = new IntOption("numRatings", 'i',
+            "Maximum number of ratings read from the dataset.", 1000000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningEvaluation.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        Dataset dataset = (Dataset) getPreparedClassOption(this.datasetOption);
+        String predictorString = this.ratingPredictorOption.getValueAsCLIString();
+        BRISMFPredictor serial = newPredictor(predictorString, 1);
+        BRISMFPredictor parallel = newPredictor(predictorString,
+                this.threadsOption.getValue());
+        RecommenderData serialData = serial.getData();
+        RecommenderData parallelData = parallel.getData();
+        serialData.clear();
+        parallelData.clear();
+        serialData.disableUpdates(true);
+        parallelData.disableUpdates(true);
+
+        monitor.setCurrentActivity("Reading ratings...", -1.0);
+        int maxRatings = this.numRatingsOption.getValue();
+        int numRatings = 0;
+        while ((numRatings < maxRatings) && dataset.next()) {
+            serialData.setRating(dataset.curUserID(), dataset.curItemID(),
+                    dataset.curRating());
+            parallelData.setRating(dataset.curUserID(), dataset.curItemID(),
+                    dataset.curRating());
+            numRatings++;
+        }
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+
+        monitor.setCurrentActivity("Training on one thread...", 0.1);
+        double serialTime = measureTrainingTime(serial);
+        if (monitor.taskShouldAbort()) {
+            return null;
+        }
+        monitor.setCurrentActivity("Training on "
+                + this.threadsOption.getValue() + " threads...", 0.55);
+        double parallelTime = measureTrainingTime(parallel);
+
+        return new LearningEvaluation(new Measurement[]{
+                    new Measurement("Number of ratings", numRatings),
+                    new Measurement("Training time (seconds)", serialTime),
+                    new Measurement("RMSE", rmse(serial)),
+                    new Measurement("Parallel training time (seconds)", parallelTime),
+                    new Measurement("Parallel RMSE", rmse(parallel)),
+                    new Measurement("Speedup", serialTime / parallelTime)});
+    }
+
+    protected static BRISMFPredictor newPredictor(String predictorString,
+            int numThreads) {
+        BRISMFPredictor predictor;
+        try {
+            predictor = (BRISMFPredictor) ClassOption.cliStringToObject(
+                    predictorString, BRISMFPredictor.class, null);
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to create predictor: "
+                    + predictorString, ex);
+        }
+        predictor.threadsOption.setValue(numThreads);
+        predictor.prepareForUse();
+        return predictor;
+    }
+
+    // the training threads are not charged to the calling thread's cpu time
+    protected static double measureTrainingTime(BRISMFPredictor predictor) {
+        long startTime = System.nanoTime();
+        predictor.train();
+        return (System.nanoTime() - startTime) / 1.0e9;
+    }
+
+    protected static double rmse(BRISMFPredictor predictor) {
+        double sum = 0;
+        int n = 0;
+        Iterator<Rating> it = predictor.getData().ratingIterator();
+        while (it.hasNext()) {
+            Rating rating = it.next();
+            double err = predictor.predictRating(rating.userID, rating.itemID)
+                    - rating.rating;
+            sum += err * err;
+            n++;
+        }
+        return Math.sqrt(sum / n);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ *    MeasureRegressionObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
+import moa.classifiers.core.splitcriteria.SDRSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.SizeOf;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import weka.core.Instance;
+
+/**
+ * Task for comparing the numeric attribute observers of FIMTDD, ORTO and
+ * AMRules on the statistics of a single leaf that sees the whole stream.
+ * Both observers keep one observer for every attribute, and every time the
+ * given number of instances has been observed, one row is added to the
+ * curve with the memory of the observers, the time to find the best split
+ * of every attribute with the SDR criterion and the merit of the best split
+ * found. The memory is only measured when the sizeofag agent is loaded, and
+ * is -1 otherwise.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureRegressionObserver extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Compares the memory and split search time of two regression observers.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption observerOption = new ClassOption("observer", 'o',
+            "Observer to measure.", FIMTDDNumericAttributeClassObserver.class,
+            "FIMTDDBinnedNumericAttributeClassObserver");
+
+    public ClassOption baselineObserverOption = new ClassOption("baselineObserver", 'b',
+            "Observer to compare with.", FIMTDDNumericAttributeClassObserver.class,
+            "FIMTDDNumericAttributeClassObserver");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to observe.", InstanceStream.class,
+            "generators.FriedmanGenerator -a 5");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to observe.", 1000000, 1, Integer.MAX_VALUE);
+
+    public IntOption measurementsOption = new IntOption("measurements", 'm',
+            "Number of measurements.", 5, 1, Integer.MAX_VALUE);
+
+    public IntOption repetitionsOption = new IntOption("repetitions", 'r',
+            "Number of times the best splits are searched in every measurement.",
+            10, 1, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        int numAttributes = stream.getHeader().numAttributes();
+        int classIndex = stream.getHeader().classIndex();
+        FIMTDDNumericAttributeClassObserver prototype = (FIMTDDNumericAttributeClassObserver) getPreparedClassOption(this.observerOption);
+        FIMTDDNumericAttributeClassObserver baselinePrototype = (FIMTDDNumericAttributeClassObserver) getPreparedClassOption(this.baselineObserverOption);
+        FIMTDDNumericAttributeClassObserver[] observers = new FIMTDDNumericAttributeClassObserver[numAttributes];
+        FIMTDDNumericAttributeClassObserver[] baselineObservers = new FIMTDDNumericAttributeClassObserver[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            if (i != classIndex && stream.getHeader().attribute(i).isNumeric()) {
+                observers[i] = (FIMTDDNumericAttributeClassObserver) prototype.copy();
+                baselineObservers[i] = (FIMTDDNumericAttributeClassObserver) baselinePrototype.copy();
+            }
+        }
+        SplitCriterion criterion = new SDRSplitCriterion();
+        double[] preSplitDist = new double[3];
+        int measurements = this.measurementsOption.getValue();
+        Instance[] instances = new Instance[(this.instanceLimitOption.getValue()
+                + measurements - 1) / measurements];
+        LearningCurve learningCurve = new LearningCurve("learning evaluation instances");
+        long observed = 0;
+        double observeTime = 0.0;
+        double baselineObserveTime = 0.0;
+        for (int m = 0; m < measurements; m++) {
+            monitor.setCurrentActivity("Observing...", (double) m / measurements);
+            int numInstances = 0;
+            while (numInstances < instances.length
+                    && observed + numInstances < this.instanceLimitOption.getValue()
+                    && stream.hasMoreInstances()) {
+                Instance inst = stream.nextInstance();
+                instances[numInstances++] = inst;
+                preSplitDist[0] += 1.0;
+                preSplitDist[1] += inst.classValue();
+                preSplitDist[2] += inst.classValue() * inst.classValue();
+            }
+            observed += numInstances;
+            baselineObserveTime += observe(baselineObservers, instances, numInstances);
+            observeTime += observe(observers, instances, numInstances);
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+
+            monitor.setCurrentActivity("Searching splits...", (m + 0.5) / measurements);
+            double[] baseline = searchSplits(baselineObservers, criterion, preSplitDist);
+            double[] result = searchSplits(observers, criterion, preSplitDist);
+            learningCurve.insertEntry(new LearningEvaluation(new Measurement[]{
+                        new Measurement("learning evaluation instances", observed),
+                        new Measurement("baseline bytes", byteSize(baselineObservers)),
+                        new Measurement("bytes", byteSize(observers)),
+                        new Measurement("baseline observe time per instance (microseconds)",
+                        baselineObserveTime / observed),
+                        new Measurement("observe time per instance (microseconds)",
+                        observeTime / observed),
+                        new Measurement("baseline split search time (microseconds)", baseline[0]),
+                        new Measurement("split search time (microseconds)", result[0]),
+                        new Measurement("split search speedup", baseline[0] / result[0]),
+                        new Measurement("baseline best merit", baseline[1]),
+                        new Measurement("best merit", result[1]),
+                        new Measurement("baseline best attribute", baseline[2]),
+                        new Measurement("best attribute", result[2])}));
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+        }
+        return learningCurve;
+    }
+
+    /**
+     * Adds the instances to the observers.
+     *
+     * @return the cpu time in microseconds
+     */
+    protected static double observe(FIMTDDNumericAttributeClassObserver[] observers,
+            Instance[] instances, int numInstances) {
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int n = 0; n < numInstances; n++) {
+            Instance inst = instances[n];
+            for (int i = 0; i < observers.length; i++) {
+                if (observers[i] != null) {
+                    observers[i].observeAttributeClass(inst.value(i),
+                            inst.classValue(), inst.weight());
+                }
+            }
+        }
+        return (TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime) / 1000.0;
+    }
+
+    /**
+     * Searches the best split of every attribute, as a leaf does.
+     *
+     * @return the cpu time of a search in microseconds, the best merit and
+     * the index of its attribute
+     */
+    protected double[] searchSplits(FIMTDDNumericAttributeClassObserver[] observers,
+            SplitCriterion criterion, double[] preSplitDist) {
+        int repetitions = this.repetitionsOption.getValue();
+        double bestMerit = Double.NEGATIVE_INFINITY;
+        int bestAttribute = -1;
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (int r = 0; r < repetitions; r++) {
+            for (int i = 0; i < observers.length; i++) {
+                if (observers[i] != null) {
+                    AttributeSplitSuggestion suggestion = observers[i].getBestEvaluatedSplitSuggestion(
+                            criterion, preSplitDist, i, true);
+                    if (suggestion != null && suggestion.merit > bestMerit) {
+                        bestMerit = suggestion.merit;
+                        bestAttribute = i;
+                    }
+                }
+            }
+        }
+        double time = (TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime)
+                / 1000.0 / repetitions;
+        return new double[]{time, bestMerit, bestAttribute};
+    }
+
+    protected static double byteSize(FIMTDDNumericAttributeClassObserver[] observers) {
+        long bytes = 0;
+        for (FIMTDDNumericAttributeClassObserver observer : observers) {
+            if (observer != null) {
+                long size = SizeOf.fullSizeOf(observer);
+                if (size < 0) {
+                    return -1;
+                }
+                bytes += size;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *    MeasureRuleMatching.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.classifiers.rules.AbstractAMRules;
+import moa.classifiers.rules.core.Rule;
+import moa.classifiers.rules.core.RuleIndex;
+import moa.classifiers.rules.core.RuleSet;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.streams.InstanceStream;
+import weka.core.Instance;
+
+/**
+ * Task for measuring the cost of finding the rules of an AMRules model that
+ * cover an instance. A learner is trained on the stream, and every time the
+ * given number of instances has been trained on, the next instances are
+ * matched against its rule set both by evaluating every rule and with a
+ * <code>RuleIndex</code>. One row is added to the curve for every
+ * measurement, with the number of rules, the time per instance of both ways
+ * and the number of instances for which they disagree, which should be zero.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureRuleMatching extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures the cost of finding the rules of an AMRules model that cover an instance.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner to train.", AbstractAMRules.class,
+            "AMRulesRegressor -U -g 50");
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", InstanceStream.class,
+            "generators.FriedmanGenerator");
+
+    public IntOption trainInstancesOption = new IntOption("trainInstances", 't',
+            "Number of instances to train on between measurements.", 50000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption measurementsOption = new IntOption("measurements", 'm',
+            "Number of measurements.", 4, 1, Integer.MAX_VALUE);
+
+    public IntOption testInstancesOption = new IntOption("testInstances", 'i',
+            "Number of instances to match in every measurement.", 10000, 1,
+            Integer.MAX_VALUE);
+
+    public IntOption repetitionsOption = new IntOption("repetitions", 'r',
+            "Number of times the instances are matched.", 10, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        AbstractAMRules learner = (AbstractAMRules) getPreparedClassOption(this.learnerOption);
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        learner.setModelContext(stream.getHeader());
+        int repetitions = this.repetitionsOption.getValue();
+        Instance[] instances = new Instance[this.testInstancesOption.getValue()];
+        LearningCurve learningCurve = new LearningCurve("learning evaluation instances");
+        long trained = 0;
+        for (int m = 0; m < this.measurementsOption.getValue(); m++) {
+            monitor.setCurrentActivity("Training...",
+                    (double) m / this.measurementsOption.getValue());
+            for (int i = 0; i < this.trainInstancesOption.getValue()
+                    && stream.hasMoreInstances(); i++) {
+                learner.trainOnInstance(stream.nextInstance());
+                trained++;
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+            }
+            int numInstances = 0;
+            while (numInstances < instances.length && stream.hasMoreInstances()) {
+                instances[numInstances++] = stream.nextInstance();
+            }
+            RuleSet ruleSet = learner.getRuleSet();
+            RuleIndex ruleIndex = new RuleIndex();
+            int numLiterals = 0;
+            for (Rule rule : ruleSet) {
+                ruleIndex.addRule(rule, stream.getHeader().classIndex());
+                numLiterals += rule.getNodeList().size();
+            }
+
+            monitor.setCurrentActivity("Matching...",
+                    (m + 0.5) / this.measurementsOption.getValue());
+            long covering = 0;
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            for (int r = 0; r < repetitions; r++) {
+                for (int i = 0; i < numInstances; i++) {
+                    for (Rule rule : ruleSet) {
+                        if (rule.isCovering(instances[i])) {
+                            covering++;
+                        }
+                    }
+                }
+            }
+            double linearTime = (double) (TimingUtils.getNanoCPUTimeOfCurrentThread()
+                    - startTime) / ((double) repetitions * numInstances);
+            startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            for (int r = 0; r < repetitions; r++) {
+                for (int i = 0; i < numInstances; i++) {
+                    ruleIndex.match(instances[i]);
+                }
+            }
+            double indexTime = (double) (TimingUtils.getNanoCPUTimeOfCurrentThread()
+                    - startTime) / ((double) repetitions * numInstances);
+            int disagreements = 0;
+            for (int i = 0; i < numInstances; i++) {
+                int numMatches = ruleIndex.match(instances[i]);
+                int match = 0;
+                for (int j = 0; j < ruleSet.size(); j++) {
+                    if (ruleSet.get(j).isCovering(instances[i])) {
+                        if (match == numMatches || ruleIndex.getMatch(match) != j) {
+                            match = -1;
+                            break;
+                        }
+                        match++;
+                    }
+                }
+                if (match != numMatches) {
+                    disagreements++;
+                }
+            }
+            learningCurve.insertEntry(new LearningEvaluation(new Measurement[]{
+                        new Measurement("learning evaluation instances", trained),
+                        new Measurement("rules", ruleSet.size()),
+                        new Measurement("literals", numLiterals),
+                        new Measurement("covering rules per instance",
+                        (double) covering / ((double) repetitions * numInstances)),
+                        new Measurement("linear time per instance (nanoseconds)", linearTime),
+                        new Measurement("index time per instance (nanoseconds)", indexTime),
+                        new Measurement("speedup", linearTime / indexTime),
+                        new Measurement("disagreements", disagreements)}));
+            if (monitor.taskShouldAbort()) {
+                return null;
+            }
+            if (monitor.resultPreviewRequested()) {
+                monitor.setLatestResultPreview(learningCurve.copy());
+            }
+        }
+        return learningCurve;
+    }
+}
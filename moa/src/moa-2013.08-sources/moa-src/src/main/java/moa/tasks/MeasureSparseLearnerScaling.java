@@ -0,0 +1,160 @@
+/*
+ *    MeasureSparseLearnerScaling.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import moa.classifiers.Classifier;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningCurve;
+import moa.evaluation.LearningEvaluation;
+import moa.options.ClassOption;
+import moa.options.IntOption;
+import moa.options.ListOption;
+import moa.options.Option;
+import moa.streams.generators.SparseHyperplaneGenerator;
+import weka.core.Instance;
+import weka.core.Utils;
+
+/**
+ * Task for measuring how the test-then-train cost of a linear learner grows
+ * with the number of attributes and with the number of non-zero values of
+ * sparse instances, with and without its sparse mode. The instances come
+ * from <code>SparseHyperplaneGenerator</code>, and the sparse mode is turned
+ * on by appending the <code>-s</code> option to the learner, as understood
+ * by <code>functions.SGD</code> and <code>functions.SPegasos</code>. One row
+ * is added to the curve for every number of attributes and of non-zero
+ * values.
+ *
+ * @version $Revision: 7 $
+ */
+public class MeasureSparseLearnerScaling extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Measures how a linear learner scales with the dimension and the sparsity of the instances.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption learnerOption = new ClassOption("learner", 'l',
+            "Learner to measure.", Classifier.class, "functions.SGD");
+
+    public ListOption numAttsOption = new ListOption("numAtts", 'a',
+            "Numbers of attributes to measure, separated by commas.",
+            new IntOption("numAtt", ' ', "Number of attributes.", 1000, 1, Integer.MAX_VALUE),
+            new IntOption[]{
+                new IntOption("", ' ', "", 1000),
+                new IntOption("", ' ', "", 10000),
+                new IntOption("", ' ', "", 100000)}, ',');
+
+    public ListOption numNonZeroOption = new ListOption("numNonZero", 'z',
+            "Numbers of non-zero values per instance to measure, separated by commas.",
+            new IntOption("numNonZero", ' ', "Number of non-zero values.", 10, 1, Integer.MAX_VALUE),
+            new IntOption[]{
+                new IntOption("", ' ', "", 10),
+                new IntOption("", ' ', "", 100)}, ',');
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Number of instances to test/train on for each run.", 20000, 1,
+            Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        TimingUtils.enablePreciseTiming();
+        Option[] numAtts = this.numAttsOption.getList();
+        Option[] numNonZeros = this.numNonZeroOption.getList();
+        String learnerString = this.learnerOption.getValueAsCLIString();
+        LearningCurve learningCurve = new LearningCurve("run");
+        int runs = numAtts.length * numNonZeros.length;
+        int run = 0;
+        for (Option numAtt : numAtts) {
+            for (Option numNonZero : numNonZeros) {
+                int d = ((IntOption) numAtt).getValue();
+                int nnz = ((IntOption) numNonZero).getValue();
+                monitor.setCurrentActivity("Measuring " + d + " attributes with "
+                        + nnz + " non-zero values...", (double) run / runs);
+                SparseHyperplaneGenerator stream = new SparseHyperplaneGenerator();
+                stream.numAttsOption.setValue(d);
+                stream.numNonZeroOption.setValue(nnz);
+                stream.prepareForUse();
+                Instance[] instances = new Instance[this.instanceLimitOption.getValue()];
+                for (int i = 0; i < instances.length; i++) {
+                    instances[i] = stream.nextInstance();
+                }
+                double[] dense = measure(learnerString, stream, instances);
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                double[] sparse = measure(learnerString + " -s", stream, instances);
+                learningCurve.insertEntry(new LearningEvaluation(new Measurement[]{
+                            new Measurement("run", run),
+                            new Measurement("attributes", d),
+                            new Measurement("non-zero values", nnz),
+                            new Measurement("time per instance (microseconds)", dense[0]),
+                            new Measurement("sparse time per instance (microseconds)", sparse[0]),
+                            new Measurement("speedup", dense[0] / sparse[0]),
+                            new Measurement("classifications correct (percent)", dense[1]),
+                            new Measurement("sparse classifications correct (percent)", sparse[1])}));
+                run++;
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(learningCurve.copy());
+                }
+            }
+        }
+        return learningCurve;
+    }
+
+    /**
+     * Tests then trains a new learner on the instances.
+     *
+     * @return the cpu time per instance in microseconds and the accuracy
+     */
+    protected static double[] measure(String learnerString,
+            SparseHyperplaneGenerator stream, Instance[] instances) {
+        Classifier learner;
+        try {
+            learner = (Classifier) ClassOption.cliStringToObject(
+                    learnerString, Classifier.class, null);
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to create learner: "
+                    + learnerString, ex);
+        }
+        learner.prepareForUse();
+        learner.setModelContext(stream.getHeader());
+        int correct = 0;
+        long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        for (Instance inst : instances) {
+            if (Utils.maxIndex(learner.getVotesForInstance(inst)) == (int) inst.classValue()) {
+                correct++;
+            }
+            learner.trainOnInstance(inst);
+        }
+        double time = TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+        return new double[]{time / 1000.0 / instances.length,
+                    100.0 * correct / instances.length};
+    }
+}
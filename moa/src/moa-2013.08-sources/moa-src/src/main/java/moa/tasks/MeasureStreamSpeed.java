@@ -55,7 +55,8 @@ public class MeasureStreamSpeed extends MainTask {
         int numInstances = 0;
         InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
         long genStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
-        while (numInstances < this.generateSizeOption.getValue()) {
+        while ((numInstances < this.generateSizeOption.getValue())
+                && stream.hasMoreInstances()) {
             stream.nextInstance();
             numInstances++;
         }
@@ -0,0 +1,357 @@
+/*
+ *    RunTaskGrid.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import moa.MOAObject;
+import moa.classifiers.Classifier;
+import moa.core.ObjectRepository;
+import moa.evaluation.LearningCurve;
+import moa.options.AbstractOptionHandler;
+import moa.options.ClassOption;
+import moa.options.FileOption;
+import moa.options.IntOption;
+import moa.options.ListOption;
+import moa.options.Option;
+import moa.options.StringOption;
+import moa.streams.InstanceStream;
+
+/**
+ * Task for running a grid of experiments in one JVM. The task is run for
+ * every combination of stream, learner and parameter value, on a bounded
+ * pool of threads. The learning curve of every run is written to its own
+ * CSV file, named after the stream, the learner and the parameter value.
+ * Runs whose file already exists are skipped, so an interrupted grid can be
+ * resumed by running it again.
+ *
+ * The task must have options named <code>stream</code> and
+ * <code>learner</code> and return a <code>LearningCurve</code>, like
+ * <code>EvaluatePrequential</code> and
+ * <code>EvaluateInterleavedTestThenTrain</code>. Every run uses a copy of
+ * the task with the same options, so the task must not set output files,
+ * such as the dump file of <code>EvaluatePrequential</code>, which the runs
+ * would write at the same time. A grid whose task sets one is rejected.
+ * Aborting the grid aborts the runs in progress, and the task only returns
+ * once they have stopped, without writing their files.
+ *
+ * @version $Revision: 7 $
+ */
+public class RunTaskGrid extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Runs a task for every combination of streams, learners and parameter values.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /** Longest file name used for a run, before the hash is added. */
+    protected static final int MAX_NAME_LENGTH = 120;
+
+    public ClassOption taskOption = new ClassOption("task", 't',
+            "Task to run for every combination.", Task.class, "EvaluatePrequential");
+
+    public ListOption streamsOption = new ListOption("streams", 's',
+            "Streams to run, separated by semicolons.",
+            new ClassOption("stream", ' ', "Stream.", InstanceStream.class,
+            "generators.RandomTreeGenerator"),
+            new Option[]{new ClassOption("", ' ', "", InstanceStream.class,
+                "generators.RandomTreeGenerator")}, ';');
+
+    public ListOption learnersOption = new ListOption("learners", 'l',
+            "Learners to run, separated by semicolons.",
+            new ClassOption("learner", ' ', "Learner.", Classifier.class,
+            "trees.HoeffdingTree"),
+            new Option[]{new ClassOption("", ' ', "", Classifier.class,
+                "trees.HoeffdingTree")}, ';');
+
+    public StringOption learnerParameterOption = new StringOption("learnerParameter", 'p',
+            "Learner parameter to vary, empty for none.", "");
+
+    public ListOption parameterValuesOption = new ListOption("parameterValues", 'v',
+            "Values of the learner parameter, separated by commas.",
+            new StringOption("parameterValue", ' ', "Parameter value.", ""),
+            new Option[0], ',');
+
+    public StringOption outputDirectoryOption = new StringOption("outputDirectory", 'o',
+            "Directory to write the CSV file of every run to.", "grid");
+
+    public IntOption numThreadsOption = new IntOption("numThreads", 'n',
+            "Number of runs at the same time, 0 for the number of processors.",
+            0, 0, Integer.MAX_VALUE);
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        final Task taskTemplate = (Task) getPreparedClassOption(this.taskOption);
+        checkOutputFiles(taskTemplate);
+        Option[] streams = this.streamsOption.getList();
+        Option[] learners = this.learnersOption.getList();
+        String parameter = this.learnerParameterOption.getValue().trim();
+        Option[] values = this.parameterValuesOption.getList();
+        if ((parameter.length() == 0) || (values.length == 0)) {
+            parameter = "";
+            values = new Option[]{null};
+        }
+        File outputDirectory = new File(this.outputDirectoryOption.getValue());
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new RuntimeException("Unable to create output directory: "
+                    + outputDirectory);
+        }
+
+        GridRunMonitor runMonitor = new GridRunMonitor();
+        List<GridRun> runs = new ArrayList<GridRun>();
+        int numSkipped = 0;
+        for (Option stream : streams) {
+            for (Option learner : learners) {
+                for (Option value : values) {
+                    String streamString = stream.getValueAsCLIString();
+                    String learnerString = learner.getValueAsCLIString();
+                    String name = streamString + " " + learnerString;
+                    if (value != null) {
+                        learnerString += " -" + parameter + " " + value.getValueAsCLIString();
+                        name += " " + parameter + " " + value.getValueAsCLIString();
+                    }
+                    File outputFile = new File(outputDirectory, fileName(name));
+                    if (outputFile.exists()) {
+                        numSkipped++;
+                    } else {
+                        runs.add(new GridRun(taskTemplate, streamString,
+                                learnerString, outputFile, runMonitor));
+                    }
+                }
+            }
+        }
+
+        int numThreads = this.numThreadsOption.getValue();
+        if (numThreads < 1) {
+            numThreads = Runtime.getRuntime().availableProcessors();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+                Math.min(numThreads, runs.size())));
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (GridRun run : runs) {
+            futures.add(executor.submit(run));
+        }
+        executor.shutdown();
+
+        StringBuilder failures = new StringBuilder();
+        int numFailed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            monitor.setCurrentActivity("Running grid, " + i + " of "
+                    + futures.size() + " runs completed...",
+                    (double) i / futures.size());
+            try {
+                while (true) {
+                    try {
+                        futures.get(i).get(1, TimeUnit.SECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        if (monitor.taskShouldAbort()) {
+                            abort(executor, runMonitor);
+                            return null;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                abort(executor, runMonitor);
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                numFailed++;
+                failures.append("\n").append(runs.get(i).outputFile.getName())
+                        .append(": ").append(e.getCause());
+            }
+        }
+        return "Grid completed: " + (runs.size() - numFailed) + " runs written, "
+                + numSkipped + " skipped, " + numFailed + " failed." + failures;
+    }
+
+    /**
+     * Rejects a task that writes to output files, as every run would write
+     * to the same files.
+     *
+     * @param task the task to run for every combination
+     */
+    protected static void checkOutputFiles(Task task) {
+        if (task instanceof AbstractOptionHandler) {
+            for (Option option : ((AbstractOptionHandler) task).getOptions().getOptionArray()) {
+                if ((option instanceof FileOption)
+                        && ((FileOption) option).isOutputFile()
+                        && (((FileOption) option).getFile() != null)) {
+                    throw new IllegalArgumentException("Task must not set the "
+                            + option.getName() + " option, as all runs would write to it.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the runs in progress, drops the runs not started yet and waits
+     * for the threads of the pool to finish.
+     */
+    protected static void abort(ExecutorService executor, GridRunMonitor runMonitor) {
+        runMonitor.aborted = true;
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the name of the CSV file of a run. Characters that are not safe in
+     * file names are replaced, and long names are shortened and made unique
+     * by a hash of the full name.
+     *
+     * @param name the description of the run
+     * @return the file name
+     */
+    protected static String fileName(String name) {
+        StringBuilder sb = new StringBuilder();
+        boolean lastReplaced = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c) || (c == '.') || (c == '-')) {
+                sb.append(c);
+                lastReplaced = false;
+            } else if (!lastReplaced) {
+                sb.append('_');
+                lastReplaced = true;
+            }
+        }
+        if (lastReplaced && (sb.length() > 0)) {
+            sb.setLength(sb.length() - 1);
+        }
+        if (sb.length() > MAX_NAME_LENGTH) {
+            sb.setLength(MAX_NAME_LENGTH);
+            sb.append('_').append(Integer.toHexString(name.hashCode()));
+        }
+        return sb.append(".csv").toString();
+    }
+
+    /**
+     * Monitor shared by the runs of a grid, telling them to abort once the
+     * grid is aborted.
+     */
+    protected static class GridRunMonitor extends NullMonitor {
+
+        protected volatile boolean aborted;
+
+        @Override
+        public boolean taskShouldAbort() {
+            return this.aborted;
+        }
+    }
+
+    /**
+     * One run of the grid, writing its learning curve to a CSV file.
+     */
+    protected static class GridRun implements Runnable {
+
+        protected Task taskTemplate;
+
+        protected String streamString;
+
+        protected String learnerString;
+
+        protected File outputFile;
+
+        protected GridRunMonitor monitor;
+
+        public GridRun(Task taskTemplate, String streamString,
+                String learnerString, File outputFile, GridRunMonitor monitor) {
+            this.taskTemplate = taskTemplate;
+            this.streamString = streamString;
+            this.learnerString = learnerString;
+            this.outputFile = outputFile;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void run() {
+            Task task;
+            synchronized (this.taskTemplate) {
+                task = (Task) ((MOAObject) this.taskTemplate).copy();
+            }
+            setTaskOption(task, "stream", this.streamString);
+            setTaskOption(task, "learner", this.learnerString);
+            if (this.monitor.taskShouldAbort()) {
+                return;
+            }
+            Object result = task.doTask(this.monitor, null);
+            if (this.monitor.taskShouldAbort()) {
+                return;
+            }
+            if (!(result instanceof LearningCurve)) {
+                throw new RuntimeException("Task did not return a learning curve: "
+                        + result);
+            }
+            LearningCurve learningCurve = (LearningCurve) result;
+            // write to a temporary file first, so failed runs are not skipped later
+            File tempFile = new File(this.outputFile.getPath() + ".tmp");
+            try {
+                PrintStream out = new PrintStream(new FileOutputStream(tempFile));
+                out.println(learningCurve.headerToString());
+                for (int i = 0; i < learningCurve.numEntries(); i++) {
+                    out.println(learningCurve.entryToString(i));
+                }
+                out.close();
+                if (out.checkError() || !tempFile.renameTo(this.outputFile)) {
+                    throw new RuntimeException("Unable to write " + this.outputFile);
+                }
+            } catch (FileNotFoundException ex) {
+                throw new RuntimeException("Unable to write " + this.outputFile, ex);
+            }
+        }
+
+        protected static void setTaskOption(Task task, String name, String value) {
+            Option option = null;
+            if (task instanceof AbstractOptionHandler) {
+                option = ((AbstractOptionHandler) task).getOptions().getOption(name);
+            }
+            if (option == null) {
+                throw new IllegalArgumentException("Task has no " + name + " option.");
+            }
+            option.setValueViaCLIString(value);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *    WriteStreamToBinaryFile.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import moa.core.InstancesHeader;
+import moa.core.ObjectRepository;
+import moa.options.ClassOption;
+import moa.options.FileOption;
+import moa.options.FlagOption;
+import moa.options.IntOption;
+import moa.streams.BinaryFileStream;
+import moa.streams.InstanceStream;
+import weka.core.Attribute;
+import weka.core.Instance;
+
+/**
+ * Task to output a stream to a binary stream cache file, which can be
+ * replayed much faster than an ARFF file with <code>BinaryFileStream</code>.
+ * String and relational attributes are not supported.
+ *
+ * @version $Revision: 7 $
+ */
+public class WriteStreamToBinaryFile extends MainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Outputs a stream to a binary stream cache file.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to write.", InstanceStream.class,
+            "generators.RandomTreeGenerator");
+
+    public FileOption binaryFileOption = new FileOption("binaryFile", 'f',
+            "Destination binary file.", null, "moab", true);
+
+    public IntOption maxInstancesOption = new IntOption("maxInstances", 'm',
+            "Maximum number of instances to write to file.", 10000000, 0,
+            Integer.MAX_VALUE);
+
+    public FlagOption storeWeightsOption = new FlagOption("storeWeights",
+            'w', "Store instance weights, needed if any weight is not 1.");
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        InstanceStream stream = (InstanceStream) getPreparedClassOption(this.streamOption);
+        File destFile = this.binaryFileOption.getFile();
+        if (destFile != null) {
+            try {
+                InstancesHeader header = stream.getHeader();
+                int numAttributes = header.numAttributes();
+                byte[] columnTypes = new byte[numAttributes];
+                for (int i = 0; i < numAttributes; i++) {
+                    Attribute att = header.attribute(i);
+                    if (att.isString() || att.isRelationValued()) {
+                        throw new IllegalArgumentException("Attribute " + att.name()
+                                + " cannot be stored in a binary stream cache file.");
+                    }
+                    columnTypes[i] = BinaryFileStream.columnType(att);
+                }
+                boolean storeWeights = this.storeWeightsOption.isSet();
+                byte[] arffHeader = header.toString().getBytes("UTF-8");
+
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(destFile)));
+                monitor.setCurrentActivityDescription("Writing stream to binary file");
+                out.writeInt(BinaryFileStream.MAGIC);
+                out.writeInt(BinaryFileStream.VERSION);
+                out.writeInt(arffHeader.length);
+                out.write(arffHeader);
+                out.writeInt(header.classIndex());
+                out.writeInt(numAttributes);
+                out.write(columnTypes);
+                out.writeBoolean(storeWeights);
+                long numInstancesOffset = out.size();
+                out.writeLong(0); // filled in when the number is known
+                long numWritten = 0;
+                while ((numWritten < this.maxInstancesOption.getValue())
+                        && stream.hasMoreInstances()) {
+                    Instance inst = stream.nextInstance();
+                    for (int i = 0; i < numAttributes; i++) {
+                        double value = inst.value(i);
+                        switch (columnTypes[i]) {
+                            case BinaryFileStream.COLUMN_BYTE:
+                                out.writeByte(Double.isNaN(value) ? 0xFF : (int) value);
+                                break;
+                            case BinaryFileStream.COLUMN_SHORT:
+                                out.writeShort(Double.isNaN(value) ? 0xFFFF : (int) value);
+                                break;
+                            default:
+                                out.writeDouble(value);
+                        }
+                    }
+                    if (storeWeights) {
+                        out.writeDouble(inst.weight());
+                    } else if (inst.weight() != 1.0) {
+                        out.close();
+                        throw new IllegalArgumentException("Instance "
+                                + numWritten + " has weight " + inst.weight()
+                                + ", use -" + this.storeWeightsOption.getCLIChar()
+                                + " to store weights.");
+                    }
+                    numWritten++;
+                }
+                out.close();
+                RandomAccessFile raf = new RandomAccessFile(destFile, "rw");
+                raf.seek(numInstancesOffset);
+                raf.writeLong(numWritten);
+                raf.close();
+            } catch (Exception ex) {
+                throw new RuntimeException(
+                        "Failed writing to file " + destFile, ex);
+            }
+            return "Stream written to binary file " + destFile;
+        }
+        throw new IllegalArgumentException("No destination file to write to.");
+    }
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return String.class;
+    }
+}